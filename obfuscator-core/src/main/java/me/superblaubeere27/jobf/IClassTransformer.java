@@ -11,10 +11,79 @@
 package me.superblaubeere27.jobf;
 
 import me.superblaubeere27.annotations.ObfuscationTransformer;
+import me.superblaubeere27.jobf.utils.ClassSummary;
+import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.tree.ClassNode;
 
+import java.util.Collection;
+import java.util.Collections;
+
 public interface IClassTransformer {
     void process(ProcessorCallback callback, ClassNode node);
 
     ObfuscationTransformer getType();
+
+    /**
+     * @return if the processor queries {@link JObfImpl#getReferences()}, which is only built if a processor needs it
+     */
+    default boolean needsReferenceIndex() {
+        return false;
+    }
+
+    /**
+     * @return if the processor changes classes other than the one it processes, e.g. the access of members it looks up.
+     * Classes are kept as trees for the whole run then, since changes to serialized classes would be lost.
+     */
+    default boolean modifiesOtherClasses() {
+        return false;
+    }
+
+    /**
+     * @return the types of the processors which must process a class before this one, e.g. because they add code
+     * which this processor should see. The processors are ordered by their dependencies when they are registered.
+     */
+    default Collection<Class<?>> getDependencies() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Called before {@link #process(ProcessorCallback, ClassNode)}, which is skipped if this returns false.
+     * Should be false only if processing certainly wouldn't change the class.
+     */
+    default boolean isApplicable(ClassSummary summary) {
+        return true;
+    }
+
+    /**
+     * @return false if the processor doesn't change any class, e.g. because it is disabled
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * @return {@link org.objectweb.asm.ClassReader} flags for information which the processor removes or recomputes
+     * in every class, so it isn't parsed in the first place. Frames which aren't parsed are computed.
+     */
+    default int getReaderFlags() {
+        return 0;
+    }
+
+    /**
+     * @return if {@link #createVisitor(ClassVisitor)} is supported. If it is supported by every enabled processor,
+     * classes are transformed while they are read, without building a {@link ClassNode}.
+     */
+    default boolean isStreamable() {
+        return false;
+    }
+
+    /**
+     * Processors which only change flags, attributes and debug info don't need the tree.
+     *
+     * @param next receives the transformed class
+     * @return a visitor which changes the class like {@link #process(ProcessorCallback, ClassNode)}
+     */
+    default ClassVisitor createVisitor(ClassVisitor next) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " needs the class tree");
+    }
 }
\ No newline at end of file
@@ -10,9 +10,16 @@
 
 package me.superblaubeere27.jobf;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileDescriptor;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
@@ -30,6 +37,7 @@ import joptsimple.OptionException;
 import joptsimple.OptionParser;
 import joptsimple.OptionSet;
 import me.superblaubeere27.jobf.utils.ConfigurationDebugger;
+import me.superblaubeere27.jobf.utils.mapping.Retrace;
 import me.superblaubeere27.jobf.utils.values.ConfigManager;
 import me.superblaubeere27.jobf.utils.values.ConfigMigrationUtil;
 import me.superblaubeere27.jobf.utils.values.Configuration;
@@ -44,15 +52,14 @@ public class JObf {
     public static boolean VERBOSE = false;
 
     public static void main(String[] args) throws Exception {
-        log.info(VERSION);
-        log.info("");
-
         OptionParser parser = new OptionParser();
 
         parser.accepts("help", "Shows this help menu").forHelp();
         parser.accepts("version", "Displays the version number");
-        parser.accepts("jarIn", "The input jar").withRequiredArg().required();
-        parser.accepts("jarOut", "The output jar").withRequiredArg().required();
+        parser.accepts("retrace", "Deobfuscates stack traces and logs with the given mapping. Reads the files given as arguments (or stdin) and writes to stdout").withRequiredArg();
+        parser.accepts("retraceBareNames", "Replaces obfuscated class names without a package anywhere in the text when retracing, not only in exception headers and cast messages");
+        parser.accepts("jarIn", "The input jar").requiredUnless("retrace").withRequiredArg();
+        parser.accepts("jarOut", "The output jar").requiredUnless("retrace").withRequiredArg();
         parser.accepts("config", "The config file (YAML format preferred)").withRequiredArg();
         parser.accepts("script", "Script for the obfuscator").withRequiredArg();
         parser.accepts("verbose", "Displays verbose debug output");
@@ -65,6 +72,15 @@ public class JObf {
         try {
             OptionSet options = parser.parse(args);
 
+            // Keep stdout clean for the retraced output
+            if (options.has("retrace")) {
+                retrace(new File((String) options.valueOf("retrace")), options.has("retraceBareNames"), options.nonOptionArguments());
+                return;
+            }
+
+            log.info(VERSION);
+            log.info("");
+
             if (options.has("help")) {
                 parser.printHelpOn(System.out);
                 return;
@@ -144,6 +160,29 @@ public class JObf {
         }
     }
 
+    private static void retrace(File mappingFile, boolean replaceBareNames, List<?> inputs) throws IOException {
+        Retrace retrace;
+
+        try (BufferedReader reader = Files.newBufferedReader(mappingFile.toPath(), StandardCharsets.UTF_8)) {
+            retrace = Retrace.load(reader);
+        }
+
+        retrace.setReplaceBareNames(replaceBareNames);
+
+        Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(FileDescriptor.out), StandardCharsets.UTF_8), 1 << 16);
+
+        if (inputs.isEmpty()) {
+            retrace.retrace(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), 1 << 16), out);
+            return;
+        }
+
+        for (Object input : inputs) {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(input.toString()), StandardCharsets.UTF_8), 1 << 16)) {
+                retrace.retrace(reader, out);
+            }
+        }
+    }
+
     public static boolean runEmbedded(String jarIn, String jarOut, File configPath, List<String> libraries, String scriptContent) throws IOException, InterruptedException {
         return runObfuscator(jarIn, jarOut, configPath, libraries, false, true, null, scriptContent, Runtime.getRuntime().availableProcessors());
     }
@@ -19,20 +19,26 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 import java.util.zip.CRC32;
 import java.util.zip.Deflater;
@@ -43,6 +49,7 @@ import java.util.zip.ZipOutputStream;
 
 import org.apache.commons.lang3.StringUtils;
 import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ModifiedClassWriter;
 import org.objectweb.asm.tree.ClassNode;
 import org.objectweb.asm.tree.FrameNode;
@@ -67,12 +74,27 @@ import me.superblaubeere27.jobf.processors.name.INameObfuscationProcessor;
 import me.superblaubeere27.jobf.processors.name.InnerClassRemover;
 import me.superblaubeere27.jobf.processors.name.NameObfuscation;
 import me.superblaubeere27.jobf.processors.optimizer.Optimizer;
-import me.superblaubeere27.jobf.utils.ClassTree;
+import me.superblaubeere27.jobf.utils.AnalysisCache;
+import me.superblaubeere27.jobf.utils.ByteArena;
+import me.superblaubeere27.jobf.utils.ClassByteStore;
+import me.superblaubeere27.jobf.utils.ClassHierarchy;
+import me.superblaubeere27.jobf.utils.ClassSummary;
+import me.superblaubeere27.jobf.utils.DependencyGraph;
+import me.superblaubeere27.jobf.utils.GlobMatcher;
+import me.superblaubeere27.jobf.utils.InterningClassVisitor;
+import me.superblaubeere27.jobf.utils.LibraryClass;
+import me.superblaubeere27.jobf.utils.MemberIndex;
 import me.superblaubeere27.jobf.utils.MissingClassException;
 import me.superblaubeere27.jobf.utils.NameUtils;
+import me.superblaubeere27.jobf.utils.OrderedEntryWriter;
+import me.superblaubeere27.jobf.utils.ReferenceIndex;
+import me.superblaubeere27.jobf.utils.SymbolTable;
 import me.superblaubeere27.jobf.utils.Utils;
 import me.superblaubeere27.jobf.utils.scheduler.ScheduledRunnable;
 import me.superblaubeere27.jobf.utils.scheduler.Scheduler;
+import me.superblaubeere27.jobf.utils.scheduler.TimeBudget;
+import me.superblaubeere27.jobf.utils.scheduler.TimeBudgetExceededException;
+import me.superblaubeere27.jobf.utils.scheduler.WorkerThrottle;
 import me.superblaubeere27.jobf.utils.script.JObfScript;
 import me.superblaubeere27.jobf.utils.values.Configuration;
 import me.superblaubeere27.jobf.utils.values.Value;
@@ -80,6 +102,7 @@ import me.superblaubeere27.jobf.utils.values.ValueManager;
 
 public class JObfImpl {
     private static final Logger log = LoggerFactory.getLogger(JObfImpl.class);
+    private static final int SPILLED_LOOKUP_CACHE_SIZE = 64;
     public static final JObfImpl INSTANCE = new JObfImpl();
     public static List<IClassTransformer> processors;
     public static HashMap<String, ClassNode> classes = new HashMap<>();
@@ -90,8 +113,48 @@ public class JObfImpl {
     private final List<INameObfuscationProcessor> nameObfuscationProcessors = new ArrayList<>();
     private String mainClass;
     private Map<String, ClassWrapper> classPath = new HashMap<>();
-    private Map<String, ClassTree> hierarchy = new HashMap<>();
-    private Set<ClassWrapper> libraryClassnodes = new HashSet<>();
+    private ClassHierarchy hierarchy = new ClassHierarchy();
+    private ClassByteStore classBytes = new ClassByteStore();
+    private SymbolTable symbols = new SymbolTable();
+    private MemberIndex members = new MemberIndex();
+    private AnalysisCache analyses = new AnalysisCache();
+    private ReferenceIndex references;
+    /**
+     * Indices of serialized classes in {@link #classBytes} by their entry name
+     */
+    private final Map<String, Integer> spilledClasses = new ConcurrentHashMap<>();
+    /**
+     * Skeletons of the input classes by their entry name if classes are only parsed when they are processed
+     */
+    private final Map<String, LibraryClass> inputSkeletons = new HashMap<>();
+    /**
+     * {@link ClassReader} flags for the information which the enabled processors discard anyway, classes which the
+     * script excludes are parsed completely
+     */
+    private int parseFlags;
+    /**
+     * Entry names of the classes which were parsed without their frames
+     */
+    private final Set<String> framelessClasses = ConcurrentHashMap.newKeySet();
+    /**
+     * Indices of the input classes in {@link #classBytes} by their entry name
+     */
+    private final Map<String, Integer> inputClasses = new HashMap<>();
+    /**
+     * Recently looked up serialized classes, evicted nodes are removed from the {@link #members member index}
+     */
+    private final LinkedHashMap<String, ClassNode> spilledLookups = new LinkedHashMap<String, ClassNode>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ClassNode> eldest) {
+            if (size() <= SPILLED_LOOKUP_CACHE_SIZE) return false;
+
+            members.remove(eldest.getValue());
+            return true;
+        }
+    };
+    private ConcurrentHashMap<String, ClassNode> libraryNodes = new ConcurrentHashMap<>();
+    private final Set<String> warnedMissingClasses = new HashSet<>();
+    private Map<String, LibraryClass> libraries = new HashMap<>();
     private List<File> libraryFiles;
     private int computeMode;
     private boolean invokeDynamic;
@@ -127,67 +190,156 @@ public class JObfImpl {
         this.mainClass = mainClass;
     }
 
-    public ClassTree getTree(String ref) {
-        if (!hierarchy.containsKey(ref)) {
+    public ClassHierarchy getHierarchy() {
+        return hierarchy;
+    }
+
+    /**
+     * @return the cross-reference index of the program classes or null if no processor {@link IClassTransformer#needsReferenceIndex() needs} it
+     */
+    public ReferenceIndex getReferences() {
+        return references;
+    }
+
+    /**
+     * @return the cache of method frames of the current run
+     */
+    public AnalysisCache getAnalyses() {
+        return analyses;
+    }
+
+    /**
+     * @return the member index of the current run
+     */
+    public MemberIndex getMembers() {
+        return members;
+    }
+
+    /**
+     * The node is materialized from the skeleton once per run, so it can be indexed and compared by identity.
+     *
+     * @return a code-less node of the library class or null if there is no such library class
+     */
+    public ClassNode getLibraryNode(String name) {
+        ClassNode node = libraryNodes.get(name);
+
+        if (node != null) return node;
+
+        LibraryClass libraryClass = libraries.get(name);
+
+        if (libraryClass == null) return null;
+
+        node = libraryClass.toClassNode();
+
+        ClassNode previous = libraryNodes.putIfAbsent(name, node);
+
+        return previous == null ? node : previous;
+    }
+
+    /**
+     * @return the table which deduplicates the names and descriptors of the current run
+     */
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    /**
+     * @return the store which holds the raw bytes of all classes of the current run
+     */
+    public ClassByteStore getClassBytes() {
+        return classBytes;
+    }
+
+    /**
+     * Lock-free unless the class has to be added to the hierarchy first.
+     *
+     * @return the id of the class in the {@link #getHierarchy() hierarchy} or -1 if it isn't in the class path
+     */
+    public int getTree(String ref) {
+        int id = hierarchy.find(ref);
+
+        return hierarchy.contains(id) ? id : addToHierarchy(ref);
+    }
+
+    private synchronized int addToHierarchy(String ref) {
+        int id = hierarchy.find(ref);
+
+        if (!hierarchy.contains(id)) {
             ClassWrapper wrapper = classPath.get(ref);
+            LibraryClass libraryClass = libraries.get(ref);
+
+            if (wrapper != null)
+                hierarchy.record(wrapper);
+            else if (libraryClass != null)
+                hierarchy.record(libraryClass);
+            else
+                return -1;
 
-            if (wrapper == null)
-                return null;
+            hierarchy.complete();
 
-            buildHierarchy(wrapper, null, false);
+            id = hierarchy.find(ref);
         }
 
-        return hierarchy.get(ref);
+        return hierarchy.contains(id) ? id : -1;
     }
 
-    public void buildHierarchy(ClassWrapper classWrapper, ClassWrapper sub, boolean acceptMissingClass) {
-        if (hierarchy.get(classWrapper.classNode.name) == null) {
-            ClassTree tree = new ClassTree(classWrapper);
-            if (classWrapper.classNode.superName != null) {
-                tree.parentClasses.add(classWrapper.classNode.superName);
-                ClassWrapper superClass = classPath.get(classWrapper.classNode.superName);
+    /**
+     * Makes sure that the class is part of the hierarchy. Classes of the class path are recorded while they are
+     * loaded, so this usually just checks if one of its super classes is missing.
+     *
+     * @throws MissingClassException if a super class is missing and acceptMissingClass is false
+     */
+    public synchronized int buildHierarchy(ClassWrapper classWrapper, boolean acceptMissingClass) {
+        int id = hierarchy.find(classWrapper.classNode.name);
 
-                if (superClass == null && !acceptMissingClass)
-                    throw new MissingClassException(classWrapper.classNode.superName + " (referenced in " + classWrapper.classNode.name + ") is missing in the classPath.");
-                else if (superClass == null) {
-                    tree.missingSuperClass = true;
+        if (!hierarchy.contains(id)) {
+            hierarchy.record(classWrapper);
+            hierarchy.complete();
 
-                    log.warn("Missing class: " + classWrapper.classNode.superName + " (No methods of subclasses will be remapped)");
-                } else {
-                    buildHierarchy(superClass, classWrapper, acceptMissingClass);
+            id = hierarchy.find(classWrapper.classNode.name);
+        }
 
-                    // Inherit the missingSuperClass state
-                    if (hierarchy.get(classWrapper.classNode.superName).missingSuperClass) {
-                        tree.missingSuperClass = true;
-                    }
-                }
-            }
-            if (classWrapper.classNode.interfaces != null && !classWrapper.classNode.interfaces.isEmpty()) {
-                for (String s : classWrapper.classNode.interfaces) {
-                    tree.parentClasses.add(s);
-                    ClassWrapper interfaceClass = classPath.get(s);
+        if (hierarchy.isMissingSuperClass(id)) {
+            String missingClass = hierarchy.findMissingClass(id);
+
+            if (!acceptMissingClass)
+                throw new MissingClassException(missingClass + " (referenced in the hierarchy of " + classWrapper.classNode.name + ") is missing in the classPath.");
 
-                    if (interfaceClass == null && !acceptMissingClass)
-                        throw new MissingClassException(s + " (referenced in " + classWrapper.classNode.name + ") is missing in the classPath.");
-                    else if (interfaceClass == null) {
-                        tree.missingSuperClass = true;
+            if (warnedMissingClasses.add(missingClass))
+                log.warn("Missing class: " + missingClass + " (No methods of subclasses will be remapped)");
+        }
 
-                        log.warn("Missing interface class: " + s + " (No methods of subclasses will be remapped)");
-                    } else {
-                        buildHierarchy(interfaceClass, classWrapper, acceptMissingClass);
+        return id;
+    }
 
-                        // Inherit the missingSuperClass state
-                        if (hierarchy.get(s).missingSuperClass) {
-                            tree.missingSuperClass = true;
-                        }
-                    }
-                }
-            }
-            hierarchy.put(classWrapper.classNode.name, tree);
+    /**
+     * @return if {@code type} is {@code superType} or inherits from it. False if the hierarchy of {@code type} is incomplete.
+     */
+    public boolean isSubType(String type, String superType) {
+        int id;
+
+        try {
+            id = getTree(type);
+        } catch (MissingClassException e) {
+            return false;
         }
-        if (sub != null) {
-            hierarchy.get(classWrapper.classNode.name).subClasses.add(sub.classNode.name);
+
+        return id != -1 && hierarchy.isSubType(id, hierarchy.find(superType));
+    }
+
+    /**
+     * Used for frame computation. Classes of the class path which aren't in the hierarchy yet are added.
+     *
+     * @return the common super class or null if it can't be determined from the class path
+     */
+    public String getCommonSuperClass(String type1, String type2) {
+        try {
+            if (getTree(type1) == -1 || getTree(type2) == -1) return null;
+        } catch (MissingClassException e) {
+            return null;
         }
+
+        return hierarchy.getCommonSuperClass(type1, type2);
     }
 
     //    private Map<String, ClassWrapper> loadClasspathFile(File file) throws IOException {
@@ -257,7 +409,7 @@ public class JObfImpl {
             log.info("Parsing class files...");
 
             ScheduledRunnable runnable = () -> {
-                Map<String, ClassWrapper> map = new HashMap<>();
+                Map<String, LibraryClass> map = new HashMap<>();
 
                 while (true) {
                     byte[] bytes;
@@ -268,14 +420,14 @@ public class JObfImpl {
 
                     if (bytes == null) break;
 
-                    ClassReader reader = new ClassReader(bytes);
-                    ClassNode node = new ClassNode();
-                    reader.accept(node, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
-                    map.put(node.name, new ClassWrapper(node, true, bytes));
+                    LibraryClass libraryClass = LibraryClass.read(bytes, symbols, classBytes);
+
+                    map.put(libraryClass.getName(), libraryClass);
+                    hierarchy.record(libraryClass);
                 }
 
-                synchronized (classPath) {
-                    classPath.putAll(map);
+                synchronized (libraries) {
+                    libraries.putAll(map);
                 }
 
                 return true;
@@ -287,16 +439,31 @@ public class JObfImpl {
             scheduler.waitFor();
 
         }
-
-        libraryClassnodes.addAll(classPath.values());
     }
 
+    /**
+     * @return the input classes
+     */
     public Map<String, ClassWrapper> getClassPath() {
         return classPath;
     }
 
+    /**
+     * @return the skeletons of the library classes
+     */
+    public Map<String, LibraryClass> getLibraries() {
+        return libraries;
+    }
+
+    /**
+     * @return the skeleton of an input class which is only parsed when it is processed, null otherwise
+     */
+    public LibraryClass getInputSkeleton(String name) {
+        return inputSkeletons.get(name + ".class");
+    }
+
     public boolean isLibrary(ClassNode classNode) {
-        return libraryClassnodes.stream().anyMatch(e -> e.classNode.name.equals(classNode.name));
+        return libraries.containsKey(classNode.name) && !classPath.containsKey(classNode.name) && getInputSkeleton(classNode.name) == null;
     }
 
     public boolean isLoadedCode(ClassNode classNode) {
@@ -326,6 +493,15 @@ public class JObfImpl {
 
         preProcessors = new ArrayList<>();
 
+        // The lists above are in a sensible order, the dependencies of the processors make sure it stays valid
+        List<IClassTransformer> sortedProcessors = DependencyGraph.sort(processors, IClassTransformer::getDependencies);
+        List<INameObfuscationProcessor> sortedNameProcessors = DependencyGraph.sort(nameObfuscationProcessors, INameObfuscationProcessor::getDependencies);
+
+        processors.clear();
+        processors.addAll(sortedProcessors);
+        nameObfuscationProcessors.clear();
+        nameObfuscationProcessors.addAll(sortedNameProcessors);
+
         log.info("Registering processors with ValueManager...");
         // Register all processors with the ValueManager
         for (IClassTransformer processor : processors) {
@@ -364,10 +540,19 @@ public class JObfImpl {
         libraryFiles = new ArrayList<>();
 
         classes = new HashMap<>();
-        libraryClassnodes = new HashSet<>();
+        libraries = new HashMap<>();
         classPath = new HashMap<>();
         files = new HashMap<>();
-        hierarchy = new HashMap<>();
+        hierarchy = new ClassHierarchy();
+        classBytes.close();
+        classBytes = new ClassByteStore();
+        symbols = new SymbolTable();
+        members = new MemberIndex();
+        analyses = new AnalysisCache();
+        libraryNodes = new ConcurrentHashMap<>();
+        references = null;
+        inputSkeletons.clear();
+        warnedMissingClasses.clear();
 
         // Apply settings to NameUtils AFTER config has been applied
         log.info("Applying settings to name utils...");
@@ -412,9 +597,24 @@ public class JObfImpl {
 
             startTime = System.currentTimeMillis();
 
-            log.info("Reading input...");
+            // Without processors which need all classes at once, every class is parsed just before it is processed
+            boolean lazy = preProcessors.isEmpty()
+                    && nameObfuscationProcessors.stream().noneMatch(INameObfuscationProcessor::needsClassNodes)
+                    && processors.stream().noneMatch(IClassTransformer::needsReferenceIndex)
+                    && processors.stream().noneMatch(IClassTransformer::modifiesOtherClasses);
+
+            parseFlags = 0;
+
+            for (IClassTransformer processor : processors) {
+                if (processor.isEnabled()) parseFlags |= processor.getReaderFlags();
+            }
+
+            if (parseFlags != 0) log.info("Skipping " + ((parseFlags & ClassReader.SKIP_DEBUG) != 0 ? "debug info " : "") + ((parseFlags & ClassReader.SKIP_FRAMES) != 0 ? "frames " : "") + "while parsing");
 
-            HashMap<String, byte[]> classDataMap = new HashMap<>();
+            log.info(lazy ? "Reading input (classes are parsed when they are processed)..." : "Reading input...");
+
+            // Class files are parsed and copied into the byte store straight from the buffer
+            ByteArena entryBuffer = new ByteArena(64 * 1024);
 
             while (true) {
                 ZipEntry entry = inJar.getNextEntry();
@@ -428,39 +628,40 @@ public class JObfImpl {
                     continue;
                 }
 
-                byte[] data = new byte[4096];
-                ByteArrayOutputStream entryBuffer = new ByteArrayOutputStream();
-
-                int len;
-                do {
-                    len = inJar.read(data);
-                    if (len > 0) {
-                        entryBuffer.write(data, 0, len);
-                    }
-                } while (len != -1);
+                entryBuffer.readFully(inJar);
 
-                byte[] entryData = entryBuffer.toByteArray();
+                byte[] buffer = entryBuffer.getBuffer();
+                int length = entryBuffer.getLength();
 
                 String entryName = entry.getName();
 
-                if (entryName.endsWith(".class")) {
+                if (entryName.endsWith(".class") && lazy) {
                     try {
-                        ClassReader cr = new ClassReader(entryData);
-                        ClassNode cn = new ClassNode();
+                        int index = classBytes.put(buffer, 0, length);
 
+                        inputSkeletons.put(entryName, LibraryClass.read(buffer, symbols, classBytes, index));
+                        spilledClasses.put(entryName, index);
+                        inputClasses.put(entryName, index);
+                    } catch (Exception e) {
+                        log.warn("Failed to read class " + entryName);
+                        e.printStackTrace();
+                        files.put(entryName, entryBuffer.toByteArray());
+                    }
+                } else if (entryName.endsWith(".class")) {
+                    try {
+                        ClassNode cn = parse(entryName, buffer, length);
 
-                        //ca = new LineInjectorAdaptor(ASM4, cn);
-
-                        cr.accept(cn, 0);
                         classes.put(entryName, cn);
-                        classDataMap.put(entryName, entryData);
+                        inputClasses.put(entryName, classBytes.put(buffer, 0, length));
                     } catch (Exception e) {
                         log.warn("Failed to read class " + entryName);
                         e.printStackTrace();
-                        files.put(entryName, entryData);
+                        files.put(entryName, entryBuffer.toByteArray());
                     }
 
                 } else {
+                    byte[] entryData = entryBuffer.toByteArray();
+
                     if (entryName.equals("META-INF/MANIFEST.MF")) {
                         // Check if the main class has been renamed
                         String originalMainClass = Utils.getMainClass(new String(entryData, StandardCharsets.UTF_8));
@@ -494,10 +695,25 @@ public class JObfImpl {
             }
 
             for (Map.Entry<String, ClassNode> stringClassNodeEntry : classes.entrySet()) {
-                classPath.put(stringClassNodeEntry.getKey().replace(".class", ""), new ClassWrapper(stringClassNodeEntry.getValue(), false, classDataMap.get(stringClassNodeEntry.getKey())));
+                ClassWrapper wrapper = new ClassWrapper(stringClassNodeEntry.getValue(), false, classBytes, inputClasses.get(stringClassNodeEntry.getKey()));
+
+                classPath.put(stringClassNodeEntry.getKey().replace(".class", ""), wrapper);
+                hierarchy.record(wrapper);
             }
-            for (ClassNode value : classes.values()) {
-                libraryClassnodes.add(new ClassWrapper(value, false, null));
+            for (LibraryClass skeleton : inputSkeletons.values()) {
+                hierarchy.recordInput(skeleton);
+            }
+
+            hierarchy.complete();
+            // Names which already exist are never handed out again
+            for (ClassWrapper classWrapper : classPath.values()) {
+                NameUtils.getGenerator().reserve(classWrapper.classNode);
+            }
+            for (LibraryClass skeleton : inputSkeletons.values()) {
+                NameUtils.getGenerator().reserve(skeleton);
+            }
+            for (LibraryClass libraryClass : libraries.values()) {
+                NameUtils.getGenerator().reserve(libraryClass);
             }
 
 //            if (nameobf) {
@@ -509,6 +725,11 @@ public class JObfImpl {
             }
 //            }
 
+            if (processors.stream().anyMatch(IClassTransformer::needsReferenceIndex)) {
+                log.info("Building reference index...");
+                references = ReferenceIndex.build(classes.values());
+            }
+
             AtomicInteger processed = new AtomicInteger();
 
             log.info("... Finished after " + Utils.formatTime(System.currentTimeMillis() - startTime));
@@ -517,9 +738,40 @@ public class JObfImpl {
 
             log.info("Transforming with " + threadCount + " threads...");
 
-            final LinkedList<Map.Entry<String, ClassNode>> classQueue = new LinkedList<>(classes.entrySet());
+            final List<String> classNames = new ArrayList<>(lazy ? inputSkeletons.keySet() : classes.keySet());
+            final LinkedList<Integer> classQueue = new LinkedList<>();
+            final int classCount = classNames.size();
+
+            for (int i = 0; i < classCount; i++) classQueue.add(i);
 
-            HashMap<String, byte[]> toWrite = new HashMap<>();
+            int heapBudget = settings.getHeapBudget().getObject();
+
+            // Lazily parsed classes are serialized anyway
+            if (heapBudget > 0 && !lazy) {
+                Optional<IClassTransformer> modifying = processors.stream().filter(IClassTransformer::modifiesOtherClasses).findFirst();
+
+                if (modifying.isPresent())
+                    log.warn("Classes are kept in the heap despite the heap budget, " + modifying.get().getClass().getSimpleName() + " changes other classes");
+                else
+                    spillIfOverBudget(classNames, heapBudget * 1024L * 1024L);
+            }
+
+            // Classes are written as soon as they are done, in a fixed order
+            ZipOutputStream finalOutJar = outJar;
+            OrderedEntryWriter classWriter = new OrderedEntryWriter(classCount, (name, data) -> writeEntry(finalOutJar, name, data, stored));
+            AtomicReference<IOException> writeError = new AtomicReference<>();
+            // Without processors which need the tree, lazily parsed classes are transformed while they are read
+            boolean streaming = lazy && script == null
+                    && processors.stream().filter(IClassTransformer::isEnabled).allMatch(IClassTransformer::isStreamable);
+
+            if (streaming) log.info("All enabled processors support streaming, classes are transformed without a tree");
+
+            // Fewer classes are processed at once if the heap runs full
+            WorkerThrottle throttle = settings.getAdaptiveThreads().getObject() ? new WorkerThrottle(threadCount) : null;
+            long classTimeBudget = settings.getClassTimeBudget().getObject() * 1000L;
+            long processorTimeBudget = settings.getProcessorTimeBudget().getObject() * 1000L;
+            // Classes which ran out of time, reported at the end
+            List<String> budgetIncidents = Collections.synchronizedList(new ArrayList<>());
 
             List<Thread> threads = new ArrayList<>();
 
@@ -528,21 +780,92 @@ public class JObfImpl {
 
 
                 Thread t = new Thread(() -> {
+                    // The input bytes of a class are only needed until it is parsed, the buffer is reused for the next class
+                    ByteArena input = new ByteArena(64 * 1024);
+                    TimeBudget budget = classTimeBudget > 0 || processorTimeBudget > 0 ? new TimeBudget(classTimeBudget, processorTimeBudget) : null;
+
                     try {
                         while (true) {
-                            Map.Entry<String, ClassNode> stringClassNodeEntry;
+                            Integer classIndex;
 
                             synchronized (classQueue) {
-                                stringClassNodeEntry = classQueue.poll();
+                                classIndex = classQueue.poll();
                             }
 
-                            if (stringClassNodeEntry == null) break;
+                            if (classIndex == null) break;
 
                             ProcessorCallback callback = new ProcessorCallback();
 
-                            String entryName = stringClassNodeEntry.getKey();
-                            byte[] entryData;
-                            ClassNode cn = stringClassNodeEntry.getValue();
+                            String entryName = classNames.get(classIndex);
+                            byte[] entryData = null;
+                            ClassNode cn = classes.get(entryName);
+                            boolean materialized = cn == null;
+
+                            if (materialized && streaming) {
+                                int original = spilledClasses.get(entryName);
+
+                                log.info(String.format("[%s] (%s/%s), Streaming %s", Thread.currentThread().getName(), processed, classCount, entryName));
+
+                                try {
+                                    classBytes.get(original, input);
+
+                                    entryData = stream(input);
+                                } catch (Exception e) {
+                                    // The class is copied like the classes which couldn't be read in the first place
+                                    log.warn("Failed to transform class " + entryName);
+                                    e.printStackTrace();
+                                    entryData = classBytes.get(original);
+                                }
+
+                                try {
+                                    classWriter.complete(classIndex, entryName, entryData);
+                                } catch (IOException e) {
+                                    writeError.compareAndSet(null, e);
+                                }
+
+                                processed.incrementAndGet();
+                                continue;
+                            }
+
+                            int weight = 0;
+
+                            if (materialized) {
+                                Integer original = spilledClasses.get(entryName);
+
+                                // The tree only takes up heap once the class may be processed
+                                if (throttle != null && original != null) {
+                                    weight = throttle.weightOfClassFile(classBytes.length(original));
+                                    throttle.acquire(weight);
+                                }
+
+                                try {
+                                    cn = unspill(entryName, input);
+                                } catch (Exception e) {
+                                    // The class is copied like the classes which couldn't be read in the first place
+                                    log.warn("Failed to read class " + entryName);
+                                    e.printStackTrace();
+                                }
+
+                                if (cn == null) {
+                                    if (throttle != null) throttle.release(weight);
+
+                                    try {
+                                        classWriter.complete(classIndex, entryName, original == null ? null : classBytes.get(original));
+                                    } catch (IOException e) {
+                                        writeError.compareAndSet(null, e);
+                                    }
+
+                                    processed.incrementAndGet();
+                                    continue;
+                                }
+                            }
+
+                            ClassSummary summary = ClassSummary.of(cn);
+
+                            if (throttle != null && !materialized) {
+                                weight = throttle.weight(summary.getInstructionCount());
+                                throttle.acquire(weight);
+                            }
 
                             try {
                                 try {
@@ -551,19 +874,53 @@ public class JObfImpl {
 
 
                                     if (script == null || script.isObfuscatorEnabled(cn)) {
-                                        log.info(String.format("[%s] (%s/%s), Processing %s", Thread.currentThread().getName(), processed, classes.size(), entryName));
+                                        log.info(String.format("[%s] (%s/%s), Processing %s", Thread.currentThread().getName(), processed, classCount, entryName));
+
+                                        // The state before the processors, restored if one of them runs out of time
+                                        byte[] checkpoint = budget == null || materialized ? null : checkpoint(cn);
+                                        // Classes which can't be restored are processed without a budget
+                                        TimeBudget classBudget = materialized || checkpoint != null ? budget : null;
+                                        Set<IClassTransformer> skipped = new HashSet<>();
+                                        IClassTransformer timedOut;
 
-                                        for (IClassTransformer proc : processors) {
-                                            try {
-                                                proc.process(callback, cn);
-                                            } catch (Exception e) {
-                                                e.printStackTrace();
+                                        if (classBudget != null) classBudget.startClass();
+
+                                        try {
+                                            while ((timedOut = runProcessors(callback, cn, summary, classBudget, skipped)) != null) {
+                                                boolean classExceeded = classBudget.isClassExceeded();
+                                                String incident = String.format("%s ran out of time on %s, %s", timedOut.getClass().getSimpleName(), entryName, classExceeded ? "the class is kept as it was" : "processing it again without it");
+
+                                                log.warn(incident);
+                                                budgetIncidents.add(incident);
+
+                                                if (materialized) {
+                                                    classBytes.get(spilledClasses.get(entryName), input);
+
+                                                    restore(entryName, cn, input.getBuffer(), input.getLength());
+                                                } else {
+                                                    restore(entryName, cn, checkpoint, checkpoint.length);
+                                                }
+
+                                                callback = new ProcessorCallback();
+
+                                                summary = ClassSummary.of(cn);
+
+                                                if (classExceeded) break;
+
+                                                skipped.add(timedOut);
                                             }
+                                        } finally {
+                                            if (classBudget != null) classBudget.finish();
                                         }
+
+                                        if (references != null) references.update(cn);
                                     } else {
-                                        log.info(String.format("[%s] (%s/%s), Skipping %s", Thread.currentThread().getName(), processed, classes.size(), entryName));
+                                        log.info(String.format("[%s] (%s/%s), Skipping %s", Thread.currentThread().getName(), processed, classCount, entryName));
                                     }
 
+                                    // Frames which weren't parsed are computed
+                                    if (framelessClasses.contains(entryName)) callback.setForceComputeFrames();
+
                                     if (callback.isForceComputeFrames())
                                         cn.methods.forEach(method -> Arrays.stream(method.instructions.toArray()).filter(abstractInsnNode -> abstractInsnNode instanceof FrameNode).forEach(abstractInsnNode -> method.instructions.remove(abstractInsnNode)));
 
@@ -571,7 +928,7 @@ public class JObfImpl {
                                     int mode = computeMode
                                             | (callback.isForceComputeFrames() ? ModifiedClassWriter.COMPUTE_FRAMES : 0);
 
-                                    log.info(String.format("[%s] (%s/%s), Writing (computeMode = %s) %s", Thread.currentThread().getName(), processed, classes.size(), mode, entryName));
+                                    log.info(String.format("[%s] (%s/%s), Writing (computeMode = %s) %s", Thread.currentThread().getName(), processed, classCount, mode, entryName));
 
                                     ModifiedClassWriter writer = new ModifiedClassWriter(
                                             mode
@@ -587,20 +944,40 @@ public class JObfImpl {
 //                                    if (e instanceof) {
 //
 //                                    }
-                                    ModifiedClassWriter writer = new ModifiedClassWriter(ModifiedClassWriter.COMPUTE_MAXS
-                                            //                            | ModifiedClassWriter.COMPUTE_FRAMES
-                                    );
-                                    cn.accept(writer);
+                                    Integer original = inputClasses.get(entryName);
+                                    byte[] originalData = framelessClasses.contains(entryName) && original != null ? classBytes.get(original) : null;
 
+                                    if (originalData != null && cn.name.equals(new ClassReader(originalData).getClassName())) {
+                                        // The tree has no frames, the class is copied like the classes which couldn't be read in the first place
+                                        entryData = originalData;
+                                    } else {
+                                        if (framelessClasses.contains(entryName)) log.warn(entryName + " was renamed, it is written without frames");
+
+                                        ModifiedClassWriter writer = new ModifiedClassWriter(ModifiedClassWriter.COMPUTE_MAXS
+                                                //                            | ModifiedClassWriter.COMPUTE_FRAMES
+                                        );
+                                        cn.accept(writer);
 
-                                    entryData = writer.toByteArray();
-                                }
 
-                                synchronized (toWrite) {
-                                    toWrite.put(entryName, entryData);
+                                        entryData = writer.toByteArray();
+                                    }
                                 }
+
                             } catch (Exception e) {
                                 e.printStackTrace();
+                            } finally {
+                                if (throttle != null) throttle.release(weight);
+                            }
+
+                            analyses.remove(cn);
+
+                            // The tree isn't needed anymore
+                            if (materialized) members.remove(cn);
+
+                            try {
+                                classWriter.complete(classIndex, entryName, entryData);
+                            } catch (IOException e) {
+                                writeError.compareAndSet(null, e);
                             }
 
                             processed.incrementAndGet();
@@ -629,18 +1006,16 @@ public class JObfImpl {
 
             log.info("... Finished after " + Utils.formatTime(System.currentTimeMillis() - startTime));
 
-            startTime = System.currentTimeMillis();
-
-            log.info("Writing classes...");
-
-            for (Map.Entry<String, byte[]> stringEntry : toWrite.entrySet()) {
-                writeEntry(outJar, stringEntry.getKey(), stringEntry.getValue(), stored);
+            if (!budgetIncidents.isEmpty()) {
+                log.warn(budgetIncidents.size() + " time budgets were exceeded:");
+                budgetIncidents.forEach(log::warn);
             }
 
-            log.info("... Finished after " + Utils.formatTime(System.currentTimeMillis() - startTime));
-
             startTime = System.currentTimeMillis();
 
+            if (writeError.get() != null) throw writeError.get();
+
+
             log.info("Writing resources...");
 
             for (Map.Entry<String, byte[]> stringEntry : files.entrySet()) {
@@ -687,11 +1062,28 @@ public class JObfImpl {
             classPath.clear();
             classes.clear();
             libraryFiles.clear();
-            libraryClassnodes.clear();
+            libraries.clear();
             files.clear();
-            hierarchy.clear();
+            hierarchy = new ClassHierarchy();
+            classBytes.close();
+            classBytes = new ClassByteStore();
+            symbols = new SymbolTable();
+            members = new MemberIndex();
+            analyses = new AnalysisCache();
+            libraryNodes = new ConcurrentHashMap<>();
+            references = null;
+            spilledClasses.clear();
+            inputSkeletons.clear();
+            inputClasses.clear();
+            framelessClasses.clear();
+            parseFlags = 0;
+
+            synchronized (spilledLookups) {
+                spilledLookups.clear();
+            }
 
             NameUtils.cleanUp();
+            GlobMatcher.clearCache();
 
             System.gc();
 
@@ -716,6 +1108,256 @@ public class JObfImpl {
         }
     }
 
+    /**
+     * Serializes all classes which wait for processing if the heap is larger than the budget.
+     * Parsing and name obfuscation need all classes, this bounds the transform phase, where every class is
+     * only materialized while it is processed.
+     */
+    private void spillIfOverBudget(List<String> classNames, long budget) {
+        long used = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+
+        if (used <= budget) return;
+
+        log.info("Heap usage of " + (used >> 20) + " MB exceeds the budget of " + (budget >> 20) + " MB, serializing " + classNames.size() + " classes");
+
+        for (String entryName : classNames) {
+            ClassNode node = classes.get(entryName);
+            ModifiedClassWriter writer = new ModifiedClassWriter(0);
+
+            node.accept(writer);
+
+            spilledClasses.put(entryName, classBytes.put(writer.toByteArray()));
+            classes.remove(entryName);
+            members.remove(node);
+
+            // The wrapper would keep the tree alive, lookups read the serialized class instead
+            ClassWrapper wrapper = classPath.get(node.name);
+
+            if (wrapper != null && wrapper.classNode == node) {
+                wrapper.classNode = null;
+                wrapper.methods.clear();
+                wrapper.fields.clear();
+            }
+        }
+    }
+
+    /**
+     * Runs the processors which apply to the class.
+     *
+     * @param budget  the time budget of the class or null
+     * @param skipped processors which ran out of time on this class before
+     * @return the processor which ran out of time, the class must be restored then. null if all processors finished.
+     */
+    private IClassTransformer runProcessors(ProcessorCallback callback, ClassNode cn, ClassSummary summary, TimeBudget budget, Set<IClassTransformer> skipped) {
+        for (IClassTransformer proc : processors) {
+            if (skipped.contains(proc)) continue;
+
+            try {
+                if (!proc.isApplicable(summary)) continue;
+
+                if (budget != null) {
+                    budget.startProcessor(proc.getClass().getSimpleName());
+
+                    // The class might be out of time already
+                    TimeBudget.check();
+                }
+
+                proc.process(callback, cn);
+            } catch (TimeBudgetExceededException e) {
+                return proc;
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+
+            // The processor might have caught the exception
+            if (budget != null && budget.isExceeded()) return proc;
+
+            // The processor might have changed the class, the new summary is only scanned if it is needed
+            summary = ClassSummary.of(cn);
+        }
+
+        return null;
+    }
+
+    /**
+     * @return the class as it is now, to {@link #restore(String, ClassNode, byte[], int) restore} it later. null if it can't be
+     * written.
+     */
+    private byte[] checkpoint(ClassNode node) {
+        try {
+            ModifiedClassWriter writer = new ModifiedClassWriter(0);
+
+            node.accept(writer);
+
+            return writer.toByteArray();
+        } catch (Exception e) {
+            log.warn("Failed to create a checkpoint of " + node.name + ": " + e.getMessage());
+
+            return null;
+        }
+    }
+
+    /**
+     * Replaces the contents of a class with a {@link #checkpoint(ClassNode) checkpoint} and indexes it again. The node
+     * itself stays the same, since it might be referenced by the class path.
+     */
+    private void restore(String entryName, ClassNode node, byte[] bytes, int length) {
+        ClassNode restored = parse(entryName, bytes, length);
+
+        analyses.remove(node);
+        members.remove(node);
+
+        node.version = restored.version;
+        node.access = restored.access;
+        node.name = restored.name;
+        node.signature = restored.signature;
+        node.superName = restored.superName;
+        node.interfaces = restored.interfaces;
+        node.sourceFile = restored.sourceFile;
+        node.sourceDebug = restored.sourceDebug;
+        node.module = restored.module;
+        node.outerClass = restored.outerClass;
+        node.outerMethod = restored.outerMethod;
+        node.outerMethodDesc = restored.outerMethodDesc;
+        node.visibleAnnotations = restored.visibleAnnotations;
+        node.invisibleAnnotations = restored.invisibleAnnotations;
+        node.visibleTypeAnnotations = restored.visibleTypeAnnotations;
+        node.invisibleTypeAnnotations = restored.invisibleTypeAnnotations;
+        node.attrs = restored.attrs;
+        node.innerClasses = restored.innerClasses;
+        node.nestHostClass = restored.nestHostClass;
+        node.nestMembers = restored.nestMembers;
+        node.permittedSubclasses = restored.permittedSubclasses;
+        node.recordComponents = restored.recordComponents;
+        node.fields = restored.fields;
+        node.methods = restored.methods;
+
+        // The processors which are run again look the restored methods up
+        if (references != null) references.update(node);
+    }
+
+    /**
+     * Runs the class through the visitors of the enabled processors, in their order. The constant pool and the
+     * methods which aren't changed are copied from the input.
+     */
+    private byte[] stream(ByteArena bytes) {
+        ClassReader reader = new ClassReader(bytes.getBuffer(), 0, bytes.getLength());
+        // The code isn't changed, the max values and frames stay valid
+        ModifiedClassWriter writer = new ModifiedClassWriter(reader, 0);
+        ClassVisitor visitor = writer;
+
+        for (int i = processors.size() - 1; i >= 0; i--) {
+            IClassTransformer processor = processors.get(i);
+
+            if (processor.isEnabled()) visitor = processor.createVisitor(visitor);
+        }
+
+        // The frames are copied, only debug info may be skipped
+        reader.accept(visitor, getParseFlags(bytes.getBuffer(), bytes.getLength()) & ClassReader.SKIP_DEBUG);
+
+        return writer.toByteArray();
+    }
+
+    /**
+     * Parses a class with the {@link #getParseFlags(byte[], int) flags} of the enabled processors. Classes which the
+     * script excludes aren't processed, they are parsed again with their debug info and frames.
+     *
+     * @param entryName the name of the jar entry, it is remembered if the frames were skipped
+     */
+    private ClassNode parse(String entryName, byte[] bytes, int length) {
+        int flags = getParseFlags(bytes, length);
+        ClassNode node = new ClassNode();
+
+        new ClassReader(bytes, 0, length).accept(new InterningClassVisitor(node, symbols), flags);
+
+        if (flags != 0 && script != null && !script.isObfuscatorEnabled(node)) {
+            flags = 0;
+            node = new ClassNode();
+
+            new ClassReader(bytes, 0, length).accept(new InterningClassVisitor(node, symbols), flags);
+        }
+
+        if ((flags & ClassReader.SKIP_FRAMES) != 0) framelessClasses.add(entryName);
+
+        return node;
+    }
+
+    /**
+     * @return the flags to parse a class of the input with
+     */
+    private int getParseFlags(byte[] bytes, int length) {
+        int flags = parseFlags;
+
+        // Strings which were hidden by a previous run are stored in the SourceFile attribute
+        if ((flags & ClassReader.SKIP_DEBUG) != 0 && mightContainHiddenStrings(bytes, length)) flags &= ~ClassReader.SKIP_DEBUG;
+
+        return flags;
+    }
+
+    /**
+     * Looks for {@link StringEncryptionTransformer#MAGICNUMBER_START} anywhere in the class, false positives only cost
+     * the debug info being parsed
+     */
+    private static boolean mightContainHiddenStrings(byte[] bytes, int length) {
+        // Modified UTF-8 only differs for \0 and supplementary characters
+        byte[] marker = StringEncryptionTransformer.MAGICNUMBER_START.getBytes(StandardCharsets.UTF_8);
+
+        outer:
+        for (int i = 0; i <= length - marker.length; i++) {
+            for (int j = 0; j < marker.length; j++) {
+                if (bytes[i + j] != marker[j]) continue outer;
+            }
+
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Reads a class which was serialized to stay in the heap budget or wasn't parsed yet.
+     *
+     * @param entryName the name of the jar entry
+     * @return a new node of the class or null if the class wasn't serialized
+     */
+    public ClassNode unspill(String entryName) {
+        return unspill(entryName, new ByteArena(0));
+    }
+
+    /**
+     * Like {@link #unspill(String)}, the bytes are read into an arena of the worker
+     */
+    private ClassNode unspill(String entryName, ByteArena arena) {
+        Integer index = spilledClasses.get(entryName);
+
+        if (index == null) return null;
+
+        classBytes.get(index, arena);
+
+        return parse(entryName, arena.getBuffer(), arena.getLength());
+    }
+
+    /**
+     * Like {@link #unspill(String)} for lookups of other classes. Recently looked up classes are kept.
+     *
+     * @param name the internal name of the class
+     */
+    public ClassNode getSpilledClass(String name) {
+        if (!spilledClasses.containsKey(name + ".class")) return null;
+
+        synchronized (spilledLookups) {
+            ClassNode node = spilledLookups.get(name);
+
+            if (node == null) {
+                node = unspill(name + ".class");
+
+                if (node != null) spilledLookups.put(name, node);
+            }
+
+            return node;
+        }
+    }
+
     public void writeEntry(ZipOutputStream outJar, String name, byte[] value, boolean stored) throws IOException {
         ZipEntry newEntry = new ZipEntry(name);
 
@@ -799,6 +1441,22 @@ public class JObfImpl {
                 log.info("Updated class name dictionary from config: {}", classNameDict);
             }
             
+            // Name seed
+            Value<?> nameSeedValue = generalSettings.get("Name seed");
+            if (nameSeedValue != null && nameSeedValue.getObject() instanceof Number) {
+                int nameSeed = ((Number) nameSeedValue.getObject()).intValue();
+                settings.getNameSeed().setObject(nameSeed);
+                log.info("Updated name seed from config: {}", nameSeed);
+            }
+            
+            // Compact names
+            Value<?> compactNamesValue = generalSettings.get("Compact names");
+            if (compactNamesValue != null && compactNamesValue.getObject() instanceof Boolean) {
+                boolean compactNames = (Boolean) compactNamesValue.getObject();
+                settings.getCompactNames().setObject(compactNames);
+                log.info("Updated compact names setting from config: {}", compactNames);
+            }
+            
             // STORE setting
             Value<?> useStoreValue = generalSettings.get("Use STORE instead of DEFLATE");
             if (useStoreValue != null && useStoreValue.getObject() instanceof Boolean) {
@@ -13,6 +13,7 @@ package me.superblaubeere27.jobf;
 import me.superblaubeere27.jobf.utils.values.BooleanValue;
 import me.superblaubeere27.jobf.utils.values.DeprecationLevel;
 import me.superblaubeere27.jobf.utils.values.FilePathValue;
+import me.superblaubeere27.jobf.utils.values.NumberValue;
 import me.superblaubeere27.jobf.utils.values.StringValue;
 
 public class JObfSettings {
@@ -22,7 +23,13 @@ public class JObfSettings {
     private BooleanValue useCustomDictionary = new BooleanValue(PROCESSOR_NAME, "Custom dictionary", DeprecationLevel.GOOD, false);
     private FilePathValue classNameDictionary = new FilePathValue(PROCESSOR_NAME, "Class Name dictionary", DeprecationLevel.GOOD, "");
     private FilePathValue nameDictionary = new FilePathValue(PROCESSOR_NAME, "Name dictionary", DeprecationLevel.GOOD, "");
+    private NumberValue<Integer> nameSeed = new NumberValue<>(PROCESSOR_NAME, "Name seed", "Seed for generated names. The same seed and input produce the same names", DeprecationLevel.GOOD, 0);
+    private BooleanValue compactNames = new BooleanValue(PROCESSOR_NAME, "Compact names", "Uses the shortest possible names and reuses them wherever possible to keep the constant pools small", DeprecationLevel.GOOD, false);
     private BooleanValue useStore = new BooleanValue(PROCESSOR_NAME, "Use STORE instead of DEFLATE (For e.g. SpringBoot)", DeprecationLevel.GOOD, false);
+    private BooleanValue adaptiveThreads = new BooleanValue(PROCESSOR_NAME, "Adaptive threads", "Processes fewer classes at once while the heap is almost full or the garbage collector is busy", DeprecationLevel.GOOD, true);
+    private NumberValue<Integer> heapBudget = new NumberValue<>(PROCESSOR_NAME, "Heap budget (MB)", "If the heap is larger than this after the input was read, classes wait for processing in serialized form. 0 disables it", DeprecationLevel.GOOD, 0);
+    private NumberValue<Integer> classTimeBudget = new NumberValue<>(PROCESSOR_NAME, "Class time budget (s)", "Classes which take longer are written without being processed. 0 disables it", DeprecationLevel.GOOD, 0);
+    private NumberValue<Integer> processorTimeBudget = new NumberValue<>(PROCESSOR_NAME, "Processor time budget (s)", "If a processor takes longer on a class, the class is processed again without it. 0 disables it", DeprecationLevel.GOOD, 0);
 
     public BooleanValue getUseCustomDictionary() {
         return useCustomDictionary;
@@ -40,8 +47,31 @@ public class JObfSettings {
         return generatorChars;
     }
 
+    public NumberValue<Integer> getNameSeed() {
+        return nameSeed;
+    }
+
+    public BooleanValue getCompactNames() {
+        return compactNames;
+    }
+
     public BooleanValue getUseStore() {
         return useStore;
     }
-}
 
+    public NumberValue<Integer> getHeapBudget() {
+        return heapBudget;
+    }
+
+    public BooleanValue getAdaptiveThreads() {
+        return adaptiveThreads;
+    }
+
+    public NumberValue<Integer> getClassTimeBudget() {
+        return classTimeBudget;
+    }
+
+    public NumberValue<Integer> getProcessorTimeBudget() {
+        return processorTimeBudget;
+    }
+}
@@ -11,6 +11,7 @@
 package me.superblaubeere27.jobf;
 
 import me.superblaubeere27.jobf.processors.name.ClassWrapper;
+import me.superblaubeere27.jobf.utils.LibraryClass;
 
 import java.io.File;
 import java.io.IOException;
@@ -22,23 +23,30 @@ public class ObfuscatorClassLoader extends ClassLoader {
     @Override
     protected Class<?> findClass(String name) throws ClassNotFoundException {
         String internalName = name.replace('.', '/');
-
         if (JObfImpl.INSTANCE.getClassPath().containsKey(internalName)) {
             ClassWrapper classWrapper = JObfImpl.INSTANCE.getClassPath().get(internalName);
 
-            if (classWrapper == null || classWrapper.originalClass == null)
+            if (classWrapper == null)
                 throw new ClassNotFoundException(name);
 
             try {
-                return defineClass(name, classWrapper.originalClass, 0, classWrapper.originalClass.length);
+                return defineClass(name, classWrapper.getOriginalClass(), null);
             } catch (ClassFormatError classFormatError) {
                 classFormatError.printStackTrace();
                 try {
-                    Files.write(new File("A:/invalid.class").toPath(), classWrapper.originalClass);
+                    Files.write(new File("A:/invalid.class").toPath(), classWrapper.getOriginalClassBytes());
                 } catch (IOException e) {
                     e.printStackTrace();
                 }
             }
+        } else {
+            LibraryClass libraryClass = JObfImpl.INSTANCE.getInputSkeleton(internalName);
+
+            if (libraryClass == null) libraryClass = JObfImpl.INSTANCE.getLibraries().get(internalName);
+
+            if (libraryClass != null) {
+                return defineClass(name, libraryClass.getBytes(), null);
+            }
         }
 
         return super.findClass(name);
@@ -14,10 +14,15 @@ import me.superblaubeere27.annotations.ObfuscationTransformer;
 import me.superblaubeere27.jobf.IClassTransformer;
 import me.superblaubeere27.jobf.JObfImpl;
 import me.superblaubeere27.jobf.ProcessorCallback;
+import me.superblaubeere27.jobf.utils.ClassSummary;
 import me.superblaubeere27.jobf.utils.NameUtils;
 import me.superblaubeere27.jobf.utils.values.BooleanValue;
 import me.superblaubeere27.jobf.utils.values.DeprecationLevel;
 import me.superblaubeere27.jobf.utils.values.EnabledValue;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.tree.AnnotationNode;
 import org.objectweb.asm.tree.ClassNode;
 
@@ -56,7 +61,7 @@ public class CrasherTransformer implements IClassTransformer {
              * By ItzSomebody
              */
             if (node.signature == null) {
-                node.signature = NameUtils.crazyString(10);
+                node.signature = NameUtils.crazyString(node.name, 10);
             }
         }
 
@@ -75,6 +80,58 @@ public class CrasherTransformer implements IClassTransformer {
         inst.setWorkDone();
     }
 
+    @Override
+    public boolean isApplicable(ClassSummary summary) {
+        return enabled.getObject() && !summary.isInterface();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled.getObject();
+    }
+
+    @Override
+    public boolean isStreamable() {
+        return true;
+    }
+
+    @Override
+    public ClassVisitor createVisitor(ClassVisitor next) {
+        return new ClassVisitor(Opcodes.ASM9, next) {
+            private boolean isInterface;
+
+            @Override
+            public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+                isInterface = Modifier.isInterface(access);
+
+                if (!isInterface && invalidSignatures.getObject() && signature == null) {
+                    signature = NameUtils.crazyString(name, 10);
+                }
+
+                super.visit(version, access, name, signature, superName, interfaces);
+            }
+
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                MethodVisitor methodVisitor = super.visitMethod(access, name, descriptor, signature, exceptions);
+
+                if (isInterface || !emptyAnnotation.getObject() || methodVisitor == null) return methodVisitor;
+
+                // The reader copies the method from the input if it is visited by the writer itself, which drops the annotations
+                methodVisitor = new MethodVisitor(Opcodes.ASM9, methodVisitor) {
+                };
+
+                for (int i = 0; i < 50; i++) {
+                    AnnotationVisitor annotationVisitor = methodVisitor.visitAnnotation(EMPTY_STRINGS, false);
+
+                    if (annotationVisitor != null) annotationVisitor.visitEnd();
+                }
+
+                return methodVisitor;
+            }
+        };
+    }
+
     @Override
     public ObfuscationTransformer getType() {
         return ObfuscationTransformer.CRASHER;
@@ -14,13 +14,20 @@ import me.superblaubeere27.annotations.ObfuscationTransformer;
 import me.superblaubeere27.jobf.IClassTransformer;
 import me.superblaubeere27.jobf.JObfImpl;
 import me.superblaubeere27.jobf.ProcessorCallback;
+import me.superblaubeere27.jobf.processors.flowObfuscation.FlowObfuscator;
+import me.superblaubeere27.jobf.utils.ClassSummary;
 import me.superblaubeere27.jobf.utils.values.DeprecationLevel;
 import me.superblaubeere27.jobf.utils.values.EnabledValue;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.tree.ClassNode;
 import org.objectweb.asm.tree.FieldNode;
 import org.objectweb.asm.tree.MethodNode;
 
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Random;
 
 public class HideMembers implements IClassTransformer {
@@ -63,6 +70,60 @@ public class HideMembers implements IClassTransformer {
         inst.setWorkDone();
     }
 
+    /**
+     * Only fields and native methods are hidden
+     */
+    @Override
+    public boolean isApplicable(ClassSummary summary) {
+        return enabled.getObject() && (!summary.getClassNode().fields.isEmpty() || !summary.isInterface() && summary.hasNativeMethods());
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled.getObject();
+    }
+
+    @Override
+    public boolean isStreamable() {
+        return true;
+    }
+
+    @Override
+    public ClassVisitor createVisitor(ClassVisitor next) {
+        return new ClassVisitor(Opcodes.ASM9, next) {
+            private boolean isInterface;
+
+            @Override
+            public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+                isInterface = (access & Opcodes.ACC_INTERFACE) != 0;
+
+                super.visit(version, access, name, signature, superName, interfaces);
+            }
+
+            @Override
+            public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+                return super.visitField(access | Opcodes.ACC_SYNTHETIC, name, descriptor, signature, value);
+            }
+
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                if (!isInterface && !name.startsWith("<") && (access & Opcodes.ACC_NATIVE) != 0) {
+                    access |= Opcodes.ACC_BRIDGE | Opcodes.ACC_SYNTHETIC;
+                }
+
+                return super.visitMethod(access, name, descriptor, signature, exceptions);
+            }
+        };
+    }
+
+    /**
+     * Members which other processors add are hidden too
+     */
+    @Override
+    public Collection<Class<?>> getDependencies() {
+        return Arrays.asList(InvokeDynamic.class, StringEncryptionTransformer.class, NumberObfuscationTransformer.class, FlowObfuscator.class);
+    }
+
     @Override
     public ObfuscationTransformer getType() {
         return ObfuscationTransformer.HIDE_MEMBERS;
@@ -23,11 +23,7 @@ import org.objectweb.asm.tree.ClassNode;
 import org.objectweb.asm.tree.InsnList;
 import org.objectweb.asm.tree.MethodInsnNode;
 import org.objectweb.asm.tree.MethodNode;
-import org.objectweb.asm.tree.analysis.Analyzer;
 import org.objectweb.asm.tree.analysis.AnalyzerException;
-import org.objectweb.asm.tree.analysis.Frame;
-import org.objectweb.asm.tree.analysis.SourceInterpreter;
-import org.objectweb.asm.tree.analysis.SourceValue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -35,8 +31,10 @@ import me.superblaubeere27.annotations.ObfuscationTransformer;
 import me.superblaubeere27.jobf.IClassTransformer;
 import me.superblaubeere27.jobf.JObfImpl;
 import me.superblaubeere27.jobf.ProcessorCallback;
+import me.superblaubeere27.jobf.utils.ClassSummary;
 import me.superblaubeere27.jobf.utils.InliningUtils;
 import me.superblaubeere27.jobf.utils.NodeUtils;
+import me.superblaubeere27.jobf.utils.StackAnalysis;
 import me.superblaubeere27.jobf.utils.Utils;
 import me.superblaubeere27.jobf.utils.values.DeprecationLevel;
 import me.superblaubeere27.jobf.utils.values.EnabledValue;
@@ -67,22 +65,19 @@ public class InlineTransformer implements IClassTransformer {
 
         do {
             ok = false;
+
             for (MethodNode method : node.methods) {
-                int maxStackSize = method.maxStack;
-                int maxLocals = method.maxLocals;
-                method.maxStack = 1337;
-                method.maxLocals = 1337;
+                // Analyzing the frames is expensive, skip methods without calls which could be inlined
+                if (!hasCandidateCalls(method)) continue;
 
-                Frame<SourceValue>[] frames;
+                // Methods which weren't changed by the last pass reuse their analysis
+                StackAnalysis stack;
                 try {
-                    frames = new Analyzer<>(new SourceInterpreter()).analyze(node.name, method);
+                    stack = inst.getAnalyses().getStackAnalysis(method);
                 } catch (AnalyzerException e) {
                     throw new RuntimeException(e);
                 }
 
-                method.maxStack = maxStackSize;
-                method.maxLocals = maxLocals;
-
                 HashMap<AbstractInsnNode, InsnList> replacements = new HashMap<>();
 
                 for (AbstractInsnNode abstractInsnNode : method.instructions.toArray()) {
@@ -96,12 +91,13 @@ public class InlineTransformer implements IClassTransformer {
                         MethodNode lookupMethod = Utils.getMethod(lookupClass, insnNode.name, insnNode.desc, false);
 
                         if (lookupMethod == null
+                                || !stack.isReachable(insnNode)
 //                                || (lookupMethod.instructions.size() > 100)
                                 || (Modifier.isFinal(lookupMethod.access) || insnNode.getOpcode() != Opcodes.INVOKESPECIAL) && insnNode.getOpcode() != Opcodes.INVOKESTATIC
                                 || !InliningUtils.canInlineMethod(node, lookupClass, lookupMethod))
                             continue;
 
-                        InsnList inline = InliningUtils.inline(lookupMethod, lookupClass, method, frames[method.instructions.indexOf(abstractInsnNode)]);
+                        InsnList inline = InliningUtils.inline(lookupMethod, lookupClass, method, stack, abstractInsnNode);
                         inline.insertBefore(inline.getFirst(), NodeUtils.debugString("--- INLINE (" + lookupClass.name + "." + lookupMethod.name + lookupMethod.desc + ") ---"));
                         inline.add(NodeUtils.debugString("--- END ---"));
 
@@ -130,10 +126,37 @@ public class InlineTransformer implements IClassTransformer {
         inst.setWorkDone();
     }
 
+    /**
+     * @return true if the method contains static or special calls
+     */
+    private static boolean hasCandidateCalls(MethodNode method) {
+        for (AbstractInsnNode insn = method.instructions.getFirst(); insn != null; insn = insn.getNext()) {
+            if (insn.getOpcode() == Opcodes.INVOKESTATIC || insn.getOpcode() == Opcodes.INVOKESPECIAL) return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    public boolean isApplicable(ClassSummary summary) {
+        return enabled.getObject() && summary.hasAnyOpcode(Opcodes.INVOKESTATIC, Opcodes.INVOKESPECIAL);
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled.getObject();
+    }
+
     @Override
     public ObfuscationTransformer getType() {
         return ObfuscationTransformer.INLINING;
     }
 
+    @Override
+    public boolean modifiesOtherClasses() {
+        // Inlined members are made public in their classes
+        return enabled.getObject();
+    }
+
 
 }
\ No newline at end of file
@@ -15,6 +15,7 @@ import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -65,6 +66,7 @@ import org.slf4j.LoggerFactory;
 import me.superblaubeere27.annotations.ObfuscationTransformer;
 import me.superblaubeere27.jobf.IClassTransformer;
 import me.superblaubeere27.jobf.ProcessorCallback;
+import me.superblaubeere27.jobf.utils.ClassSummary;
 import me.superblaubeere27.jobf.utils.NameUtils;
 import me.superblaubeere27.jobf.utils.NodeUtils;
 import me.superblaubeere27.jobf.utils.Utils;
@@ -89,7 +91,7 @@ public class InvokeDynamic implements IClassTransformer {
 
         MethodNode mv;
         {
-            mv = new MethodNode(Opcodes.ACC_PRIVATE + Opcodes.ACC_STATIC, NameUtils.generateMethodName(node.name, "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;)Ljava/lang/invoke/CallSite;"), "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;)Ljava/lang/invoke/CallSite;", null, new String[]{"java/lang/NoSuchMethodException", "java/lang/IllegalAccessException"});
+            mv = new MethodNode(Opcodes.ACC_PRIVATE + Opcodes.ACC_STATIC, NameUtils.generateMethodName(node, "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;)Ljava/lang/invoke/CallSite;"), "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;)Ljava/lang/invoke/CallSite;", null, new String[]{"java/lang/NoSuchMethodException", "java/lang/IllegalAccessException"});
             mv.visitCode();
             Label l0 = new Label();
             Label l1 = new Label();
@@ -419,8 +421,8 @@ public class InvokeDynamic implements IClassTransformer {
             return;
         }
 
-        FieldNode arrayField = new FieldNode(Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC, NameUtils.generateFieldName(classNode), "[Ljava/lang/String;", null, null);
-        FieldNode typeArrayField = new FieldNode(Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC, NameUtils.generateFieldName(classNode), "[Ljava/lang/Class;", null, null);
+        FieldNode arrayField = new FieldNode(Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC, NameUtils.generateFieldName(classNode, "[Ljava/lang/String;"), "[Ljava/lang/String;", null, null);
+        FieldNode typeArrayField = new FieldNode(Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC, NameUtils.generateFieldName(classNode, "[Ljava/lang/Class;"), "[Ljava/lang/Class;", null, null);
 
 
         MethodNode bootstrap = bootstrap(arrayField, typeArrayField, classNode);
@@ -642,6 +644,25 @@ public class InvokeDynamic implements IClassTransformer {
 
     }
 
+    @Override
+    public boolean isApplicable(ClassSummary summary) {
+        return enabled.getObject() && summary.hasAnyOpcode(Opcodes.INVOKEVIRTUAL, Opcodes.INVOKEINTERFACE, Opcodes.INVOKESTATIC,
+                Opcodes.GETFIELD, Opcodes.GETSTATIC, Opcodes.PUTFIELD, Opcodes.PUTSTATIC);
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled.getObject();
+    }
+
+    /**
+     * Calls can't be inlined anymore once they are dynamic
+     */
+    @Override
+    public Collection<Class<?>> getDependencies() {
+        return Collections.singletonList(InlineTransformer.class);
+    }
+
     @Override
     public ObfuscationTransformer getType() {
         return ObfuscationTransformer.INVOKE_DYNAMIC;
@@ -11,14 +11,21 @@
 package me.superblaubeere27.jobf.processors;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Random;
 
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
 import org.objectweb.asm.tree.AbstractInsnNode;
 import org.objectweb.asm.tree.ClassNode;
 import org.objectweb.asm.tree.LabelNode;
-import org.objectweb.asm.tree.LineNumberNode;
 import org.objectweb.asm.tree.LocalVariableNode;
 import org.objectweb.asm.tree.MethodNode;
 import org.objectweb.asm.tree.ParameterNode;
@@ -28,6 +35,8 @@ import me.superblaubeere27.annotations.ObfuscationTransformer;
 import me.superblaubeere27.jobf.IClassTransformer;
 import me.superblaubeere27.jobf.JObfImpl;
 import me.superblaubeere27.jobf.ProcessorCallback;
+import me.superblaubeere27.jobf.utils.ClassSummary;
+import me.superblaubeere27.jobf.utils.InsnWalker;
 import me.superblaubeere27.jobf.utils.NameUtils;
 import me.superblaubeere27.jobf.utils.values.BooleanValue;
 import me.superblaubeere27.jobf.utils.values.DeprecationLevel;
@@ -57,6 +66,7 @@ public class LineNumberRemover implements IClassTransformer {
     private BooleanValue renameValues = new BooleanValue(PROCESSOR_NAME, "Rename local variables", DeprecationLevel.GOOD, true);
     private BooleanValue removeLineNumbers = new BooleanValue(PROCESSOR_NAME, "Remove Line Numbers", DeprecationLevel.GOOD, true);
     private BooleanValue removeDebugNames = new BooleanValue(PROCESSOR_NAME, "Remove Debug Names", DeprecationLevel.GOOD, true);
+    private BooleanValue removeLocalVariables = new BooleanValue(PROCESSOR_NAME, "Remove Local Variables", "Removes the local variable tables and parameter names instead of renaming them. Debug info isn't parsed at all if line numbers and debug names are removed too", DeprecationLevel.GOOD, false);
     private BooleanValue addLocalVariables = new BooleanValue(PROCESSOR_NAME, "Add Local Variables", "Adds random local variables with wrong types. Might break some decompilers", DeprecationLevel.GOOD, true);
     private StringValue newSourceFileName = new StringValue(PROCESSOR_NAME, "New SourceFile Name", DeprecationLevel.GOOD, "");
 
@@ -68,64 +78,229 @@ public class LineNumberRemover implements IClassTransformer {
     public void process(ProcessorCallback callback, ClassNode node) {
         if (!enabled.getObject()) return;
 
-        for (MethodNode method : node.methods) {
-            LabelNode firstLabel = null;
-            LabelNode lastLabel = null;
-            HashMap<Integer, String> varMap = new HashMap<>();
-
-            for (AbstractInsnNode abstractInsnNode : method.instructions.toArray()) {
-                if (abstractInsnNode instanceof LineNumberNode && removeLineNumbers.getObject()) {
-                    LineNumberNode insnNode = (LineNumberNode) abstractInsnNode;
-                    method.instructions.remove(insnNode);
-                }
+        MethodScan scan = new MethodScan();
+        InsnWalker walker = new InsnWalker();
 
-                if (abstractInsnNode instanceof VarInsnNode) {
-                    VarInsnNode insnNode = (VarInsnNode) abstractInsnNode;
+        if (removeLineNumbers.getObject()) {
+            walker.onType((method, insn) -> method.instructions.remove(insn), AbstractInsnNode.LINE);
+        }
 
-                    if (!varMap.containsKey(insnNode.var)) {
-                        varMap.put(insnNode.var, TYPES.get(random.nextInt(TYPES.size())));
-                    }
-                }
-                if (abstractInsnNode instanceof LabelNode) {
-                    LabelNode insnNode = (LabelNode) abstractInsnNode;
+        walker.onType((method, insn) -> {
+            VarInsnNode insnNode = (VarInsnNode) insn;
+
+            if (!scan.varMap.containsKey(insnNode.var)) {
+                scan.varMap.put(insnNode.var, TYPES.get(random.nextInt(TYPES.size())));
+            }
+        }, AbstractInsnNode.VAR_INSN);
+        walker.onType((method, insn) -> {
+            if (scan.firstLabel == null) {
+                scan.firstLabel = (LabelNode) insn;
+            }
 
-                    if (firstLabel == null) {
-                        firstLabel = insnNode;
-                    }
+            scan.lastLabel = (LabelNode) insn;
+        }, AbstractInsnNode.LABEL);
 
-                    lastLabel = insnNode;
-                }
+        for (MethodNode method : node.methods) {
+            scan.reset();
+            walker.walk(method);
+
+            if (removeLocalVariables.getObject()) {
+                method.localVariables = null;
+                method.parameters = null;
             }
 
-            if (firstLabel != null && addLocalVariables.getObject()) {
+            if (scan.firstLabel != null && addLocalVariables.getObject()) {
                 if (method.localVariables == null) method.localVariables = new ArrayList<>();
 
-                for (Map.Entry<Integer, String> integerStringEntry : varMap.entrySet()) {
-                    method.localVariables.add(new LocalVariableNode(NameUtils.generateLocalVariableName(), integerStringEntry.getValue(), null, firstLabel, lastLabel, integerStringEntry.getKey()));
+                for (Map.Entry<Integer, String> integerStringEntry : scan.varMap.entrySet()) {
+                    method.localVariables.add(new LocalVariableNode(NameUtils.generateLocalVariableName(node.name, method.name + method.desc), integerStringEntry.getValue(), null, scan.firstLabel, scan.lastLabel, integerStringEntry.getKey()));
                 }
             }
 
             if (method.parameters != null && renameValues.getObject()) {
                 for (ParameterNode parameter : method.parameters) {
-                    parameter.name = NameUtils.generateLocalVariableName();
+                    parameter.name = NameUtils.generateLocalVariableName(node.name, method.name + method.desc);
                 }
             }
             if (method.localVariables != null && renameValues.getObject()) {
                 for (LocalVariableNode parameter : method.localVariables) {
-                    parameter.name = NameUtils.generateLocalVariableName();
+                    parameter.name = NameUtils.generateLocalVariableName(node.name, method.name + method.desc);
                 }
             }
         }
         if ((node.sourceFile == null || !node.sourceFile.contains(StringEncryptionTransformer.MAGICNUMBER_START)) && removeDebugNames.getObject()) {
             node.sourceFile = newSourceFileName.getObject().isEmpty() ? null : newSourceFileName.getObject();
+            node.sourceDebug = null;
         }
 
         inst.setWorkDone();
     }
 	
+    /**
+     * Classes without code still have debug names
+     */
+    @Override
+    public boolean isApplicable(ClassSummary summary) {
+        return enabled.getObject();
+    }
+
+    /**
+     * Everything {@link ClassReader#SKIP_DEBUG} skips would be removed. The new source file name is set anyway.
+     */
+    @Override
+    public int getReaderFlags() {
+        return removeLineNumbers.getObject() && removeDebugNames.getObject() && removeLocalVariables.getObject() ? ClassReader.SKIP_DEBUG : 0;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled.getObject();
+    }
+
+    @Override
+    public boolean isStreamable() {
+        return true;
+    }
+
+    @Override
+    public ClassVisitor createVisitor(ClassVisitor next) {
+        return new ClassVisitor(Opcodes.ASM9, next) {
+            private String className;
+            private boolean sourceVisited;
+
+            @Override
+            public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+                className = name;
+
+                super.visit(version, access, name, signature, superName, interfaces);
+            }
+
+            @Override
+            public void visitSource(String source, String debug) {
+                sourceVisited = true;
+
+                if ((source == null || !source.contains(StringEncryptionTransformer.MAGICNUMBER_START)) && removeDebugNames.getObject()) {
+                    source = newSourceFileName.getObject().isEmpty() ? null : newSourceFileName.getObject();
+                    debug = null;
+                }
+
+                super.visitSource(source, debug);
+            }
+
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                MethodVisitor methodVisitor = super.visitMethod(access, name, descriptor, signature, exceptions);
+
+                return methodVisitor == null ? null : new LocalVariableVisitor(methodVisitor, className, name + descriptor);
+            }
+
+            @Override
+            public void visitEnd() {
+                // Classes without a SourceFile attribute get the new name as well
+                if (!sourceVisited && removeDebugNames.getObject() && !newSourceFileName.getObject().isEmpty()) {
+                    super.visitSource(newSourceFileName.getObject(), null);
+                }
+
+                super.visitEnd();
+            }
+        };
+    }
+
+    /**
+     * The string decryption code has line numbers
+     */
+    @Override
+    public Collection<Class<?>> getDependencies() {
+        return Collections.singletonList(StringEncryptionTransformer.class);
+    }
+
     @Override
     public ObfuscationTransformer getType() {
         return ObfuscationTransformer.LINE_NUMBER_REMOVER;
     }
 
+    /**
+     * Does the same as {@link #process(ProcessorCallback, ClassNode)} to the code of a method while it is read
+     */
+    private class LocalVariableVisitor extends MethodVisitor {
+        private final String className;
+        private final String methodScope;
+        private final HashMap<Integer, String> varMap = new HashMap<>();
+        private Label firstLabel;
+        private Label lastLabel;
+
+        private LocalVariableVisitor(MethodVisitor methodVisitor, String className, String methodScope) {
+            super(Opcodes.ASM9, methodVisitor);
+
+            this.className = className;
+            this.methodScope = methodScope;
+        }
+
+        @Override
+        public void visitParameter(String name, int access) {
+            if (removeLocalVariables.getObject()) return;
+
+            super.visitParameter(renameValues.getObject() ? NameUtils.generateLocalVariableName(className, methodScope) : name, access);
+        }
+
+        @Override
+        public void visitLabel(Label label) {
+            if (firstLabel == null) firstLabel = label;
+
+            lastLabel = label;
+
+            super.visitLabel(label);
+        }
+
+        @Override
+        public void visitLineNumber(int line, Label start) {
+            if (!removeLineNumbers.getObject()) super.visitLineNumber(line, start);
+        }
+
+        @Override
+        public void visitVarInsn(int opcode, int var) {
+            if (!varMap.containsKey(var)) {
+                varMap.put(var, TYPES.get(random.nextInt(TYPES.size())));
+            }
+
+            super.visitVarInsn(opcode, var);
+        }
+
+        @Override
+        public void visitLocalVariable(String name, String descriptor, String signature, Label start, Label end, int index) {
+            if (removeLocalVariables.getObject()) return;
+
+            super.visitLocalVariable(renameValues.getObject() ? NameUtils.generateLocalVariableName(className, methodScope) : name, descriptor, signature, start, end, index);
+        }
+
+        @Override
+        public void visitMaxs(int maxStack, int maxLocals) {
+            if (firstLabel != null && addLocalVariables.getObject()) {
+                for (Map.Entry<Integer, String> integerStringEntry : varMap.entrySet()) {
+                    super.visitLocalVariable(NameUtils.generateLocalVariableName(className, methodScope), integerStringEntry.getValue(), null, firstLabel, lastLabel, integerStringEntry.getKey());
+
+                    // The max values aren't computed, a long or double needs the slot after its index as well
+                    maxLocals = Math.max(maxLocals, integerStringEntry.getKey() + Type.getType(integerStringEntry.getValue()).getSize());
+                }
+            }
+
+            super.visitMaxs(maxStack, maxLocals);
+        }
+    }
+
+    /**
+     * What the walker found in the current method
+     */
+    private static class MethodScan {
+        private LabelNode firstLabel;
+        private LabelNode lastLabel;
+        private HashMap<Integer, String> varMap;
+
+        private void reset() {
+            firstLabel = null;
+            lastLabel = null;
+            varMap = new HashMap<>();
+        }
+    }
+
 }
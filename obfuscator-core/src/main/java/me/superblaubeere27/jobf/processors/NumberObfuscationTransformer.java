@@ -14,6 +14,8 @@ import me.superblaubeere27.annotations.ObfuscationTransformer;
 import me.superblaubeere27.jobf.IClassTransformer;
 import me.superblaubeere27.jobf.JObfImpl;
 import me.superblaubeere27.jobf.ProcessorCallback;
+import me.superblaubeere27.jobf.utils.ClassSummary;
+import me.superblaubeere27.jobf.utils.InsnWalker;
 import me.superblaubeere27.jobf.utils.NameUtils;
 import me.superblaubeere27.jobf.utils.NodeUtils;
 import me.superblaubeere27.jobf.utils.values.BooleanValue;
@@ -24,6 +26,8 @@ import org.objectweb.asm.tree.*;
 
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Random;
 
@@ -197,49 +201,55 @@ public class NumberObfuscationTransformer implements IClassTransformer {
     public void process(ProcessorCallback callback, ClassNode node) {
         if (!enabled.getObject()) return;
 
-        int i = 0;
-        String fieldName = NameUtils.generateFieldName(node.name);
+        String fieldName = NameUtils.generateFieldName(node, "[I");
+        // The numbers in the array, slot i holds the i-th number
         List<Integer> integerList = new ArrayList<>();
-        for (MethodNode method : node.methods) {
-            for (AbstractInsnNode abstractInsnNode : method.instructions.toArray()) {
-                if (abstractInsnNode == null) {
-                    throw new RuntimeException("AbstractInsnNode is null. WTF?");
-                }
-                if (NodeUtils.isIntegerNumber(abstractInsnNode)) {
-                    int number = NodeUtils.getIntValue(abstractInsnNode);
 
-                    if (number == Integer.MIN_VALUE) {
-                        continue;
+        InsnWalker walker = new InsnWalker().onOpcode((method, abstractInsnNode) -> {
+            if (NodeUtils.isIntegerNumber(abstractInsnNode)) {
+                int number = NodeUtils.getIntValue(abstractInsnNode);
+
+                if (number == Integer.MIN_VALUE) {
+                    return;
+                }
+//                if (abstractInsnNode instanceof LdcInsnNode && ((LdcInsnNode) abstractInsnNode).cst instanceof Number && ((int) ((LdcInsnNode) abstractInsnNode).cst) == Integer.MIN_VALUE) {
+//                    System.out.println(((LdcInsnNode) abstractInsnNode).cst + "/" + number);
+//                }
+                if (!Modifier.isInterface(node.access)
+//                        && mode == 1
+                        && extractToArray.getObject()
+                ) {
+                    int containedSlot = -1;
+                    int j = 0;
+                    for (Integer integer : integerList) {
+                        if (integer == number) containedSlot = j;
+                        j++;
                     }
-//                    if (abstractInsnNode instanceof LdcInsnNode && ((LdcInsnNode) abstractInsnNode).cst instanceof Number && ((int) ((LdcInsnNode) abstractInsnNode).cst) == Integer.MIN_VALUE) {
-//                        System.out.println(((LdcInsnNode) abstractInsnNode).cst + "/" + number);
-//                    }
-                    if (!Modifier.isInterface(node.access)
-//                            && mode == 1
-                            && extractToArray.getObject()
-                    ) {
-                        int containedSlot = -1;
-                        int j = 0;
-                        for (Integer integer : integerList) {
-                            if (integer == number) containedSlot = j;
-                            j++;
-                        }
-                        if (containedSlot == -1) integerList.add(number);
-                        method.instructions.insertBefore(abstractInsnNode, new FieldInsnNode(Opcodes.GETSTATIC, node.name, fieldName, "[I"));
-                        method.instructions.insertBefore(abstractInsnNode, NodeUtils.generateIntPush(containedSlot == -1 ? i : containedSlot));
-                        method.instructions.insertBefore(abstractInsnNode, new InsnNode(Opcodes.IALOAD));
-                        method.instructions.remove(abstractInsnNode);
-                        if (containedSlot == -1) i++;
-                        method.maxStack += 2;
-                    } else {
-                        method.maxStack += 4;
-
-                        method.instructions.insertBefore(abstractInsnNode, getInstructionsMultipleTimes(number, random.nextInt(2) + 1));
-                        method.instructions.remove(abstractInsnNode);
+                    if (containedSlot == -1) {
+                        containedSlot = integerList.size();
+                        integerList.add(number);
                     }
+                    method.instructions.insertBefore(abstractInsnNode, new FieldInsnNode(Opcodes.GETSTATIC, node.name, fieldName, "[I"));
+                    method.instructions.insertBefore(abstractInsnNode, NodeUtils.generateIntPush(containedSlot));
+                    method.instructions.insertBefore(abstractInsnNode, new InsnNode(Opcodes.IALOAD));
+                    method.instructions.remove(abstractInsnNode);
+                    method.maxStack += 2;
+                } else {
+                    method.maxStack += 4;
+
+                    method.instructions.insertBefore(abstractInsnNode, getInstructionsMultipleTimes(number, random.nextInt(2) + 1));
+                    method.instructions.remove(abstractInsnNode);
                 }
             }
+        }, Opcodes.ICONST_M1, Opcodes.ICONST_0, Opcodes.ICONST_1, Opcodes.ICONST_2, Opcodes.ICONST_3, Opcodes.ICONST_4,
+                Opcodes.ICONST_5, Opcodes.BIPUSH, Opcodes.SIPUSH, Opcodes.LDC);
+
+        for (MethodNode method : node.methods) {
+            walker.walk(method);
         }
+
+        int i = integerList.size();
+
         if (i != 0) {
             node.fields.add(new FieldNode(((node.access & Opcodes.ACC_INTERFACE) != 0 ? Opcodes.ACC_PUBLIC : Opcodes.ACC_PRIVATE) | (node.version > Opcodes.V1_8 ? 0 : Opcodes.ACC_FINAL) | Opcodes.ACC_STATIC, fieldName, "[I", null, null));
             MethodNode clInit = NodeUtils.getMethod(node, "<clinit>");
@@ -285,6 +295,26 @@ public class NumberObfuscationTransformer implements IClassTransformer {
         inst.setWorkDone();
     }
 
+    @Override
+    public boolean isApplicable(ClassSummary summary) {
+        return enabled.getObject() && (summary.getLdcCount(ClassSummary.CONSTANT_INTEGER) > 0
+                || summary.hasAnyOpcode(Opcodes.ICONST_M1, Opcodes.ICONST_0, Opcodes.ICONST_1, Opcodes.ICONST_2, Opcodes.ICONST_3,
+                Opcodes.ICONST_4, Opcodes.ICONST_5, Opcodes.BIPUSH, Opcodes.SIPUSH));
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled.getObject();
+    }
+
+    /**
+     * Numbers which were moved from constant fields into the static initializer are obfuscated too
+     */
+    @Override
+    public Collection<Class<?>> getDependencies() {
+        return Collections.singletonList(StaticInitializionTransformer.class);
+    }
+
     @Override
     public ObfuscationTransformer getType() {
         return ObfuscationTransformer.INLINING;
@@ -14,6 +14,8 @@ import me.superblaubeere27.annotations.ObfuscationTransformer;
 import me.superblaubeere27.jobf.IClassTransformer;
 import me.superblaubeere27.jobf.JObfImpl;
 import me.superblaubeere27.jobf.ProcessorCallback;
+import me.superblaubeere27.jobf.utils.ClassSummary;
+import me.superblaubeere27.jobf.utils.InsnWalker;
 import me.superblaubeere27.jobf.utils.NameUtils;
 import me.superblaubeere27.jobf.utils.NodeUtils;
 import me.superblaubeere27.jobf.utils.values.DeprecationLevel;
@@ -21,7 +23,6 @@ import me.superblaubeere27.jobf.utils.values.EnabledValue;
 import org.objectweb.asm.Label;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
-import org.objectweb.asm.tree.AbstractInsnNode;
 import org.objectweb.asm.tree.ClassNode;
 import org.objectweb.asm.tree.MethodInsnNode;
 import org.objectweb.asm.tree.MethodNode;
@@ -49,26 +50,26 @@ public class ReferenceProxy implements IClassTransformer {
             HashMap<String, MethodNode> nodes = new HashMap<>();
             List<MethodNode> add = new ArrayList<>();
 
-            for (MethodNode method : node.methods) {
-                for (AbstractInsnNode abstractInsnNode : method.instructions.toArray()) {
-                    if (abstractInsnNode instanceof MethodInsnNode) {
-                        MethodInsnNode insnNode = (MethodInsnNode) abstractInsnNode;
+            InsnWalker walker = new InsnWalker().onOpcode((method, abstractInsnNode) -> {
+                MethodInsnNode insnNode = (MethodInsnNode) abstractInsnNode;
 
-//                        System.out.println(insnNode.getOpcode() + "/" + insnNode.name + insnNode.desc);
+//                System.out.println(insnNode.getOpcode() + "/" + insnNode.name + insnNode.desc);
 
-                        if (
-//                                insnNode.desc.endsWith(")V") &&
-                                (insnNode.getOpcode() == Opcodes.INVOKESTATIC || insnNode.getOpcode() == Opcodes.INVOKEVIRTUAL) && !(insnNode.desc.contains("J") || insnNode.desc.contains("D") || insnNode.desc.contains("[") || insnNode.desc.contains("Object"))) {
-                            MethodNode referenceProxy = getProxyNode(node, insnNode, insnNode.getOpcode() == Opcodes.INVOKEVIRTUAL);
+                if (
+//                        insnNode.desc.endsWith(")V") &&
+                        !(insnNode.desc.contains("J") || insnNode.desc.contains("D") || insnNode.desc.contains("[") || insnNode.desc.contains("Object"))) {
+                    MethodNode referenceProxy = getProxyNode(node, insnNode, insnNode.getOpcode() == Opcodes.INVOKEVIRTUAL);
 
-                            method.instructions.insert(insnNode, new MethodInsnNode(Opcodes.INVOKESTATIC, node.name, referenceProxy.name, referenceProxy.desc, false));
-                            method.instructions.remove(insnNode);
+                    method.instructions.insert(insnNode, new MethodInsnNode(Opcodes.INVOKESTATIC, node.name, referenceProxy.name, referenceProxy.desc, false));
+                    method.instructions.remove(insnNode);
 
-                            add.add(referenceProxy);
-                            System.out.println("PROXY");
-                        }
-                    }
+                    add.add(referenceProxy);
+                    System.out.println("PROXY");
                 }
+            }, Opcodes.INVOKESTATIC, Opcodes.INVOKEVIRTUAL);
+
+            for (MethodNode method : node.methods) {
+                walker.walk(method);
             }
 
             for (MethodNode method : add) {
@@ -85,13 +86,24 @@ public class ReferenceProxy implements IClassTransformer {
         }
     }
 
+    @Override
+    public boolean isApplicable(ClassSummary summary) {
+        return enabled.getObject() && summary.hasAnyOpcode(Opcodes.INVOKESTATIC, Opcodes.INVOKEVIRTUAL);
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled.getObject();
+    }
+
     @Override
     public ObfuscationTransformer getType() {
         return ObfuscationTransformer.REFERENCE_PROXY;
     }
 
     private MethodNode getProxyNode(ClassNode node, MethodInsnNode insnNode, boolean isVirtual) {
-        String name = NameUtils.generateMethodName(node, insnNode.desc);
+        String desc = isVirtual ? "(Ljava/lang/Object;" + insnNode.desc.substring(1) : insnNode.desc;
+        String name = NameUtils.generateMethodName(node, desc);
         MethodNode mv;
 
         Type[] argumentTypes = Type.getArgumentTypes(insnNode.desc);
@@ -107,7 +119,7 @@ public class ReferenceProxy implements IClassTransformer {
 
         //MethodNode method = new MethodNode(Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC, name, insnNode.desc, null, new String[0]);
         {
-            mv = new MethodNode(Opcodes.ACC_PUBLIC + Opcodes.ACC_STATIC, name, isVirtual ? "(Ljava/lang/Object;" + insnNode.desc.substring(1) : insnNode.desc, null, null);
+            mv = new MethodNode(Opcodes.ACC_PUBLIC + Opcodes.ACC_STATIC, name, desc, null, null);
 
 
             mv.visitCode();
@@ -215,7 +227,7 @@ public class ReferenceProxy implements IClassTransformer {
             mv.visitEnd();
 
             for (int i = 0; i < argumentTypes.length; i++) {
-                mv.visitLocalVariable(NameUtils.generateLocalVariableName(), argumentTypes[i].toString(), null, l0, l7, i);
+                mv.visitLocalVariable(NameUtils.generateLocalVariableName(node.name, name + desc), argumentTypes[i].toString(), null, l0, l7, i);
             }
 //            mv.visitLocalVariable(NameUtils.generateLocalVariableName(), argumentTypes[i].toString(), null, l0, l7, i);
         }
@@ -14,6 +14,8 @@ import me.superblaubeere27.annotations.ObfuscationTransformer;
 import me.superblaubeere27.jobf.IClassTransformer;
 import me.superblaubeere27.jobf.JObfImpl;
 import me.superblaubeere27.jobf.ProcessorCallback;
+import me.superblaubeere27.jobf.processors.flowObfuscation.FlowObfuscator;
+import me.superblaubeere27.jobf.utils.ClassSummary;
 import me.superblaubeere27.jobf.utils.values.DeprecationLevel;
 import me.superblaubeere27.jobf.utils.values.EnabledValue;
 import org.objectweb.asm.Opcodes;
@@ -21,6 +23,8 @@ import org.objectweb.asm.tree.ClassNode;
 import org.objectweb.asm.tree.FieldNode;
 import org.objectweb.asm.tree.MethodNode;
 
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Random;
 
@@ -84,6 +88,24 @@ public class ShuffleMembersTransformer implements IClassTransformer {
         inst.setWorkDone();
     }
 
+    @Override
+    public boolean isApplicable(ClassSummary summary) {
+        return enabled.getObject() && (summary.getClassNode().access & Opcodes.ACC_ENUM) == 0;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled.getObject();
+    }
+
+    /**
+     * Added members are shuffled with the others instead of staying at the end
+     */
+    @Override
+    public Collection<Class<?>> getDependencies() {
+        return Arrays.asList(InvokeDynamic.class, StringEncryptionTransformer.class, NumberObfuscationTransformer.class, FlowObfuscator.class);
+    }
+
     @Override
     public ObfuscationTransformer getType() {
         return ObfuscationTransformer.SHUFFLE_MEMBERS;
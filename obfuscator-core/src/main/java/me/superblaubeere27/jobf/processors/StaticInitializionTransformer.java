@@ -14,11 +14,17 @@ import me.superblaubeere27.annotations.ObfuscationTransformer;
 import me.superblaubeere27.jobf.IClassTransformer;
 import me.superblaubeere27.jobf.JObfImpl;
 import me.superblaubeere27.jobf.ProcessorCallback;
+import me.superblaubeere27.jobf.utils.ClassSummary;
 import me.superblaubeere27.jobf.utils.NodeUtils;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.tree.*;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 
@@ -66,6 +72,100 @@ public class StaticInitializionTransformer implements IClassTransformer {
         inst.setWorkDone();
     }
 
+    /**
+     * Only constants of static fields are moved
+     */
+    @Override
+    public boolean isApplicable(ClassSummary summary) {
+        return summary.getStaticFieldConstantCount(ClassSummary.CONSTANT_STRING) > 0 || summary.getStaticFieldConstantCount(ClassSummary.CONSTANT_INTEGER) > 0;
+    }
+
+    @Override
+    public boolean isStreamable() {
+        return true;
+    }
+
+    @Override
+    public ClassVisitor createVisitor(ClassVisitor next) {
+        return new ClassVisitor(Opcodes.ASM9, next) {
+            // Fields are visited before the methods
+            private final List<FieldNode> constants = new ArrayList<>();
+            private String owner;
+            private boolean hasClinit;
+
+            @Override
+            public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+                owner = name;
+
+                super.visit(version, access, name, signature, superName, interfaces);
+            }
+
+            @Override
+            public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+                if (value != null && (access & Opcodes.ACC_STATIC) != 0 && (value instanceof String || value instanceof Integer)) {
+                    constants.add(new FieldNode(access, name, descriptor, signature, value));
+                    value = null;
+                }
+
+                return super.visitField(access, name, descriptor, signature, value);
+            }
+
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                MethodVisitor methodVisitor = super.visitMethod(access, name, descriptor, signature, exceptions);
+
+                if (!name.equals("<clinit>")) return methodVisitor;
+
+                hasClinit = true;
+
+                if (methodVisitor == null || constants.isEmpty()) return methodVisitor;
+
+                return new MethodVisitor(Opcodes.ASM9, methodVisitor) {
+                    @Override
+                    public void visitCode() {
+                        super.visitCode();
+
+                        initialize(mv);
+                    }
+
+                    @Override
+                    public void visitMaxs(int maxStack, int maxLocals) {
+                        super.visitMaxs(Math.max(maxStack, 1), maxLocals);
+                    }
+                };
+            }
+
+            @Override
+            public void visitEnd() {
+                if (!hasClinit && !constants.isEmpty()) {
+                    MethodVisitor clInit = super.visitMethod(Opcodes.ACC_STATIC, "<clinit>", "()V", null, new String[0]);
+
+                    if (clInit != null) {
+                        clInit.visitCode();
+                        initialize(clInit);
+                        clInit.visitInsn(Opcodes.RETURN);
+                        clInit.visitMaxs(1, 0);
+                        clInit.visitEnd();
+                    }
+                }
+
+                super.visitEnd();
+            }
+
+            private void initialize(MethodVisitor methodVisitor) {
+                for (FieldNode constant : constants) {
+                    if (constant.value instanceof String) {
+                        methodVisitor.visitLdcInsn(constant.value);
+                    } else {
+                        NodeUtils.generateIntPush((Integer) constant.value).accept(methodVisitor);
+                    }
+
+                    methodVisitor.visitFieldInsn(Opcodes.PUTSTATIC, owner, constant.name, constant.desc);
+                }
+            }
+        };
+    }
+
     @Override
     public ObfuscationTransformer getType() {
         return null;
@@ -13,14 +13,17 @@ package me.superblaubeere27.jobf.processors;
 import java.io.IOException;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.objectweb.asm.Label;
 import org.objectweb.asm.Opcodes;
-import org.objectweb.asm.tree.AbstractInsnNode;
 import org.objectweb.asm.tree.ClassNode;
 import org.objectweb.asm.tree.FieldInsnNode;
 import org.objectweb.asm.tree.FieldNode;
@@ -38,11 +41,14 @@ import me.superblaubeere27.annotations.ObfuscationTransformer;
 import me.superblaubeere27.jobf.IClassTransformer;
 import me.superblaubeere27.jobf.JObfImpl;
 import me.superblaubeere27.jobf.ProcessorCallback;
+import me.superblaubeere27.jobf.utils.ClassSummary;
+import me.superblaubeere27.jobf.utils.InsnWalker;
 import me.superblaubeere27.jobf.processors.encryption.string.AESEncryptionAlgorithm;
 import me.superblaubeere27.jobf.processors.encryption.string.BlowfishEncryptionAlgorithm;
 import me.superblaubeere27.jobf.processors.encryption.string.DESEncryptionAlgorithm;
 import me.superblaubeere27.jobf.processors.encryption.string.IStringEncryptionAlgorithm;
 import me.superblaubeere27.jobf.processors.encryption.string.XOREncryptionAlgorithm;
+import me.superblaubeere27.jobf.utils.MethodTemplate;
 import me.superblaubeere27.jobf.utils.NameUtils;
 import me.superblaubeere27.jobf.utils.NodeUtils;
 import me.superblaubeere27.jobf.utils.StringManipulationUtils;
@@ -60,48 +66,74 @@ public class StringEncryptionTransformer implements IClassTransformer {
     private EnabledValue enabled = new EnabledValue(PROCESSOR_NAME, DeprecationLevel.GOOD, true);
     private BooleanValue hideStrings = new BooleanValue(PROCESSOR_NAME, "HideStrings", "Hide strings in SourceFile. Might break after editing the SourceFile", DeprecationLevel.OK, false);
     private BooleanValue aes = new BooleanValue(PROCESSOR_NAME, "AES", DeprecationLevel.OK, false);
+    /**
+     * The algorithms are stateless and shared by all classes
+     */
+    private final List<IStringEncryptionAlgorithm> algorithms = Arrays.asList(new XOREncryptionAlgorithm(), new DESEncryptionAlgorithm(), new BlowfishEncryptionAlgorithm());
+    private final IStringEncryptionAlgorithm aesAlgorithm = new AESEncryptionAlgorithm();
+    /**
+     * The decryption methods, read once instead of for every class
+     */
+    private final Map<IStringEncryptionAlgorithm, MethodTemplate> decryptTemplates = new HashMap<>();
 
     public StringEncryptionTransformer(JObfImpl inst) {
         this.inst = inst;
+
+        List<IStringEncryptionAlgorithm> all = new ArrayList<>(algorithms);
+
+        all.add(aesAlgorithm);
+
+        for (IStringEncryptionAlgorithm algorithm : all) {
+            try {
+                decryptTemplates.put(algorithm, MethodTemplate.of(algorithm.getClass().getName(), "decrypt"));
+            } catch (IOException e) {
+                throw new Error("Decryption method of " + algorithm.getClass().getSimpleName() + " wasn't found", e);
+            }
+        }
     }
 
 
     private static void hideStrings(ClassNode cn, MethodNode... methods) {
         cn.sourceFile = null;
         cn.sourceDebug = null;
-        String fieldName = NameUtils.generateFieldName(cn);
+        String fieldName = NameUtils.generateFieldName(cn, "[Ljava/lang/String;");
         HashMap<Integer, String> hiddenStrings = new HashMap<>();
-        int slot = 0;
 
-        int stringLength = 0;
+        AtomicInteger stringLength = new AtomicInteger();
+        // Once a string doesn't fit anymore, the rest of the method is skipped
+        AtomicBoolean full = new AtomicBoolean();
 
         int methodCount = 0;
         MethodNode methodNode = null;
 
-        for (MethodNode method : methods) {
-            boolean hide = false;
-            for (AbstractInsnNode abstractInsnNode : method.instructions.toArray()) {
-                if (abstractInsnNode instanceof LdcInsnNode) {
-                    LdcInsnNode ldc = (LdcInsnNode) abstractInsnNode;
-                    if (ldc.cst instanceof String && ((String) ldc.cst).length() < 500) {
-                        if (stringLength + ((String) (ldc).cst).length() > 498) {
-                            break;
-                        }
-
-                        InsnList insnList = new InsnList();
-                        insnList.add(new FieldInsnNode(Opcodes.GETSTATIC, cn.name, fieldName, "[Ljava/lang/String;"));
-                        insnList.add(NodeUtils.generateIntPush(slot));
-                        insnList.add(new InsnNode(Opcodes.AALOAD));
-                        method.instructions.insert(abstractInsnNode, insnList);
-                        method.instructions.remove(abstractInsnNode);
-                        slot++;
-                        stringLength += ((String) ldc.cst).length() + 1;
-                        hiddenStrings.put(slot, (String) ldc.cst);
-                        hide = true;
-                    }
+        InsnWalker walker = new InsnWalker().onOpcode((method, abstractInsnNode) -> {
+            LdcInsnNode ldc = (LdcInsnNode) abstractInsnNode;
+            if (!full.get() && ldc.cst instanceof String && ((String) ldc.cst).length() < 500) {
+                if (stringLength.get() + ((String) (ldc).cst).length() > 498) {
+                    full.set(true);
+                    return;
                 }
+
+                int slot = hiddenStrings.size();
+
+                InsnList insnList = new InsnList();
+                insnList.add(new FieldInsnNode(Opcodes.GETSTATIC, cn.name, fieldName, "[Ljava/lang/String;"));
+                insnList.add(NodeUtils.generateIntPush(slot));
+                insnList.add(new InsnNode(Opcodes.AALOAD));
+                method.instructions.insert(abstractInsnNode, insnList);
+                method.instructions.remove(abstractInsnNode);
+                stringLength.addAndGet(((String) ldc.cst).length() + 1);
+                hiddenStrings.put(slot + 1, (String) ldc.cst);
             }
-            if (hide) {
+        }, Opcodes.LDC);
+
+        for (MethodNode method : methods) {
+            int hidden = hiddenStrings.size();
+
+            full.set(false);
+            walker.walk(method);
+
+            if (hiddenStrings.size() > hidden) {
                 methodCount++;
                 methodNode = method;
             }
@@ -130,7 +162,7 @@ public class StringEncryptionTransformer implements IClassTransformer {
 //            cn.sourceFile += sb.toString();
 //        }
 
-        if (slot > 0) {
+        if (!hiddenStrings.isEmpty()) {
             cn.fields.add(new FieldNode(((cn.access & Opcodes.ACC_INTERFACE) != 0 ? Opcodes.ACC_PUBLIC : Opcodes.ACC_PRIVATE) | Opcodes.ACC_STATIC, fieldName, "[Ljava/lang/String;", null, null));
             MethodNode clInit = NodeUtils.getMethod(cn, "<clinit>");
             if (clInit == null) {
@@ -186,43 +218,41 @@ public class StringEncryptionTransformer implements IClassTransformer {
 
 //        if (AnnotationUtils.isExcluded(node, this.getType())) return;
 
-        List<IStringEncryptionAlgorithm> algorithmList = new ArrayList<>();
-
-        initAlgorithms(algorithmList);
+        List<IStringEncryptionAlgorithm> algorithmList = getAlgorithms();
 
         boolean hideStrings = this.hideStrings.getObject();
 
         if (Modifier.isInterface(node.access)) return;
 
-        String stringArrayName = NameUtils.generateFieldName(node);
+        String stringArrayName = NameUtils.generateFieldName(node, "[Ljava/lang/String;");
 
         HashMap<Integer, String> arrayMap = new HashMap<>();
 
-        int slot = 0;
-
+        InsnWalker walker = new InsnWalker().onOpcode((method, abstractInsnNode) -> {
+            LdcInsnNode insnNode = (LdcInsnNode) abstractInsnNode;
+            if (insnNode.cst instanceof String && ((String) insnNode.cst).length() < 500) {
+                int slot = arrayMap.size();
+
+                InsnList insnList = new InsnList();
+                insnList.add(new FieldInsnNode(Opcodes.GETSTATIC, node.name, stringArrayName, "[Ljava/lang/String;"));
+                insnList.add(NodeUtils.generateIntPush(slot));
+                insnList.add(new InsnNode(Opcodes.AALOAD));
+//                String key = StringUtils.generateString(5);
+//                method.instructions.insertBefore(abstractInsnNode, new LdcInsnNode(decrypt(insnNode.cst.toString(), key)));
+//                method.instructions.insertBefore(abstractInsnNode, new LdcInsnNode(key));
+//                method.instructions.insertBefore(abstractInsnNode, new MethodInsnNode(Opcodes.INVOKESTATIC, node.name, decryptMethodName, "(Ljava/lang/String;Ljava/lang/String;)Ljava/lang/String;", false));
+                method.instructions.insert(abstractInsnNode, insnList);
+                method.instructions.remove(abstractInsnNode);
+                arrayMap.put(slot, (String) insnNode.cst);
+            }
+        }, Opcodes.LDC);
 
         for (MethodNode method : node.methods) {
-            for (AbstractInsnNode abstractInsnNode : method.instructions.toArray()) {
-                if (abstractInsnNode instanceof LdcInsnNode) {
-                    LdcInsnNode insnNode = (LdcInsnNode) abstractInsnNode;
-                    if (insnNode.cst instanceof String && ((String) insnNode.cst).length() < 500) {
-                        InsnList insnList = new InsnList();
-                        insnList.add(new FieldInsnNode(Opcodes.GETSTATIC, node.name, stringArrayName, "[Ljava/lang/String;"));
-                        insnList.add(NodeUtils.generateIntPush(slot));
-                        insnList.add(new InsnNode(Opcodes.AALOAD));
-//                        String key = StringUtils.generateString(5);
-//                        method.instructions.insertBefore(abstractInsnNode, new LdcInsnNode(decrypt(insnNode.cst.toString(), key)));
-//                        method.instructions.insertBefore(abstractInsnNode, new LdcInsnNode(key));
-//                        method.instructions.insertBefore(abstractInsnNode, new MethodInsnNode(Opcodes.INVOKESTATIC, node.name, decryptMethodName, "(Ljava/lang/String;Ljava/lang/String;)Ljava/lang/String;", false));
-                        method.instructions.insert(abstractInsnNode, insnList);
-                        method.instructions.remove(abstractInsnNode);
-                        arrayMap.put(slot, (String) insnNode.cst);
-                        slot++;
-                    }
-                }
-            }
+            walker.walk(method);
         }
 
+        int slot = arrayMap.size();
+
 
         HashMap<IStringEncryptionAlgorithm, String> encryptionMethodMap = new HashMap<>();
 
@@ -295,38 +325,46 @@ public class StringEncryptionTransformer implements IClassTransformer {
         }
 
         for (Map.Entry<IStringEncryptionAlgorithm, String> iStringEncryptionAlgorithmStringEntry : encryptionMethodMap.entrySet()) {
-            try {
-                MethodNode method = NodeUtils.getMethod(NodeUtils.toNode(iStringEncryptionAlgorithmStringEntry.getKey().getClass().getName()), "decrypt");
+            MethodTemplate template = decryptTemplates.get(iStringEncryptionAlgorithmStringEntry.getKey());
 
-                if (method != null) {
-                    method.access = Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC;
-                    method.name = iStringEncryptionAlgorithmStringEntry.getValue();
-                    node.methods.add(method);
-                } else {
-                    throw new Error("Decryption method of " + iStringEncryptionAlgorithmStringEntry.getKey().getClass().getSimpleName() + " wasn't found");
-                }
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+            node.methods.add(template.instantiate(Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC, iStringEncryptionAlgorithmStringEntry.getValue()));
         }
 
         inst.setWorkDone();
     }
 
+    @Override
+    public boolean isApplicable(ClassSummary summary) {
+        return enabled.getObject() && !summary.isInterface() && summary.getLdcCount(ClassSummary.CONSTANT_STRING) > 0;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled.getObject();
+    }
+
+    /**
+     * String constants which were moved into the static initializer and the names which InvokeDynamic stores are encrypted too
+     */
+    @Override
+    public Collection<Class<?>> getDependencies() {
+        return Arrays.asList(StaticInitializionTransformer.class, InvokeDynamic.class);
+    }
+
     @Override
     public ObfuscationTransformer getType() {
         return ObfuscationTransformer.STRING_ENCRYPTION;
     }
 
 
-    private void initAlgorithms(List<IStringEncryptionAlgorithm> algorithmList) {
-        algorithmList.clear();
+    private List<IStringEncryptionAlgorithm> getAlgorithms() {
+        if (!aes.getObject()) return algorithms;
+
+        List<IStringEncryptionAlgorithm> algorithmList = new ArrayList<>(algorithms);
 
-        algorithmList.add(new XOREncryptionAlgorithm());
-        algorithmList.add(new DESEncryptionAlgorithm());
-        algorithmList.add(new BlowfishEncryptionAlgorithm());
+        algorithmList.add(aesAlgorithm);
 
-        if (aes.getObject()) algorithmList.add(new AESEncryptionAlgorithm());
+        return algorithmList;
     }
 
 }
\ No newline at end of file
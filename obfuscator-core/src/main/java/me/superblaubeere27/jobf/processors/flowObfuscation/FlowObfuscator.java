@@ -14,17 +14,23 @@ import me.superblaubeere27.annotations.ObfuscationTransformer;
 import me.superblaubeere27.jobf.IClassTransformer;
 import me.superblaubeere27.jobf.JObfImpl;
 import me.superblaubeere27.jobf.ProcessorCallback;
+import me.superblaubeere27.jobf.processors.StringEncryptionTransformer;
+import me.superblaubeere27.jobf.utils.ClassSummary;
 import me.superblaubeere27.jobf.processors.NumberObfuscationTransformer;
+import me.superblaubeere27.jobf.utils.InsnWalker;
 import me.superblaubeere27.jobf.utils.NameUtils;
 import me.superblaubeere27.jobf.utils.NodeUtils;
 import me.superblaubeere27.jobf.utils.values.BooleanValue;
 import me.superblaubeere27.jobf.utils.values.DeprecationLevel;
 import me.superblaubeere27.jobf.utils.values.EnabledValue;
+import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.tree.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Random;
@@ -305,71 +311,76 @@ public class FlowObfuscator implements IClassTransformer {
         HashMap<Integer, MethodNode> jumpMethodMap = new HashMap<>();
 
         List<MethodNode> toAdd = new ArrayList<>();
+        InsnWalker walker = new InsnWalker();
+
+        if (badPop.getObject()) {
+            walker.onOpcode((method, insn) -> {
+                method.instructions.insertBefore(insn, new LdcInsnNode(""));
+                method.instructions.insertBefore(insn, new MethodInsnNode(Opcodes.INVOKEVIRTUAL, "java/lang/String", "length", "()I", false));
+                method.instructions.insertBefore(insn, new InsnNode(Opcodes.POP));
+            }, Opcodes.GOTO);
+            walker.onOpcode((method, insn) -> {
+                method.instructions.insertBefore(insn, new LdcInsnNode(""));
+                method.instructions.insertBefore(insn, new MethodInsnNode(Opcodes.INVOKEVIRTUAL, "java/lang/String", "length", "()I", false));
+                method.instructions.insert(insn, new InsnNode(Opcodes.POP2));
+                method.instructions.remove(insn);
+            }, Opcodes.POP);
+        }
+        if (replaceGoto.getObject()) {
+            walker.onOpcode((method, insn) -> {
+                final InsnList insnList = new InsnList();
+                insnList.add(ifGoto(((JumpInsnNode) insn).label, method, Type.getReturnType(method.desc)));
+                method.instructions.insert(insn, insnList);
+                method.instructions.remove(insn);
+            }, Opcodes.GOTO);
+        }
+        if (badConcat.getObject()) {
+            walker.onType((method, insn) -> {
+                MethodInsnNode insnNode = (MethodInsnNode) insn;
 
-        for (MethodNode method : node.methods) {
-            if (mangleLocals.getObject()) mangleLocalVariables(callback, node, method);
-            if (mangleReturn.getObject()) mangleReturn(callback, method);
-            if (mangleSwitchesEnabled.getObject()) mangleSwitches(method);
-            if (mangleComparisions.getObject())
-                toAdd.addAll(FloatingPointComparisionMangler.mangleComparisions(node, method));
-            //JumpReplacer.process(node, method);
+                if (insnNode.owner.equals("java/lang/StringBuilder") && insnNode.name.equals("toString")) {
+                    method.instructions.insert(insnNode, new MethodInsnNode(Opcodes.INVOKESTATIC, "java/lang/String", "valueOf", "(Ljava/lang/Object;)Ljava/lang/String;", false));
+                    method.instructions.remove(insnNode);
+                }
+            }, AbstractInsnNode.METHOD_INSN);
+        }
+        if (replaceIf.getObject()) {
+            walker.onOpcode((method, insn) -> {
+                JumpInsnNode insnNode = (JumpInsnNode) insn;
 
+                MethodNode wrapper = jumpMethodMap.get(insnNode.getOpcode());
 
-            for (AbstractInsnNode abstractInsnNode : method.instructions.toArray()) {
-                if (badPop.getObject() && abstractInsnNode instanceof JumpInsnNode && abstractInsnNode.getOpcode() == Opcodes.GOTO) {
-                    method.instructions.insertBefore(abstractInsnNode, new LdcInsnNode(""));
-                    method.instructions.insertBefore(abstractInsnNode, new MethodInsnNode(Opcodes.INVOKEVIRTUAL, "java/lang/String", "length", "()I", false));
-                    method.instructions.insertBefore(abstractInsnNode, new InsnNode(Opcodes.POP));
-                }
-                if (badPop.getObject() && abstractInsnNode.getOpcode() == Opcodes.POP) {
-                    method.instructions.insertBefore(abstractInsnNode, new LdcInsnNode(""));
-                    method.instructions.insertBefore(abstractInsnNode, new MethodInsnNode(Opcodes.INVOKEVIRTUAL, "java/lang/String", "length", "()I", false));
-                    method.instructions.insert(abstractInsnNode, new InsnNode(Opcodes.POP2));
-                    method.instructions.remove(abstractInsnNode);
+                if (wrapper == null) {
+                    wrapper = ifWrapper(insnNode.getOpcode());
+
+                    if (wrapper != null) {
+                        wrapper.name = NameUtils.generateMethodName(node, wrapper.desc);
+                        jumpMethodMap.put(insnNode.getOpcode(), wrapper);
+                    }
                 }
-                if (replaceGoto.getObject() && abstractInsnNode instanceof JumpInsnNode && abstractInsnNode.getOpcode() == Opcodes.GOTO) {
-                    JumpInsnNode insnNode = (JumpInsnNode) abstractInsnNode;
+
+                if (wrapper != null) {
                     final InsnList insnList = new InsnList();
-                    insnList.add(ifGoto(insnNode.label, method, Type.getReturnType(method.desc)));
+                    insnList.add(NodeUtils.methodCall(node, wrapper));
+                    insnList.add(new JumpInsnNode(Opcodes.IFEQ, insnNode.label));
                     method.instructions.insert(insnNode, insnList);
                     method.instructions.remove(insnNode);
                 }
-                if (abstractInsnNode instanceof MethodInsnNode && badConcat.getObject()) {
-                    MethodInsnNode insnNode = (MethodInsnNode) abstractInsnNode;
-
-                    if (insnNode.owner.equals("java/lang/StringBuilder") && insnNode.name.equals("toString")) {
-                        method.instructions.insert(insnNode, new MethodInsnNode(Opcodes.INVOKESTATIC, "java/lang/String", "valueOf", "(Ljava/lang/Object;)Ljava/lang/String;", false));
-                        method.instructions.remove(insnNode);
-                    }
-                }
-                if (replaceIf.getObject() && abstractInsnNode instanceof JumpInsnNode && (abstractInsnNode.getOpcode() >= Opcodes.IFEQ && abstractInsnNode.getOpcode() <= Opcodes.IF_ACMPNE || abstractInsnNode.getOpcode() >= Opcodes.IFNULL && abstractInsnNode.getOpcode() <= Opcodes.IFNONNULL)) {
-                    JumpInsnNode insnNode = (JumpInsnNode) abstractInsnNode;
-
-                    MethodNode wrapper = jumpMethodMap.get(insnNode.getOpcode());
+            }, Opcodes.IFEQ, Opcodes.IFNE, Opcodes.IFLT, Opcodes.IFGE, Opcodes.IFGT, Opcodes.IFLE,
+                    Opcodes.IF_ICMPEQ, Opcodes.IF_ICMPNE, Opcodes.IF_ICMPLT, Opcodes.IF_ICMPGE, Opcodes.IF_ICMPGT, Opcodes.IF_ICMPLE,
+                    Opcodes.IF_ACMPEQ, Opcodes.IF_ACMPNE, Opcodes.IFNULL, Opcodes.IFNONNULL);
+        }
 
-                    if (wrapper == null) {
-                        wrapper = ifWrapper(insnNode.getOpcode());
+        for (MethodNode method : node.methods) {
+            if (mangleLocals.getObject()) mangleLocalVariables(callback, node, method);
+            if (mangleReturn.getObject()) mangleReturn(callback, method);
+            if (mangleSwitchesEnabled.getObject()) mangleSwitches(method);
+            if (mangleComparisions.getObject())
+                toAdd.addAll(FloatingPointComparisionMangler.mangleComparisions(node, method));
+            //JumpReplacer.process(node, method);
 
-                        if (wrapper != null) {
-                            wrapper.name = NameUtils.generateMethodName(node, wrapper.desc);
-                            jumpMethodMap.put(insnNode.getOpcode(), wrapper);
-                        }
-                    }
 
-                    if (wrapper != null) {
-                        final InsnList insnList = new InsnList();
-                        insnList.add(NodeUtils.methodCall(node, wrapper));
-                        insnList.add(new JumpInsnNode(Opcodes.IFEQ, insnNode.label));
-                        method.instructions.insert(insnNode, insnList);
-                        method.instructions.remove(insnNode);
-                    }
-                }
-//                if (abstractInsnNode instanceof MethodInsnNode || abstractInsnNode instanceof FieldInsnNode) {
-//                    method.instructions.insertBefore(abstractInsnNode, new LdcInsnNode(""));
-//                    method.instructions.insertBefore(abstractInsnNode, new MethodInsnNode(Opcodes.INVOKEVIRTUAL, "java/lang/String", "length", "()I", false));
-//                    method.instructions.insertBefore(abstractInsnNode, new InsnNode(Opcodes.POP));
-//                }
-            }
+            walker.walk(method);
 //            method.desc = method.desc.replace('Z', 'I');
         }
 
@@ -379,6 +390,32 @@ public class FlowObfuscator implements IClassTransformer {
         inst.setWorkDone();
     }
 
+    @Override
+    public boolean isApplicable(ClassSummary summary) {
+        return enabled.getObject() && summary.hasCode();
+    }
+
+    /**
+     * Mangled methods need new frames
+     */
+    @Override
+    public int getReaderFlags() {
+        return mangleLocals.getObject() || mangleReturn.getObject() ? ClassReader.SKIP_FRAMES : 0;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled.getObject();
+    }
+
+    /**
+     * The decryption methods which are added to the class are obfuscated as well
+     */
+    @Override
+    public Collection<Class<?>> getDependencies() {
+        return Arrays.asList(StringEncryptionTransformer.class, NumberObfuscationTransformer.class);
+    }
+
     @Override
     public ObfuscationTransformer getType() {
         return ObfuscationTransformer.FLOW_OBFUSCATION;
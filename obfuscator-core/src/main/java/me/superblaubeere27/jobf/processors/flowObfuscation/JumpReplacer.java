@@ -15,7 +15,6 @@ import me.superblaubeere27.jobf.utils.Utils;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.tree.*;
-import org.objectweb.asm.tree.analysis.*;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -28,14 +27,6 @@ public class JumpReplacer {
         // Those labels will be removed from the good labels list
         List<LabelNode> badLabels = new ArrayList<>();
 
-        Frame<SourceValue>[] frames;
-
-        try {
-            frames = new Analyzer<>(new SourceInterpreter()).analyze(node.name, methodNode);
-        } catch (AnalyzerException e) {
-            throw new RuntimeException(e);
-        }
-
         for (AbstractInsnNode insnNode : methodNode.instructions.toArray()) {
             if (insnNode instanceof JumpInsnNode) {
                 JumpInsnNode jumpInsnNode = (JumpInsnNode) insnNode;
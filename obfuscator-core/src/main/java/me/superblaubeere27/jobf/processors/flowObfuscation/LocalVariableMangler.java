@@ -16,7 +16,6 @@ import me.superblaubeere27.jobf.utils.VariableProvider;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.tree.*;
-import org.objectweb.asm.tree.analysis.*;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -25,21 +24,6 @@ import java.util.Map;
 
 class LocalVariableMangler {
     static void mangleLocalVariables(ProcessorCallback callback, ClassNode node, MethodNode method) {
-        int maxStackSize = method.maxStack;
-        int maxLocals = method.maxLocals;
-        method.maxStack = 1337;
-        method.maxLocals = 1337;
-
-        Frame<SourceValue>[] frames;
-        try {
-            frames = new Analyzer<>(new SourceInterpreter()).analyze(node.name, method);
-        } catch (AnalyzerException e) {
-            throw new RuntimeException(e);
-        }
-
-        method.maxStack = maxStackSize;
-        method.maxLocals = maxLocals;
-
         VariableProvider provider = new VariableProvider(method);
 
         // Map of local variables and their types. They are added if the type of the variable is double, float, int or long
@@ -86,14 +70,9 @@ class LocalVariableMangler {
                     }
                 }
 
-                if (insnNode.getOpcode() >= Opcodes.ISTORE && insnNode.getOpcode() <= Opcodes.ASTORE) {
-                    Frame<SourceValue> currentFrame = frames[method.instructions.indexOf(insnNode)];
-
-                    SourceValue stack = currentFrame.getStack(currentFrame.getStackSize() - 1);
-
-                    if (stack.getSize() > 1) {
-                        localVarMap.put(insnNode.var, Type.VOID_TYPE);
-                    }
+                // The stored value takes two slots, no need to analyze the stack for that
+                if (insnNode.getOpcode() == Opcodes.LSTORE || insnNode.getOpcode() == Opcodes.DSTORE) {
+                    localVarMap.put(insnNode.var, Type.VOID_TYPE);
                 }
             }
         }
@@ -10,8 +10,11 @@
 
 package me.superblaubeere27.jobf.processors.name;
 
+import me.superblaubeere27.jobf.JObfImpl;
+import me.superblaubeere27.jobf.utils.ClassByteStore;
 import org.objectweb.asm.tree.ClassNode;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 
 /**
@@ -36,9 +39,14 @@ public class ClassWrapper {
     public boolean libraryNode;
 
     /**
-     * Required if you wanna load it at runtime. (For COMPUTE_FRAMES)
+     * Holds the original bytes, which are required if you wanna load it at runtime. (For COMPUTE_FRAMES)
      */
-    public byte[] originalClass;
+    private final ClassByteStore classBytes;
+
+    /**
+     * Index of the original bytes in {@link #classBytes}.
+     */
+    private int originalClass;
 
     /**
      * Methods.
@@ -58,9 +66,22 @@ public class ClassWrapper {
      * @param originalClass Original bytes of the class
      */
     public ClassWrapper(ClassNode classNode, boolean libraryNode, byte[] originalClass) {
+        this(classNode, libraryNode, JObfImpl.INSTANCE.getClassBytes(), JObfImpl.INSTANCE.getClassBytes().put(originalClass));
+    }
+
+    /**
+     * Creates a ClassWrapper object for bytes which are already stored.
+     *
+     * @param classNode     the attached {@link ClassNode}.
+     * @param libraryNode   is this a library class?
+     * @param classBytes    the store which holds the original bytes
+     * @param originalClass index of the original bytes in the store
+     */
+    public ClassWrapper(ClassNode classNode, boolean libraryNode, ClassByteStore classBytes, int originalClass) {
         this.classNode = classNode;
         this.originalName = classNode.name;
         this.libraryNode = libraryNode;
+        this.classBytes = classBytes;
         this.originalClass = originalClass;
 
         ClassWrapper instance = this;
@@ -71,4 +92,22 @@ public class ClassWrapper {
                     fieldNode.desc)));
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * @return a read-only view of the original bytes
+     */
+    public ByteBuffer getOriginalClass() {
+        return classBytes.slice(originalClass);
+    }
+
+    /**
+     * @return a copy of the original bytes
+     */
+    public byte[] getOriginalClassBytes() {
+        return classBytes.get(originalClass);
+    }
+
+    public void setOriginalClass(byte[] originalClass) {
+        this.originalClass = classBytes.put(originalClass);
+    }
+}
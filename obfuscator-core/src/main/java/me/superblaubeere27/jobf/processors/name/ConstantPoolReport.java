@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2017-2019 superblaubeere27, Sam Sun, MarcoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package me.superblaubeere27.jobf.processors.name;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.tree.ClassNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares the constant pools of classes before and after renaming.
+ */
+class ConstantPoolReport {
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    private static int[] measure(byte[] bytes) {
+        ClassReader reader = new ClassReader(bytes);
+
+        // The constant pool starts after magic, version and constant_pool_count and ends at the access flags
+        return new int[]{reader.getItemCount(), reader.header - 10, bytes.length};
+    }
+
+    private static byte[] write(ClassNode node) {
+        ClassWriter writer = new ClassWriter(0);
+
+        node.accept(writer);
+
+        return writer.toByteArray();
+    }
+
+    void before(String name, ClassNode node) {
+        entries.put(name, new Entry(name, measure(write(node))));
+    }
+
+    void after(String name, String newName, byte[] bytes) {
+        Entry entry = entries.get(name);
+
+        if (entry != null) {
+            entry.newName = newName;
+            entry.after = measure(bytes);
+        }
+    }
+
+    void write(File file) throws IOException {
+        List<Entry> list = new ArrayList<>();
+
+        for (Entry entry : entries.values()) {
+            if (entry.after != null) list.add(entry);
+        }
+
+        list.sort((a, b) -> Integer.compare(b.before[1] - b.after[1], a.before[1] - a.after[1]));
+
+        int[] before = new int[3];
+        int[] after = new int[3];
+
+        try (PrintWriter writer = new PrintWriter(file, StandardCharsets.UTF_8.name())) {
+            writer.println("# class -> new name: constant pool entries, constant pool bytes, class file bytes (before -> after)");
+
+            for (Entry entry : list) {
+                writer.println(String.format("%s -> %s: %d -> %d, %d -> %d, %d -> %d", entry.name, entry.newName,
+                        entry.before[0], entry.after[0], entry.before[1], entry.after[1], entry.before[2], entry.after[2]));
+
+                for (int i = 0; i < 3; i++) {
+                    before[i] += entry.before[i];
+                    after[i] += entry.after[i];
+                }
+            }
+
+            writer.println(String.format("# total (%d classes): %d -> %d, %d -> %d, %d -> %d", list.size(),
+                    before[0], after[0], before[1], after[1], before[2], after[2]));
+        }
+    }
+
+    /**
+     * @return the constant pool bytes of all reported classes before and after renaming
+     */
+    long[] totals() {
+        long[] totals = new long[2];
+
+        for (Entry entry : entries.values()) {
+            if (entry.after == null) continue;
+
+            totals[0] += entry.before[1];
+            totals[1] += entry.after[1];
+        }
+
+        return totals;
+    }
+
+    private static class Entry {
+        private final String name;
+        private final int[] before;
+        private String newName;
+        private int[] after;
+
+        private Entry(String name, int[] before) {
+            this.name = name;
+            this.before = before;
+        }
+    }
+}
@@ -13,8 +13,26 @@ package me.superblaubeere27.jobf.processors.name;
 import me.superblaubeere27.jobf.JObfImpl;
 import org.objectweb.asm.tree.ClassNode;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 
 public interface INameObfuscationProcessor {
     void transformPost(JObfImpl inst, HashMap<String, ClassNode> nodes);
+
+    /**
+     * @return if {@link #transformPost(JObfImpl, HashMap)} works on the classes. If no processor does, classes are
+     * only parsed when they are processed.
+     */
+    default boolean needsClassNodes() {
+        return true;
+    }
+
+    /**
+     * @return the types of the processors which must run before this one. The processors are ordered by their
+     * dependencies when they are registered.
+     */
+    default Collection<Class<?>> getDependencies() {
+        return Collections.emptyList();
+    }
 }
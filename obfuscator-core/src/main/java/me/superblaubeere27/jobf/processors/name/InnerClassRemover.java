@@ -18,10 +18,14 @@ import me.superblaubeere27.jobf.utils.NameUtils;
 import me.superblaubeere27.jobf.utils.values.BooleanValue;
 import me.superblaubeere27.jobf.utils.values.DeprecationLevel;
 import me.superblaubeere27.jobf.utils.values.EnabledValue;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.commons.ClassRemapper;
 import org.objectweb.asm.tree.ClassNode;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -77,6 +81,19 @@ public class InnerClassRemover implements INameObfuscationProcessor, IClassTrans
         updatedClasses.forEach((s, classNode) -> JObfImpl.classes.put(s, classNode));
     }
 
+    /**
+     * Inner classes get new names after the other classes were renamed
+     */
+    @Override
+    public Collection<Class<?>> getDependencies() {
+        return Collections.singletonList(NameObfuscation.class);
+    }
+
+    @Override
+    public boolean needsClassNodes() {
+        return enabled.getObject() && remap.getObject();
+    }
+
     @Override
     public void process(ProcessorCallback callback, ClassNode node) {
         if (!enabled.getObject() || !removeMetadata.getObject()) return;
@@ -88,6 +105,29 @@ public class InnerClassRemover implements INameObfuscationProcessor, IClassTrans
         node.outerMethodDesc = null;
     }
 
+    @Override
+    public boolean isEnabled() {
+        return enabled.getObject() && removeMetadata.getObject();
+    }
+
+    @Override
+    public boolean isStreamable() {
+        return true;
+    }
+
+    @Override
+    public ClassVisitor createVisitor(ClassVisitor next) {
+        return new ClassVisitor(Opcodes.ASM9, next) {
+            @Override
+            public void visitOuterClass(String owner, String name, String descriptor) {
+            }
+
+            @Override
+            public void visitInnerClass(String name, String outerName, String innerName, int access) {
+            }
+        };
+    }
+
     @Override
     public ObfuscationTransformer getType() {
         return ObfuscationTransformer.INNER_CLASS_REMOVER;
@@ -10,33 +10,42 @@
 
 package me.superblaubeere27.jobf.processors.name;
 
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.regex.Pattern;
 
 import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.commons.ClassRemapper;
 import org.objectweb.asm.commons.Remapper;
 import org.objectweb.asm.tree.ClassNode;
-import org.objectweb.asm.tree.FieldNode;
-import org.objectweb.asm.tree.MethodNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import me.superblaubeere27.jobf.JObfImpl;
-import me.superblaubeere27.jobf.utils.ClassTree;
+import me.superblaubeere27.jobf.utils.ClassHierarchy;
+import me.superblaubeere27.jobf.utils.GlobMatcher;
+import me.superblaubeere27.jobf.utils.LibraryClass;
+import me.superblaubeere27.jobf.utils.NameGenerator;
 import me.superblaubeere27.jobf.utils.NameUtils;
 import me.superblaubeere27.jobf.utils.Utils;
+import me.superblaubeere27.jobf.utils.mapping.ProGuardMapping;
 import me.superblaubeere27.jobf.utils.values.BooleanValue;
 import me.superblaubeere27.jobf.utils.values.DeprecationLevel;
+import me.superblaubeere27.jobf.utils.values.FilePathValue;
 import me.superblaubeere27.jobf.utils.values.EnabledValue;
 import me.superblaubeere27.jobf.utils.values.StringValue;
 
@@ -53,10 +62,18 @@ public class NameObfuscation implements INameObfuscationProcessor {
     private final StringValue newPackage = new StringValue(PROCESSOR_NAME, "New Packages", null, DeprecationLevel.GOOD, "", 5);
     private final BooleanValue acceptMissingLibraries = new BooleanValue(PROCESSOR_NAME, "Accept Missing Libraries", DeprecationLevel.GOOD, true);
     private final BooleanValue preservePackageHierarchy = new BooleanValue(PROCESSOR_NAME, "Preserve Package Hierarchy", DeprecationLevel.GOOD, false);
+    private final FilePathValue mappingInput = new FilePathValue(PROCESSOR_NAME, "Mapping Input", "ProGuard mapping of a previous build. Names of classes and members it contains are reused", DeprecationLevel.GOOD, "");
+    private final FilePathValue mappingOutput = new FilePathValue(PROCESSOR_NAME, "Mapping Output", "File the mapping is written to in ProGuard format. Disabled if empty", DeprecationLevel.GOOD, "");
+    private final FilePathValue sizeReport = new FilePathValue(PROCESSOR_NAME, "Size Report", "File the constant pool size of every class before and after renaming is written to. Disabled if empty", DeprecationLevel.GOOD, "");
     private List<String> packageNames;
-    private final List<Pattern> excludedClassesPatterns = new ArrayList<>();
-    private final List<Pattern> excludedMethodsPatterns = new ArrayList<>();
-    private final List<Pattern> excludedFieldsPatterns = new ArrayList<>();
+    private GlobMatcher excludedClassesMatcher = GlobMatcher.compile(null);
+    private GlobMatcher excludedMethodsMatcher = GlobMatcher.compile(null);
+    private GlobMatcher excludedFieldsMatcher = GlobMatcher.compile(null);
+    private HashMap<String, String> importedMappings = new HashMap<>();
+    /**
+     * The input classes and their super classes
+     */
+    private BitSet inputHierarchy = new BitSet();
 
     public void setupPackages() {
         if (shouldPackage.getObject()) {
@@ -160,6 +177,11 @@ public class NameObfuscation implements INameObfuscationProcessor {
         mappings.put(str, str1);
     }
 
+    @Override
+    public boolean needsClassNodes() {
+        return enabled.getObject();
+    }
+
     @Override
     public void transformPost(JObfImpl inst, HashMap<String, ClassNode> nodes) {
         if (!enabled.getObject()) {
@@ -180,16 +202,14 @@ public class NameObfuscation implements INameObfuscationProcessor {
 
             List<ClassWrapper> classWrappers = new ArrayList<>();
 
-            for (String s : excludedClasses.getObject().split("\n")) {
-                excludedClassesPatterns.add(compileExcludePattern(s));
-            }
-            for (String s : excludedMethods.getObject().split("\n")) {
-                excludedMethodsPatterns.add(compileExcludePattern(s));
-            }
-            for (String s : excludedFields.getObject().split("\n")) {
-                excludedFieldsPatterns.add(compileExcludePattern(s));
+            excludedClassesMatcher = GlobMatcher.compile(excludedClasses.getObject());
+            excludedMethodsMatcher = GlobMatcher.compile(excludedMethods.getObject());
+            excludedFieldsMatcher = GlobMatcher.compile(excludedFields.getObject());
+
+            if (excludedClassesMatcher.isEmpty()) {
+                log.info("No exclusion patterns defined for classes");
             }
-            
+
             log.info("Building Hierarchy...");
 
             // Ensure packages are set up correctly
@@ -205,7 +225,7 @@ public class NameObfuscation implements INameObfuscationProcessor {
                 classWrappers.add(cw);
 
                 try {
-                    JObfImpl.INSTANCE.buildHierarchy(cw, null, acceptMissingLibraries.getObject());
+                    JObfImpl.INSTANCE.buildHierarchy(cw, acceptMissingLibraries.getObject());
                 } catch (me.superblaubeere27.jobf.utils.MissingClassException e) {
                     // Check if missing class is a Java standard library class
                     if (e.getMessage().startsWith("java/") || e.getMessage().startsWith("javax/")) {
@@ -221,8 +241,34 @@ public class NameObfuscation implements INameObfuscationProcessor {
                 }
             }
 
+            ClassHierarchy hierarchy = JObfImpl.INSTANCE.getHierarchy();
+
+            for (ClassWrapper classWrapper : classWrappers) {
+                int id = JObfImpl.INSTANCE.getTree(classWrapper.originalName);
+
+                if (id == -1) continue;
+
+                inputHierarchy.set(id);
+                inputHierarchy.or(hierarchy.getSuperTypes(id));
+            }
+
             log.info("... Finished building hierarchy");
 
+            if (!mappingInput.getObject().trim().isEmpty()) {
+                importMappings(new File(mappingInput.getObject().trim()));
+            }
+
+            Map<String, String> treeScopes = computeTreeScopes(classWrappers);
+            ConstantPoolReport report = null;
+
+            if (!sizeReport.getObject().trim().isEmpty()) {
+                report = new ConstantPoolReport();
+
+                for (ClassWrapper classWrapper : classWrappers) {
+                    report.before(classWrapper.originalName, classWrapper.classNode);
+                }
+            }
+
             long current = System.currentTimeMillis();
             log.info("Generating mappings...");
             
@@ -241,8 +287,6 @@ public class NameObfuscation implements INameObfuscationProcessor {
                 log.info("Package hierarchy preservation is DISABLED and Package is DISABLED - all classes will be moved to the root with no package structure");
             }
 
-            NameUtils.setup();
-
             AtomicInteger classCounter = new AtomicInteger();
             // Track classes that failed hierarchy building but should still be renamed
             List<ClassWrapper> unprocessedClasses = new ArrayList<>();
@@ -252,7 +296,7 @@ public class NameObfuscation implements INameObfuscationProcessor {
                 AtomicBoolean builtHierarchy = new AtomicBoolean(false);
                 
                 // Check if the class has a valid hierarchy - if not, we'll handle it separately
-                if (JObfImpl.INSTANCE.getTree(classWrapper.originalName) == null) {
+                if (JObfImpl.INSTANCE.getTree(classWrapper.originalName) == -1) {
                     if (!excluded) {
                         log.info("Class " + classWrapper.originalName + " has no hierarchy information. Will process separately.");
                         unprocessedClasses.add(classWrapper);
@@ -288,8 +332,14 @@ public class NameObfuscation implements INameObfuscationProcessor {
                     }
 
                     try {
-                        if (!isMethodExcluded(classWrapper.originalName, methodWrapper) && canRenameMethodTree(mappings, new HashSet<>(), methodWrapper, classWrapper.originalName)) {
-                            this.renameMethodTree(mappings, new HashSet<>(), methodWrapper, classWrapper.originalName, NameUtils.generateMethodName(classWrapper.originalName, methodWrapper.originalDescription));
+                        if (!isMethodExcluded(classWrapper.originalName, methodWrapper) && canRenameMethodTree(mappings, new BitSet(), methodWrapper, classWrapper.originalName)) {
+                            String newName = findImportedMethodName(new BitSet(), methodWrapper, classWrapper.originalName);
+
+                            if (newName == null) {
+                                newName = NameUtils.generateMethodTreeName(treeScopes.get(classWrapper.originalName), methodWrapper.originalDescription);
+                            }
+
+                            this.renameMethodTree(mappings, new BitSet(), methodWrapper, classWrapper.originalName, newName);
                         }
                     } catch (Exception e) {
                         e.printStackTrace();
@@ -297,8 +347,14 @@ public class NameObfuscation implements INameObfuscationProcessor {
                 });
 
                 classWrapper.fields.forEach(fieldWrapper -> {
-                    if (!isFieldExcluded(classWrapper.originalName, fieldWrapper) && canRenameFieldTree(mappings, new HashSet<>(), fieldWrapper, classWrapper.originalName)) {
-                        this.renameFieldTree(new HashSet<>(), fieldWrapper, classWrapper.originalName, NameUtils.generateFieldName(classWrapper.originalName), mappings);
+                    if (!isFieldExcluded(classWrapper.originalName, fieldWrapper) && canRenameFieldTree(mappings, new BitSet(), fieldWrapper, classWrapper.originalName)) {
+                        String newName = findImportedFieldName(new BitSet(), fieldWrapper, classWrapper.originalName);
+
+                        if (newName == null) {
+                            newName = NameUtils.generateFieldTreeName(treeScopes.get(classWrapper.originalName), fieldWrapper.originalDescription);
+                        }
+
+                        this.renameFieldTree(new BitSet(), fieldWrapper, classWrapper.originalName, newName, mappings);
                     }
                 });
 
@@ -312,9 +368,11 @@ public class NameObfuscation implements INameObfuscationProcessor {
                 classWrapper.classNode.access &= ~Opcodes.ACC_PROTECTED;
                 classWrapper.classNode.access |= Opcodes.ACC_PUBLIC;
 
-                String newClassName;
+                String newClassName = importedMappings.get(classWrapper.originalName);
                 
-                if (shouldPackage.getObject()) {
+                if (newClassName != null) {
+                    // Keep the name of the imported mapping
+                } else if (shouldPackage.getObject()) {
                     if (preservePackageHierarchy.getObject()) {
                         // Preserve package hierarchy but obfuscate class name
                         String packagePath = "";
@@ -327,14 +385,14 @@ public class NameObfuscation implements INameObfuscationProcessor {
                         }
                         
                         // Generate a random class name but keep it in the same package
-                        newClassName = packagePath + NameUtils.generateClassName();
+                        newClassName = generateClassName(packagePath);
                     } else {
                         // Use configured package
-                        newClassName = getPackageName() + NameUtils.generateClassName();
+                        newClassName = generateClassName(getPackageName());
                     }
                 } else {
                     // Don't use package
-                    newClassName = NameUtils.generateClassName();
+                    newClassName = generateClassName("");
                 }
                 
                 log.info("Renaming class: " + classWrapper.originalName + " to " + newClassName);
@@ -347,12 +405,17 @@ public class NameObfuscation implements INameObfuscationProcessor {
             // Process any classes that couldn't be processed in the main loop
             processUnprocessedClasses(unprocessedClasses, mappings);
 
+            if (!mappingOutput.getObject().trim().isEmpty()) {
+                exportMappings(new File(mappingOutput.getObject().trim()), classWrappers, mappings);
+            }
+
             log.info(String.format("... Finished generating mappings (%s)", Utils.formatTime(System.currentTimeMillis() - current)));
             log.info("Applying mappings...");
 
             current = System.currentTimeMillis();
 
             Remapper simpleRemapper = new MemberRemapper(mappings);
+            Map<String, String> renamedClasses = new HashMap<>();
 
             for (ClassWrapper classWrapper : classWrappers) {
                 ClassNode classNode = classWrapper.classNode;
@@ -383,6 +446,7 @@ public class NameObfuscation implements INameObfuscationProcessor {
                     }
                 }
 
+                JObfImpl.INSTANCE.getMembers().remove(classWrapper.classNode);
                 classWrapper.classNode = copy;
                 JObfImpl.classes.remove(classWrapper.originalName + ".class");
                 JObfImpl.classes.put(classWrapper.classNode.name + ".class", classWrapper.classNode);
@@ -393,117 +457,306 @@ public class NameObfuscation implements INameObfuscationProcessor {
 
                 classWrapper.classNode.accept(writer);
 
-                classWrapper.originalClass = writer.toByteArray();
+                byte[] bytes = writer.toByteArray();
+
+                classWrapper.setOriginalClass(bytes);
+
+                if (report != null) {
+                    report.after(classWrapper.originalName, classWrapper.classNode.name, bytes);
+                }
 
                 JObfImpl.INSTANCE.getClassPath().put(classWrapper.classNode.name, classWrapper);
+
+                if (!classWrapper.originalName.equals(classWrapper.classNode.name)) {
+                    renamedClasses.put(classWrapper.originalName, classWrapper.classNode.name);
+                }
             }
 
+            // Frame computation looks classes up by their new names
+            JObfImpl.INSTANCE.getHierarchy().rename(renamedClasses);
+
             log.info(String.format("... Finished applying mappings (%s)", Utils.formatTime(System.currentTimeMillis() - current)));
+
+            if (report != null) {
+                writeReport(report);
+            }
         } finally {
-            excludedClassesPatterns.clear();
-            excludedMethodsPatterns.clear();
-            excludedFieldsPatterns.clear();
+            excludedClassesMatcher = GlobMatcher.compile(null);
+            excludedMethodsMatcher = GlobMatcher.compile(null);
+            excludedFieldsMatcher = GlobMatcher.compile(null);
+            importedMappings = new HashMap<>();
+            inputHierarchy = new BitSet();
         }
     }
 
-    private void debugCurrentValues() {
-        log.info("==== NameObfuscation Configuration ====");
-        log.info("Enabled: {}", enabled.getObject());
-        log.info("Should Package: {}", shouldPackage.getObject());
-        log.info("New Package: '{}'", newPackage.getObject());
-        log.info("Preserve Package Hierarchy: {}", preservePackageHierarchy.getObject());
-        log.info("Excluded Classes: {} patterns", excludedClassesPatterns.size());
-        log.info("Excluded Methods: {} patterns", excludedMethodsPatterns.size());
-        log.info("Excluded Fields: {} patterns", excludedFieldsPatterns.size());
-        log.info("Accept Missing Libraries: {}", acceptMissingLibraries.getObject());
-        log.info("Raw Value Objects:");
-        log.info("  shouldPackage = {}", shouldPackage);
-        log.info("  newPackage = {}", newPackage);
-        log.info("  preservePackageHierarchy = {}", preservePackageHierarchy);
-        log.info("=======================================");
+    /**
+     * @param packagePath the package in internal form with a trailing slash, empty for the default package
+     */
+    private String generateClassName(String packagePath) {
+        String packageName = packagePath.endsWith("/") ? packagePath.substring(0, packagePath.length() - 1) : packagePath;
+
+        return packagePath + NameUtils.generateClassName(packageName);
     }
 
-    private Pattern compileExcludePattern(String s) {
-        StringBuilder sb = new StringBuilder();
-        // s.replace('.', '/').replace("**", ".*").replace("*", "[^/]*")
+    /**
+     * Groups the classes into scopes which are connected by inheritance. Trees of different scopes never share a
+     * class, so their members may get the same names.
+     * Library classes never inherit from input classes, so they don't connect two scopes.
+     */
+    private Map<String, String> computeTreeScopes(List<ClassWrapper> classWrappers) {
+        Map<String, String> parents = new HashMap<>();
 
-        char[] chars = s.toCharArray();
+        for (ClassWrapper classWrapper : classWrappers) {
+            parents.put(classWrapper.originalName, classWrapper.originalName);
+        }
 
-        for (int i = 0; i < chars.length; i++) {
-            char c = chars[i];
+        ClassHierarchy hierarchy = JObfImpl.INSTANCE.getHierarchy();
 
-            if (c == '*') {
-                if (chars.length - 1 != i && chars[i + 1] == '*') {
-                    sb.append(".*");
-                    i++;
-                } else {
-                    sb.append("[^/]*");
+        for (ClassWrapper classWrapper : classWrappers) {
+            int id = JObfImpl.INSTANCE.getTree(classWrapper.originalName);
+
+            if (id == -1) continue;
+
+            for (int parentId : hierarchy.getParents(id)) {
+                String parent = hierarchy.getName(parentId);
+
+                if (parents.containsKey(parent)) {
+                    parents.put(findScope(parents, classWrapper.originalName), findScope(parents, parent));
                 }
-            } else if (c == '.') {
-                sb.append('/');
-            } else {
-                sb.append(c);
             }
         }
 
-        return Pattern.compile(sb.toString());
+        Map<String, String> scopes = new HashMap<>();
+
+        for (String name : parents.keySet()) {
+            scopes.put(name, findScope(parents, name));
+        }
+
+        return scopes;
     }
 
-    private boolean isClassExcluded(ClassWrapper classWrapper) {
-        String str = classWrapper.classNode.name;
-        
-        log.info("Checking if class is excluded: " + str);
+    private String findScope(Map<String, String> parents, String name) {
+        String root = name;
 
-        // Special case: If there are no exclude patterns, log this fact
-        if (excludedClassesPatterns.isEmpty()) {
-            log.info("No exclusion patterns defined for classes");
+        while (!parents.get(root).equals(root)) {
+            root = parents.get(root);
         }
 
-        for (Pattern excludedMethodsPattern : excludedClassesPatterns) {
-            if (excludedMethodsPattern.matcher(str).matches()) {
-                log.info("Class '" + classWrapper.classNode.name + "' was excluded from name obfuscation by regex '" + excludedMethodsPattern.pattern() + "'");
-                return true;
-            }
+        // Path compression
+        while (!name.equals(root)) {
+            String next = parents.get(name);
+            parents.put(name, root);
+            name = next;
         }
 
-        log.info("Class '" + classWrapper.classNode.name + "' will be processed for name obfuscation");
-        return false;
+        return root;
     }
 
-    private boolean isMethodExcluded(String owner, MethodWrapper methodWrapper) {
-        String str = owner + '.' + methodWrapper.originalName;
+    /**
+     * Loads a mapping into {@link #importedMappings} and keeps the name generator from handing out its names
+     */
+    private void importMappings(File file) {
+        if (!file.exists()) {
+            log.warn("Mapping input " + file.getAbsolutePath() + " doesn't exist, all names will be generated");
+            return;
+        }
 
-        for (Pattern excludedMethodsPattern : excludedMethodsPatterns) {
-            if (excludedMethodsPattern.matcher(str).matches()) {
-                return true;
+        NameGenerator generator = NameUtils.getGenerator();
+
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            ProGuardMapping.read(reader, new ProGuardMapping.Visitor() {
+                private String owner;
+
+                @Override
+                public void visitClass(String original, String obfuscated) {
+                    owner = original.replace('.', '/');
+
+                    String newName = obfuscated.replace('.', '/');
+
+                    importedMappings.put(owner, newName);
+                    generator.reserveClass(newName);
+                }
+
+                @Override
+                public void visitField(String type, String original, String obfuscated) {
+                    String desc = ProGuardMapping.toDescriptor(type);
+
+                    importedMappings.put(owner + '.' + original + '.' + desc, obfuscated);
+                    generator.reserveField(obfuscated, desc);
+                }
+
+                @Override
+                public void visitMethod(String returnType, String original, String arguments, String obfuscated) {
+                    String desc = ProGuardMapping.toMethodDescriptor(returnType, arguments);
+
+                    importedMappings.put(owner + '.' + original + desc, obfuscated);
+                    generator.reserveMethod(obfuscated, desc);
+                }
+            });
+
+            log.info("Imported " + importedMappings.size() + " mappings from " + file.getAbsolutePath());
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read mapping input " + file.getAbsolutePath(), e);
+        }
+    }
+
+    private void exportMappings(File file, List<ClassWrapper> classWrappers, HashMap<String, String> mappings) {
+        List<ClassWrapper> sorted = new ArrayList<>(classWrappers);
+
+        sorted.sort(Comparator.comparing(classWrapper -> classWrapper.originalName));
+
+        try (ProGuardMapping.MappingWriter writer = new ProGuardMapping.MappingWriter(Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8))) {
+            for (ClassWrapper classWrapper : sorted) {
+                String owner = classWrapper.originalName;
+
+                writer.visitClass(owner.replace('/', '.'), mappings.getOrDefault(owner, owner).replace('/', '.'));
+
+                for (FieldWrapper field : classWrapper.fields) {
+                    String newName = mappings.get(owner + '.' + field.originalName + '.' + field.originalDescription);
+
+                    if (newName != null) writer.writeField(field.originalDescription, field.originalName, newName);
+                }
+                for (MethodWrapper method : classWrapper.methods) {
+                    String newName = mappings.get(owner + '.' + method.originalName + method.originalDescription);
+
+                    if (newName != null) writer.writeMethod(method.originalDescription, method.originalName, newName);
+                }
             }
+
+            writer.flush();
+
+            log.info("Mapping written to " + file.getAbsolutePath());
+        } catch (IOException e) {
+            log.error("Failed to write mapping to " + file.getAbsolutePath(), e);
         }
+    }
 
-        return false;
+    private String findImportedMethodName(BitSet visited, MethodWrapper methodWrapper, String className) {
+        if (importedMappings.isEmpty()) return null;
+
+        ClassHierarchy hierarchy = JObfImpl.INSTANCE.getHierarchy();
+        int id = JObfImpl.INSTANCE.getTree(className);
+
+        if (id == -1 || hierarchy.isLibrary(id) || visited.get(id)) return null;
+
+        visited.set(id);
+
+        String name = importedMappings.get(className + '.' + methodWrapper.originalName + methodWrapper.originalDescription);
+
+        if (name != null) return name;
+
+        for (int parent : hierarchy.getParents(id)) {
+            if ((name = findImportedMethodName(visited, methodWrapper, hierarchy.getName(parent))) != null) return name;
+        }
+        for (int sub : getSubClasses(hierarchy, id)) {
+            if ((name = findImportedMethodName(visited, methodWrapper, hierarchy.getName(sub))) != null) return name;
+        }
+
+        return null;
     }
 
-    private boolean isFieldExcluded(String owner, FieldWrapper methodWrapper) {
-        String str = owner + '.' + methodWrapper.originalName;
+    private String findImportedFieldName(BitSet visited, FieldWrapper fieldWrapper, String className) {
+        if (importedMappings.isEmpty()) return null;
 
-        for (Pattern excludedMethodsPattern : excludedFieldsPatterns) {
-            if (excludedMethodsPattern.matcher(str).matches()) {
-                return true;
-            }
+        ClassHierarchy hierarchy = JObfImpl.INSTANCE.getHierarchy();
+        int id = JObfImpl.INSTANCE.getTree(className);
+
+        if (id == -1 || hierarchy.isLibrary(id) || visited.get(id)) return null;
+
+        visited.set(id);
+
+        String name = importedMappings.get(className + '.' + fieldWrapper.originalName + '.' + fieldWrapper.originalDescription);
+
+        if (name != null) return name;
+
+        for (int parent : hierarchy.getParents(id)) {
+            if ((name = findImportedFieldName(visited, fieldWrapper, hierarchy.getName(parent))) != null) return name;
+        }
+        for (int sub : getSubClasses(hierarchy, id)) {
+            if ((name = findImportedFieldName(visited, fieldWrapper, hierarchy.getName(sub))) != null) return name;
+        }
+
+        return null;
+    }
+
+    private void writeReport(ConstantPoolReport report) {
+        File file = new File(sizeReport.getObject().trim());
+
+        try {
+            report.write(file);
+
+            long[] totals = report.totals();
+
+            log.info(String.format("Constant pools: %d -> %d bytes, report written to %s", totals[0], totals[1], file.getAbsolutePath()));
+        } catch (IOException e) {
+            log.error("Failed to write size report to " + file.getAbsolutePath(), e);
+        }
+    }
+
+    private void debugCurrentValues() {
+        log.info("==== NameObfuscation Configuration ====");
+        log.info("Enabled: {}", enabled.getObject());
+        log.info("Should Package: {}", shouldPackage.getObject());
+        log.info("New Package: '{}'", newPackage.getObject());
+        log.info("Preserve Package Hierarchy: {}", preservePackageHierarchy.getObject());
+        log.info("Excluded Classes: {} patterns", GlobMatcher.compile(excludedClasses.getObject()).size());
+        log.info("Excluded Methods: {} patterns", GlobMatcher.compile(excludedMethods.getObject()).size());
+        log.info("Excluded Fields: {} patterns", GlobMatcher.compile(excludedFields.getObject()).size());
+        log.info("Accept Missing Libraries: {}", acceptMissingLibraries.getObject());
+        log.info("Raw Value Objects:");
+        log.info("  shouldPackage = {}", shouldPackage);
+        log.info("  newPackage = {}", newPackage);
+        log.info("  preservePackageHierarchy = {}", preservePackageHierarchy);
+        log.info("=======================================");
+    }
+
+    private boolean isClassExcluded(ClassWrapper classWrapper) {
+        String pattern = excludedClassesMatcher.matchingPattern(classWrapper.classNode.name);
+
+        if (pattern != null) {
+            log.info("Class '" + classWrapper.classNode.name + "' was excluded from name obfuscation by pattern '" + pattern + "'");
+            return true;
         }
 
         return false;
     }
 
-    private boolean canRenameMethodTree(HashMap<String, String> mappings, HashSet<ClassTree> visited, MethodWrapper methodWrapper, String owner) {
-        ClassTree tree = JObfImpl.INSTANCE.getTree(owner);
+    private boolean isMethodExcluded(String owner, MethodWrapper methodWrapper) {
+        return excludedMethodsMatcher.matches(owner, methodWrapper.originalName);
+    }
+
+    private boolean isFieldExcluded(String owner, FieldWrapper fieldWrapper) {
+        return excludedFieldsMatcher.matches(owner, fieldWrapper.originalName);
+    }
+
+    /**
+     * @return the subclasses which are part of {@link #inputHierarchy}. Other library classes can't share members with
+     * input classes.
+     */
+    private int[] getSubClasses(ClassHierarchy hierarchy, int id) {
+        int[] subClasses = hierarchy.getSubClasses(id);
+        int count = 0;
+
+        for (int sub : subClasses) {
+            if (inputHierarchy.get(sub)) subClasses[count++] = sub;
+        }
+
+        return count == subClasses.length ? subClasses : Arrays.copyOf(subClasses, count);
+    }
+
+    private boolean canRenameMethodTree(HashMap<String, String> mappings, BitSet visited, MethodWrapper methodWrapper, String owner) {
+        ClassHierarchy hierarchy = JObfImpl.INSTANCE.getHierarchy();
+        int id = JObfImpl.INSTANCE.getTree(owner);
 
-        if (tree == null)
+        if (id == -1)
             return false;
 
-        if (!visited.contains(tree)) {
-            visited.add(tree);
+        if (!visited.get(id)) {
+            visited.set(id);
+
+            LibraryClass libraryClass = hierarchy.getLibraryClass(id);
 
-            if (tree.missingSuperClass) {
+            if (hierarchy.isMissingSuperClass(id)) {
                 return false;
             }
             if (Modifier.isNative(methodWrapper.methodNode.access)) {
@@ -513,21 +766,17 @@ public class NameObfuscation implements INameObfuscationProcessor {
             if (mappings.containsKey(owner + '.' + methodWrapper.originalName + methodWrapper.originalDescription)) {
                 return true;
             }
-            if (!methodWrapper.owner.originalName.equals(owner) && tree.classWrapper.libraryNode) {
-                for (MethodNode mn : tree.classWrapper.classNode.methods) {
-                    if (mn.name.equals(methodWrapper.originalName)
-                            && mn.desc.equals(methodWrapper.originalDescription)) {
-                        return false;
-                    }
-                }
+            if (!methodWrapper.owner.originalName.equals(owner) && libraryClass != null
+                    && libraryClass.findMethod(methodWrapper.originalName, methodWrapper.originalDescription) != -1) {
+                return false;
             }
-            for (String parent : tree.parentClasses) {
-                if (parent != null && !canRenameMethodTree(mappings, visited, methodWrapper, parent)) {
+            for (int parent : hierarchy.getParents(id)) {
+                if (!canRenameMethodTree(mappings, visited, methodWrapper, hierarchy.getName(parent))) {
                     return false;
                 }
             }
-            for (String sub : tree.subClasses) {
-                if (sub != null && !canRenameMethodTree(mappings, visited, methodWrapper, sub)) {
+            for (int sub : getSubClasses(hierarchy, id)) {
+                if (!canRenameMethodTree(mappings, visited, methodWrapper, hierarchy.getName(sub))) {
                     return false;
                 }
             }
@@ -536,51 +785,52 @@ public class NameObfuscation implements INameObfuscationProcessor {
         return true;
     }
 
-    private void renameMethodTree(HashMap<String, String> mappings, HashSet<ClassTree> visited, MethodWrapper MethodWrapper, String className,
+    private void renameMethodTree(HashMap<String, String> mappings, BitSet visited, MethodWrapper MethodWrapper, String className,
                                   String newName) {
-        ClassTree tree = JObfImpl.INSTANCE.getTree(className);
+        ClassHierarchy hierarchy = JObfImpl.INSTANCE.getHierarchy();
+        int id = JObfImpl.INSTANCE.getTree(className);
 
-        if (!tree.classWrapper.libraryNode && !visited.contains(tree)) {
+        if (id != -1 && !hierarchy.isLibrary(id) && !visited.get(id)) {
             putMapping(mappings, className + '.' + MethodWrapper.originalName + MethodWrapper.originalDescription, newName);
-            visited.add(tree);
-            for (String parentClass : tree.parentClasses) {
-                this.renameMethodTree(mappings, visited, MethodWrapper, parentClass, newName);
+            visited.set(id);
+            for (int parent : hierarchy.getParents(id)) {
+                this.renameMethodTree(mappings, visited, MethodWrapper, hierarchy.getName(parent), newName);
             }
-            for (String subClass : tree.subClasses) {
-                this.renameMethodTree(mappings, visited, MethodWrapper, subClass, newName);
+            for (int sub : getSubClasses(hierarchy, id)) {
+                this.renameMethodTree(mappings, visited, MethodWrapper, hierarchy.getName(sub), newName);
             }
         }
     }
 
-    private boolean canRenameFieldTree(HashMap<String, String> mappings, HashSet<ClassTree> visited, FieldWrapper fieldWrapper, String owner) {
-        ClassTree tree = JObfImpl.INSTANCE.getTree(owner);
+    private boolean canRenameFieldTree(HashMap<String, String> mappings, BitSet visited, FieldWrapper fieldWrapper, String owner) {
+        ClassHierarchy hierarchy = JObfImpl.INSTANCE.getHierarchy();
+        int id = JObfImpl.INSTANCE.getTree(owner);
 
-        if (tree == null)
+        if (id == -1)
             return false;
 
-        if (!visited.contains(tree)) {
-            visited.add(tree);
+        if (!visited.get(id)) {
+            visited.set(id);
 
-            if (tree.missingSuperClass) {
+            LibraryClass libraryClass = hierarchy.getLibraryClass(id);
+
+            if (hierarchy.isMissingSuperClass(id)) {
                 return false;
             }
 
             if (mappings.containsKey(owner + '.' + fieldWrapper.originalName + '.' + fieldWrapper.originalDescription))
                 return true;
-            if (!fieldWrapper.owner.originalName.equals(owner) && tree.classWrapper.libraryNode) {
-                for (FieldNode fn : tree.classWrapper.classNode.fields) {
-                    if (fieldWrapper.originalName.equals(fn.name) && fieldWrapper.originalDescription.equals(fn.desc)) {
-                        return false;
-                    }
-                }
+            if (!fieldWrapper.owner.originalName.equals(owner) && libraryClass != null
+                    && libraryClass.findField(fieldWrapper.originalName, fieldWrapper.originalDescription) != -1) {
+                return false;
             }
-            for (String parent : tree.parentClasses) {
-                if (parent != null && !canRenameFieldTree(mappings, visited, fieldWrapper, parent)) {
+            for (int parent : hierarchy.getParents(id)) {
+                if (!canRenameFieldTree(mappings, visited, fieldWrapper, hierarchy.getName(parent))) {
                     return false;
                 }
             }
-            for (String sub : tree.subClasses) {
-                if (sub != null && !canRenameFieldTree(mappings, visited, fieldWrapper, sub)) {
+            for (int sub : getSubClasses(hierarchy, id)) {
+                if (!canRenameFieldTree(mappings, visited, fieldWrapper, hierarchy.getName(sub))) {
                     return false;
                 }
             }
@@ -589,17 +839,18 @@ public class NameObfuscation implements INameObfuscationProcessor {
         return true;
     }
 
-    private void renameFieldTree(HashSet<ClassTree> visited, FieldWrapper fieldWrapper, String owner, String newName, HashMap<String, String> mappings) {
-        ClassTree tree = JObfImpl.INSTANCE.getTree(owner);
+    private void renameFieldTree(BitSet visited, FieldWrapper fieldWrapper, String owner, String newName, HashMap<String, String> mappings) {
+        ClassHierarchy hierarchy = JObfImpl.INSTANCE.getHierarchy();
+        int id = JObfImpl.INSTANCE.getTree(owner);
 
-        if (!tree.classWrapper.libraryNode && !visited.contains(tree)) {
+        if (id != -1 && !hierarchy.isLibrary(id) && !visited.get(id)) {
             putMapping(mappings, owner + '.' + fieldWrapper.originalName + '.' + fieldWrapper.originalDescription, newName);
-            visited.add(tree);
-            for (String parentClass : tree.parentClasses) {
-                this.renameFieldTree(visited, fieldWrapper, parentClass, newName, mappings);
+            visited.set(id);
+            for (int parent : hierarchy.getParents(id)) {
+                this.renameFieldTree(visited, fieldWrapper, hierarchy.getName(parent), newName, mappings);
             }
-            for (String subClass : tree.subClasses) {
-                this.renameFieldTree(visited, fieldWrapper, subClass, newName, mappings);
+            for (int sub : getSubClasses(hierarchy, id)) {
+                this.renameFieldTree(visited, fieldWrapper, hierarchy.getName(sub), newName, mappings);
             }
         }
     }
@@ -615,9 +866,11 @@ public class NameObfuscation implements INameObfuscationProcessor {
         
         for (ClassWrapper classWrapper : unprocessedClasses) {
             // Generate new class name based on settings
-            String newClassName;
+            String newClassName = importedMappings.get(classWrapper.originalName);
             
-            if (shouldPackage.getObject()) {
+            if (newClassName != null) {
+                // Keep the name of the imported mapping
+            } else if (shouldPackage.getObject()) {
                 if (preservePackageHierarchy.getObject()) {
                     // Preserve package hierarchy but obfuscate class name
                     String packagePath = "";
@@ -630,14 +883,14 @@ public class NameObfuscation implements INameObfuscationProcessor {
                     }
                     
                     // Generate a random class name but keep it in the same package
-                    newClassName = packagePath + NameUtils.generateClassName();
+                    newClassName = generateClassName(packagePath);
                 } else {
                     // Use configured package
-                    newClassName = getPackageName() + NameUtils.generateClassName();
+                    newClassName = generateClassName(getPackageName());
                 }
             } else {
                 // Don't use package
-                newClassName = NameUtils.generateClassName();
+                newClassName = generateClassName("");
             }
             
             log.info("Directly renaming class (no hierarchy): " + classWrapper.originalName + " to " + newClassName);
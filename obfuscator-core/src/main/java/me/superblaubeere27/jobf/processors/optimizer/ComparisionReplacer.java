@@ -10,53 +10,74 @@
 
 package me.superblaubeere27.jobf.processors.optimizer;
 
+import me.superblaubeere27.jobf.utils.InsnWalker;
 import me.superblaubeere27.jobf.utils.Utils;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.tree.*;
 
-class ComparisionReplacer {
-    static void replaceComparisons(MethodNode method, boolean replaceEquals, boolean replaceEqualsIgnoreCase) {
-        for (AbstractInsnNode insnNode : method.instructions.toArray()) {
-            if (insnNode instanceof MethodInsnNode) {
-                MethodInsnNode methodInsnNode = (MethodInsnNode) insnNode;
-
-                if (replaceEquals && Utils.matchMethodNode(methodInsnNode, "java/lang/String.equals:(Ljava/lang/Object;)Z")) {
-                    InsnList replacement = new InsnList();
+/**
+ * Replaces string comparisons with comparisons of their hash codes. Handles the method instructions of an {@link InsnWalker}.
+ */
+class ComparisionReplacer implements InsnWalker.Handler {
+    private final boolean replaceEquals;
+    private final boolean replaceEqualsIgnoreCase;
+    private boolean replaced;
+
+    ComparisionReplacer(boolean replaceEquals, boolean replaceEqualsIgnoreCase) {
+        this.replaceEquals = replaceEquals;
+        this.replaceEqualsIgnoreCase = replaceEqualsIgnoreCase;
+    }
 
-                    replacement.add(new MethodInsnNode(Opcodes.INVOKEVIRTUAL, "java/lang/Object", "hashCode", "()I", false));
-                    replacement.add(new MethodInsnNode(Opcodes.INVOKESTATIC, "java/lang/Integer", "valueOf", "(I)Ljava/lang/Integer;", false));
+    /**
+     * @return if a comparison was replaced since the last call
+     */
+    boolean pollReplaced() {
+        boolean result = replaced;
 
-                    replacement.add(new InsnNode(Opcodes.SWAP));
+        replaced = false;
 
-                    replacement.add(new MethodInsnNode(Opcodes.INVOKEVIRTUAL, "java/lang/String", "hashCode", "()I", false));
-                    replacement.add(new MethodInsnNode(Opcodes.INVOKESTATIC, "java/lang/Integer", "valueOf", "(I)Ljava/lang/Integer;", false));
+        return result;
+    }
 
-                    replacement.add(new MethodInsnNode(Opcodes.INVOKEVIRTUAL, "java/lang/Integer", "equals", "(Ljava/lang/Object;)Z", false));
+    @Override
+    public void handle(MethodNode method, AbstractInsnNode insnNode) {
+        MethodInsnNode methodInsnNode = (MethodInsnNode) insnNode;
 
-                    method.instructions.insert(insnNode, replacement);
-                    method.instructions.remove(insnNode);
-                }
-                if (replaceEqualsIgnoreCase && Utils.matchMethodNode(methodInsnNode, "java/lang/String.equalsIgnoreCase:(Ljava/lang/String;)Z")) {
-                    InsnList replacement = new InsnList();
+        if (replaceEquals && Utils.matchMethodNode(methodInsnNode, "java/lang/String", "equals", "(Ljava/lang/Object;)Z")) {
+            InsnList replacement = new InsnList();
 
-                    replacement.add(new MethodInsnNode(Opcodes.INVOKEVIRTUAL, "java/lang/String", "toUpperCase", "()Ljava/lang/String;", false));
-                    replacement.add(new MethodInsnNode(Opcodes.INVOKEVIRTUAL, "java/lang/Object", "hashCode", "()I", false));
-                    replacement.add(new MethodInsnNode(Opcodes.INVOKESTATIC, "java/lang/Integer", "valueOf", "(I)Ljava/lang/Integer;", false));
+            replacement.add(new MethodInsnNode(Opcodes.INVOKEVIRTUAL, "java/lang/Object", "hashCode", "()I", false));
+            replacement.add(new MethodInsnNode(Opcodes.INVOKESTATIC, "java/lang/Integer", "valueOf", "(I)Ljava/lang/Integer;", false));
 
-                    replacement.add(new InsnNode(Opcodes.SWAP));
+            replacement.add(new InsnNode(Opcodes.SWAP));
 
-                    replacement.add(new MethodInsnNode(Opcodes.INVOKEVIRTUAL, "java/lang/String", "toUpperCase", "()Ljava/lang/String;", false));
-                    replacement.add(new MethodInsnNode(Opcodes.INVOKEVIRTUAL, "java/lang/String", "hashCode", "()I", false));
-                    replacement.add(new MethodInsnNode(Opcodes.INVOKESTATIC, "java/lang/Integer", "valueOf", "(I)Ljava/lang/Integer;", false));
+            replacement.add(new MethodInsnNode(Opcodes.INVOKEVIRTUAL, "java/lang/String", "hashCode", "()I", false));
+            replacement.add(new MethodInsnNode(Opcodes.INVOKESTATIC, "java/lang/Integer", "valueOf", "(I)Ljava/lang/Integer;", false));
 
-                    replacement.add(new MethodInsnNode(Opcodes.INVOKEVIRTUAL, "java/lang/Integer", "equals", "(Ljava/lang/Object;)Z", false));
+            replacement.add(new MethodInsnNode(Opcodes.INVOKEVIRTUAL, "java/lang/Integer", "equals", "(Ljava/lang/Object;)Z", false));
 
-                    method.instructions.insert(insnNode, replacement);
-                    method.instructions.remove(insnNode);
-                }
-            }
+            method.instructions.insert(insnNode, replacement);
+            method.instructions.remove(insnNode);
+            replaced = true;
         }
+        if (replaceEqualsIgnoreCase && Utils.matchMethodNode(methodInsnNode, "java/lang/String", "equalsIgnoreCase", "(Ljava/lang/String;)Z")) {
+            InsnList replacement = new InsnList();
 
-    }
+            replacement.add(new MethodInsnNode(Opcodes.INVOKEVIRTUAL, "java/lang/String", "toUpperCase", "()Ljava/lang/String;", false));
+            replacement.add(new MethodInsnNode(Opcodes.INVOKEVIRTUAL, "java/lang/Object", "hashCode", "()I", false));
+            replacement.add(new MethodInsnNode(Opcodes.INVOKESTATIC, "java/lang/Integer", "valueOf", "(I)Ljava/lang/Integer;", false));
 
+            replacement.add(new InsnNode(Opcodes.SWAP));
+
+            replacement.add(new MethodInsnNode(Opcodes.INVOKEVIRTUAL, "java/lang/String", "toUpperCase", "()Ljava/lang/String;", false));
+            replacement.add(new MethodInsnNode(Opcodes.INVOKEVIRTUAL, "java/lang/String", "hashCode", "()I", false));
+            replacement.add(new MethodInsnNode(Opcodes.INVOKESTATIC, "java/lang/Integer", "valueOf", "(I)Ljava/lang/Integer;", false));
+
+            replacement.add(new MethodInsnNode(Opcodes.INVOKEVIRTUAL, "java/lang/Integer", "equals", "(Ljava/lang/Object;)Z", false));
+
+            method.instructions.insert(insnNode, replacement);
+            method.instructions.remove(insnNode);
+            replaced = true;
+        }
+    }
 }
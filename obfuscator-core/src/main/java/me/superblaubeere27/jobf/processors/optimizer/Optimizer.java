@@ -13,9 +13,13 @@ package me.superblaubeere27.jobf.processors.optimizer;
 import me.superblaubeere27.annotations.ObfuscationTransformer;
 import me.superblaubeere27.jobf.IClassTransformer;
 import me.superblaubeere27.jobf.ProcessorCallback;
+import me.superblaubeere27.jobf.utils.ClassSummary;
+import me.superblaubeere27.jobf.utils.InsnWalker;
+import me.superblaubeere27.jobf.utils.scheduler.TimeBudget;
 import me.superblaubeere27.jobf.utils.values.BooleanValue;
 import me.superblaubeere27.jobf.utils.values.DeprecationLevel;
 import me.superblaubeere27.jobf.utils.values.EnabledValue;
+import org.objectweb.asm.tree.AbstractInsnNode;
 import org.objectweb.asm.tree.ClassNode;
 import org.objectweb.asm.tree.MethodNode;
 
@@ -30,13 +34,40 @@ public class Optimizer implements IClassTransformer {
     public void process(ProcessorCallback callback, ClassNode node) {
         if (!enabledValue.getObject()) return;
 
+        ComparisionReplacer comparisions = new ComparisionReplacer(replaceEquals.getObject(), replaceEqualsIgnoreCase.getObject());
+        StaticStringCallOptimizer stringCalls = new StaticStringCallOptimizer();
+        InsnWalker walker = new InsnWalker();
+
+        if (replaceEquals.getObject() || replaceEqualsIgnoreCase.getObject())
+            walker.onType(comparisions, AbstractInsnNode.METHOD_INSN);
+        if (optimizeStringCalls.getObject()) walker.onType(stringCalls, AbstractInsnNode.METHOD_INSN);
+
+        InsnWalker foldingWalker = new InsnWalker().onType(stringCalls, AbstractInsnNode.METHOD_INSN);
+
         for (MethodNode method : node.methods) {
-            if (replaceEquals.getObject() || replaceEqualsIgnoreCase.getObject())
-                ComparisionReplacer.replaceComparisons(method, replaceEquals.getObject(), replaceEqualsIgnoreCase.getObject());
-            if (optimizeStringCalls.getObject()) StaticStringCallOptimizer.optimize(method);
+            walker.walk(method);
+
+            // Replaced comparisions and folded calls produce code which can be folded again
+            if (optimizeStringCalls.getObject() && (comparisions.pollReplaced() | stringCalls.pollFound())) {
+                do {
+                    TimeBudget.check();
+
+                    foldingWalker.walk(method);
+                } while (stringCalls.pollFound());
+            }
         }
     }
 
+    @Override
+    public boolean isApplicable(ClassSummary summary) {
+        return enabledValue.getObject() && summary.hasMethodCalls();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabledValue.getObject();
+    }
+
     @Override
     public ObfuscationTransformer getType() {
         return ObfuscationTransformer.PEEPHOLE_OPTIMIZER;
@@ -10,6 +10,7 @@
 
 package me.superblaubeere27.jobf.processors.optimizer;
 
+import me.superblaubeere27.jobf.utils.InsnWalker;
 import me.superblaubeere27.jobf.utils.NodeUtils;
 import me.superblaubeere27.jobf.utils.Utils;
 import org.objectweb.asm.tree.AbstractInsnNode;
@@ -17,40 +18,46 @@ import org.objectweb.asm.tree.LdcInsnNode;
 import org.objectweb.asm.tree.MethodInsnNode;
 import org.objectweb.asm.tree.MethodNode;
 
-class StaticStringCallOptimizer {
-
-    static void optimize(MethodNode method) {
-        boolean found;
-
-        do {
-            found = false;
-
-            for (AbstractInsnNode insnNode : method.instructions.toArray()) {
-                if (insnNode instanceof MethodInsnNode) {
-                    MethodInsnNode methodInsnNode = (MethodInsnNode) insnNode;
-                    AbstractInsnNode prev = Utils.getPrevious(methodInsnNode, 1);
-
-                    if (prev instanceof LdcInsnNode && ((LdcInsnNode) prev).cst instanceof String && (Utils.matchMethodNode(methodInsnNode, "java/lang/Object.hashCode:()I") || Utils.matchMethodNode(methodInsnNode, "java/lang/String.hashCode:()I"))) {
-                        method.instructions.insert(insnNode, NodeUtils.generateIntPush(((LdcInsnNode) prev).cst.hashCode()));
-                        method.instructions.remove(insnNode);
-                        method.instructions.remove(prev);
-                        found = true;
-                    }
-                    if (prev instanceof LdcInsnNode && ((LdcInsnNode) prev).cst instanceof String && (Utils.matchMethodNode(methodInsnNode, "java/lang/String.toUpperCase:()Ljava/lang/String;"))) {
-                        method.instructions.insert(insnNode, new LdcInsnNode(((String) ((LdcInsnNode) prev).cst).toUpperCase()));
-                        method.instructions.remove(insnNode);
-                        method.instructions.remove(prev);
-                        found = true;
-                    }
-                    if (prev instanceof LdcInsnNode && ((LdcInsnNode) prev).cst instanceof String && (Utils.matchMethodNode(methodInsnNode, "java/lang/String.toLowerCase:()Ljava/lang/String;"))) {
-                        method.instructions.insert(insnNode, new LdcInsnNode(((String) ((LdcInsnNode) prev).cst).toLowerCase()));
-                        method.instructions.remove(insnNode);
-                        method.instructions.remove(prev);
-                        found = true;
-                    }
-                }
-            }
-        } while (found);
+/**
+ * Folds calls of {@code hashCode()}, {@code toUpperCase()} and {@code toLowerCase()} on string constants.
+ * Handles the method instructions of an {@link InsnWalker}.
+ */
+class StaticStringCallOptimizer implements InsnWalker.Handler {
+    private boolean found;
+
+    /**
+     * @return if a call was folded since the last call
+     */
+    boolean pollFound() {
+        boolean result = found;
+
+        found = false;
+
+        return result;
     }
 
+    @Override
+    public void handle(MethodNode method, AbstractInsnNode insnNode) {
+        MethodInsnNode methodInsnNode = (MethodInsnNode) insnNode;
+        AbstractInsnNode prev = Utils.getPrevious(methodInsnNode, 1);
+
+        if (prev instanceof LdcInsnNode && ((LdcInsnNode) prev).cst instanceof String && (Utils.matchMethodNode(methodInsnNode, "java/lang/Object", "hashCode", "()I") || Utils.matchMethodNode(methodInsnNode, "java/lang/String", "hashCode", "()I"))) {
+            method.instructions.insert(insnNode, NodeUtils.generateIntPush(((LdcInsnNode) prev).cst.hashCode()));
+            method.instructions.remove(insnNode);
+            method.instructions.remove(prev);
+            found = true;
+        }
+        if (prev instanceof LdcInsnNode && ((LdcInsnNode) prev).cst instanceof String && (Utils.matchMethodNode(methodInsnNode, "java/lang/String", "toUpperCase", "()Ljava/lang/String;"))) {
+            method.instructions.insert(insnNode, new LdcInsnNode(((String) ((LdcInsnNode) prev).cst).toUpperCase()));
+            method.instructions.remove(insnNode);
+            method.instructions.remove(prev);
+            found = true;
+        }
+        if (prev instanceof LdcInsnNode && ((LdcInsnNode) prev).cst instanceof String && (Utils.matchMethodNode(methodInsnNode, "java/lang/String", "toLowerCase", "()Ljava/lang/String;"))) {
+            method.instructions.insert(insnNode, new LdcInsnNode(((String) ((LdcInsnNode) prev).cst).toLowerCase()));
+            method.instructions.remove(insnNode);
+            method.instructions.remove(prev);
+            found = true;
+        }
+    }
 }
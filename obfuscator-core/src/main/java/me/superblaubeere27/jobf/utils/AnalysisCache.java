@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2017-2019 superblaubeere27, Sam Sun, MarcoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package me.superblaubeere27.jobf.utils;
+
+import me.superblaubeere27.jobf.utils.scheduler.TimeBudget;
+import org.objectweb.asm.tree.*;
+import org.objectweb.asm.tree.analysis.Analyzer;
+import org.objectweb.asm.tree.analysis.AnalyzerException;
+import org.objectweb.asm.tree.analysis.Frame;
+import org.objectweb.asm.tree.analysis.SourceInterpreter;
+import org.objectweb.asm.tree.analysis.SourceValue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Thread-safe cache of the {@link SourceInterpreter} frames and {@link StackAnalysis stack analyses} of methods.
+ * <p>
+ * Both are computed on the first request and kept until the code of the method changes. Before cached frames are
+ * returned, the instructions and try-catch blocks are compared with the ones the frames were computed for: the nodes
+ * by identity and their operands by value, so instructions which were changed in place are noticed as well. That is
+ * linear, but much cheaper than the analysis. Processors which know that they changed a method can
+ * {@link #invalidate(MethodNode) invalidate} it right away.
+ */
+public class AnalysisCache {
+    private final ConcurrentHashMap<MethodNode, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * @param owner the internal name of the class of the method
+     * @return the frame of each instruction, null for unreachable code. Must not be modified.
+     */
+    public Frame<SourceValue>[] getSourceFrames(String owner, MethodNode method) throws AnalyzerException {
+        Entry entry = getEntry(method);
+
+        if (entry.frames != null) return entry.frames;
+
+        // The analyzer can't be interrupted, huge methods are at least not analyzed after the time is up
+        TimeBudget.check();
+
+        int maxStack = method.maxStack;
+        int maxLocals = method.maxLocals;
+
+        // The max values might not be computed yet
+        method.maxStack = 1337;
+        method.maxLocals = 1337;
+
+        Frame<SourceValue>[] frames;
+
+        try {
+            frames = new Analyzer<>(new SourceInterpreter()).analyze(owner, method);
+        } finally {
+            method.maxStack = maxStack;
+            method.maxLocals = maxLocals;
+        }
+
+        entry.frames = frames;
+
+        return frames;
+    }
+
+    /**
+     * Cheaper than {@link #getSourceFrames(String, MethodNode)} if only a few stack values are needed.
+     * The analysis must only be used by the thread which processes the class.
+     */
+    public StackAnalysis getStackAnalysis(MethodNode method) throws AnalyzerException {
+        Entry entry = getEntry(method);
+
+        if (entry.stackAnalysis == null) entry.stackAnalysis = StackAnalysis.analyze(method);
+
+        return entry.stackAnalysis;
+    }
+
+    private Entry getEntry(MethodNode method) {
+        Entry entry = entries.get(method);
+
+        if (entry == null || !entry.isValid(method)) {
+            entry = new Entry(method);
+
+            entries.put(method, entry);
+        }
+
+        return entry;
+    }
+
+    public void invalidate(MethodNode method) {
+        entries.remove(method);
+    }
+
+    /**
+     * Removes the analyses of all methods of a class
+     */
+    public void remove(ClassNode classNode) {
+        for (MethodNode method : classNode.methods) {
+            entries.remove(method);
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private static class Entry {
+        private final AbstractInsnNode[] instructions;
+        /**
+         * The opcode and up to two int operands of each instruction, see {@link #operands(AbstractInsnNode, int[])}
+         */
+        private final int[] values;
+        /**
+         * The labels, constants and member references of each instruction, arrays if there is more than one
+         */
+        private final Object[] references;
+        private final TryCatchBlockNode[] tryCatchBlocks;
+        private final Object[] handlers;
+        private volatile Frame<SourceValue>[] frames;
+        private volatile StackAnalysis stackAnalysis;
+
+        private Entry(MethodNode method) {
+            this.instructions = method.instructions.toArray();
+            this.values = new int[instructions.length * 3];
+            this.references = new Object[instructions.length];
+
+            int[] ints = new int[3];
+
+            for (int i = 0; i < instructions.length; i++) {
+                references[i] = operands(instructions[i], ints);
+
+                System.arraycopy(ints, 0, values, i * 3, 3);
+            }
+
+            int tryCatchCount = method.tryCatchBlocks == null ? 0 : method.tryCatchBlocks.size();
+
+            this.tryCatchBlocks = new TryCatchBlockNode[tryCatchCount];
+            this.handlers = new Object[tryCatchCount];
+
+            for (int i = 0; i < tryCatchCount; i++) {
+                TryCatchBlockNode tryCatchBlock = method.tryCatchBlocks.get(i);
+
+                tryCatchBlocks[i] = tryCatchBlock;
+                handlers[i] = handler(tryCatchBlock);
+            }
+        }
+
+        private static Object[] handler(TryCatchBlockNode tryCatchBlock) {
+            return new Object[]{tryCatchBlock.start, tryCatchBlock.end, tryCatchBlock.handler, tryCatchBlock.type};
+        }
+
+        /**
+         * Operands which are changed in place, e.g. the variable of a load or the target of a jump, change the analysis
+         * as well, so they are part of the snapshot.
+         *
+         * @param ints receives the opcode and up to two int operands
+         * @return the other operands
+         */
+        private static Object operands(AbstractInsnNode insn, int[] ints) {
+            ints[0] = insn.getOpcode();
+
+            switch (insn.getType()) {
+                case AbstractInsnNode.INT_INSN:
+                    ints[1] = ((IntInsnNode) insn).operand;
+                    return null;
+                case AbstractInsnNode.VAR_INSN:
+                    ints[1] = ((VarInsnNode) insn).var;
+                    return null;
+                case AbstractInsnNode.IINC_INSN:
+                    ints[1] = ((IincInsnNode) insn).var;
+                    ints[2] = ((IincInsnNode) insn).incr;
+                    return null;
+                case AbstractInsnNode.TYPE_INSN:
+                    return ((TypeInsnNode) insn).desc;
+                case AbstractInsnNode.FIELD_INSN: {
+                    FieldInsnNode fieldInsn = (FieldInsnNode) insn;
+
+                    return new Object[]{fieldInsn.owner, fieldInsn.name, fieldInsn.desc};
+                }
+                case AbstractInsnNode.METHOD_INSN: {
+                    MethodInsnNode methodInsn = (MethodInsnNode) insn;
+
+                    ints[1] = methodInsn.itf ? 1 : 0;
+
+                    return new Object[]{methodInsn.owner, methodInsn.name, methodInsn.desc};
+                }
+                case AbstractInsnNode.INVOKE_DYNAMIC_INSN: {
+                    InvokeDynamicInsnNode indy = (InvokeDynamicInsnNode) insn;
+
+                    return new Object[]{indy.name, indy.desc, indy.bsm, Arrays.asList(indy.bsmArgs.clone())};
+                }
+                case AbstractInsnNode.JUMP_INSN:
+                    return ((JumpInsnNode) insn).label;
+                case AbstractInsnNode.LDC_INSN:
+                    return ((LdcInsnNode) insn).cst;
+                case AbstractInsnNode.TABLESWITCH_INSN: {
+                    TableSwitchInsnNode tableSwitch = (TableSwitchInsnNode) insn;
+
+                    ints[1] = tableSwitch.min;
+                    ints[2] = tableSwitch.max;
+
+                    return new Object[]{tableSwitch.dflt, new ArrayList<>(tableSwitch.labels)};
+                }
+                case AbstractInsnNode.LOOKUPSWITCH_INSN: {
+                    LookupSwitchInsnNode lookupSwitch = (LookupSwitchInsnNode) insn;
+
+                    return new Object[]{lookupSwitch.dflt, new ArrayList<>(lookupSwitch.labels), new ArrayList<>(lookupSwitch.keys)};
+                }
+                case AbstractInsnNode.MULTIANEWARRAY_INSN:
+                    ints[1] = ((MultiANewArrayInsnNode) insn).dims;
+                    return ((MultiANewArrayInsnNode) insn).desc;
+                default:
+                    // Labels, line numbers and frames don't have operands which matter for the analysis
+                    return null;
+            }
+        }
+
+        private boolean isValid(MethodNode method) {
+            if (method.instructions.size() != instructions.length) return false;
+            if ((method.tryCatchBlocks == null ? 0 : method.tryCatchBlocks.size()) != tryCatchBlocks.length) return false;
+
+            for (int i = 0; i < tryCatchBlocks.length; i++) {
+                TryCatchBlockNode tryCatchBlock = method.tryCatchBlocks.get(i);
+
+                if (tryCatchBlock != tryCatchBlocks[i] || !Arrays.equals(handler(tryCatchBlock), (Object[]) handlers[i])) return false;
+            }
+
+            int[] ints = new int[3];
+            int i = 0;
+
+            for (AbstractInsnNode insn = method.instructions.getFirst(); insn != null; insn = insn.getNext(), i++) {
+                if (insn != instructions[i]) return false;
+
+                Object operands = operands(insn, ints);
+
+                if (ints[0] != values[i * 3] || ints[1] != values[i * 3 + 1] || ints[2] != values[i * 3 + 2]) return false;
+                if (!Objects.deepEquals(operands, references[i])) return false;
+            }
+
+            return true;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2017-2019 superblaubeere27, Sam Sun, MarcoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package me.superblaubeere27.jobf.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * A buffer for bytes which are only needed briefly, e.g. a class file while it is parsed.
+ * <p>
+ * The buffer grows to the largest size which was needed and is reused for the next contents, instead of allocating
+ * (and growing) a new array every time. The contents are {@code [0, getLength())} of {@link #getBuffer()}, the rest
+ * of the buffer is undefined.
+ * <p>
+ * Not thread-safe, every worker has its own arena.
+ */
+public class ByteArena {
+    private byte[] buffer;
+    private int length;
+
+    public ByteArena(int initialCapacity) {
+        this.buffer = new byte[Math.max(16, initialCapacity)];
+    }
+
+    /**
+     * Discards the contents and makes room for {@code capacity} bytes.
+     *
+     * @return the buffer, its contents are undefined
+     */
+    public byte[] reserve(int capacity) {
+        if (buffer.length < capacity) buffer = new byte[Math.max(capacity, buffer.length * 2)];
+
+        length = 0;
+
+        return buffer;
+    }
+
+    /**
+     * Replaces the contents with the remaining bytes of the stream. The stream isn't closed.
+     */
+    public void readFully(InputStream in) throws IOException {
+        length = 0;
+
+        int read;
+
+        while ((read = in.read(buffer, length, buffer.length - length)) != -1) {
+            length += read;
+
+            if (length == buffer.length) buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+    }
+
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * @param length the number of bytes which were written to the {@link #reserve(int) reserved} buffer
+     */
+    public void setLength(int length) {
+        if (length < 0 || length > buffer.length) throw new IndexOutOfBoundsException("Length " + length + " of " + buffer.length);
+
+        this.length = length;
+    }
+
+    /**
+     * @return a copy of the contents, for data which is kept
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, length);
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2017-2019 superblaubeere27, Sam Sun, MarcoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package me.superblaubeere27.jobf.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Append-only store for raw class bytes which are only needed occasionally (class loading, re-reading).
+ * <p>
+ * The bytes are copied into a memory-mapped scratch file, so they don't count against the heap and the OS can page
+ * them out. The file is mapped in segments of {@link #SEGMENT_SIZE} bytes (larger entries get a segment of their own)
+ * and deleted when the store is closed. If no scratch file can be created the segments are allocated on the heap.
+ * <p>
+ * Entries are addressed by the index returned by {@link #put(byte[])}. They are never removed, replaced entries stay
+ * in the file until the store is closed.
+ */
+public class ClassByteStore implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(ClassByteStore.class);
+    private static final int SEGMENT_SIZE = 1 << 26;
+
+    private final List<ByteBuffer> segments = new ArrayList<>();
+    private FileChannel channel;
+    private long fileSize;
+    private boolean heap;
+    private boolean closed;
+
+    /**
+     * The segment of entry {@code i} is {@code segmentOf[i]}, its bytes are
+     * {@code [offsets[i], offsets[i] + lengths[i])} in that segment
+     */
+    private int[] segmentOf = new int[256];
+    private int[] offsets = new int[256];
+    private int[] lengths = new int[256];
+    private int size;
+
+    /**
+     * Copies the bytes into the store.
+     *
+     * @return the index of the entry
+     */
+    public int put(byte[] bytes) {
+        return put(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Copies {@code length} bytes starting at {@code offset} into the store.
+     *
+     * @return the index of the entry
+     */
+    public synchronized int put(byte[] bytes, int offset, int length) {
+        if (closed) throw new IllegalStateException("The store is closed");
+
+        ByteBuffer segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+
+        if (segment == null || segment.remaining() < length) {
+            segment = allocate(Math.max(SEGMENT_SIZE, length));
+            segments.add(segment);
+        }
+
+        if (size == offsets.length) {
+            segmentOf = Arrays.copyOf(segmentOf, size * 2);
+            offsets = Arrays.copyOf(offsets, size * 2);
+            lengths = Arrays.copyOf(lengths, size * 2);
+        }
+
+        segmentOf[size] = segments.size() - 1;
+        offsets[size] = segment.position();
+        lengths[size] = length;
+
+        segment.put(bytes, offset, length);
+
+        return size++;
+    }
+
+    private ByteBuffer allocate(int capacity) {
+        if (!heap) {
+            try {
+                if (channel == null) {
+                    channel = FileChannel.open(Files.createTempFile("jobf-classes", ".bin"),
+                            StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+                }
+
+                ByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE, fileSize, capacity);
+
+                fileSize += capacity;
+
+                return segment;
+            } catch (IOException | UnsupportedOperationException e) {
+                log.warn("Failed to map class byte store, keeping class bytes on the heap: " + e.getMessage());
+                heap = true;
+            }
+        }
+
+        return ByteBuffer.allocate(capacity);
+    }
+
+    /**
+     * @return a read-only view of the entry, valid until the store is closed
+     */
+    public synchronized ByteBuffer slice(int index) {
+        if (closed) throw new IllegalStateException("The store is closed");
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Entry " + index + " of " + size);
+
+        return segments.get(segmentOf[index]).slice(offsets[index], lengths[index]).asReadOnlyBuffer();
+    }
+
+    /**
+     * @return a copy of the entry
+     */
+    public byte[] get(int index) {
+        ByteBuffer slice = slice(index);
+        byte[] bytes = new byte[slice.remaining()];
+
+        slice.get(bytes);
+
+        return bytes;
+    }
+
+    /**
+     * Copies the entry into an arena instead of a new array
+     */
+    public void get(int index, ByteArena arena) {
+        ByteBuffer slice = slice(index);
+        int length = slice.remaining();
+
+        slice.get(arena.reserve(length), 0, length);
+        arena.setLength(length);
+    }
+
+    /**
+     * @return the number of bytes of the entry
+     */
+    public synchronized int length(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Entry " + index + " of " + size);
+
+        return lengths[index];
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Deletes the scratch file. All indices and slices become invalid.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+
+        closed = true;
+        segments.clear();
+
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Failed to close class byte store: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,674 @@
+/*
+ * Copyright (c) 2017-2019 superblaubeere27, Sam Sun, MarcoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package me.superblaubeere27.jobf.utils;
+
+import me.superblaubeere27.jobf.processors.name.ClassWrapper;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.IntStream;
+
+/**
+ * Keeps the hierarchy of all loaded classes.
+ * <p>
+ * Input classes and library skeletons are {@link #record(ClassWrapper) recorded} while they are parsed and added in one pass by
+ * {@link #complete()}. Class names are interned to int ids. The parents of a class are stored in one shared array,
+ * the subclasses are derived from them when the classes are added. Transitive super- and subtypes are computed once
+ * per class and kept as {@link BitSet}s, so subtype checks are a single bit lookup.
+ * <p>
+ * A class which is referenced but not added (e.g. a missing library) has an id, but {@link #contains(int)} is false.
+ * <p>
+ * {@link #complete()} and {@link #rename(Map)} build a new {@link State} and publish it at once, so queries don't need
+ * a lock and never see a half added class. Calls of these two methods must not overlap each other.
+ */
+public class ClassHierarchy {
+    private static final int[] EMPTY = new int[0];
+
+    private volatile State state = new State();
+
+    /**
+     * {@link ClassWrapper}s, {@link LibraryClass}es and {@link InputSkeleton}s
+     */
+    private final ConcurrentLinkedQueue<Object> recorded = new ConcurrentLinkedQueue<>();
+
+    private static int hash(String name) {
+        int h = name.hashCode();
+
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * @return the id of the name or -1 if it was never seen
+     */
+    public int find(String name) {
+        return state.find(name);
+    }
+
+    /**
+     * Records a class with its super class and interfaces. It is added to the hierarchy by the next call of
+     * {@link #complete()}. Thread-safe, so classes can be recorded while they are parsed.
+     */
+    public void record(ClassWrapper classWrapper) {
+        recorded.add(classWrapper);
+    }
+
+    /**
+     * Like {@link #record(ClassWrapper)} for library classes.
+     */
+    public void record(LibraryClass libraryClass) {
+        recorded.add(libraryClass);
+    }
+
+    /**
+     * Like {@link #record(ClassWrapper)} for input classes which are kept as bytes until they are processed.
+     */
+    public void recordInput(LibraryClass skeleton) {
+        recorded.add(new InputSkeleton(skeleton));
+    }
+
+    /**
+     * Adds all recorded classes and determines which classes are missing a super class.
+     * If a class was recorded more than once, input classes win over libraries, otherwise the first one is kept.
+     *
+     * @return false if nothing was recorded since the last call
+     */
+    public boolean complete() {
+        List<Object> classes = new ArrayList<>();
+        Object recordedClass;
+
+        while ((recordedClass = recorded.poll()) != null) {
+            classes.add(recordedClass);
+        }
+
+        if (classes.isEmpty()) return false;
+
+        // Ids don't depend on the order in which the classes were parsed
+        classes.sort(Comparator.comparing(ClassHierarchy::nameOf));
+
+        State next = state.copy();
+
+        for (Object c : classes) {
+            if (c instanceof ClassWrapper) {
+                ClassNode node = ((ClassWrapper) c).classNode;
+
+                next.define(node.name, node.access, node.superName, node.interfaces, (ClassWrapper) c, null, true);
+            } else {
+                boolean input = c instanceof InputSkeleton;
+                LibraryClass skeleton = input ? ((InputSkeleton) c).skeleton : (LibraryClass) c;
+
+                next.define(skeleton.getName(), skeleton.getAccess(), skeleton.getSuperName(), Arrays.asList(skeleton.getInterfaces()), null, skeleton, input);
+            }
+        }
+
+        next.propagateMissingSuperClasses();
+        next.buildSubClasses();
+        next.superTypes = new AtomicReferenceArray<>(next.size);
+        next.subTypes = new AtomicReferenceArray<>(next.size);
+
+        state = next;
+
+        return true;
+    }
+
+    private static String nameOf(Object recordedClass) {
+        if (recordedClass instanceof ClassWrapper) return ((ClassWrapper) recordedClass).classNode.name;
+        if (recordedClass instanceof InputSkeleton) return ((InputSkeleton) recordedClass).skeleton.getName();
+
+        return ((LibraryClass) recordedClass).getName();
+    }
+
+    /**
+     * @return the name of a class which is referenced in the super classes of that class, but was never added.
+     * null if there is none.
+     */
+    public String findMissingClass(int id) {
+        State s = state;
+        BitSet visited = new BitSet();
+        IntStack stack = new IntStack();
+
+        stack.push(id);
+
+        while (!stack.isEmpty()) {
+            int current = stack.pop();
+
+            if (!s.defined.get(current)) return s.names[current];
+            if (visited.get(current)) continue;
+
+            visited.set(current);
+
+            for (int i = s.parentStart[current], end = i + s.parentCount[current]; i < end; i++) {
+                stack.push(s.parentIds[i]);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @return if the class with that id was added
+     */
+    public boolean contains(int id) {
+        return id >= 0 && state.defined.get(id);
+    }
+
+    public String getName(int id) {
+        return state.names[id];
+    }
+
+    /**
+     * @return the wrapper of an input class, null for library classes
+     */
+    public ClassWrapper getClassWrapper(int id) {
+        return state.wrappers[id];
+    }
+
+    /**
+     * @return the skeleton of a library class or of an input class which wasn't parsed, null for parsed input classes
+     */
+    public LibraryClass getLibraryClass(int id) {
+        return state.libraries[id];
+    }
+
+    public boolean isLibrary(int id) {
+        State s = state;
+
+        return s.libraries[id] != null && !s.inputs.get(id);
+    }
+
+    /**
+     * @return if one of the super classes of that class is missing
+     */
+    public boolean isMissingSuperClass(int id) {
+        return state.missingSuperClass.get(id);
+    }
+
+    /**
+     * @return the ids of the super class and interfaces of that class
+     */
+    public int[] getParents(int id) {
+        State s = state;
+
+        return s.parentCount[id] == 0 ? EMPTY : Arrays.copyOfRange(s.parentIds, s.parentStart[id], s.parentStart[id] + s.parentCount[id]);
+    }
+
+    /**
+     * @return the id of the super class or -1
+     */
+    public int getSuperClass(int id) {
+        return state.getSuperClass(id);
+    }
+
+    /**
+     * @return the ids of the added classes which directly extend or implement that class
+     */
+    public int[] getSubClasses(int id) {
+        return state.getSubClasses(id);
+    }
+
+    /**
+     * @return the ids of all classes this class inherits from, the class itself is not included. Must not be modified.
+     */
+    public BitSet getSuperTypes(int id) {
+        return state.getSuperTypes(id);
+    }
+
+    /**
+     * @return the ids of all added classes which inherit from this class, the class itself is not included. Must not be modified.
+     */
+    public BitSet getSubTypes(int id) {
+        State s = state;
+        BitSet result = s.subTypes.get(id);
+
+        if (result == null) {
+            result = new BitSet();
+
+            IntStack stack = new IntStack();
+
+            stack.push(id);
+
+            while (!stack.isEmpty()) {
+                for (int sub : s.getSubClasses(stack.pop())) {
+                    if (result.get(sub)) continue;
+
+                    result.set(sub);
+
+                    BitSet computed = s.subTypes.get(sub);
+
+                    if (computed != null) {
+                        result.or(computed);
+                    } else {
+                        stack.push(sub);
+                    }
+                }
+            }
+
+            s.subTypes.set(id, result);
+        }
+
+        return result;
+    }
+
+    /**
+     * @return if {@code type} is {@code superType} or inherits from it
+     */
+    public boolean isSubType(int type, int superType) {
+        return type == superType || type >= 0 && superType >= 0 && state.getSuperTypes(type).get(superType);
+    }
+
+    /**
+     * @return the common super class as required by {@link org.objectweb.asm.ClassWriter#getCommonSuperClass(String, String)}
+     * or null if the hierarchy of the classes isn't complete
+     */
+    public String getCommonSuperClass(String type1, String type2) {
+        State s = state;
+        int a = s.find(type1);
+        int b = s.find(type2);
+
+        if (a < 0 || b < 0 || !s.defined.get(a) || !s.defined.get(b) || s.missingSuperClass.get(a) || s.missingSuperClass.get(b)) return null;
+
+        if (s.isSubType(b, a)) return type1;
+        if (s.isSubType(a, b)) return type2;
+
+        if ((s.access[a] & Opcodes.ACC_INTERFACE) != 0 || (s.access[b] & Opcodes.ACC_INTERFACE) != 0) {
+            return "java/lang/Object";
+        }
+
+        for (int superClass = s.getSuperClass(a); superClass != -1; superClass = s.getSuperClass(superClass)) {
+            if (s.isSubType(b, superClass)) return s.names[superClass];
+        }
+
+        return null;
+    }
+
+    /**
+     * Renames classes while keeping their ids and edges.
+     *
+     * @param renames old name to new name
+     */
+    public void rename(Map<String, String> renames) {
+        State current = state;
+        String[] names = current.names.clone();
+        boolean changed = false;
+
+        for (int id = 0; id < current.size; id++) {
+            String newName = renames.get(names[id]);
+
+            if (newName != null) {
+                names[id] = newName;
+                changed = true;
+            }
+        }
+
+        if (!changed) return;
+
+        State next = current.share();
+
+        next.names = names;
+        next.rehash(next.table.length);
+
+        state = next;
+    }
+
+    /**
+     * @return the number of interned names
+     */
+    public int size() {
+        return state.size;
+    }
+
+    /**
+     * The tables of one version of the hierarchy. Only modified before it is published by {@link #complete()} or
+     * {@link #rename(Map)}, except for the memoized super- and subtypes which are published per element.
+     */
+    private static final class State {
+        private String[] names = new String[256];
+        /**
+         * Open addressing table of id + 1, 0 marks a free slot
+         */
+        private int[] table = new int[512];
+        private int size;
+
+        /**
+         * Either the wrapper of an input class or a skeleton is set. Skeletons of input classes which weren't parsed
+         * yet are marked in {@link #inputs}.
+         */
+        private ClassWrapper[] wrappers = new ClassWrapper[256];
+        private LibraryClass[] libraries = new LibraryClass[256];
+        private int[] access = new int[256];
+        private BitSet defined = new BitSet();
+        private BitSet inputs = new BitSet();
+        private BitSet missingSuperClass = new BitSet();
+        private BitSet hasSuperClass = new BitSet();
+
+        /**
+         * The parents of class {@code id} are {@code parentIds[parentStart[id] .. parentStart[id] + parentCount[id])},
+         * the super class comes first.
+         */
+        private int[] parentStart = new int[256];
+        private int[] parentCount = new int[256];
+        private int[] parentIds = new int[512];
+        private int parentSize;
+
+        /**
+         * Subclasses in CSR form
+         */
+        private int[] subStart = new int[1];
+        private int[] subIds = EMPTY;
+
+        private AtomicReferenceArray<BitSet> superTypes = new AtomicReferenceArray<>(0);
+        private AtomicReferenceArray<BitSet> subTypes = new AtomicReferenceArray<>(0);
+
+        /**
+         * @return a state which shares all tables with this one
+         */
+        private State share() {
+            State state = new State();
+
+            state.names = names;
+            state.table = table;
+            state.size = size;
+            state.wrappers = wrappers;
+            state.libraries = libraries;
+            state.access = access;
+            state.defined = defined;
+            state.inputs = inputs;
+            state.missingSuperClass = missingSuperClass;
+            state.hasSuperClass = hasSuperClass;
+            state.parentStart = parentStart;
+            state.parentCount = parentCount;
+            state.parentIds = parentIds;
+            state.parentSize = parentSize;
+            state.subStart = subStart;
+            state.subIds = subIds;
+            state.superTypes = superTypes;
+            state.subTypes = subTypes;
+
+            return state;
+        }
+
+        /**
+         * @return a state with copies of all tables which are modified when classes are added
+         */
+        private State copy() {
+            State state = share();
+
+            state.names = names.clone();
+            state.table = table.clone();
+            state.wrappers = wrappers.clone();
+            state.libraries = libraries.clone();
+            state.access = access.clone();
+            state.defined = (BitSet) defined.clone();
+            state.inputs = (BitSet) inputs.clone();
+            state.hasSuperClass = (BitSet) hasSuperClass.clone();
+            state.parentStart = parentStart.clone();
+            state.parentCount = parentCount.clone();
+            state.parentIds = parentIds.clone();
+
+            return state;
+        }
+
+        private int find(String name) {
+            if (name == null) return -1;
+
+            int mask = table.length - 1;
+
+            for (int slot = hash(name) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+                int id = table[slot] - 1;
+
+                if (names[id].equals(name)) return id;
+            }
+
+            return -1;
+        }
+
+        /**
+         * @return the id of the name, a new one is assigned if it wasn't seen before
+         */
+        private int intern(String name) {
+            int mask = table.length - 1;
+            int slot = hash(name) & mask;
+
+            for (; table[slot] != 0; slot = (slot + 1) & mask) {
+                int id = table[slot] - 1;
+
+                if (names[id].equals(name)) return id;
+            }
+
+            int id = size++;
+
+            if (id == names.length) grow();
+
+            names[id] = name;
+            table[slot] = id + 1;
+
+            if (size * 2 > table.length) rehash(table.length * 2);
+
+            return id;
+        }
+
+        private void grow() {
+            int capacity = names.length * 2;
+
+            names = Arrays.copyOf(names, capacity);
+            wrappers = Arrays.copyOf(wrappers, capacity);
+            libraries = Arrays.copyOf(libraries, capacity);
+            access = Arrays.copyOf(access, capacity);
+            parentStart = Arrays.copyOf(parentStart, capacity);
+            parentCount = Arrays.copyOf(parentCount, capacity);
+        }
+
+        private void rehash(int capacity) {
+            table = new int[capacity];
+
+            int mask = capacity - 1;
+
+            for (int id = 0; id < size; id++) {
+                int slot = hash(names[id]) & mask;
+
+                while (table[slot] != 0) slot = (slot + 1) & mask;
+
+                table[slot] = id + 1;
+            }
+        }
+
+        private void define(String name, int classAccess, String superName, List<String> interfaces, ClassWrapper classWrapper, LibraryClass libraryClass, boolean input) {
+            int id = intern(name);
+
+            if (defined.get(id) && (!input || inputs.get(id))) return;
+
+            int count = (superName == null ? 0 : 1) + (interfaces == null ? 0 : interfaces.size());
+
+            if (parentSize + count > parentIds.length) {
+                parentIds = Arrays.copyOf(parentIds, Math.max(parentIds.length * 2, parentSize + count));
+            }
+
+            int start = parentSize;
+
+            if (superName != null) parentIds[parentSize++] = intern(superName);
+
+            if (interfaces != null) {
+                for (String anInterface : interfaces) {
+                    parentIds[parentSize++] = intern(anInterface);
+                }
+            }
+
+            parentStart[id] = start;
+            parentCount[id] = parentSize - start;
+            wrappers[id] = classWrapper;
+            libraries[id] = libraryClass;
+            access[id] = classAccess;
+            defined.set(id);
+            inputs.set(id, input);
+
+            if (superName != null) hasSuperClass.set(id);
+            else hasSuperClass.clear(id);
+        }
+
+        /**
+         * A class misses a super class if one of its parents was never added or misses a super class itself.
+         * Computed as a fixpoint, every round looks one level further up the hierarchy and checks all classes in parallel.
+         */
+        private void propagateMissingSuperClasses() {
+            int count = size;
+            boolean[] unresolved = new boolean[count];
+
+            IntStream.range(0, count).parallel().forEach(id -> {
+                if (!defined.get(id)) return;
+
+                for (int i = parentStart[id], end = i + parentCount[id]; i < end; i++) {
+                    if (!defined.get(parentIds[i])) {
+                        unresolved[id] = true;
+                        return;
+                    }
+                }
+            });
+
+            boolean[] missing = unresolved;
+            AtomicBoolean changed = new AtomicBoolean(true);
+
+            while (changed.getAndSet(false)) {
+                boolean[] current = missing;
+                boolean[] next = current.clone();
+
+                IntStream.range(0, count).parallel().filter(id -> !current[id] && defined.get(id)).forEach(id -> {
+                    for (int i = parentStart[id], end = i + parentCount[id]; i < end; i++) {
+                        if (current[parentIds[i]]) {
+                            next[id] = true;
+                            changed.set(true);
+                            return;
+                        }
+                    }
+                });
+
+                missing = next;
+            }
+
+            missingSuperClass = new BitSet(count);
+
+            for (int id = 0; id < count; id++) {
+                if (missing[id]) missingSuperClass.set(id);
+            }
+        }
+
+        private void buildSubClasses() {
+            int[] start = new int[size + 1];
+
+            for (int id = defined.nextSetBit(0); id >= 0; id = defined.nextSetBit(id + 1)) {
+                for (int i = parentStart[id], end = i + parentCount[id]; i < end; i++) {
+                    start[parentIds[i] + 1]++;
+                }
+            }
+            for (int i = 0; i < size; i++) {
+                start[i + 1] += start[i];
+            }
+
+            int[] ids = new int[start[size]];
+            int[] next = Arrays.copyOf(start, size);
+
+            for (int id = defined.nextSetBit(0); id >= 0; id = defined.nextSetBit(id + 1)) {
+                for (int i = parentStart[id], end = i + parentCount[id]; i < end; i++) {
+                    ids[next[parentIds[i]]++] = id;
+                }
+            }
+
+            subStart = start;
+            subIds = ids;
+        }
+
+        private int getSuperClass(int id) {
+            return hasSuperClass.get(id) ? parentIds[parentStart[id]] : -1;
+        }
+
+        private int[] getSubClasses(int id) {
+            return subStart[id] == subStart[id + 1] ? EMPTY : Arrays.copyOfRange(subIds, subStart[id], subStart[id + 1]);
+        }
+
+        private boolean isSubType(int type, int superType) {
+            return type == superType || type >= 0 && superType >= 0 && getSuperTypes(type).get(superType);
+        }
+
+        private BitSet getSuperTypes(int id) {
+            BitSet result = superTypes.get(id);
+
+            if (result == null) {
+                result = new BitSet();
+
+                IntStack stack = new IntStack();
+
+                stack.push(id);
+
+                while (!stack.isEmpty()) {
+                    int current = stack.pop();
+
+                    if (!defined.get(current)) continue;
+
+                    for (int i = parentStart[current], end = i + parentCount[current]; i < end; i++) {
+                        int parent = parentIds[i];
+
+                        if (result.get(parent)) continue;
+
+                        result.set(parent);
+
+                        // Already computed sets are closed, so their classes don't have to be visited again
+                        BitSet computed = superTypes.get(parent);
+
+                        if (computed != null) {
+                            result.or(computed);
+                        } else {
+                            stack.push(parent);
+                        }
+                    }
+                }
+
+                // Concurrent callers may compute the same set, both results are equal
+                superTypes.set(id, result);
+            }
+
+            return result;
+        }
+    }
+
+    private static final class InputSkeleton {
+        private final LibraryClass skeleton;
+
+        private InputSkeleton(LibraryClass skeleton) {
+            this.skeleton = skeleton;
+        }
+    }
+
+    private static final class IntStack {
+        private int[] elements = new int[16];
+        private int size;
+
+        private void push(int value) {
+            if (size == elements.length) elements = Arrays.copyOf(elements, size * 2);
+
+            elements[size++] = value;
+        }
+
+        private int pop() {
+            return elements[--size];
+        }
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+    }
+}
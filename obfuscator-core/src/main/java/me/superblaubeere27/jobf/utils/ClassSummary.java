@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2017-2019 superblaubeere27, Sam Sun, MarcoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package me.superblaubeere27.jobf.utils;
+
+import org.objectweb.asm.ConstantDynamic;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.*;
+
+/**
+ * What a class contains, so processors can tell cheaply that they have nothing to do, see
+ * {@link me.superblaubeere27.jobf.IClassTransformer#isApplicable(ClassSummary)}.
+ * <p>
+ * The instructions are scanned once, on the first question about them. A summary describes the class as it was when
+ * it was created, processors which might change the class require a new one.
+ */
+public class ClassSummary {
+    public static final int CONSTANT_INTEGER = 0;
+    public static final int CONSTANT_FLOAT = 1;
+    public static final int CONSTANT_LONG = 2;
+    public static final int CONSTANT_DOUBLE = 3;
+    public static final int CONSTANT_STRING = 4;
+    public static final int CONSTANT_TYPE = 5;
+    public static final int CONSTANT_HANDLE = 6;
+    public static final int CONSTANT_DYNAMIC = 7;
+
+    private final ClassNode classNode;
+
+    private int[] opcodes;
+    private int[] ldcConstants;
+    private int[] staticFieldConstants;
+    private int instructions;
+
+    private ClassSummary(ClassNode classNode) {
+        this.classNode = classNode;
+    }
+
+    public static ClassSummary of(ClassNode classNode) {
+        return new ClassSummary(classNode);
+    }
+
+    private static int constantKind(Object cst) {
+        if (cst instanceof Integer) return CONSTANT_INTEGER;
+        if (cst instanceof Float) return CONSTANT_FLOAT;
+        if (cst instanceof Long) return CONSTANT_LONG;
+        if (cst instanceof Double) return CONSTANT_DOUBLE;
+        if (cst instanceof String) return CONSTANT_STRING;
+        if (cst instanceof Type) return CONSTANT_TYPE;
+        if (cst instanceof Handle) return CONSTANT_HANDLE;
+        if (cst instanceof ConstantDynamic) return CONSTANT_DYNAMIC;
+
+        throw new IllegalArgumentException("Unknown constant " + cst);
+    }
+
+    private void scan() {
+        if (opcodes != null) return;
+
+        int[] opcodes = new int[256];
+        int[] ldcConstants = new int[8];
+        int[] staticFieldConstants = new int[8];
+
+        for (MethodNode method : classNode.methods) {
+            instructions += method.instructions.size();
+
+            for (AbstractInsnNode insn = method.instructions.getFirst(); insn != null; insn = insn.getNext()) {
+                int opcode = insn.getOpcode();
+
+                if (opcode < 0) continue;
+
+                opcodes[opcode]++;
+
+                if (opcode == Opcodes.LDC) ldcConstants[constantKind(((LdcInsnNode) insn).cst)]++;
+            }
+        }
+
+        for (FieldNode field : classNode.fields) {
+            if (field.value != null && (field.access & Opcodes.ACC_STATIC) != 0) {
+                staticFieldConstants[constantKind(field.value)]++;
+            }
+        }
+
+        this.ldcConstants = ldcConstants;
+        this.staticFieldConstants = staticFieldConstants;
+        this.opcodes = opcodes;
+    }
+
+    public ClassNode getClassNode() {
+        return classNode;
+    }
+
+    /**
+     * @return the number of instructions of all methods, including labels, line numbers and frames
+     */
+    public int getInstructionCount() {
+        scan();
+
+        return instructions;
+    }
+
+    public int getOpcodeCount(int opcode) {
+        scan();
+
+        return opcodes[opcode];
+    }
+
+    /**
+     * @return if any of the opcodes is used
+     */
+    public boolean hasAnyOpcode(int... opcodes) {
+        scan();
+
+        for (int opcode : opcodes) {
+            if (this.opcodes[opcode] > 0) return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * @param kind e.g. {@link #CONSTANT_STRING}
+     * @return how often {@code LDC} loads a constant of that kind
+     */
+    public int getLdcCount(int kind) {
+        scan();
+
+        return ldcConstants[kind];
+    }
+
+    /**
+     * @param kind e.g. {@link #CONSTANT_STRING}
+     * @return the number of static fields with a constant value of that kind
+     */
+    public int getStaticFieldConstantCount(int kind) {
+        scan();
+
+        return staticFieldConstants[kind];
+    }
+
+    public boolean hasCode() {
+        return getInstructionCount() > 0;
+    }
+
+    public boolean hasMethodCalls() {
+        return hasAnyOpcode(Opcodes.INVOKEVIRTUAL, Opcodes.INVOKESPECIAL, Opcodes.INVOKESTATIC, Opcodes.INVOKEINTERFACE);
+    }
+
+    public boolean hasInvokeDynamic() {
+        return getOpcodeCount(Opcodes.INVOKEDYNAMIC) > 0;
+    }
+
+    public boolean hasStaticInitializer() {
+        for (MethodNode method : classNode.methods) {
+            if (method.name.equals("<clinit>")) return true;
+        }
+
+        return false;
+    }
+
+    public boolean hasNativeMethods() {
+        for (MethodNode method : classNode.methods) {
+            if ((method.access & Opcodes.ACC_NATIVE) != 0) return true;
+        }
+
+        return false;
+    }
+
+    public boolean isInterface() {
+        return (classNode.access & Opcodes.ACC_INTERFACE) != 0;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2017-2019 superblaubeere27, Sam Sun, MarcoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package me.superblaubeere27.jobf.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Orders processors by the processors they depend on.
+ * <p>
+ * A dependency is a type, every registered processor of that type must run before the dependent one. Dependencies
+ * which aren't registered are ignored. Processors which don't depend on each other keep the order they were
+ * registered in.
+ */
+public class DependencyGraph {
+    private DependencyGraph() {
+    }
+
+    /**
+     * @param processors   the processors in the order they were registered
+     * @param dependencies the types of the processors which must run before a processor
+     * @return the processors, each after all of its dependencies
+     * @throws IllegalStateException if processors depend on each other
+     */
+    public static <T> List<T> sort(List<T> processors, Function<T, Collection<Class<?>>> dependencies) {
+        int n = processors.size();
+        // before[i][j] if processor j must run before processor i
+        boolean[][] before = new boolean[n][n];
+        int[] remaining = new int[n];
+
+        for (int i = 0; i < n; i++) {
+            for (Class<?> dependency : dependencies.apply(processors.get(i))) {
+                for (int j = 0; j < n; j++) {
+                    if (j != i && !before[i][j] && dependency.isInstance(processors.get(j))) {
+                        before[i][j] = true;
+                        remaining[i]++;
+                    }
+                }
+            }
+        }
+
+        List<T> sorted = new ArrayList<>(n);
+        boolean[] done = new boolean[n];
+
+        while (sorted.size() < n) {
+            int next = -1;
+
+            // The first processor which is ready keeps the registration order where possible
+            for (int i = 0; i < n && next == -1; i++) {
+                if (!done[i] && remaining[i] == 0) next = i;
+            }
+
+            if (next == -1) {
+                List<String> cycle = new ArrayList<>();
+
+                for (int i = 0; i < n; i++) {
+                    if (!done[i]) cycle.add(processors.get(i).getClass().getSimpleName());
+                }
+
+                throw new IllegalStateException("Dependency cycle between " + cycle);
+            }
+
+            done[next] = true;
+            sorted.add(processors.get(next));
+
+            for (int i = 0; i < n; i++) {
+                if (before[i][next]) remaining[i]--;
+            }
+        }
+
+        return sorted;
+    }
+}
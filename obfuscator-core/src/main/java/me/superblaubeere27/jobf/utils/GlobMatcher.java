@@ -0,0 +1,339 @@
+/*
+ * Copyright (c) 2017-2019 superblaubeere27, Sam Sun, MarcoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package me.superblaubeere27.jobf.utils;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Matches internal names against a list of exclusion globs in a single walk.
+ * <p>
+ * The glob language is the one used by the exclusion settings: {@code .} separates packages (and a class
+ * from its member), {@code *} matches anything inside one segment and {@code **} matches anything.
+ * All globs are merged into one automaton which is determinized lazily, so a lookup costs one step per
+ * character no matter how many patterns are configured. Patterns using other regex syntax are still
+ * accepted and matched with {@link Pattern}.
+ */
+public final class GlobMatcher {
+    private static final Map<String, GlobMatcher> CACHE = new ConcurrentHashMap<>();
+    private static final GlobMatcher EMPTY = new GlobMatcher(new ArrayList<>());
+
+    private static final int STAR = -1;
+    private static final int DOUBLE_STAR = -2;
+    private static final int END = -3;
+    private static final String REGEX_CHARS = "[](){}|?+^\\";
+    /**
+     * Upper bound of cached automaton states. Larger automatons are still correct, just not memoized.
+     */
+    private static final int MAX_STATES = 1 << 14;
+
+    private final List<String> globs = new ArrayList<>();
+    private final List<Pattern> regexPatterns = new ArrayList<>();
+    private final List<String> regexSources = new ArrayList<>();
+
+    /**
+     * Token at each automaton position, {@link #END} if the position accepts.
+     */
+    private final int[] tokenAt;
+    /**
+     * Index into {@link #globs} of the pattern a position belongs to.
+     */
+    private final int[] patternAt;
+    private final Map<BitSet, State> states = new ConcurrentHashMap<>();
+    private final State dead;
+    private final State start;
+
+    private GlobMatcher(List<String> patterns) {
+        List<int[]> compiled = new ArrayList<>();
+
+        for (String pattern : patterns) {
+            if (isGlob(pattern)) {
+                globs.add(pattern);
+                compiled.add(tokenize(pattern));
+            } else {
+                regexSources.add(pattern);
+                regexPatterns.add(Pattern.compile(toRegex(pattern)));
+            }
+        }
+
+        int size = 0;
+        for (int[] tokens : compiled) size += tokens.length + 1;
+
+        tokenAt = new int[size];
+        patternAt = new int[size];
+
+        BitSet initial = new BitSet(size);
+        int offset = 0;
+
+        for (int i = 0; i < compiled.size(); i++) {
+            int[] tokens = compiled.get(i);
+
+            for (int j = 0; j <= tokens.length; j++) {
+                tokenAt[offset + j] = j == tokens.length ? END : tokens[j];
+                patternAt[offset + j] = i;
+            }
+            addClosure(initial, offset);
+
+            offset += tokens.length + 1;
+        }
+
+        dead = intern(new BitSet(0));
+        start = intern(initial);
+    }
+
+    /**
+     * Compiles newline separated globs. Matchers are cached by their source so every processor
+     * configured with the same exclusions shares one automaton.
+     *
+     * @param patterns the globs, one per line. Blank lines are ignored.
+     * @return the compiled matcher
+     */
+    public static GlobMatcher compile(String patterns) {
+        if (patterns == null || patterns.trim().isEmpty()) return EMPTY;
+
+        return CACHE.computeIfAbsent(patterns, s -> {
+            List<String> list = new ArrayList<>();
+
+            for (String line : s.split("\n")) {
+                line = line.trim();
+
+                if (!line.isEmpty()) list.add(line);
+            }
+
+            return new GlobMatcher(list);
+        });
+    }
+
+    /**
+     * Drops the cached matchers, called after every run so the exclusions of old configurations aren't kept
+     */
+    public static void clearCache() {
+        CACHE.clear();
+    }
+
+    /**
+     * Converts a glob into the equivalent {@link Pattern} syntax.
+     */
+    public static String toRegex(String s) {
+        StringBuilder sb = new StringBuilder();
+
+        char[] chars = s.toCharArray();
+
+        for (int i = 0; i < chars.length; i++) {
+            char c = chars[i];
+
+            if (c == '*') {
+                if (chars.length - 1 != i && chars[i + 1] == '*') {
+                    sb.append(".*");
+                    i++;
+                } else {
+                    sb.append("[^/]*");
+                }
+            } else if (c == '.') {
+                sb.append('/');
+            } else if (c == '$') {
+                sb.append("\\$");
+            } else {
+                sb.append(c);
+            }
+        }
+
+        return sb.toString();
+    }
+
+    private static boolean isGlob(String pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            if (REGEX_CHARS.indexOf(pattern.charAt(i)) != -1) return false;
+        }
+        return true;
+    }
+
+    private static int[] tokenize(String pattern) {
+        int[] tokens = new int[pattern.length()];
+        int length = 0;
+
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+
+            if (c == '*') {
+                int token = STAR;
+
+                while (i + 1 < pattern.length() && pattern.charAt(i + 1) == '*') {
+                    token = DOUBLE_STAR;
+                    i++;
+                }
+
+                // "*" next to "**" adds nothing
+                if (length > 0 && tokens[length - 1] < 0) {
+                    tokens[length - 1] = Math.min(tokens[length - 1], token);
+                    continue;
+                }
+
+                tokens[length++] = token;
+            } else {
+                tokens[length++] = c == '.' ? '/' : c;
+            }
+        }
+
+        int[] result = new int[length];
+        System.arraycopy(tokens, 0, result, 0, length);
+        return result;
+    }
+
+    public boolean isEmpty() {
+        return globs.isEmpty() && regexPatterns.isEmpty();
+    }
+
+    public int size() {
+        return globs.size() + regexPatterns.size();
+    }
+
+    /**
+     * @param name an internal name, e.g. {@code java/lang/String}
+     * @return true if any pattern matches the name
+     */
+    public boolean matches(String name) {
+        return matchingPattern(name) != null;
+    }
+
+    /**
+     * Checks a member, matching it like {@code owner/member}, without building the concatenated string
+     * unless a regex pattern has to be consulted.
+     *
+     * @param owner  internal name of the owner class
+     * @param member name of the field or method
+     * @return true if any pattern matches the member
+     */
+    public boolean matches(String owner, String member) {
+        if (globs.isEmpty() && regexPatterns.isEmpty()) return false;
+
+        State state = walk(walk(start, owner), '/');
+        state = walk(state, member);
+
+        if (state.accepting != -1) return true;
+
+        if (regexPatterns.isEmpty()) return false;
+
+        return matchRegex(owner + '/' + member) != null;
+    }
+
+    /**
+     * @return the source of the first pattern which matches the name or null
+     */
+    public String matchingPattern(String name) {
+        if (isEmpty()) return null;
+
+        State state = walk(start, name);
+
+        if (state.accepting != -1) return globs.get(state.accepting);
+
+        return matchRegex(name);
+    }
+
+    private String matchRegex(String name) {
+        for (int i = 0; i < regexPatterns.size(); i++) {
+            if (regexPatterns.get(i).matcher(name).matches()) return regexSources.get(i);
+        }
+        return null;
+    }
+
+    private State walk(State state, String s) {
+        for (int i = 0; i < s.length() && state != dead; i++) {
+            state = state.next(s.charAt(i));
+        }
+        return state;
+    }
+
+    private State walk(State state, char c) {
+        return state == dead ? dead : state.next(c);
+    }
+
+    private void addClosure(BitSet set, int position) {
+        set.set(position);
+
+        while (tokenAt[position] == STAR || tokenAt[position] == DOUBLE_STAR) {
+            set.set(++position);
+        }
+    }
+
+    private State intern(BitSet positions) {
+        State state = states.get(positions);
+
+        if (state != null) return state;
+
+        if (states.size() >= MAX_STATES) return new State(positions);
+
+        return states.computeIfAbsent(positions, State::new);
+    }
+
+    private final class State {
+        private final BitSet positions;
+        /**
+         * Index of the first glob accepted in this state or -1.
+         */
+        private final int accepting;
+        private final State[] ascii = new State[128];
+        private final Map<Character, State> other = new ConcurrentHashMap<>();
+
+        private State(BitSet positions) {
+            this.positions = positions;
+
+            int accept = -1;
+
+            for (int p = positions.nextSetBit(0); p >= 0; p = positions.nextSetBit(p + 1)) {
+                if (tokenAt[p] == END && (accept == -1 || patternAt[p] < accept)) accept = patternAt[p];
+            }
+
+            this.accepting = accept;
+        }
+
+        private State next(char c) {
+            if (c < 128) {
+                State next = ascii[c];
+
+                if (next == null) ascii[c] = next = step(c);
+
+                return next;
+            }
+
+            State next = other.get(c);
+
+            if (next == null) {
+                next = step(c);
+                other.put(c, next);
+            }
+
+            return next;
+        }
+
+        private State step(char c) {
+            BitSet result = new BitSet(tokenAt.length);
+
+            for (int p = positions.nextSetBit(0); p >= 0; p = positions.nextSetBit(p + 1)) {
+                int token = tokenAt[p];
+
+                if (token == END) continue;
+
+                if (token == DOUBLE_STAR || token == STAR && c != '/') {
+                    addClosure(result, p);
+                } else if (token == c) {
+                    addClosure(result, p + 1);
+                }
+            }
+
+            return result.isEmpty() ? dead : intern(result);
+        }
+    }
+}
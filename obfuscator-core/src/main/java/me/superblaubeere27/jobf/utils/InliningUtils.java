@@ -14,7 +14,6 @@ import me.superblaubeere27.jobf.JObfImpl;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.tree.*;
-import org.objectweb.asm.tree.analysis.Frame;
 import org.objectweb.asm.tree.analysis.SourceValue;
 
 import java.lang.reflect.Modifier;
@@ -24,7 +23,11 @@ import java.util.regex.Pattern;
 public class InliningUtils {
     private static Pattern ANONYM_CLASSES = Pattern.compile(".+[$][0-9]+");
 
-    public static InsnList inline(MethodNode node, ClassNode classNode, MethodNode target, Frame<SourceValue> frame) {
+    /**
+     * @param stack the stack analysis of the target method
+     * @param call  the call in the target method which is replaced
+     */
+    public static InsnList inline(MethodNode node, ClassNode classNode, MethodNode target, StackAnalysis stack, AbstractInsnNode call) {
         InsnList insns = new InsnList();
 
         VariableProvider provider = new VariableProvider(target);
@@ -81,16 +84,19 @@ public class InliningUtils {
         {
             int args = argumentTypes.size();
 
+            int stackSize = stack.getStackSize(call);
+
             int i;
 
+            // The last argument is on top of the stack
             for (i = args; i > 0; i--) {
-                SourceValue stack = frame.getStack(frame.getStackSize() - 1 - i);
+                SourceValue argument = stack.getStack(call, stackSize - 1 - (args - i));
 
-                if (stack.insns.size() == 1) {
-                    AbstractInsnNode abstractInsnNode = stack.insns.iterator().next();
+                if (argument.insns.size() == 1) {
+                    AbstractInsnNode abstractInsnNode = argument.insns.iterator().next();
 
                     if (canInlineInstruction(abstractInsnNode, changedParamenters)) {
-                        insns.add(new InsnNode(stack.getSize() == 2 ? Opcodes.POP2 : Opcodes.POP));
+                        insns.add(new InsnNode(argument.getSize() == 2 ? Opcodes.POP2 : Opcodes.POP));
                         inlinedParameters.put(argumentMap.get(i - 1), abstractInsnNode);
                     } else
                         insns.add(new VarInsnNode(argumentTypes.get(i - 1).getOpcode(Opcodes.ISTORE), argumentMap.get(i - 1)));
@@ -333,7 +339,7 @@ public class InliningUtils {
     }
 
     private static boolean isSuperClass(ClassNode node, ClassNode of) {
-        return node.superName != null && node.superName.equals(of.name);
+        return !node.name.equals(of.name) && JObfImpl.INSTANCE.isSubType(node.name, of.name);
     }
 
 }
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2017-2019 superblaubeere27, Sam Sun, MarcoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package me.superblaubeere27.jobf.utils;
+
+import me.superblaubeere27.jobf.utils.scheduler.TimeBudget;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Walks the instructions of a method once and passes every instruction to the handlers which were registered for
+ * its opcode or node type, in the order they were registered.
+ * <p>
+ * Handlers may insert code before and after the current instruction and replace or remove it. Inserted code isn't
+ * walked, the same as when iterating over {@link InsnList#toArray()}, but without copying the list. Instructions
+ * after the current one must not be removed. Once a handler removed the current instruction, the remaining handlers
+ * don't see it.
+ * <p>
+ * Not thread-safe, handlers usually keep state of the class which is processed.
+ */
+public class InsnWalker {
+    /**
+     * Pseudo instructions have the opcode -1 and are dispatched by their type
+     */
+    private static final int PSEUDO_INSN_KEYS = 16;
+    /**
+     * The {@link TimeBudget} is checked every 256 instructions
+     */
+    private static final int TIME_CHECK_INTERVAL = 0xFF;
+
+    private final List<Registration> registrations = new ArrayList<>();
+    /**
+     * Handlers by {@link #key(AbstractInsnNode)}, computed on the first instruction with that key
+     */
+    private Handler[][] dispatch = new Handler[256 + PSEUDO_INSN_KEYS][];
+
+    private static int key(AbstractInsnNode insn) {
+        int opcode = insn.getOpcode();
+
+        return opcode >= 0 ? opcode : 256 + insn.getType();
+    }
+
+    /**
+     * @param opcodes the opcodes of the instructions which are passed to the handler
+     */
+    public InsnWalker onOpcode(Handler handler, int... opcodes) {
+        return register(new Registration(handler, opcodes, false));
+    }
+
+    /**
+     * @param types the {@link AbstractInsnNode#getType() types} of the instructions which are passed to the handler,
+     *              e.g. {@link AbstractInsnNode#METHOD_INSN}
+     */
+    public InsnWalker onType(Handler handler, int... types) {
+        return register(new Registration(handler, types, true));
+    }
+
+    private InsnWalker register(Registration registration) {
+        registrations.add(registration);
+
+        dispatch = new Handler[dispatch.length][];
+
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return registrations.isEmpty();
+    }
+
+    public void walk(MethodNode method) {
+        if (registrations.isEmpty()) return;
+
+        InsnList instructions = method.instructions;
+        AbstractInsnNode insn = instructions.getFirst();
+        int walked = 0;
+
+        while (insn != null) {
+            if ((++walked & TIME_CHECK_INTERVAL) == 0) TimeBudget.check();
+
+            // Taken before the handlers run, so inserted code is skipped and the current instruction may be removed
+            AbstractInsnNode next = insn.getNext();
+            Handler[] handlers = handlers(insn);
+
+            for (Handler handler : handlers) {
+                handler.handle(method, insn);
+
+                if (isRemoved(instructions, insn)) break;
+            }
+
+            insn = next;
+        }
+    }
+
+    private static boolean isRemoved(InsnList instructions, AbstractInsnNode insn) {
+        return insn.getPrevious() == null && insn.getNext() == null && instructions.getFirst() != insn;
+    }
+
+    private Handler[] handlers(AbstractInsnNode insn) {
+        int key = key(insn);
+        Handler[] handlers = dispatch[key];
+
+        if (handlers == null) {
+            List<Handler> matching = new ArrayList<>();
+
+            for (Registration registration : registrations) {
+                if (registration.matches(insn)) matching.add(registration.handler);
+            }
+
+            handlers = dispatch[key] = matching.toArray(new Handler[0]);
+        }
+
+        return handlers;
+    }
+
+    @FunctionalInterface
+    public interface Handler {
+        void handle(MethodNode method, AbstractInsnNode insn);
+    }
+
+    private static final class Registration {
+        private final Handler handler;
+        private final int[] values;
+        private final boolean type;
+
+        private Registration(Handler handler, int[] values, boolean type) {
+            this.handler = handler;
+            this.values = values;
+            this.type = type;
+        }
+
+        private boolean matches(AbstractInsnNode insn) {
+            int value = type ? insn.getType() : insn.getOpcode();
+
+            for (int v : values) {
+                if (v == value) return true;
+            }
+
+            return false;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2017-2019 superblaubeere27, Sam Sun, MarcoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package me.superblaubeere27.jobf.utils;
+
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Interns the names and descriptors of a class and its code through a {@link SymbolTable} before passing them on,
+ * usually to a {@link org.objectweb.asm.tree.ClassNode}.
+ */
+public class InterningClassVisitor extends ClassVisitor {
+    private final SymbolTable symbols;
+
+    public InterningClassVisitor(ClassVisitor classVisitor, SymbolTable symbols) {
+        super(Opcodes.ASM9, classVisitor);
+        this.symbols = symbols;
+    }
+
+    @Override
+    public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+        super.visit(version, access, symbols.intern(name), signature, symbols.intern(superName), symbols.intern(interfaces));
+    }
+
+    @Override
+    public void visitOuterClass(String owner, String name, String descriptor) {
+        super.visitOuterClass(symbols.intern(owner), symbols.intern(name), symbols.intern(descriptor));
+    }
+
+    @Override
+    public void visitInnerClass(String name, String outerName, String innerName, int access) {
+        super.visitInnerClass(symbols.intern(name), symbols.intern(outerName), symbols.intern(innerName), access);
+    }
+
+    @Override
+    public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+        return super.visitField(access, symbols.intern(name), symbols.intern(descriptor), signature, value);
+    }
+
+    @Override
+    public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+        MethodVisitor methodVisitor = super.visitMethod(access, symbols.intern(name), symbols.intern(descriptor), signature, symbols.intern(exceptions));
+
+        return methodVisitor == null ? null : new InterningMethodVisitor(methodVisitor);
+    }
+
+    private Handle intern(Handle handle) {
+        return new Handle(handle.getTag(), symbols.intern(handle.getOwner()), symbols.intern(handle.getName()),
+                symbols.intern(handle.getDesc()), handle.isInterface());
+    }
+
+    private class InterningMethodVisitor extends MethodVisitor {
+        private InterningMethodVisitor(MethodVisitor methodVisitor) {
+            super(Opcodes.ASM9, methodVisitor);
+        }
+
+        @Override
+        public void visitFrame(int type, int numLocal, Object[] local, int numStack, Object[] stack) {
+            super.visitFrame(type, numLocal, internTypes(local, numLocal), numStack, internTypes(stack, numStack));
+        }
+
+        /**
+         * The arrays are reused by the {@link org.objectweb.asm.ClassReader}, so they are copied if anything changes
+         */
+        private Object[] internTypes(Object[] types, int count) {
+            Object[] result = types;
+
+            for (int i = 0; i < count; i++) {
+                if (types[i] instanceof String) {
+                    if (result == types) result = types.clone();
+
+                    result[i] = symbols.intern((String) types[i]);
+                }
+            }
+
+            return result;
+        }
+
+        @Override
+        public void visitTypeInsn(int opcode, String type) {
+            super.visitTypeInsn(opcode, symbols.intern(type));
+        }
+
+        @Override
+        public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
+            super.visitFieldInsn(opcode, symbols.intern(owner), symbols.intern(name), symbols.intern(descriptor));
+        }
+
+        @Override
+        public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+            super.visitMethodInsn(opcode, symbols.intern(owner), symbols.intern(name), symbols.intern(descriptor), isInterface);
+        }
+
+        @Override
+        public void visitInvokeDynamicInsn(String name, String descriptor, Handle bootstrapMethodHandle, Object... bootstrapMethodArguments) {
+            Object[] arguments = bootstrapMethodArguments.clone();
+
+            for (int i = 0; i < arguments.length; i++) {
+                if (arguments[i] instanceof Handle) arguments[i] = intern((Handle) arguments[i]);
+            }
+
+            super.visitInvokeDynamicInsn(symbols.intern(name), symbols.intern(descriptor), intern(bootstrapMethodHandle), arguments);
+        }
+
+        @Override
+        public void visitMultiANewArrayInsn(String descriptor, int numDimensions) {
+            super.visitMultiANewArrayInsn(symbols.intern(descriptor), numDimensions);
+        }
+
+        @Override
+        public void visitTryCatchBlock(Label start, Label end, Label handler, String type) {
+            super.visitTryCatchBlock(start, end, handler, symbols.intern(type));
+        }
+
+        @Override
+        public void visitLocalVariable(String name, String descriptor, String signature, Label start, Label end, int index) {
+            super.visitLocalVariable(symbols.intern(name), symbols.intern(descriptor), signature, start, end, index);
+        }
+    }
+}
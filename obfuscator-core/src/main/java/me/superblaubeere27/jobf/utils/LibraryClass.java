@@ -0,0 +1,313 @@
+/*
+ * Copyright (c) 2017-2019 superblaubeere27, Sam Sun, MarcoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package me.superblaubeere27.jobf.utils;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FieldNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable skeleton of a library class: its name, access, super class, interfaces and the name, descriptor and
+ * access of its members. Members are kept in flat arrays, fields first. Strings are interned through a
+ * {@link SymbolTable}, so the many classes which reference {@code java/lang/Object} or {@code ()V} share one instance.
+ * <p>
+ * Input classes which are only parsed when they are processed are represented by their skeleton until then.
+ */
+public final class LibraryClass {
+    private static final String[] NO_STRINGS = new String[0];
+    /**
+     * Classes with up to this many members are searched linearly
+     */
+    private static final int LINEAR_SEARCH_LIMIT = 8;
+
+    private final String name;
+    private final int access;
+    private final String superName;
+    private final String[] interfaces;
+
+    private final String[] memberNames;
+    private final String[] memberDescs;
+    private final int[] memberAccess;
+    private final int fieldCount;
+
+    /**
+     * Open addressing table of {@code member index + 1} by the hash of the member name, null for small classes
+     */
+    private final int[] table;
+
+    /**
+     * Index of the raw bytes in {@link #classBytes}, required to load the class at runtime. (For COMPUTE_FRAMES)
+     */
+    private final ClassByteStore classBytes;
+    private final int bytes;
+
+    private LibraryClass(String name, int access, String superName, String[] interfaces, String[] memberNames,
+                         String[] memberDescs, int[] memberAccess, int fieldCount, ClassByteStore classBytes, int bytes) {
+        this.name = name;
+        this.access = access;
+        this.superName = superName;
+        this.interfaces = interfaces;
+        this.memberNames = memberNames;
+        this.memberDescs = memberDescs;
+        this.memberAccess = memberAccess;
+        this.fieldCount = fieldCount;
+        this.table = memberNames.length > LINEAR_SEARCH_LIMIT ? buildTable(memberNames) : null;
+        this.classBytes = classBytes;
+        this.bytes = bytes;
+    }
+
+    /**
+     * Reads the skeleton of a class, the code of the class is skipped.
+     *
+     * @param symbols    used to intern names and descriptors, shared by all classes of a class path
+     * @param classBytes the store which keeps the raw bytes
+     */
+    public static LibraryClass read(byte[] bytes, SymbolTable symbols, ClassByteStore classBytes) {
+        return read(bytes, symbols, classBytes, classBytes.put(bytes));
+    }
+
+    /**
+     * Like {@link #read(byte[], SymbolTable, ClassByteStore)} for bytes which are already in the store.
+     *
+     * @param bytes the class file, may be followed by other bytes (e.g. in a reused buffer)
+     * @param index the index of the bytes in the store
+     */
+    public static LibraryClass read(byte[] bytes, SymbolTable symbols, ClassByteStore classBytes, int index) {
+        SkeletonReader reader = new SkeletonReader(symbols);
+
+        new ClassReader(bytes).accept(reader, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+
+        return reader.build(classBytes, index);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getAccess() {
+        return access;
+    }
+
+    public String getSuperName() {
+        return superName;
+    }
+
+    /**
+     * @return the interfaces. Must not be modified.
+     */
+    public String[] getInterfaces() {
+        return interfaces;
+    }
+
+    /**
+     * @return a read-only view of the raw bytes
+     */
+    public ByteBuffer getBytes() {
+        return classBytes.slice(bytes);
+    }
+
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    public int getMethodCount() {
+        return memberNames.length - fieldCount;
+    }
+
+    private static int[] buildTable(String[] memberNames) {
+        int[] table = new int[Integer.highestOneBit(memberNames.length * 2 - 1) << 1];
+        int mask = table.length - 1;
+
+        for (int i = 0; i < memberNames.length; i++) {
+            int slot = memberNames[i].hashCode() & mask;
+
+            while (table[slot] != 0) slot = (slot + 1) & mask;
+
+            table[slot] = i + 1;
+        }
+
+        return table;
+    }
+
+    /**
+     * @return the first member in {@code [from, to)} with that name and descriptor (any descriptor if null) or -1
+     */
+    private int find(String name, String desc, int from, int to) {
+        if (table == null) {
+            for (int i = from; i < to; i++) {
+                if (memberNames[i].equals(name) && (desc == null || memberDescs[i].equals(desc))) return i;
+            }
+
+            return -1;
+        }
+
+        int mask = table.length - 1;
+
+        // Members with the same name were inserted in order into the same probe sequence
+        for (int slot = name.hashCode() & mask, entry; (entry = table[slot]) != 0; slot = (slot + 1) & mask) {
+            int i = entry - 1;
+
+            if (i >= from && i < to && memberNames[i].equals(name) && (desc == null || memberDescs[i].equals(desc))) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return the index of the method or -1
+     */
+    public int findMethod(String name, String desc) {
+        int index = find(name, desc, fieldCount, memberNames.length);
+
+        return index == -1 ? -1 : index - fieldCount;
+    }
+
+    /**
+     * @param desc the descriptor or null to match any field with that name
+     * @return the index of the field or -1
+     */
+    public int findField(String name, String desc) {
+        return find(name, desc, 0, fieldCount);
+    }
+
+    public String getMethodName(int index) {
+        return memberNames[fieldCount + index];
+    }
+
+    public String getMethodDesc(int index) {
+        return memberDescs[fieldCount + index];
+    }
+
+    public int getMethodAccess(int index) {
+        return memberAccess[fieldCount + index];
+    }
+
+    public String getFieldName(int index) {
+        return memberNames[index];
+    }
+
+    public String getFieldDesc(int index) {
+        return memberDescs[index];
+    }
+
+    public int getFieldAccess(int index) {
+        return memberAccess[index];
+    }
+
+    /**
+     * Creates a new {@link ClassNode} without code for code which works on the tree API.
+     * Changes to it don't affect the skeleton.
+     */
+    public ClassNode toClassNode() {
+        ClassNode node = new ClassNode();
+
+        node.access = access;
+        node.name = name;
+        node.superName = superName;
+        node.interfaces = new ArrayList<>(Arrays.asList(interfaces));
+
+        for (int i = 0; i < fieldCount; i++) {
+            node.fields.add(new FieldNode(memberAccess[i], memberNames[i], memberDescs[i], null, null));
+        }
+        for (int i = fieldCount; i < memberNames.length; i++) {
+            node.methods.add(new MethodNode(memberAccess[i], memberNames[i], memberDescs[i], null, null));
+        }
+
+        return node;
+    }
+
+    private static class SkeletonReader extends ClassVisitor {
+        private final SymbolTable symbols;
+        private final List<String> fieldNames = new ArrayList<>();
+        private final List<String> fieldDescs = new ArrayList<>();
+        private final List<Integer> fieldAccess = new ArrayList<>();
+        private final List<String> methodNames = new ArrayList<>();
+        private final List<String> methodDescs = new ArrayList<>();
+        private final List<Integer> methodAccess = new ArrayList<>();
+        private String name;
+        private int access;
+        private String superName;
+        private String[] interfaces;
+
+        private SkeletonReader(SymbolTable symbols) {
+            super(Opcodes.ASM9);
+            this.symbols = symbols;
+        }
+
+        private String intern(String s) {
+            return symbols.intern(s);
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+            this.access = access;
+            this.name = intern(name);
+            this.superName = intern(superName);
+
+            if (interfaces == null || interfaces.length == 0) {
+                this.interfaces = NO_STRINGS;
+            } else {
+                this.interfaces = new String[interfaces.length];
+
+                for (int i = 0; i < interfaces.length; i++) {
+                    this.interfaces[i] = intern(interfaces[i]);
+                }
+            }
+        }
+
+        @Override
+        public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+            fieldNames.add(intern(name));
+            fieldDescs.add(intern(descriptor));
+            fieldAccess.add(access);
+            return null;
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+            methodNames.add(intern(name));
+            methodDescs.add(intern(descriptor));
+            methodAccess.add(access);
+            return null;
+        }
+
+        private LibraryClass build(ClassByteStore classBytes, int bytes) {
+            int fieldCount = fieldNames.size();
+            int count = fieldCount + methodNames.size();
+            String[] names = new String[count];
+            String[] descs = new String[count];
+            int[] accesses = new int[count];
+
+            for (int i = 0; i < count; i++) {
+                boolean field = i < fieldCount;
+                int index = field ? i : i - fieldCount;
+
+                names[i] = field ? fieldNames.get(index) : methodNames.get(index);
+                descs[i] = field ? fieldDescs.get(index) : methodDescs.get(index);
+                accesses[i] = field ? fieldAccess.get(index) : methodAccess.get(index);
+            }
+
+            return new LibraryClass(name, access, superName, interfaces, names, descs, accesses, fieldCount, classBytes, bytes);
+        }
+    }
+}
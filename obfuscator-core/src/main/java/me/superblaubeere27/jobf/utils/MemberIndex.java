@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2017-2019 superblaubeere27, Sam Sun, MarcoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package me.superblaubeere27.jobf.utils;
+
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FieldNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Thread-safe index of the members of {@link ClassNode}s by name and descriptor.
+ * <p>
+ * The index of a class is built on the first lookup. Transformers add and remove members, so an index is rebuilt
+ * when the member lists of the class changed their size or a found member was renamed. Methods which were resolved in
+ * a super class are cached per class and checked the same way before they are returned.
+ * <p>
+ * Classes which are replaced by a copy or whose members are renamed in place should be {@link #remove(ClassNode) removed}.
+ */
+public class MemberIndex {
+    private final ConcurrentHashMap<ClassNode, Members> members = new ConcurrentHashMap<>();
+
+    private static boolean matches(MethodNode method, String name, String desc) {
+        return method.name.equals(name) && method.desc.equals(desc);
+    }
+
+    private Members get(ClassNode classNode) {
+        Members index = members.get(classNode);
+
+        if (index == null || !index.isValid(classNode)) {
+            index = new Members(classNode);
+            members.put(classNode, index);
+        }
+
+        return index;
+    }
+
+    /**
+     * @return the first method with that name and descriptor or null
+     */
+    public MethodNode getMethod(ClassNode classNode, String name, String desc) {
+        MethodNode method = get(classNode).findMethod(name, desc);
+
+        if (method != null && !matches(method, name, desc)) {
+            method = rebuild(classNode).findMethod(name, desc);
+        }
+
+        return method;
+    }
+
+    /**
+     * Looks the method up in the class and then in its super classes.
+     *
+     * @param lookupClass resolves the name of a super class to its node, returns null if it is unknown
+     * @return the method or null
+     */
+    public MethodNode resolveMethod(ClassNode classNode, String name, String desc, Function<String, ClassNode> lookupClass) {
+        MethodNode method = getMethod(classNode, name, desc);
+
+        if (method != null) return method;
+
+        Map<String, MethodNode> inherited = get(classNode).inherited.computeIfAbsent(name, k -> new ConcurrentHashMap<>());
+        MethodNode cached = inherited.get(desc);
+
+        if (cached != null && matches(cached, name, desc)) return cached;
+
+        ClassNode current = classNode;
+
+        while (method == null && !current.name.equals("java/lang/Object") && current.superName != null) {
+            current = lookupClass.apply(current.superName);
+
+            if (current == null) return null;
+
+            method = getMethod(current, name, desc);
+        }
+
+        // Missing methods aren't cached since transformers might add them later
+        if (method != null) inherited.put(desc, method);
+
+        return method;
+    }
+
+    /**
+     * @return the first field with that name or null
+     */
+    public FieldNode getField(ClassNode classNode, String name) {
+        FieldNode field = get(classNode).fields.get(name);
+
+        if (field != null && !field.name.equals(name)) {
+            field = rebuild(classNode).fields.get(name);
+        }
+
+        return field;
+    }
+
+    private Members rebuild(ClassNode classNode) {
+        Members index = new Members(classNode);
+
+        members.put(classNode, index);
+
+        return index;
+    }
+
+    public void remove(ClassNode classNode) {
+        members.remove(classNode);
+    }
+
+    public int size() {
+        return members.size();
+    }
+
+    private static class Members {
+        private final List<MethodNode> methodList;
+        private final List<FieldNode> fieldList;
+        private final int methodCount;
+        private final int fieldCount;
+
+        /**
+         * Methods by name, overloads in the order of the class
+         */
+        private final HashMap<String, Object> methods = new HashMap<>();
+        private final HashMap<String, FieldNode> fields = new HashMap<>();
+
+        /**
+         * Methods which were found in super classes by name and descriptor
+         */
+        private final ConcurrentHashMap<String, Map<String, MethodNode>> inherited = new ConcurrentHashMap<>();
+
+        private Members(ClassNode classNode) {
+            methodList = classNode.methods;
+            fieldList = classNode.fields;
+            methodCount = methodList == null ? 0 : methodList.size();
+            fieldCount = fieldList == null ? 0 : fieldList.size();
+
+            for (int i = 0; i < methodCount; i++) {
+                MethodNode method = methodList.get(i);
+
+                methods.merge(method.name, method, (a, b) -> {
+                    MethodNode[] overloads = a instanceof MethodNode ? new MethodNode[]{(MethodNode) a} : (MethodNode[]) a;
+                    MethodNode[] merged = Arrays.copyOf(overloads, overloads.length + 1);
+
+                    merged[overloads.length] = (MethodNode) b;
+
+                    return merged;
+                });
+            }
+            for (int i = 0; i < fieldCount; i++) {
+                fields.putIfAbsent(fieldList.get(i).name, fieldList.get(i));
+            }
+        }
+
+        private boolean isValid(ClassNode classNode) {
+            return classNode.methods == methodList && classNode.fields == fieldList
+                    && (methodList == null ? 0 : methodList.size()) == methodCount
+                    && (fieldList == null ? 0 : fieldList.size()) == fieldCount;
+        }
+
+        private MethodNode findMethod(String name, String desc) {
+            Object overloads = methods.get(name);
+
+            if (overloads instanceof MethodNode) {
+                return ((MethodNode) overloads).desc.equals(desc) ? (MethodNode) overloads : null;
+            }
+            if (overloads != null) {
+                for (MethodNode method : (MethodNode[]) overloads) {
+                    if (method.desc.equals(desc)) return method;
+                }
+            }
+
+            return null;
+        }
+    }
+}
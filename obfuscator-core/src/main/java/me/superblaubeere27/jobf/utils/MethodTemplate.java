@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2017-2019 superblaubeere27, Sam Sun, MarcoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package me.superblaubeere27.jobf.utils;
+
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.LocalVariableNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.ParameterNode;
+import org.objectweb.asm.tree.TryCatchBlockNode;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A method which is parsed once and copied into classes many times, e.g. the decryption method of a string encryption
+ * algorithm.
+ * <p>
+ * Copies get their own instructions and labels, so they can be modified freely. Annotations are shared, local variable
+ * annotations aren't copied. The template itself is never modified, so copies can be created by several threads at the same time.
+ */
+public class MethodTemplate {
+    private final MethodNode method;
+
+    public MethodTemplate(MethodNode method) {
+        this.method = method;
+    }
+
+    /**
+     * Reads a method of a class of the obfuscator
+     *
+     * @param className the name of the class, e.g. {@code me.superblaubeere27.Foo}
+     * @param name      the name of the method
+     * @throws IOException if the class file can't be read
+     */
+    public static MethodTemplate of(String className, String name) throws IOException {
+        ClassNode classNode = NodeUtils.toNode(className);
+        MethodNode method = NodeUtils.getMethod(classNode, name);
+
+        if (method == null) throw new IOException("Method " + name + " wasn't found in " + className);
+
+        return new MethodTemplate(method);
+    }
+
+    public String getDesc() {
+        return method.desc;
+    }
+
+    /**
+     * @return a copy of the method with a new access and name
+     */
+    public MethodNode instantiate(int access, String name) {
+        MethodNode copy = new MethodNode(access, name, method.desc, method.signature, method.exceptions.toArray(new String[0]));
+
+        Map<LabelNode, LabelNode> labels = new HashMap<>();
+
+        for (AbstractInsnNode insn = method.instructions.getFirst(); insn != null; insn = insn.getNext()) {
+            if (insn instanceof LabelNode) labels.put((LabelNode) insn, new LabelNode());
+        }
+
+        for (AbstractInsnNode insn = method.instructions.getFirst(); insn != null; insn = insn.getNext()) {
+            copy.instructions.add(insn.clone(labels));
+        }
+
+        for (TryCatchBlockNode block : method.tryCatchBlocks) {
+            TryCatchBlockNode blockCopy = new TryCatchBlockNode(labels.get(block.start), labels.get(block.end), labels.get(block.handler), block.type);
+
+            blockCopy.visibleTypeAnnotations = block.visibleTypeAnnotations;
+            blockCopy.invisibleTypeAnnotations = block.invisibleTypeAnnotations;
+
+            copy.tryCatchBlocks.add(blockCopy);
+        }
+
+        if (method.localVariables != null) {
+            copy.localVariables = new ArrayList<>(method.localVariables.size());
+
+            for (LocalVariableNode variable : method.localVariables) {
+                copy.localVariables.add(new LocalVariableNode(variable.name, variable.desc, variable.signature, labels.get(variable.start), labels.get(variable.end), variable.index));
+            }
+        }
+
+        if (method.parameters != null) {
+            copy.parameters = new ArrayList<>(method.parameters.size());
+
+            for (ParameterNode parameter : method.parameters) {
+                copy.parameters.add(new ParameterNode(parameter.name, parameter.access));
+            }
+        }
+
+        copy.visibleAnnotations = method.visibleAnnotations;
+        copy.invisibleAnnotations = method.invisibleAnnotations;
+        copy.visibleTypeAnnotations = method.visibleTypeAnnotations;
+        copy.invisibleTypeAnnotations = method.invisibleTypeAnnotations;
+        copy.visibleAnnotableParameterCount = method.visibleAnnotableParameterCount;
+        copy.invisibleAnnotableParameterCount = method.invisibleAnnotableParameterCount;
+        copy.visibleParameterAnnotations = method.visibleParameterAnnotations;
+        copy.invisibleParameterAnnotations = method.invisibleParameterAnnotations;
+        copy.annotationDefault = method.annotationDefault;
+        copy.maxStack = method.maxStack;
+        copy.maxLocals = method.maxLocals;
+
+        return copy;
+    }
+}
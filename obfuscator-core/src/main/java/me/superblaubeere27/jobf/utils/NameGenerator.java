@@ -0,0 +1,349 @@
+/*
+ * Copyright (c) 2017-2019 superblaubeere27, Sam Sun, MarcoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package me.superblaubeere27.jobf.utils;
+
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FieldNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out names for one obfuscation run. All methods may be called concurrently.
+ * <p>
+ * The JVM links fields and methods by name <i>and</i> descriptor, so names are counted per descriptor:
+ * <ul>
+ * <li>Renamed member trees ({@link #methodTreeName(String)}, {@link #fieldTreeName(String)}) are unique per
+ * descriptor in the whole jar, so two trees never accidentally override or shadow each other.</li>
+ * <li>Members generated for a single class ({@link #methodName(ClassNode, String)}, ...) are counted per class and
+ * descriptor, starting after the names taken by renamed trees. They reuse the same short names in every class.</li>
+ * <li>Local variables are counted per method.</li>
+ * </ul>
+ * Random names are derived from the seed and the scope they are generated for, so the output does not depend on
+ * the order in which worker threads ask for names.
+ * <p>
+ * In compact mode names are the shortest single byte UTF-8 strings, and renamed trees of unrelated class hierarchies
+ * reuse the same names. Small, repeated names keep the constant pools of the output small.
+ */
+public final class NameGenerator {
+    private static final String COMPACT_CHARS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
+    /**
+     * Class names only use lower case letters since jars are often extracted on case insensitive file systems
+     */
+    private static final String COMPACT_CLASS_CHARS = "abcdefghijklmnopqrstuvwxyz";
+    private static final Set<String> RESERVED_FILE_NAMES = new HashSet<>(Arrays.asList("con", "prn", "aux", "nul"));
+
+    private final String chars;
+    private final boolean customDictionary;
+    private final List<String> names;
+    private final List<String> classNames;
+    private final long seed;
+    private final boolean compact;
+
+    private final Map<String, AtomicInteger> packages = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> methodTrees = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> fieldTrees = new ConcurrentHashMap<>();
+    /**
+     * Number of tree names taken per descriptor in the largest tree scope
+     */
+    private final Map<String, AtomicInteger> methodTreeSizes = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> fieldTreeSizes = new ConcurrentHashMap<>();
+    private final Set<String> reservedClasses = ConcurrentHashMap.newKeySet();
+    private final Set<String> reservedMethods = ConcurrentHashMap.newKeySet();
+    private final Set<String> reservedFields = ConcurrentHashMap.newKeySet();
+    private final Map<String, ClassScope> classScopes = new ConcurrentHashMap<>();
+
+    public NameGenerator(String chars, boolean customDictionary, List<String> names, List<String> classNames, long seed, boolean compact) {
+        if (chars.isEmpty()) throw new IllegalArgumentException("The generator chars are empty");
+
+        this.chars = chars;
+        this.customDictionary = customDictionary;
+        this.names = Collections.unmodifiableList(new ArrayList<>(names));
+        this.classNames = Collections.unmodifiableList(new ArrayList<>(classNames));
+        this.seed = seed;
+        this.compact = compact;
+    }
+
+    private static int next(Map<String, AtomicInteger> counters, String key) {
+        return counters.computeIfAbsent(key, k -> new AtomicInteger()).getAndIncrement();
+    }
+
+    private static int peek(Map<String, AtomicInteger> counters, String key) {
+        AtomicInteger counter = counters.get(key);
+
+        return counter == null ? 0 : counter.get();
+    }
+
+    private static void grow(Map<String, AtomicInteger> sizes, String key, int size) {
+        sizes.computeIfAbsent(key, k -> new AtomicInteger()).accumulateAndGet(size, Math::max);
+    }
+
+    /**
+     * Bijective base-n numbering: every string over the alphabet is produced exactly once, shortest strings first.
+     */
+    private static String shortest(int id, String alphabet) {
+        StringBuilder sb = new StringBuilder();
+        int n = alphabet.length();
+
+        do {
+            sb.append(alphabet.charAt(id % n));
+            id = id / n - 1;
+        } while (id >= 0);
+
+        return sb.toString();
+    }
+
+    private static boolean consistsOf(String s, String alphabet) {
+        for (int i = 0; i < s.length(); i++) {
+            if (alphabet.indexOf(s.charAt(i)) == -1) return false;
+        }
+        return true;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+
+    /**
+     * @return a {@link Random} which only depends on the seed and the given key. Every call returns a new instance.
+     */
+    public Random random(String key) {
+        return new Random(mix(seed ^ mix(key.hashCode())));
+    }
+
+    /**
+     * @return the {@code id}th name of the dictionary (or the generator chars)
+     */
+    public String name(int id) {
+        if (customDictionary && id < names.size()) {
+            return names.get(id);
+        }
+
+        return compact ? shortest(id, COMPACT_CHARS) : Utils.convertToBase(id, chars);
+    }
+
+    public boolean isCompact() {
+        return compact;
+    }
+
+    /**
+     * @param packageName the package in internal form without a trailing slash, empty for the default package
+     * @return a simple class name which is not used by any reserved class of the package
+     */
+    public String className(String packageName) {
+        String prefix = packageName.isEmpty() ? "" : packageName + "/";
+
+        while (true) {
+            String name = nextClassName(packageName);
+
+            if (!reservedClasses.contains((prefix + name).toLowerCase(Locale.ROOT))) return name;
+        }
+    }
+
+    private String nextClassName(String packageName) {
+        int id = next(packages, packageName);
+
+        if (customDictionary && id < classNames.size()) {
+            return classNames.get(id);
+        }
+
+        if (compact) {
+            String name = shortest(id, COMPACT_CLASS_CHARS);
+
+            return RESERVED_FILE_NAMES.contains(name) ? nextClassName(packageName) : name;
+        }
+
+        Random random = random(packageName + '/' + id);
+
+        // The first character has to be a letter, the id suffix keeps the name unique in its package
+        char firstChar = (char) ('A' + random.nextInt(26));
+
+        return firstChar + NameUtils.unicodeString(random, 4 + random.nextInt(6)) + "_" + id;
+    }
+
+    /**
+     * @return a name which is not used by any other renamed method with the same descriptor
+     */
+    public String methodTreeName(String desc) {
+        return methodTreeName("", desc);
+    }
+
+    /**
+     * @param scope trees in different scopes never share a class. Only used in compact mode, where they may reuse
+     *              each other's names.
+     * @return a name which is not used by any other renamed method in the scope with the same descriptor
+     */
+    public String methodTreeName(String scope, String desc) {
+        return treeName(methodTrees, methodTreeSizes, reservedMethods, scope, desc);
+    }
+
+    /**
+     * @return a name which is not used by any other renamed field with the same descriptor
+     */
+    public String fieldTreeName(String desc) {
+        return fieldTreeName("", desc);
+    }
+
+    public String fieldTreeName(String scope, String desc) {
+        return treeName(fieldTrees, fieldTreeSizes, reservedFields, scope, desc);
+    }
+
+    private String treeName(Map<String, AtomicInteger> trees, Map<String, AtomicInteger> sizes, Set<String> reserved, String scope, String desc) {
+        String key = compact ? scope + ' ' + desc : desc;
+
+        while (true) {
+            int id = next(trees, key);
+
+            grow(sizes, desc, id + 1);
+
+            String name = name(id);
+
+            if (!reserved.contains(name + ' ' + desc)) return name;
+        }
+    }
+
+    /**
+     * Keeps the generator from handing out the names of a class and its members, which might not be renamed
+     */
+    public void reserve(ClassNode node) {
+        reserveClass(node.name);
+
+        for (MethodNode method : node.methods) {
+            if (mayGenerate(method.name)) reserveMethod(method.name, method.desc);
+        }
+        for (FieldNode field : node.fields) {
+            if (mayGenerate(field.name)) reserveField(field.name, field.desc);
+        }
+    }
+
+    public void reserve(LibraryClass libraryClass) {
+        reserveClass(libraryClass.getName());
+
+        for (int i = 0; i < libraryClass.getMethodCount(); i++) {
+            if (mayGenerate(libraryClass.getMethodName(i))) reserveMethod(libraryClass.getMethodName(i), libraryClass.getMethodDesc(i));
+        }
+        for (int i = 0; i < libraryClass.getFieldCount(); i++) {
+            if (mayGenerate(libraryClass.getFieldName(i))) reserveField(libraryClass.getFieldName(i), libraryClass.getFieldDesc(i));
+        }
+    }
+
+    public void reserveClass(String name) {
+        reservedClasses.add(name.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Keeps the generator from handing out the name for any method with the descriptor
+     */
+    public void reserveMethod(String name, String desc) {
+        reservedMethods.add(name + ' ' + desc);
+    }
+
+    public void reserveField(String name, String desc) {
+        reservedFields.add(name + ' ' + desc);
+    }
+
+    private boolean mayGenerate(String name) {
+        return customDictionary && names.contains(name) || consistsOf(name, compact ? COMPACT_CHARS : chars);
+    }
+
+    /**
+     * @param owner internal name of the class the method is added to
+     * @param desc  descriptor of the new method
+     * @return a name which is free in the owner's scope
+     */
+    public String methodName(String owner, String desc) {
+        return scope(owner).method(desc, null);
+    }
+
+    /**
+     * Like {@link #methodName(String, String)} but also skips names the class already declares.
+     */
+    public String methodName(ClassNode owner, String desc) {
+        return scope(owner.name).method(desc, owner);
+    }
+
+    public String fieldName(String owner, String desc) {
+        return scope(owner).field(desc, null);
+    }
+
+    public String fieldName(ClassNode owner, String desc) {
+        return scope(owner.name).field(desc, owner);
+    }
+
+    public String localVariableName(String owner, String method) {
+        return name(next(scope(owner).locals, method));
+    }
+
+    /**
+     * Makes the scope of a class available under its new name.
+     */
+    public void mapClass(String old, String newName) {
+        ClassScope scope = classScopes.get(old);
+
+        if (scope != null) {
+            classScopes.putIfAbsent(newName, scope);
+        }
+    }
+
+    private ClassScope scope(String owner) {
+        return classScopes.computeIfAbsent(owner, k -> new ClassScope());
+    }
+
+    private final class ClassScope {
+        private final Map<String, AtomicInteger> methods = new ConcurrentHashMap<>();
+        private final Map<String, AtomicInteger> fields = new ConcurrentHashMap<>();
+        private final Map<String, AtomicInteger> locals = new ConcurrentHashMap<>();
+
+        private String method(String desc, ClassNode node) {
+            while (true) {
+                String name = name(peek(methodTreeSizes, desc) + next(methods, desc));
+
+                if (!reservedMethods.contains(name + ' ' + desc) && (node == null || !declaresMethod(node, name, desc)))
+                    return name;
+            }
+        }
+
+        private String field(String desc, ClassNode node) {
+            while (true) {
+                String name = name(peek(fieldTreeSizes, desc) + next(fields, desc));
+
+                if (!reservedFields.contains(name + ' ' + desc) && (node == null || !declaresField(node, name, desc)))
+                    return name;
+            }
+        }
+
+        private boolean declaresMethod(ClassNode node, String name, String desc) {
+            for (MethodNode method : node.methods) {
+                if (method.name.equals(name) && method.desc.equals(desc)) return true;
+            }
+            return false;
+        }
+
+        private boolean declaresField(ClassNode node, String name, String desc) {
+            for (FieldNode field : node.fields) {
+                if (field.name.equals(name) && field.desc.equals(desc)) return true;
+            }
+            return false;
+        }
+    }
+}
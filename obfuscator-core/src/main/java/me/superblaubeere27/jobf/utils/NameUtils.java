@@ -15,10 +15,9 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 import org.objectweb.asm.tree.ClassNode;
 
@@ -33,28 +32,37 @@ public class NameUtils {
     private final static char[] DICT_SPACES = new char[]{
             '\u2000', '\u2001', '\u2002', '\u2003', '\u2004', '\u2005', '\u2006', '\u2007', '\u2008', '\u2009', '\u200A', '\u200B', '\u200C', '\u200D', '\u200E', '\u200F'
     };
-    private static HashMap<String, Integer> packageMap = new HashMap<>();
-    private static Map<String, HashMap<String, Integer>> USED_METHODNAMES = new HashMap<>();
-    private static Map<String, Integer> USED_FIELDNAMES = new HashMap<>();
-    //    private static boolean iL = true;
-    private static int localVars = Short.MAX_VALUE;
-    private static Random random = new Random();
-    private static int METHODS = 0;
-    private static int FIELDS = 0;
     private static boolean usingCustomDictionary = false;
     private static List<String> classNames = new ArrayList<>();
     private static List<String> names = new ArrayList<>();
     private static String chars = "-_|";
+    private static long seed = 0;
+    private static boolean compact = false;
+    private static volatile NameGenerator generator;
 
-    @SuppressWarnings("SameParameterValue")
-    private static int randInt(int min, int max) {
+    private static int randInt(Random random, int min, int max) {
         return random.nextInt(max - min) + min;
     }
 
+    /**
+     * Starts a new naming run with the current settings. Every counter starts from zero again.
+     */
     public static void setup() {
-        USED_METHODNAMES.clear();
-        USED_FIELDNAMES.clear();
-        packageMap.clear();
+        generator = new NameGenerator(chars, usingCustomDictionary, names, classNames, seed, compact);
+    }
+
+    public static NameGenerator getGenerator() {
+        NameGenerator current = generator;
+
+        if (current == null) {
+            synchronized (NameUtils.class) {
+                if (generator == null) setup();
+
+                current = generator;
+            }
+        }
+
+        return current;
     }
 
     public static String generateSpaceString(int length) {
@@ -69,32 +77,8 @@ public class NameUtils {
         return generateClassName("");
     }
 
-
     public static String generateClassName(String packageName) {
-        if (!packageMap.containsKey(packageName))
-            packageMap.put(packageName, 0);
-
-        int id = packageMap.get(packageName);
-        packageMap.put(packageName, id + 1);
-
-        // Generate a random Unicode string of length 5-10 characters
-        // Use a valid Java identifier for the first character (ensuring it's a letter)
-        char firstChar = (char) ('A' + random.nextInt(26));
-        String uniqueId = firstChar + unicodeString(4 + random.nextInt(6));
-        
-        // Add a unique identifier based on ID to avoid collisions
-        return uniqueId + "_" + id;
-        
-        // Old implementation:
-        // return getName(classNames, id);
-    }
-
-    private static String getName(List<String> dictionary, int id) {
-        if (usingCustomDictionary && id < dictionary.size()) {
-            return dictionary.get(id);
-        }
-
-        return Utils.convertToBase(id, chars);
+        return getGenerator().className(packageName);
     }
 
     /**
@@ -105,6 +89,17 @@ public class NameUtils {
      * Stole this idea from NeonObf and Smoke.
      */
     public static String crazyString(int len) {
+        return crazyString(ThreadLocalRandom.current(), len);
+    }
+
+    /**
+     * Like {@link #crazyString(int)}, but the result only depends on the seed and the scope
+     */
+    public static String crazyString(String scope, int len) {
+        return crazyString(getGenerator().random(scope), len);
+    }
+
+    private static String crazyString(Random random, int len) {
         char[] buildString = new char[len];
         for (int i = 0; i < len; i++) {
             buildString[i] = DICT_SPACES[random.nextInt(DICT_SPACES.length)];
@@ -113,64 +108,67 @@ public class NameUtils {
     }
 
 
+    /**
+     * Generates a name for a method which is added to the given class.
+     */
     public static String generateMethodName(final String className, String desc) {
-//        if (!USED_METHODNAMES.containsKey(className)) {
-//            USED_METHODNAMES.put(className, new HashMap<>());
-//        }
-//
-//        HashMap<String, Integer> descMap = USED_METHODNAMES.get(className);
-//
-//        if (!descMap.containsKey(desc)) {
-//            descMap.put(desc, 0);
-//        }
-////        System.out.println("0 " + className + "/" + desc + ":" + descMap);
-//
-//        int i = descMap.get(desc);
-//
-//        descMap.put(desc, i + 1);
-//
-////        System.out.println(USED_METHODNAMES);
-//
-//
-//        String name = getName(names, i);
-//
-//        return name;
-        return getName(names, METHODS++);
+        return getGenerator().methodName(className, desc);
     }
 
+    /**
+     * Generates a name for a method which is added to the given class. Names the class already declares are skipped.
+     */
     public static String generateMethodName(final ClassNode classNode, String desc) {
-        return generateMethodName(classNode.name, desc);
+        return getGenerator().methodName(classNode, desc);
+    }
+
+    /**
+     * Generates a name for a renamed method and everything overriding it.
+     */
+    public static String generateMethodTreeName(String desc) {
+        return getGenerator().methodTreeName(desc);
+    }
+
+    /**
+     * Generates a name for a renamed method and everything overriding it. Trees of different scopes never share a
+     * class and may reuse each other's names.
+     */
+    public static String generateMethodTreeName(String scope, String desc) {
+        return getGenerator().methodTreeName(scope, desc);
     }
 
-    public static String generateFieldName(final String className) {
-//        if (!USED_FIELDNAMES.containsKey(className)) {
-//            USED_FIELDNAMES.put(className, 0);
-//        }
-//
-//        int i = USED_FIELDNAMES.get(className);
-//        USED_FIELDNAMES.put(className, i + 1);
-//
-//        return getName(names, i);
-        return getName(names, FIELDS++);
+    public static String generateFieldName(final String className, String desc) {
+        return getGenerator().fieldName(className, desc);
     }
 
-    public static String generateFieldName(final ClassNode classNode) {
-        return generateFieldName(classNode.name);
+    public static String generateFieldName(final ClassNode classNode, String desc) {
+        return getGenerator().fieldName(classNode, desc);
+    }
+
+    /**
+     * Generates a name for a renamed field and every reference to it.
+     */
+    public static String generateFieldTreeName(String desc) {
+        return getGenerator().fieldTreeName(desc);
+    }
+
+    public static String generateFieldTreeName(String scope, String desc) {
+        return getGenerator().fieldTreeName(scope, desc);
     }
 
     public static String generateLocalVariableName(final String className, final String methodName) {
-        return generateLocalVariableName();
+        return getGenerator().localVariableName(className, methodName);
     }
 
     public static String generateLocalVariableName() {
-        if (localVars == 0) {
-            localVars = Short.MAX_VALUE;
-        }
-        return Utils.convertToBase(localVars--, chars);
+        return generateLocalVariableName("", "");
     }
 
-
     public static String unicodeString(int length) {
+        return unicodeString(ThreadLocalRandom.current(), length);
+    }
+
+    public static String unicodeString(Random random, int length) {
         StringBuilder stringBuilder = new StringBuilder();
         for (int i = 0; i < length; i++) {
             // Choose from several Unicode ranges that are valid for Java identifiers
@@ -180,19 +178,19 @@ public class NameUtils {
             
             switch (choice) {
                 case 0: // Latin-1 Supplement
-                    c = (char) randInt(0x00C0, 0x00FF);
+                    c = (char) randInt(random, 0x00C0, 0x00FF);
                     break;
                 case 1: // Greek and Coptic
-                    c = (char) randInt(0x0370, 0x03FF);
+                    c = (char) randInt(random, 0x0370, 0x03FF);
                     break;
                 case 2: // Cyrillic
-                    c = (char) randInt(0x0400, 0x04FF);
+                    c = (char) randInt(random, 0x0400, 0x04FF);
                     break;
                 case 3: // CJK Unified Ideographs (Common Chinese/Japanese/Korean)
-                    c = (char) randInt(0x4E00, 0x9FFF);
+                    c = (char) randInt(random, 0x4E00, 0x9FFF);
                     break;
                 default: // Mathematical Alphanumeric Symbols
-                    c = (char) randInt(0x1D400, 0x1D7FF);
+                    c = (char) randInt(random, 0x1D400, 0x1D7FF);
                     break;
             }
             stringBuilder.append(c);
@@ -201,12 +199,7 @@ public class NameUtils {
     }
 
     public static void mapClass(String old, String newName) {
-        if (USED_METHODNAMES.containsKey(old)) {
-            USED_METHODNAMES.put(newName, USED_METHODNAMES.get(old));
-        }
-        if (USED_FIELDNAMES.containsKey(old)) {
-            USED_FIELDNAMES.put(newName, USED_FIELDNAMES.get(old));
-        }
+        getGenerator().mapClass(old, newName);
     }
 
     public static String getPackage(String in) {
@@ -233,6 +226,8 @@ public class NameUtils {
         chars = settings.getGeneratorChars().getObject();
 
         usingCustomDictionary = settings.getUseCustomDictionary().getObject();
+        seed = settings.getNameSeed().getObject().longValue();
+        compact = settings.getCompactNames().getObject();
 
         try {
             if (usingCustomDictionary) {
@@ -290,6 +285,9 @@ public class NameUtils {
         }
         names = new ArrayList<>();
         chars = "-_|";
+        seed = 0;
+        compact = false;
+        generator = null;
     }
 
     public static void setChars(String newChars) {
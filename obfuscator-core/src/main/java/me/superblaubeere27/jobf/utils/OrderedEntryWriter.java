@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2017-2019 superblaubeere27, Sam Sun, MarcoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package me.superblaubeere27.jobf.utils;
+
+import java.io.IOException;
+
+/**
+ * Writes entries which are produced by several threads as soon as possible, but in a fixed order.
+ * <p>
+ * Entry {@code i} is written once all entries before it were written. Only entries which finished before one of their
+ * predecessors are buffered, so with a shared work queue the buffer stays around the number of threads.
+ */
+public class OrderedEntryWriter {
+    private final String[] names;
+    private final byte[][] data;
+    private final EntryConsumer consumer;
+    private int next;
+
+    public OrderedEntryWriter(int count, EntryConsumer consumer) {
+        this.names = new String[count];
+        this.data = new byte[count][];
+        this.consumer = consumer;
+    }
+
+    /**
+     * Hands over entry {@code index} and writes every entry which is ready.
+     *
+     * @param entryData the data or null if the entry is skipped
+     */
+    public synchronized void complete(int index, String name, byte[] entryData) throws IOException {
+        if (names[index] != null) throw new IllegalStateException("Entry " + index + " was already completed");
+
+        names[index] = name;
+        data[index] = entryData;
+
+        while (next < names.length && names[next] != null) {
+            byte[] bytes = data[next];
+
+            // Only the name is kept to detect duplicates
+            data[next] = null;
+
+            if (bytes != null) consumer.write(names[next], bytes);
+
+            next++;
+        }
+    }
+
+    /**
+     * @return the number of entries which were written
+     */
+    public synchronized int getWritten() {
+        return next;
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void write(String name, byte[] data) throws IOException;
+    }
+}
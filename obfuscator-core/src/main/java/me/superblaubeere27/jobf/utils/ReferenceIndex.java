@@ -0,0 +1,284 @@
+/*
+ * Copyright (c) 2017-2019 superblaubeere27, Sam Sun, MarcoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package me.superblaubeere27.jobf.utils;
+
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cross-reference index of the program classes: method calls, field reads and writes, type references and class
+ * constants, in both directions.
+ * <p>
+ * The index is built in one parallel pass over all methods. Processors which rewrite the instructions of a class
+ * call {@link #update(ClassNode)} afterwards, which replaces all references of that class.
+ * <p>
+ * Member owners aren't recorded as type references, query the members instead.
+ */
+public class ReferenceIndex {
+    /**
+     * References by the class they are in
+     */
+    private final ConcurrentHashMap<String, List<Reference>> outgoing = new ConcurrentHashMap<>();
+    /**
+     * References by their target, see {@link Reference#targetKey()}
+     */
+    private final ConcurrentHashMap<String, Set<Reference>> incoming = new ConcurrentHashMap<>();
+
+    public static ReferenceIndex build(Collection<ClassNode> classes) {
+        ReferenceIndex index = new ReferenceIndex();
+
+        classes.parallelStream().forEach(index::update);
+
+        return index;
+    }
+
+    private static String memberKey(String owner, String name, String desc) {
+        return owner + '.' + name + desc;
+    }
+
+    /**
+     * @return the internal name of the class of a type, null for primitives
+     */
+    private static String className(Type type) {
+        if (type.getSort() == Type.ARRAY) type = type.getElementType();
+
+        return type.getSort() == Type.OBJECT ? type.getInternalName() : null;
+    }
+
+    /**
+     * Replaces the references of a class with the ones which are currently in its code.
+     */
+    public void update(ClassNode classNode) {
+        List<Reference> references = new ArrayList<>();
+
+        for (MethodNode method : classNode.methods) {
+            collect(classNode.name, method, references);
+        }
+
+        List<Reference> previous = outgoing.put(classNode.name, references);
+
+        if (previous != null) unlink(previous);
+
+        for (Reference reference : references) {
+            incoming.computeIfAbsent(reference.targetKey(), k -> ConcurrentHashMap.newKeySet()).add(reference);
+        }
+    }
+
+    /**
+     * Removes all references of a class
+     */
+    public void remove(String className) {
+        List<Reference> previous = outgoing.remove(className);
+
+        if (previous != null) unlink(previous);
+    }
+
+    private void unlink(List<Reference> references) {
+        for (Reference reference : references) {
+            Set<Reference> set = incoming.get(reference.targetKey());
+
+            if (set != null) set.remove(reference);
+        }
+    }
+
+    private static void collect(String owner, MethodNode method, List<Reference> references) {
+        String name = method.name;
+        String desc = method.desc;
+
+        for (TryCatchBlockNode tryCatchBlock : method.tryCatchBlocks) {
+            if (tryCatchBlock.type != null) {
+                references.add(new Reference(Kind.TYPE, Opcodes.NOP, owner, name, desc, tryCatchBlock.type, null, null));
+            }
+        }
+
+        for (AbstractInsnNode insn : method.instructions) {
+            if (insn instanceof MethodInsnNode) {
+                MethodInsnNode methodInsn = (MethodInsnNode) insn;
+
+                references.add(new Reference(Kind.CALL, insn.getOpcode(), owner, name, desc, methodInsn.owner, methodInsn.name, methodInsn.desc));
+            } else if (insn instanceof FieldInsnNode) {
+                FieldInsnNode fieldInsn = (FieldInsnNode) insn;
+                Kind kind = insn.getOpcode() == Opcodes.GETFIELD || insn.getOpcode() == Opcodes.GETSTATIC ? Kind.FIELD_READ : Kind.FIELD_WRITE;
+
+                references.add(new Reference(kind, insn.getOpcode(), owner, name, desc, fieldInsn.owner, fieldInsn.name, fieldInsn.desc));
+            } else if (insn instanceof TypeInsnNode) {
+                String type = ((TypeInsnNode) insn).desc;
+
+                // ANEWARRAY/CHECKCAST/INSTANCEOF may use array descriptors
+                if (type.startsWith("[")) type = className(Type.getType(type));
+
+                if (type != null) {
+                    references.add(new Reference(Kind.TYPE, insn.getOpcode(), owner, name, desc, type, null, null));
+                }
+            } else if (insn instanceof MultiANewArrayInsnNode) {
+                String type = className(Type.getType(((MultiANewArrayInsnNode) insn).desc));
+
+                if (type != null) {
+                    references.add(new Reference(Kind.TYPE, insn.getOpcode(), owner, name, desc, type, null, null));
+                }
+            } else if (insn instanceof LdcInsnNode && ((LdcInsnNode) insn).cst instanceof Type) {
+                Type type = (Type) ((LdcInsnNode) insn).cst;
+                String className = type.getSort() == Type.METHOD ? null : className(type);
+
+                if (className != null) {
+                    references.add(new Reference(Kind.CLASS_CONSTANT, insn.getOpcode(), owner, name, desc, className, null, null));
+                }
+            } else if (insn instanceof InvokeDynamicInsnNode) {
+                for (Object argument : ((InvokeDynamicInsnNode) insn).bsmArgs) {
+                    if (!(argument instanceof Handle)) continue;
+
+                    Handle handle = (Handle) argument;
+                    Kind kind;
+
+                    if (handle.getTag() <= Opcodes.H_GETSTATIC) kind = Kind.FIELD_READ;
+                    else if (handle.getTag() <= Opcodes.H_PUTSTATIC) kind = Kind.FIELD_WRITE;
+                    else kind = Kind.CALL;
+
+                    references.add(new Reference(kind, insn.getOpcode(), owner, name, desc, handle.getOwner(), handle.getName(), handle.getDesc()));
+                }
+            }
+        }
+    }
+
+    private Set<Reference> get(String key) {
+        Set<Reference> references = incoming.get(key);
+
+        return references == null ? Collections.emptySet() : Collections.unmodifiableSet(references);
+    }
+
+    private List<Reference> filter(Set<Reference> references, Kind kind) {
+        List<Reference> result = new ArrayList<>();
+
+        for (Reference reference : references) {
+            if (reference.kind == kind) result.add(reference);
+        }
+
+        return result;
+    }
+
+    /**
+     * @return the calls of the method, including method handles in invokedynamic instructions
+     */
+    public List<Reference> getCallers(String owner, String name, String desc) {
+        return filter(get(memberKey(owner, name, desc)), Kind.CALL);
+    }
+
+    public List<Reference> getReaders(String owner, String name, String desc) {
+        return filter(get(memberKey(owner, name, desc)), Kind.FIELD_READ);
+    }
+
+    public List<Reference> getWriters(String owner, String name, String desc) {
+        return filter(get(memberKey(owner, name, desc)), Kind.FIELD_WRITE);
+    }
+
+    /**
+     * @return type instructions, catch blocks and class constants which reference the class
+     */
+    public Set<Reference> getTypeReferences(String className) {
+        return get(className);
+    }
+
+    /**
+     * @return all references of a class
+     */
+    public List<Reference> getReferences(String className) {
+        List<Reference> references = outgoing.get(className);
+
+        return references == null ? Collections.emptyList() : Collections.unmodifiableList(references);
+    }
+
+    /**
+     * @return the references in a method
+     */
+    public List<Reference> getReferences(String className, String methodName, String methodDesc) {
+        List<Reference> result = new ArrayList<>();
+
+        for (Reference reference : getReferences(className)) {
+            if (reference.isIn(methodName, methodDesc)) result.add(reference);
+        }
+
+        return result;
+    }
+
+    public enum Kind {
+        CALL,
+        FIELD_READ,
+        FIELD_WRITE,
+        /**
+         * Type instructions, array creations and catch blocks
+         */
+        TYPE,
+        /**
+         * {@code ldc} of a class
+         */
+        CLASS_CONSTANT
+    }
+
+    public static final class Reference {
+        public final Kind kind;
+        /**
+         * The opcode of the instruction, {@link Opcodes#NOP} for catch blocks
+         */
+        public final int opcode;
+        /**
+         * The class and method which contain the reference. The method is kept by name, since its node is replaced
+         * when the class is parsed again.
+         */
+        public final String className;
+        public final String methodName;
+        public final String methodDesc;
+        /**
+         * The referenced class or owner of the member
+         */
+        public final String owner;
+        /**
+         * Null for type references
+         */
+        public final String name;
+        public final String desc;
+
+        private Reference(Kind kind, int opcode, String className, String methodName, String methodDesc, String owner, String name, String desc) {
+            this.kind = kind;
+            this.opcode = opcode;
+            this.className = className;
+            this.methodName = methodName;
+            this.methodDesc = methodDesc;
+            this.owner = owner;
+            this.name = name;
+            this.desc = desc;
+        }
+
+        /**
+         * @return if the reference is in that method of {@link #className}
+         */
+        public boolean isIn(String methodName, String methodDesc) {
+            return this.methodName.equals(methodName) && this.methodDesc.equals(methodDesc);
+        }
+
+        private String targetKey() {
+            return name == null ? owner : memberKey(owner, name, desc);
+        }
+
+        @Override
+        public String toString() {
+            return className + "." + methodName + methodDesc + " -> " + kind + " " + targetKey();
+        }
+    }
+}
@@ -0,0 +1,629 @@
+/*
+ * Copyright (c) 2017-2019 superblaubeere27, Sam Sun, MarcoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package me.superblaubeere27.jobf.utils;
+
+import me.superblaubeere27.jobf.utils.scheduler.TimeBudget;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.*;
+import org.objectweb.asm.tree.analysis.AnalyzerException;
+import org.objectweb.asm.tree.analysis.SourceInterpreter;
+import org.objectweb.asm.tree.analysis.SourceValue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Finds the instructions which produced the values on the operand stack, like an
+ * {@link org.objectweb.asm.tree.analysis.Analyzer} with a {@link SourceInterpreter}, but without a frame per
+ * instruction.
+ * <p>
+ * Sources on the stack never depend on local variables (a load is the source of the loaded value), so only the stack
+ * is tracked, and only at the start of each basic block. Sources are sorted arrays of instruction indices. A query
+ * replays the block of the instruction from its start. Queries in the same block in instruction order continue where
+ * the previous one stopped, so walking a method costs one pass.
+ * <p>
+ * Methods with {@code JSR}/{@code RET} aren't supported. Not thread-safe because of the query position.
+ */
+public final class StackAnalysis implements Opcodes {
+    private static final int[] NONE = new int[0];
+
+    private final InsnList instructions;
+    private final AbstractInsnNode[] insns;
+    private final int[] blockStart;
+    private final int[] blockOf;
+    /**
+     * Handlers of the try-catch blocks which cover each block
+     */
+    private final int[][] blockHandlers;
+
+    /**
+     * The stack at the start of each block, null if the block is unreachable
+     */
+    private final Stack[] entries;
+
+    private int queryBlock = -1;
+    private int queryIndex;
+    private Stack queryStack;
+
+    private StackAnalysis(MethodNode method) throws AnalyzerException {
+        instructions = method.instructions;
+        insns = instructions.toArray();
+
+        int n = insns.length;
+        boolean[] leader = new boolean[n + 1];
+
+        if (n > 0) leader[0] = true;
+
+        for (TryCatchBlockNode tryCatchBlock : method.tryCatchBlocks) {
+            leader[instructions.indexOf(tryCatchBlock.start)] = true;
+            leader[instructions.indexOf(tryCatchBlock.end)] = true;
+            leader[instructions.indexOf(tryCatchBlock.handler)] = true;
+        }
+
+        for (int i = 0; i < n; i++) {
+            AbstractInsnNode insn = insns[i];
+            int opcode = insn.getOpcode();
+
+            if (opcode == JSR || opcode == RET) throw new AnalyzerException(insn, "JSR/RET are not supported");
+
+            if (insn instanceof JumpInsnNode) {
+                leader[instructions.indexOf(((JumpInsnNode) insn).label)] = true;
+            } else if (insn instanceof TableSwitchInsnNode) {
+                leader[instructions.indexOf(((TableSwitchInsnNode) insn).dflt)] = true;
+
+                for (LabelNode label : ((TableSwitchInsnNode) insn).labels) leader[instructions.indexOf(label)] = true;
+            } else if (insn instanceof LookupSwitchInsnNode) {
+                leader[instructions.indexOf(((LookupSwitchInsnNode) insn).dflt)] = true;
+
+                for (LabelNode label : ((LookupSwitchInsnNode) insn).labels) leader[instructions.indexOf(label)] = true;
+            }
+
+            if (insn instanceof JumpInsnNode || insn instanceof TableSwitchInsnNode || insn instanceof LookupSwitchInsnNode
+                    || opcode >= IRETURN && opcode <= RETURN || opcode == ATHROW) {
+                leader[i + 1] = true;
+            }
+        }
+
+        int blocks = 0;
+
+        for (int i = 0; i < n; i++) if (leader[i]) blocks++;
+
+        blockStart = new int[blocks + 1];
+        blockOf = new int[n];
+
+        for (int i = 0, block = -1; i < n; i++) {
+            if (leader[i]) blockStart[++block] = i;
+
+            blockOf[i] = block;
+        }
+
+        blockStart[blocks] = n;
+        blockHandlers = new int[blocks][];
+
+        for (int block = 0; block < blocks; block++) {
+            int start = blockStart[block];
+            int[] handlers = NONE;
+
+            for (TryCatchBlockNode tryCatchBlock : method.tryCatchBlocks) {
+                if (instructions.indexOf(tryCatchBlock.start) <= start && start < instructions.indexOf(tryCatchBlock.end)) {
+                    handlers = Arrays.copyOf(handlers, handlers.length + 1);
+                    handlers[handlers.length - 1] = blockOf[instructions.indexOf(tryCatchBlock.handler)];
+                }
+            }
+
+            blockHandlers[block] = handlers;
+        }
+
+        entries = new Stack[blocks];
+
+        if (blocks > 0) solve();
+    }
+
+    /**
+     * @throws AnalyzerException if the stack heights don't match or the method uses subroutines
+     */
+    public static StackAnalysis analyze(MethodNode method) throws AnalyzerException {
+        return new StackAnalysis(method);
+    }
+
+    private static int[] union(int[] a, int[] b) {
+        if (a == b || b.length == 0) return a;
+        if (a.length == 0) return b;
+
+        int[] result = new int[a.length + b.length];
+        int i = 0, j = 0, k = 0;
+
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) result[k++] = a[i++];
+            else if (a[i] > b[j]) result[k++] = b[j++];
+            else {
+                result[k++] = a[i++];
+                j++;
+            }
+        }
+        while (i < a.length) result[k++] = a[i++];
+        while (j < b.length) result[k++] = b[j++];
+
+        return k == result.length ? result : Arrays.copyOf(result, k);
+    }
+
+    private void solve() throws AnalyzerException {
+        int[] worklist = new int[entries.length];
+        boolean[] queued = new boolean[entries.length];
+        int size = 0;
+
+        entries[0] = new Stack();
+        worklist[size++] = 0;
+        queued[0] = true;
+
+        while (size > 0) {
+            TimeBudget.check();
+
+            int block = worklist[--size];
+            queued[block] = false;
+
+            for (int handler : blockHandlers[block]) {
+                Stack exception = new Stack();
+
+                // The caught exception has no source
+                exception.push(1, NONE);
+
+                if (merge(handler, exception) && !queued[handler]) {
+                    queued[handler] = true;
+                    worklist[size++] = handler;
+                }
+            }
+
+            Stack stack = entries[block].copy();
+            int end = blockStart[block + 1];
+
+            for (int i = blockStart[block]; i < end; i++) {
+                execute(i, stack);
+            }
+
+            AbstractInsnNode last = insns[end - 1];
+            int opcode = last.getOpcode();
+
+            int[] successors;
+
+            if (last instanceof JumpInsnNode) {
+                int target = blockOf[instructions.indexOf(((JumpInsnNode) last).label)];
+
+                successors = opcode == GOTO || end == insns.length ? new int[]{target} : new int[]{target, block + 1};
+            } else if (last instanceof TableSwitchInsnNode) {
+                successors = switchTargets(((TableSwitchInsnNode) last).dflt, ((TableSwitchInsnNode) last).labels);
+            } else if (last instanceof LookupSwitchInsnNode) {
+                successors = switchTargets(((LookupSwitchInsnNode) last).dflt, ((LookupSwitchInsnNode) last).labels);
+            } else if (opcode >= IRETURN && opcode <= RETURN || opcode == ATHROW || end == insns.length) {
+                successors = NONE;
+            } else {
+                successors = new int[]{block + 1};
+            }
+
+            for (int successor : successors) {
+                if (merge(successor, stack) && !queued[successor]) {
+                    queued[successor] = true;
+                    worklist[size++] = successor;
+                }
+            }
+        }
+    }
+
+    private int[] switchTargets(LabelNode dflt, List<LabelNode> labels) {
+        int[] targets = new int[labels.size() + 1];
+
+        targets[0] = blockOf[instructions.indexOf(dflt)];
+
+        for (int i = 0; i < labels.size(); i++) targets[i + 1] = blockOf[instructions.indexOf(labels.get(i))];
+
+        return targets;
+    }
+
+    /**
+     * @return if the entry of the block changed
+     */
+    private boolean merge(int block, Stack stack) throws AnalyzerException {
+        Stack entry = entries[block];
+
+        if (entry == null) {
+            entries[block] = stack.copy();
+            return true;
+        }
+
+        if (entry.depth != stack.depth)
+            throw new AnalyzerException(insns[blockStart[block]], "Incompatible stack heights");
+
+        boolean changed = false;
+
+        for (int i = 0; i < entry.depth; i++) {
+            int[] merged = union(entry.sources[i], stack.sources[i]);
+
+            if (merged != entry.sources[i] || entry.sizes[i] > stack.sizes[i]) {
+                entry.sources[i] = merged;
+                entry.sizes[i] = Math.min(entry.sizes[i], stack.sizes[i]);
+                changed = true;
+            }
+        }
+
+        return changed;
+    }
+
+    private void execute(int index, Stack stack) {
+        AbstractInsnNode insn = insns[index];
+        int opcode = insn.getOpcode();
+        int[] self = {index};
+
+        switch (opcode) {
+            case -1:
+            case NOP:
+            case IINC:
+            case GOTO:
+            case RETURN:
+                break;
+            case ACONST_NULL:
+            case ICONST_M1:
+            case ICONST_0:
+            case ICONST_1:
+            case ICONST_2:
+            case ICONST_3:
+            case ICONST_4:
+            case ICONST_5:
+            case FCONST_0:
+            case FCONST_1:
+            case FCONST_2:
+            case BIPUSH:
+            case SIPUSH:
+            case ILOAD:
+            case FLOAD:
+            case ALOAD:
+            case NEW:
+                stack.push(1, self);
+                break;
+            case LCONST_0:
+            case LCONST_1:
+            case DCONST_0:
+            case DCONST_1:
+            case LLOAD:
+            case DLOAD:
+                stack.push(2, self);
+                break;
+            case LDC: {
+                Object cst = ((LdcInsnNode) insn).cst;
+
+                stack.push(cst instanceof Long || cst instanceof Double ? 2 : 1, self);
+                break;
+            }
+            case IALOAD:
+            case FALOAD:
+            case AALOAD:
+            case BALOAD:
+            case CALOAD:
+            case SALOAD:
+                stack.pop(2);
+                stack.push(1, self);
+                break;
+            case LALOAD:
+            case DALOAD:
+                stack.pop(2);
+                stack.push(2, self);
+                break;
+            case ISTORE:
+            case LSTORE:
+            case FSTORE:
+            case DSTORE:
+            case ASTORE:
+            case POP:
+            case IFEQ:
+            case IFNE:
+            case IFLT:
+            case IFGE:
+            case IFGT:
+            case IFLE:
+            case IFNULL:
+            case IFNONNULL:
+            case TABLESWITCH:
+            case LOOKUPSWITCH:
+            case IRETURN:
+            case LRETURN:
+            case FRETURN:
+            case DRETURN:
+            case ARETURN:
+            case ATHROW:
+            case PUTSTATIC:
+            case MONITORENTER:
+            case MONITOREXIT:
+                stack.pop(1);
+                break;
+            case IASTORE:
+            case LASTORE:
+            case FASTORE:
+            case DASTORE:
+            case AASTORE:
+            case BASTORE:
+            case CASTORE:
+            case SASTORE:
+                stack.pop(3);
+                break;
+            case POP2:
+                stack.pop(stack.topSize() == 2 ? 1 : 2);
+                break;
+            case DUP:
+            case DUP_X1:
+            case DUP_X2:
+            case DUP2:
+            case DUP2_X1:
+            case DUP2_X2:
+            case SWAP:
+                executeStackOperation(opcode, self, stack);
+                break;
+            case IF_ICMPEQ:
+            case IF_ICMPNE:
+            case IF_ICMPLT:
+            case IF_ICMPGE:
+            case IF_ICMPGT:
+            case IF_ICMPLE:
+            case IF_ACMPEQ:
+            case IF_ACMPNE:
+            case PUTFIELD:
+                stack.pop(2);
+                break;
+            case LCMP:
+            case FCMPL:
+            case FCMPG:
+            case DCMPL:
+            case DCMPG:
+                stack.pop(2);
+                stack.push(1, self);
+                break;
+            case I2L:
+            case I2D:
+            case L2D:
+            case F2L:
+            case F2D:
+            case D2L:
+            case LNEG:
+            case DNEG:
+                stack.pop(1);
+                stack.push(2, self);
+                break;
+            case INEG:
+            case FNEG:
+            case L2I:
+            case L2F:
+            case I2F:
+            case F2I:
+            case D2I:
+            case D2F:
+            case I2B:
+            case I2C:
+            case I2S:
+            case NEWARRAY:
+            case ANEWARRAY:
+            case ARRAYLENGTH:
+            case CHECKCAST:
+            case INSTANCEOF:
+                stack.pop(1);
+                stack.push(1, self);
+                break;
+            case GETSTATIC:
+                stack.push(Type.getType(((FieldInsnNode) insn).desc).getSize(), self);
+                break;
+            case GETFIELD:
+                stack.pop(1);
+                stack.push(Type.getType(((FieldInsnNode) insn).desc).getSize(), self);
+                break;
+            case INVOKEVIRTUAL:
+            case INVOKESPECIAL:
+            case INVOKESTATIC:
+            case INVOKEINTERFACE:
+                invoke(((MethodInsnNode) insn).desc, opcode != INVOKESTATIC, self, stack);
+                break;
+            case INVOKEDYNAMIC:
+                invoke(((InvokeDynamicInsnNode) insn).desc, false, self, stack);
+                break;
+            case MULTIANEWARRAY:
+                stack.pop(((MultiANewArrayInsnNode) insn).dims);
+                stack.push(1, self);
+                break;
+            default:
+                if (opcode >= IADD && opcode <= LXOR) {
+                    // Binary arithmetic, the long and double variants push two words
+                    boolean wide = opcode <= DREM ? (opcode - IADD) % 2 == 1 : opcode >= ISHL && opcode % 2 == 1;
+
+                    stack.pop(2);
+                    stack.push(wide ? 2 : 1, self);
+                    break;
+                }
+
+                throw new IllegalArgumentException("Unsupported opcode " + opcode);
+        }
+    }
+
+    private static void invoke(String desc, boolean hasReceiver, int[] self, Stack stack) {
+        stack.pop(Type.getArgumentTypes(desc).length + (hasReceiver ? 1 : 0));
+
+        int returnSize = Type.getReturnType(desc).getSize();
+
+        if (returnSize > 0) stack.push(returnSize, self);
+    }
+
+    /**
+     * Copies are produced by the instruction itself, see {@link SourceInterpreter#copyOperation}
+     */
+    private static void executeStackOperation(int opcode, int[] self, Stack stack) {
+        int size1 = stack.topSize();
+
+        switch (opcode) {
+            case DUP:
+                stack.push(1, self);
+                break;
+            case SWAP: {
+                stack.pop(1);
+
+                int size2 = stack.topSize();
+
+                stack.pop(1);
+                stack.push(size1, self);
+                stack.push(size2, self);
+                break;
+            }
+            case DUP_X1:
+                stack.insert(2, size1, self);
+                break;
+            case DUP_X2:
+                stack.insert(stack.sizeAt(1) == 2 ? 2 : 3, size1, self);
+                break;
+            case DUP2:
+                if (size1 == 2) {
+                    stack.push(2, self);
+                } else {
+                    int size2 = stack.sizeAt(1);
+
+                    stack.push(size2, self);
+                    stack.push(size1, self);
+                }
+                break;
+            case DUP2_X1:
+                if (size1 == 2) {
+                    stack.insert(2, size1, self);
+                } else {
+                    stack.insert(3, stack.sizeAt(1), self);
+                    stack.insert(3, size1, self);
+                }
+                break;
+            case DUP2_X2:
+                if (size1 == 2) {
+                    stack.insert(stack.sizeAt(1) == 2 ? 2 : 3, size1, self);
+                } else {
+                    int below = stack.sizeAt(2) == 2 ? 3 : 4;
+
+                    stack.insert(below, stack.sizeAt(1), self);
+                    stack.insert(below, size1, self);
+                }
+                break;
+        }
+    }
+
+    private Stack stackBefore(AbstractInsnNode insn) {
+        int index = instructions.indexOf(insn);
+        int block = blockOf[index];
+
+        if (entries[block] == null) return null;
+
+        if (block != queryBlock || queryIndex > index) {
+            queryBlock = block;
+            queryIndex = blockStart[block];
+            queryStack = entries[block].copy();
+        }
+
+        while (queryIndex < index) execute(queryIndex++, queryStack);
+
+        return queryStack;
+    }
+
+    /**
+     * @return the number of values on the stack before the instruction or -1 if it is unreachable
+     */
+    public int getStackSize(AbstractInsnNode insn) {
+        Stack stack = stackBefore(insn);
+
+        return stack == null ? -1 : stack.depth;
+    }
+
+    /**
+     * Like {@link org.objectweb.asm.tree.analysis.Frame#getStack(int)} of the frame before the instruction.
+     *
+     * @param index the index of the value, 0 is the bottom of the stack
+     * @return the value or null if the instruction is unreachable
+     */
+    public SourceValue getStack(AbstractInsnNode insn, int index) {
+        Stack stack = stackBefore(insn);
+
+        if (stack == null) return null;
+        if (index < 0 || index >= stack.depth) throw new IndexOutOfBoundsException("Stack index " + index + " of " + stack.depth);
+
+        int[] sources = stack.sources[index];
+        Set<AbstractInsnNode> set = new HashSet<>();
+
+        for (int source : sources) set.add(insns[source]);
+
+        return new SourceValue(stack.sizes[index], set);
+    }
+
+    public boolean isReachable(AbstractInsnNode insn) {
+        return entries[blockOf[instructions.indexOf(insn)]] != null;
+    }
+
+    private static final class Stack {
+        private int[][] sources = new int[8][];
+        private int[] sizes = new int[8];
+        private int depth;
+
+        private Stack copy() {
+            Stack copy = new Stack();
+
+            copy.sources = Arrays.copyOf(sources, Math.max(8, depth));
+            copy.sizes = Arrays.copyOf(sizes, Math.max(8, depth));
+            copy.depth = depth;
+
+            return copy;
+        }
+
+        private void push(int size, int[] source) {
+            if (depth == sizes.length) {
+                sources = Arrays.copyOf(sources, depth * 2);
+                sizes = Arrays.copyOf(sizes, depth * 2);
+            }
+
+            sources[depth] = source;
+            sizes[depth++] = size;
+        }
+
+        private void pop(int count) {
+            if (count > depth) throw new IllegalStateException("Cannot pop operand off an empty stack.");
+
+            depth -= count;
+        }
+
+        private int topSize() {
+            return sizeAt(0);
+        }
+
+        /**
+         * @param fromTop 0 for the top of the stack
+         */
+        private int sizeAt(int fromTop) {
+            if (fromTop >= depth) throw new IllegalStateException("Cannot pop operand off an empty stack.");
+
+            return sizes[depth - 1 - fromTop];
+        }
+
+        /**
+         * Inserts a value below the top {@code below} values
+         */
+        private void insert(int below, int size, int[] source) {
+            if (below > depth) throw new IllegalStateException("Cannot pop operand off an empty stack.");
+
+            push(size, source);
+
+            int position = depth - 1 - below;
+
+            System.arraycopy(sources, position, sources, position + 1, below);
+            System.arraycopy(sizes, position, sizes, position + 1, below);
+
+            sources[position] = source;
+            sizes[position] = size;
+        }
+    }
+}
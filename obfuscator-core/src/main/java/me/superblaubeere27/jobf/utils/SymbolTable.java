@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2017-2019 superblaubeere27, Sam Sun, MarcoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package me.superblaubeere27.jobf.utils;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Thread-safe table which deduplicates class names, member names and descriptors.
+ * <p>
+ * Symbols are canonicalized with {@link String#intern()} when they are first added, so an interned symbol is the same
+ * instance as an equal string literal in the code. Comparisons can check identity first, but have to fall back to
+ * {@link String#equals(Object)} since transformers create new strings.
+ */
+public class SymbolTable {
+    private final ConcurrentHashMap<String, String> symbols = new ConcurrentHashMap<>();
+
+    /**
+     * @return the canonical instance of the symbol, null for null
+     */
+    public String intern(String symbol) {
+        if (symbol == null) return null;
+
+        String interned = symbols.get(symbol);
+
+        if (interned != null) return interned;
+
+        interned = symbol.intern();
+
+        String previous = symbols.putIfAbsent(interned, interned);
+
+        return previous == null ? interned : previous;
+    }
+
+    /**
+     * Interns all elements of the array in place.
+     *
+     * @return the array
+     */
+    public String[] intern(String[] symbols) {
+        if (symbols != null) {
+            for (int i = 0; i < symbols.length; i++) {
+                symbols[i] = intern(symbols[i]);
+            }
+        }
+
+        return symbols;
+    }
+
+    public int size() {
+        return symbols.size();
+    }
+}
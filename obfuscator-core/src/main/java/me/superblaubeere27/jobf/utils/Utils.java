@@ -77,7 +77,16 @@ public class Utils {
     public static ClassNode lookupClass(String name) {
         ClassWrapper a = JObfImpl.INSTANCE.getClassPath().get(name);
 
-        if (a != null) return a.classNode;
+        if (a != null && a.classNode != null) return a.classNode;
+
+        // Classes which were serialized to stay in the heap budget or weren't parsed yet are read again, changes to them are lost
+        ClassNode spilled = JObfImpl.INSTANCE.getSpilledClass(name);
+
+        if (spilled != null) return spilled;
+
+        ClassNode libraryNode = JObfImpl.INSTANCE.getLibraryNode(name);
+
+        if (libraryNode != null) return libraryNode;
 
         return JObfImpl.getClasses().get(name);
     }
@@ -88,22 +97,13 @@ public class Utils {
 
 
     public static MethodNode getMethod(ClassNode cls, String name, String desc, boolean parentClasses) {
-        for (MethodNode method : cls.methods) {
-            if (method.name.equals(name) && method.desc.equals(desc))
-                return method;
-        }
+        MemberIndex members = JObfImpl.INSTANCE.getMembers();
 
-        ClassNode lookup = parentClasses ? lookupClass(cls.superName) : null;
-
-        return lookup == null || cls.name.equals("java/lang/Object") ? null : getMethod(lookup, name, desc, true);
+        return parentClasses ? members.resolveMethod(cls, name, desc, Utils::lookupClass) : members.getMethod(cls, name, desc);
     }
 
     public static FieldNode getField(ClassNode cls, String name) {
-        for (FieldNode method : cls.fields) {
-            if (method.name.equals(name))
-                return method;
-        }
-        return null;
+        return JObfImpl.INSTANCE.getMembers().getField(cls, name);
     }
 
     private static boolean isNotInstruction(AbstractInsnNode node) {
@@ -188,8 +188,31 @@ public class Utils {
         return labelNodeHashMap;
     }
 
+    /**
+     * @param s {@code owner.name:desc}
+     */
     public static boolean matchMethodNode(MethodInsnNode methodInsnNode, String s) {
-        return s.equals(methodInsnNode.owner + "." + methodInsnNode.name + ":" + methodInsnNode.desc);
+        String owner = methodInsnNode.owner;
+        String name = methodInsnNode.name;
+        String desc = methodInsnNode.desc;
+
+        if (s.length() != owner.length() + name.length() + desc.length() + 2) return false;
+
+        int nameStart = owner.length() + 1;
+        int descStart = nameStart + name.length() + 1;
+
+        return s.charAt(nameStart - 1) == '.' && s.charAt(descStart - 1) == ':'
+                && s.startsWith(desc, descStart) && s.startsWith(name, nameStart) && s.startsWith(owner);
+    }
+
+    /**
+     * Names which were interned through a {@link SymbolTable} are the same instance as equal literals,
+     * so the usual case is decided by identity.
+     */
+    public static boolean matchMethodNode(MethodInsnNode methodInsnNode, String owner, String name, String desc) {
+        return (methodInsnNode.name == name || methodInsnNode.name.equals(name))
+                && (methodInsnNode.owner == owner || methodInsnNode.owner.equals(owner))
+                && (methodInsnNode.desc == desc || methodInsnNode.desc.equals(desc));
     }
 
     public static String chooseDirectory(final File currFolder, final Component parent) {
@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2017-2019 superblaubeere27, Sam Sun, MarcoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package me.superblaubeere27.jobf.utils.mapping;
+
+import org.objectweb.asm.Type;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+
+/**
+ * Reads and writes mappings in the format of ProGuard's {@code -printmapping}:
+ * <pre>
+ * com.example.Main -> a:
+ *     int counter -> a
+ *     void run(java.lang.String[],int) -> b
+ * </pre>
+ * Types and class names use Java notation. Line number ranges of ProGuard/R8 mappings are accepted and ignored.
+ */
+public final class ProGuardMapping {
+    private static final String ARROW = " -> ";
+
+    private ProGuardMapping() {
+    }
+
+    /**
+     * Reads a mapping, reporting every class and member to the visitor in file order.
+     * Malformed lines are skipped.
+     */
+    public static void read(BufferedReader reader, Visitor visitor) throws IOException {
+        String line;
+        boolean inClass = false;
+
+        while ((line = reader.readLine()) != null) {
+            if (line.isEmpty() || line.trim().startsWith("#")) continue;
+
+            int arrow = line.indexOf(ARROW);
+
+            if (arrow == -1) continue;
+
+            if (!Character.isWhitespace(line.charAt(0))) {
+                if (!line.endsWith(":")) {
+                    inClass = false;
+                    continue;
+                }
+
+                visitor.visitClass(line.substring(0, arrow).trim(), line.substring(arrow + ARROW.length(), line.length() - 1).trim());
+                inClass = true;
+                continue;
+            }
+
+            if (inClass) readMember(line.substring(0, arrow).trim(), line.substring(arrow + ARROW.length()).trim(), visitor);
+        }
+    }
+
+    private static void readMember(String member, String obfuscated, Visitor visitor) {
+        // Leading line number ranges, e.g. "12:15:void run()"
+        while (!member.isEmpty() && Character.isDigit(member.charAt(0))) {
+            int colon = member.indexOf(':');
+
+            if (colon == -1) return;
+
+            member = member.substring(colon + 1);
+        }
+
+        int space = member.indexOf(' ');
+
+        if (space == -1) return;
+
+        String type = member.substring(0, space);
+        String rest = member.substring(space + 1);
+        int open = rest.indexOf('(');
+
+        if (open == -1) {
+            visitor.visitField(type, rest, obfuscated);
+            return;
+        }
+
+        int close = rest.indexOf(')', open);
+
+        if (close == -1) return;
+
+        String name = rest.substring(0, open);
+
+        // Members inlined from other classes are qualified with their owner. They don't belong to this class.
+        if (name.indexOf('.') != -1) return;
+
+        visitor.visitMethod(type, name, rest.substring(open + 1, close), obfuscated);
+    }
+
+    /**
+     * @param type a type in Java notation, e.g. {@code java.lang.String[]}
+     * @return the descriptor of the type
+     */
+    public static String toDescriptor(String type) {
+        StringBuilder sb = new StringBuilder();
+
+        while (type.endsWith("[]")) {
+            sb.append('[');
+            type = type.substring(0, type.length() - 2);
+        }
+
+        switch (type) {
+            case "void":
+                return sb.append('V').toString();
+            case "boolean":
+                return sb.append('Z').toString();
+            case "byte":
+                return sb.append('B').toString();
+            case "char":
+                return sb.append('C').toString();
+            case "short":
+                return sb.append('S').toString();
+            case "int":
+                return sb.append('I').toString();
+            case "long":
+                return sb.append('J').toString();
+            case "float":
+                return sb.append('F').toString();
+            case "double":
+                return sb.append('D').toString();
+            default:
+                return sb.append('L').append(type.replace('.', '/')).append(';').toString();
+        }
+    }
+
+    /**
+     * @param returnType the return type in Java notation
+     * @param arguments  the comma separated argument types in Java notation
+     * @return the method descriptor
+     */
+    public static String toMethodDescriptor(String returnType, String arguments) {
+        StringBuilder sb = new StringBuilder("(");
+
+        if (!arguments.isEmpty()) {
+            for (String argument : arguments.split(",")) {
+                sb.append(toDescriptor(argument.trim()));
+            }
+        }
+
+        return sb.append(')').append(toDescriptor(returnType)).toString();
+    }
+
+    /**
+     * @return the Java notation of a type
+     */
+    public static String toJavaType(Type type) {
+        return type.getClassName();
+    }
+
+    /**
+     * Receives the entries of a mapping. Class names and types use Java notation.
+     */
+    public interface Visitor {
+        void visitClass(String original, String obfuscated);
+
+        void visitField(String type, String original, String obfuscated);
+
+        /**
+         * @param arguments the comma separated argument types
+         */
+        void visitMethod(String returnType, String original, String arguments, String obfuscated);
+    }
+
+    /**
+     * Writes a mapping. Members belong to the last visited class.
+     */
+    public static class MappingWriter implements Visitor, Closeable {
+        private final PrintWriter out;
+
+        public MappingWriter(Writer writer) {
+            this.out = new PrintWriter(writer);
+        }
+
+        @Override
+        public void visitClass(String original, String obfuscated) {
+            out.print(original);
+            out.print(ARROW);
+            out.print(obfuscated);
+            out.println(':');
+        }
+
+        @Override
+        public void visitField(String type, String original, String obfuscated) {
+            out.print("    ");
+            out.print(type);
+            out.print(' ');
+            out.print(original);
+            out.print(ARROW);
+            out.println(obfuscated);
+        }
+
+        @Override
+        public void visitMethod(String returnType, String original, String arguments, String obfuscated) {
+            out.print("    ");
+            out.print(returnType);
+            out.print(' ');
+            out.print(original);
+            out.print('(');
+            out.print(arguments);
+            out.print(')');
+            out.print(ARROW);
+            out.println(obfuscated);
+        }
+
+        /**
+         * Writes a field given by its descriptor.
+         */
+        public void writeField(String desc, String original, String obfuscated) {
+            visitField(toJavaType(Type.getType(desc)), original, obfuscated);
+        }
+
+        /**
+         * Writes a method given by its descriptor.
+         */
+        public void writeMethod(String desc, String original, String obfuscated) {
+            StringBuilder arguments = new StringBuilder();
+
+            for (Type argument : Type.getArgumentTypes(desc)) {
+                if (arguments.length() > 0) arguments.append(',');
+
+                arguments.append(toJavaType(argument));
+            }
+
+            visitMethod(toJavaType(Type.getReturnType(desc)), original, arguments.toString(), obfuscated);
+        }
+
+        @Override
+        public void close() {
+            out.close();
+        }
+
+        public void flush() throws IOException {
+            out.flush();
+
+            if (out.checkError()) throw new IOException("Failed to write mapping");
+        }
+    }
+}
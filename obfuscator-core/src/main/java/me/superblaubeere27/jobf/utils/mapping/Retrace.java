@@ -0,0 +1,321 @@
+/*
+ * Copyright (c) 2017-2019 superblaubeere27, Sam Sun, MarcoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package me.superblaubeere27.jobf.utils.mapping;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Restores original names in stack traces and logs using a {@link ProGuardMapping}.
+ * <p>
+ * Input is processed line by line in a single pass. Stack frames ({@code at owner.method(Source)}) get their owner
+ * and method restored. In all other text, obfuscated class names are replaced if they contain a package or nested class
+ * separator or if they are in a place where a class name is expected: the exception of a stack trace header
+ * ({@code Caused by: a: message}) and both sides of {@code cannot be cast to}. Short obfuscated names like {@code a}
+ * are ordinary words elsewhere, they are only replaced if {@link #setReplaceBareNames(boolean) enabled}. Tokens are
+ * looked up directly in the input line without copying them. If several methods of a class share an obfuscated name
+ * (overloads), all candidates are printed, separated by {@code |}.
+ */
+public class Retrace {
+    private static final boolean[] ASCII_DELIMITERS = new boolean[128];
+    private static final String CAST = "cannot be cast to ";
+
+    static {
+        for (char c : "\"'()[]{}<>,:;=@/\\".toCharArray()) ASCII_DELIMITERS[c] = true;
+        for (char c = 0; c < 128; c++) {
+            if (Character.isWhitespace(c)) ASCII_DELIMITERS[c] = true;
+        }
+    }
+
+    private final NameTable classes;
+    private final Map<String, Map<String, String>> methods;
+    private boolean replaceBareNames;
+
+    private Retrace(NameTable classes, Map<String, Map<String, String>> methods) {
+        this.classes = classes;
+        this.methods = methods;
+    }
+
+    /**
+     * Builds the lookup index of a mapping.
+     */
+    public static Retrace load(BufferedReader mapping) throws IOException {
+        Map<String, String> classes = new HashMap<>();
+        Map<String, Map<String, String>> methods = new HashMap<>();
+
+        ProGuardMapping.read(mapping, new ProGuardMapping.Visitor() {
+            private Map<String, String> current;
+
+            @Override
+            public void visitClass(String original, String obfuscated) {
+                classes.put(obfuscated, original);
+                current = methods.computeIfAbsent(obfuscated, k -> new HashMap<>());
+            }
+
+            @Override
+            public void visitField(String type, String original, String obfuscated) {
+            }
+
+            @Override
+            public void visitMethod(String returnType, String original, String arguments, String obfuscated) {
+                current.merge(obfuscated, original, (a, b) -> ("|" + a + "|").contains("|" + b + "|") ? a : a + "|" + b);
+            }
+        });
+
+        return new Retrace(new NameTable(classes), methods);
+    }
+
+    /**
+     * @param replaceBareNames whether class names without a separator are replaced anywhere in the text
+     */
+    public void setReplaceBareNames(boolean replaceBareNames) {
+        this.replaceBareNames = replaceBareNames;
+    }
+
+    private static boolean isDelimiter(char c) {
+        if (c < 128) return ASCII_DELIMITERS[c];
+
+        return Character.isWhitespace(c);
+    }
+
+    /**
+     * Retraces everything the reader provides.
+     */
+    public void retrace(BufferedReader in, Writer out) throws IOException {
+        String line;
+
+        while ((line = in.readLine()) != null) {
+            retraceLine(line, out);
+            out.write('\n');
+        }
+
+        out.flush();
+    }
+
+    /**
+     * @return the retraced line
+     */
+    public String retraceLine(String line) {
+        StringWriter writer = new StringWriter(line.length() + 16);
+
+        try {
+            retraceLine(line, writer);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+
+        return writer.toString();
+    }
+
+    /**
+     * Unchanged parts of the line are written as ranges of the line, so only replaced names cost anything.
+     */
+    private void retraceLine(String line, Writer out) throws IOException {
+        int start = 0;
+
+        while (start < line.length() && Character.isWhitespace(line.charAt(start))) start++;
+
+        if (line.startsWith("at ", start) && retraceFrame(line, start + 3, out)) return;
+
+        int written = retraceText(line, 0, line.length(), 0, headerStart(line, start), out);
+
+        out.write(line, written, line.length() - written);
+    }
+
+    /**
+     * Retraces {@code [module/]owner.method(Source)}
+     *
+     * @return false if the line is no stack frame
+     */
+    private boolean retraceFrame(String line, int start, Writer out) throws IOException {
+        int open = line.indexOf('(', start);
+
+        if (open == -1 || line.indexOf(')', open) == -1) return false;
+
+        // Class loader and module names, e.g. "app//" or "java.base/"
+        int classStart = line.lastIndexOf('/', open) + 1;
+
+        if (classStart <= start) classStart = start;
+
+        int dot = line.lastIndexOf('.', open);
+
+        if (dot < classStart) return false;
+
+        String owner = classes.get(line, classStart, dot);
+
+        // Every class of the mapping is listed, even if it kept its name
+        if (owner == null) return false;
+
+        Map<String, String> members = methods.get(line.substring(classStart, dot));
+        String method = members == null ? null : members.get(line.substring(dot + 1, open));
+
+        out.write(line, 0, classStart);
+        out.write(owner);
+        out.write('.');
+        out.write(method != null ? method : line.substring(dot + 1, open));
+        out.write(line, open, line.length() - open);
+        return true;
+    }
+
+    /**
+     * @return the index of the exception class if the line is a stack trace header, e.g. {@code Caused by: a: message}
+     */
+    private static int headerStart(String line, int start) {
+        if (line.startsWith("Exception in thread \"", start)) {
+            int quote = line.indexOf("\" ", start + 21);
+
+            return quote == -1 ? -1 : quote + 2;
+        }
+
+        if (line.startsWith("Caused by: ", start)) return start + 11;
+        if (line.startsWith("Suppressed: ", start)) return start + 12;
+
+        return start;
+    }
+
+    /**
+     * @return true if {@code line[from, to)} is a class name in an exception header or cast message
+     */
+    private static boolean isClassNameContext(String line, int from, int to, int headerStart) {
+        // The exception class is followed by the message or ends the line
+        if (from == headerStart && (to == line.length() || line.charAt(to) == ':')) return true;
+
+        // "a cannot be cast to b" and "class a cannot be cast to class b (...)"
+        if (line.startsWith(CAST, to + 1) && line.charAt(to) == ' ') return true;
+
+        int before = line.startsWith("class ", from - 6) ? from - 6 : from;
+
+        return line.startsWith(CAST, before - CAST.length());
+    }
+
+    /**
+     * @return true if {@code line[from, to)} contains a package or nested class separator
+     */
+    private static boolean hasSeparator(String line, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = line.charAt(i);
+
+            if (c == '.' || c == '$') return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Replaces obfuscated class names in {@code line[from, to)}
+     *
+     * @param written     everything before this index was already written
+     * @param headerStart the index of the exception class if the line is a stack trace header
+     * @return the index up to which the line was written
+     */
+    private int retraceText(String line, int from, int to, int written, int headerStart, Writer out) throws IOException {
+        int i = from;
+
+        while (i < to) {
+            if (isDelimiter(line.charAt(i))) {
+                i++;
+                continue;
+            }
+
+            int end = i + 1;
+
+            while (end < to && !isDelimiter(line.charAt(end))) end++;
+
+            // Class names at the end of a sentence
+            int trimmed = end;
+
+            while (trimmed > i + 1 && line.charAt(trimmed - 1) == '.') trimmed--;
+
+            String original = classes.get(line, i, trimmed);
+
+            if (original == null && trimmed != end) {
+                original = classes.get(line, i, end);
+                trimmed = end;
+            }
+
+            if (original != null && !replaceBareNames && !hasSeparator(line, i, trimmed) && !isClassNameContext(line, i, trimmed, headerStart)) {
+                original = null;
+            }
+
+            if (original != null) {
+                out.write(line, written, i - written);
+                out.write(original);
+
+                written = trimmed;
+            }
+
+            i = end;
+        }
+
+        return written;
+    }
+
+    /**
+     * Open addressing hash table which can be queried with a range of a {@link CharSequence}.
+     */
+    private static final class NameTable {
+        private final String[] keys;
+        private final String[] values;
+        private final int mask;
+
+        private NameTable(Map<String, String> map) {
+            int capacity = Integer.highestOneBit(Math.max(map.size(), 1) * 2 - 1) << 1;
+
+            keys = new String[capacity];
+            values = new String[capacity];
+            mask = capacity - 1;
+
+            for (Map.Entry<String, String> entry : map.entrySet()) {
+                String key = entry.getKey();
+                int slot = hash(key, 0, key.length()) & mask;
+
+                while (keys[slot] != null) slot = (slot + 1) & mask;
+
+                keys[slot] = key;
+                values[slot] = entry.getValue();
+            }
+        }
+
+        private static int hash(CharSequence s, int from, int to) {
+            int h = 0;
+
+            for (int i = from; i < to; i++) h = 31 * h + s.charAt(i);
+
+            return h ^ (h >>> 16);
+        }
+
+        private static boolean regionEquals(String key, CharSequence s, int from, int to) {
+            if (key.length() != to - from) return false;
+
+            for (int i = 0; i < key.length(); i++) {
+                if (key.charAt(i) != s.charAt(from + i)) return false;
+            }
+            return true;
+        }
+
+        private String get(CharSequence s, int from, int to) {
+            int slot = hash(s, from, to) & mask;
+            String key;
+
+            while ((key = keys[slot]) != null) {
+                if (regionEquals(key, s, from, to)) return values[slot];
+
+                slot = (slot + 1) & mask;
+            }
+
+            return null;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2017-2019 superblaubeere27, Sam Sun, MarcoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package me.superblaubeere27.jobf.utils.scheduler;
+
+/**
+ * Limits the time a worker spends on a class and on every processor of it.
+ * <p>
+ * Threads can't be stopped safely, so long-running loops (e.g. walking the instructions of a method) call
+ * {@link #check()}, which throws a {@link TimeBudgetExceededException} once the budget of the current thread is used
+ * up. The worker then restores the class and continues without the processor, or keeps the class as it was if the
+ * whole class is over its budget.
+ * <p>
+ * A budget belongs to one worker and is only checked by the thread which {@link #startClass() started} it.
+ */
+public class TimeBudget {
+    private static final ThreadLocal<TimeBudget> CURRENT = new ThreadLocal<>();
+
+    private final long classBudget;
+    private final long processorBudget;
+
+    private long classStart;
+    private long processorStart;
+    private String processor;
+    private boolean exceeded;
+
+    /**
+     * @param classBudget     the milliseconds a class may take, 0 for no limit
+     * @param processorBudget the milliseconds a processor may take on a class, 0 for no limit
+     */
+    public TimeBudget(long classBudget, long processorBudget) {
+        this.classBudget = classBudget * 1_000_000L;
+        this.processorBudget = processorBudget * 1_000_000L;
+    }
+
+    /**
+     * Throws if the budget of the current thread is used up. Cheap enough to be called every few hundred
+     * instructions, does nothing if the thread has no budget.
+     */
+    public static void check() {
+        TimeBudget budget = CURRENT.get();
+
+        if (budget != null) budget.checkExceeded();
+    }
+
+    /**
+     * Starts the budget of a new class on the current thread
+     */
+    public void startClass() {
+        classStart = System.nanoTime();
+        processor = null;
+        exceeded = false;
+
+        CURRENT.set(this);
+    }
+
+    public void startProcessor(String processor) {
+        this.processor = processor;
+        this.processorStart = System.nanoTime();
+        this.exceeded = false;
+    }
+
+    /**
+     * Stops checking the budget on the current thread
+     */
+    public void finish() {
+        CURRENT.remove();
+    }
+
+    private void checkExceeded() {
+        long now = System.nanoTime();
+
+        if (isClassExceeded(now) || processor != null && processorBudget > 0 && now - processorStart > processorBudget) {
+            exceeded = true;
+
+            throw new TimeBudgetExceededException(processor, isClassExceeded(now));
+        }
+    }
+
+    /**
+     * @return if {@link #check()} threw since the current processor was started. Processors might have caught the
+     * exception.
+     */
+    public boolean isExceeded() {
+        return exceeded;
+    }
+
+    public boolean isClassExceeded() {
+        return isClassExceeded(System.nanoTime());
+    }
+
+    private boolean isClassExceeded(long now) {
+        return classBudget > 0 && now - classStart > classBudget;
+    }
+
+    public boolean isEnabled() {
+        return classBudget > 0 || processorBudget > 0;
+    }
+}
@@ -8,46 +8,32 @@
  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
  */
 
-package me.superblaubeere27.jobf.utils;
-
-import me.superblaubeere27.jobf.processors.name.ClassWrapper;
-
-import java.util.HashSet;
-import java.util.Set;
+package me.superblaubeere27.jobf.utils.scheduler;
 
 /**
- * Used to keep information on the hierarchy of all loaded classes.
- *
- * @author ItzSomebody
+ * Thrown by {@link TimeBudget#check()} if a class or processor took longer than it may
  */
-public class ClassTree {
-    /**
-     * Attached ClassWrapper.
-     */
-    public ClassWrapper classWrapper;
+public class TimeBudgetExceededException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
 
-    /**
-     * Names of classes this represented class inherits from.
-     */
-    public Set<String> parentClasses = new HashSet<>();
+    private final String processor;
+    private final boolean classExceeded;
 
-    /**
-     * Names of classes this represented class is inherited by.
-     */
-    public Set<String> subClasses = new HashSet<>();
+    public TimeBudgetExceededException(String processor, boolean classExceeded) {
+        super((classExceeded ? "Time budget of the class" : "Time budget of " + processor) + " exceeded");
 
-    /**
-     * If one of the super-classes is missing this is set to true.
-     * It prevents methods from being remapped.
-     */
-    public boolean missingSuperClass;
+        this.processor = processor;
+        this.classExceeded = classExceeded;
+    }
 
     /**
-     * Creates a ClassTree object.
-     *
-     * @param classWrapper the ClassWraper attached to this ClassTree.
+     * @return the name of the processor which was running or null
      */
-    public ClassTree(ClassWrapper classWrapper) {
-        this.classWrapper = classWrapper;
+    public String getProcessor() {
+        return processor;
+    }
+
+    public boolean isClassExceeded() {
+        return classExceeded;
     }
-}
\ No newline at end of file
+}
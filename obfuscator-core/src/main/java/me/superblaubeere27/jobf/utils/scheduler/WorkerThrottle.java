@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2017-2019 superblaubeere27, Sam Sun, MarcoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package me.superblaubeere27.jobf.utils.scheduler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+
+/**
+ * Limits how many workers process classes at the same time, depending on the heap pressure.
+ * <p>
+ * Workers {@link #acquire(int) acquire} a weight before they process a class and {@link #release(int) release} it
+ * afterwards. Every {@link #SAMPLE_INTERVAL} milliseconds the heap occupancy and the share of the time spent in
+ * garbage collection are sampled. The occupancy is the old generation after its last collection, so garbage which
+ * wasn't collected yet doesn't count: under pressure the limit is halved, once the pressure is gone it grows by one
+ * worker per sample. Large classes weigh more, so fewer of them are processed in parallel. A worker always gets
+ * its weight if no other worker is active, so huge classes can't starve.
+ */
+public class WorkerThrottle {
+    private static final Logger log = LoggerFactory.getLogger(WorkerThrottle.class);
+    private static final long SAMPLE_INTERVAL = 250;
+    /**
+     * Classes get one more unit of weight per this many instructions
+     */
+    private static final int INSTRUCTIONS_PER_WEIGHT = 20000;
+    /**
+     * Like {@link #INSTRUCTIONS_PER_WEIGHT} for classes which weren't parsed yet
+     */
+    private static final int BYTES_PER_WEIGHT = 64 * 1024;
+    private static final double HIGH_OCCUPANCY = 0.85;
+    private static final double LOW_OCCUPANCY = 0.6;
+    private static final double HIGH_GC_TIME = 0.2;
+    private static final double LOW_GC_TIME = 0.05;
+
+    private final int maxWorkers;
+    /**
+     * null if the collector has no such pool, the whole heap is sampled then
+     */
+    private final MemoryPoolMXBean oldGeneration = findOldGeneration();
+    private int limit;
+    private int active;
+
+    private long lastSample;
+    private long lastGcTime;
+
+    public WorkerThrottle(int maxWorkers) {
+        this.maxWorkers = Math.max(1, maxWorkers);
+        this.limit = this.maxWorkers;
+        this.lastSample = System.currentTimeMillis();
+        this.lastGcTime = getGcTime();
+    }
+
+    private static long getGcTime() {
+        long time = 0;
+
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            // -1 if the collector doesn't support it
+            time += Math.max(0, collector.getCollectionTime());
+        }
+
+        return time;
+    }
+
+    private static MemoryPoolMXBean findOldGeneration() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            // Eden and survivor spaces don't support usage thresholds
+            if (pool.getType() == MemoryType.HEAP && pool.isUsageThresholdSupported() && pool.isCollectionUsageThresholdSupported()) {
+                return pool;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @return the share of the heap which was still used after the last collection
+     */
+    private double getOccupancy() {
+        MemoryUsage usage = oldGeneration == null ? null : oldGeneration.getCollectionUsage();
+
+        if (usage == null) usage = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+
+        long max = usage.getMax() == -1 ? usage.getCommitted() : usage.getMax();
+
+        return max <= 0 ? 0 : (double) usage.getUsed() / max;
+    }
+
+    /**
+     * @param instructions the number of instructions of the class
+     * @return the weight of a class, at most the number of workers
+     */
+    public int weight(int instructions) {
+        return Math.min(maxWorkers, 1 + instructions / INSTRUCTIONS_PER_WEIGHT);
+    }
+
+    /**
+     * Like {@link #weight(int)}, so a class can be weighed before it is parsed.
+     *
+     * @param length the size of the class file
+     */
+    public int weightOfClassFile(int length) {
+        return Math.min(maxWorkers, 1 + length / BYTES_PER_WEIGHT);
+    }
+
+    /**
+     * Blocks until the weight fits into the current limit.
+     */
+    public synchronized void acquire(int weight) throws InterruptedException {
+        while (true) {
+            sample();
+
+            if (active == 0 || active + weight <= limit) break;
+
+            wait(SAMPLE_INTERVAL);
+        }
+
+        active += weight;
+    }
+
+    public synchronized void release(int weight) {
+        active -= weight;
+
+        notifyAll();
+    }
+
+    private void sample() {
+        long now = System.currentTimeMillis();
+
+        if (now - lastSample < SAMPLE_INTERVAL) return;
+
+        long gcTime = getGcTime();
+
+        update(getOccupancy(), (double) (gcTime - lastGcTime) / (now - lastSample));
+
+        lastSample = now;
+        lastGcTime = gcTime;
+    }
+
+    /**
+     * Adjusts the limit to a sample.
+     *
+     * @param occupancy      the used share of the maximum heap size
+     * @param gcTimeFraction the share of the time since the last sample which was spent in garbage collection
+     */
+    public synchronized void update(double occupancy, double gcTimeFraction) {
+        int previous = limit;
+
+        if (occupancy > HIGH_OCCUPANCY || gcTimeFraction > HIGH_GC_TIME) {
+            limit = Math.max(1, limit / 2);
+        } else if (occupancy < LOW_OCCUPANCY && gcTimeFraction < LOW_GC_TIME) {
+            limit = Math.min(maxWorkers, limit + 1);
+        }
+
+        if (limit != previous) {
+            log.info(String.format("Heap occupancy %.0f%%, %.0f%% GC time: processing with %s threads", occupancy * 100, gcTimeFraction * 100, limit));
+
+            notifyAll();
+        }
+    }
+
+    public synchronized int getLimit() {
+        return limit;
+    }
+
+    public synchronized int getActive() {
+        return active;
+    }
+}
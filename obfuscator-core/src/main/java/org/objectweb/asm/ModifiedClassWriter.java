@@ -10,6 +10,7 @@
 package org.objectweb.asm;
 
 
+import me.superblaubeere27.jobf.JObfImpl;
 import me.superblaubeere27.jobf.ObfuscatorClassLoader;
 
 /**
@@ -35,4 +36,12 @@ public class ModifiedClassWriter extends ClassWriter {
     protected ClassLoader getClassLoader() {
         return ObfuscatorClassLoader.INSTANCE;
     }
+
+    @Override
+    protected String getCommonSuperClass(String type1, String type2) {
+        // Answered from the class hierarchy, the classes are only loaded if it is incomplete
+        String common = JObfImpl.INSTANCE.getCommonSuperClass(type1, type2);
+
+        return common != null ? common : super.getCommonSuperClass(type1, type2);
+    }
 }
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2017-2019 superblaubeere27, Sam Sun, MarcoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package me.superblaubeere27;
+
+import me.superblaubeere27.jobf.utils.AnalysisCache;
+import org.junit.Test;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.*;
+import org.objectweb.asm.tree.analysis.Frame;
+import org.objectweb.asm.tree.analysis.SourceValue;
+
+import static org.junit.Assert.*;
+
+public class AnalysisCacheTest {
+    @Test
+    public void test_cache() throws Exception {
+        MethodNode method = new MethodNode(Opcodes.ACC_STATIC, "test", "()V", null, null);
+
+        method.instructions.add(new InsnNode(Opcodes.ICONST_0));
+        method.instructions.add(new InsnNode(Opcodes.POP));
+        method.instructions.add(new InsnNode(Opcodes.RETURN));
+        method.maxStack = 1;
+
+        AnalysisCache cache = new AnalysisCache();
+        Frame<SourceValue>[] frames = cache.getSourceFrames("Test", method);
+
+        assertEquals(3, frames.length);
+        assertSame(frames, cache.getSourceFrames("Test", method));
+        assertEquals(1, method.maxStack);
+
+        // Same size, but a different instruction
+        method.instructions.set(method.instructions.getFirst(), new InsnNode(Opcodes.ICONST_1));
+
+        Frame<SourceValue>[] changed = cache.getSourceFrames("Test", method);
+
+        assertNotSame(frames, changed);
+        assertSame(changed, cache.getSourceFrames("Test", method));
+
+        cache.invalidate(method);
+
+        assertNotSame(changed, cache.getSourceFrames("Test", method));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void test_changedOperands() throws Exception {
+        MethodNode method = new MethodNode(Opcodes.ACC_STATIC, "test", "(I)V", null, null);
+        LabelNode first = new LabelNode();
+        LabelNode second = new LabelNode();
+        VarInsnNode load = new VarInsnNode(Opcodes.ILOAD, 0);
+        LdcInsnNode ldc = new LdcInsnNode(1);
+        TableSwitchInsnNode tableSwitch = new TableSwitchInsnNode(0, 0, first, first);
+
+        method.instructions.add(load);
+        method.instructions.add(tableSwitch);
+        method.instructions.add(first);
+        method.instructions.add(ldc);
+        method.instructions.add(new InsnNode(Opcodes.POP));
+        method.instructions.add(new InsnNode(Opcodes.RETURN));
+        method.instructions.add(second);
+        method.instructions.add(new InsnNode(Opcodes.RETURN));
+
+        AnalysisCache cache = new AnalysisCache();
+        Frame<SourceValue>[] frames = cache.getSourceFrames("Test", method);
+
+        // The instructions stay the same, only their operands change
+        load.var = 1;
+        assertNotSame(frames, frames = cache.getSourceFrames("Test", method));
+
+        ldc.cst = "1";
+        assertNotSame(frames, frames = cache.getSourceFrames("Test", method));
+
+        tableSwitch.labels.set(0, second);
+        assertNotSame(frames, frames = cache.getSourceFrames("Test", method));
+
+        tableSwitch.dflt = second;
+        assertNotSame(frames, frames = cache.getSourceFrames("Test", method));
+
+        assertSame(frames, cache.getSourceFrames("Test", method));
+    }
+}
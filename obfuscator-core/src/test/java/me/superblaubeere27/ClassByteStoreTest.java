@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2017-2019 superblaubeere27, Sam Sun, MarcoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package me.superblaubeere27;
+
+import me.superblaubeere27.jobf.utils.ByteArena;
+import me.superblaubeere27.jobf.utils.ClassByteStore;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ClassByteStoreTest {
+    @Test
+    public void test_putAndGet() {
+        Random random = new Random(1);
+        byte[][] entries = new byte[1000][];
+
+        try (ClassByteStore store = new ClassByteStore()) {
+            for (int i = 0; i < entries.length; i++) {
+                entries[i] = new byte[random.nextInt(20000)];
+                random.nextBytes(entries[i]);
+
+                assertEquals(i, store.put(entries[i]));
+            }
+
+            // Larger than a segment
+            byte[] large = new byte[(1 << 26) + 1];
+            large[large.length - 1] = 42;
+
+            int index = store.put(large);
+
+            for (int i = 0; i < entries.length; i++) {
+                assertArrayEquals(entries[i], store.get(i));
+            }
+
+            ByteBuffer slice = store.slice(index);
+
+            assertTrue(slice.isReadOnly());
+            assertEquals(large.length, slice.remaining());
+            assertEquals(42, slice.get(large.length - 1));
+            assertEquals(large.length, store.length(index));
+            assertEquals(entries.length + 1, store.size());
+        }
+    }
+
+    @Test
+    public void test_arena() {
+        Random random = new Random(2);
+        ByteArena arena = new ByteArena(0);
+
+        try (ClassByteStore store = new ClassByteStore()) {
+            for (int size : new int[]{10, 5000, 100, 70000, 0}) {
+                byte[] bytes = new byte[size + 20];
+                random.nextBytes(bytes);
+
+                int index = store.put(bytes, 10, size);
+
+                store.get(index, arena);
+
+                assertEquals(size, arena.getLength());
+                assertArrayEquals(Arrays.copyOfRange(bytes, 10, 10 + size), arena.toByteArray());
+            }
+
+            // The buffer only grows
+            assertTrue(arena.getBuffer().length >= 70000);
+        }
+    }
+
+    @Test
+    public void test_arenaReadFully() throws Exception {
+        Random random = new Random(3);
+        ByteArena arena = new ByteArena(16);
+
+        for (int size : new int[]{0, 16, 1000, 3}) {
+            byte[] bytes = new byte[size];
+            random.nextBytes(bytes);
+
+            arena.readFully(new ByteArrayInputStream(bytes));
+
+            assertArrayEquals(bytes, arena.toByteArray());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void test_closed() {
+        ClassByteStore store = new ClassByteStore();
+
+        store.put(new byte[]{1});
+        store.close();
+        store.get(0);
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2017-2019 superblaubeere27, Sam Sun, MarcoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package me.superblaubeere27;
+
+import me.superblaubeere27.jobf.processors.name.ClassWrapper;
+import me.superblaubeere27.jobf.utils.ClassByteStore;
+import me.superblaubeere27.jobf.utils.ClassHierarchy;
+import me.superblaubeere27.jobf.utils.LibraryClass;
+import me.superblaubeere27.jobf.utils.SymbolTable;
+import org.junit.Test;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class ClassHierarchyTest {
+    private static int add(ClassHierarchy hierarchy, int access, String name, String superName, String... interfaces) {
+        ClassNode node = new ClassNode();
+
+        node.access = access;
+        node.name = name;
+        node.superName = superName;
+        node.interfaces = Arrays.asList(interfaces);
+
+        hierarchy.record(new ClassWrapper(node, false, new byte[0]));
+        hierarchy.complete();
+
+        return hierarchy.find(name);
+    }
+
+    private static ClassHierarchy create() {
+        ClassHierarchy hierarchy = new ClassHierarchy();
+
+        add(hierarchy, Opcodes.ACC_PUBLIC, "java/lang/Object", null);
+        add(hierarchy, Opcodes.ACC_INTERFACE, "I", "java/lang/Object");
+        add(hierarchy, Opcodes.ACC_INTERFACE, "J", "java/lang/Object", "I");
+        add(hierarchy, Opcodes.ACC_PUBLIC, "A", "java/lang/Object");
+        add(hierarchy, Opcodes.ACC_PUBLIC, "B", "A", "J");
+        add(hierarchy, Opcodes.ACC_PUBLIC, "C", "B");
+        add(hierarchy, Opcodes.ACC_PUBLIC, "D", "A");
+
+        return hierarchy;
+    }
+
+    @Test
+    public void test_subTypes() {
+        ClassHierarchy hierarchy = create();
+        int a = hierarchy.find("A"), b = hierarchy.find("B"), c = hierarchy.find("C"), i = hierarchy.find("I");
+
+        assertTrue(hierarchy.isSubType(c, a));
+        assertTrue(hierarchy.isSubType(c, i));
+        assertTrue(hierarchy.isSubType(c, c));
+        assertFalse(hierarchy.isSubType(a, c));
+        assertFalse(hierarchy.isSubType(hierarchy.find("D"), i));
+
+        assertArrayEquals(new int[]{a, hierarchy.find("J")}, hierarchy.getParents(b));
+        assertEquals(3, hierarchy.getSubTypes(a).cardinality());
+        assertArrayEquals(new int[]{b, hierarchy.find("D")}, hierarchy.getSubClasses(a));
+
+        // Classes added later show up as subclasses
+        int e = add(hierarchy, Opcodes.ACC_PUBLIC, "E", "C");
+
+        assertTrue(hierarchy.getSubTypes(a).get(e));
+        assertTrue(hierarchy.getSuperTypes(e).get(i));
+    }
+
+    @Test
+    public void test_commonSuperClass() {
+        ClassHierarchy hierarchy = create();
+
+        assertEquals("A", hierarchy.getCommonSuperClass("C", "D"));
+        assertEquals("B", hierarchy.getCommonSuperClass("B", "C"));
+        assertEquals("I", hierarchy.getCommonSuperClass("C", "I"));
+        assertEquals("java/lang/Object", hierarchy.getCommonSuperClass("D", "I"));
+        assertNull(hierarchy.getCommonSuperClass("C", "Missing"));
+
+        hierarchy.rename(Collections.singletonMap("C", "x"));
+
+        assertEquals("A", hierarchy.getCommonSuperClass("x", "D"));
+        assertEquals(-1, hierarchy.find("C"));
+    }
+
+    @Test
+    public void test_missingSuperClasses() {
+        ClassHierarchy hierarchy = create();
+
+        add(hierarchy, Opcodes.ACC_PUBLIC, "F", "Missing");
+        add(hierarchy, Opcodes.ACC_PUBLIC, "G", "F");
+
+        int g = add(hierarchy, Opcodes.ACC_PUBLIC, "H", "A", "G");
+
+        assertTrue(hierarchy.isMissingSuperClass(g));
+        assertEquals("Missing", hierarchy.findMissingClass(g));
+        assertFalse(hierarchy.isMissingSuperClass(hierarchy.find("C")));
+
+        // Adding the class later resolves it
+        add(hierarchy, Opcodes.ACC_PUBLIC, "Missing", "java/lang/Object");
+
+        assertFalse(hierarchy.isMissingSuperClass(g));
+    }
+
+    @Test
+    public void test_deepHierarchy() {
+        ClassHierarchy hierarchy = new ClassHierarchy();
+        int depth = 100000;
+
+        for (int i = 0; i < depth; i++) {
+            ClassNode node = new ClassNode();
+
+            node.name = "C" + i;
+            node.superName = i == 0 ? null : "C" + (i - 1);
+
+            hierarchy.record(new ClassWrapper(node, false, new byte[0]));
+        }
+
+        hierarchy.complete();
+
+        int last = hierarchy.find("C" + (depth - 1));
+
+        assertEquals(depth - 1, hierarchy.getSuperTypes(last).cardinality());
+        assertEquals(depth - 1, hierarchy.getSubTypes(hierarchy.find("C0")).cardinality());
+        assertTrue(hierarchy.isSubType(last, hierarchy.find("C0")));
+    }
+
+    @Test
+    public void test_concurrentQueries() throws Exception {
+        ClassHierarchy hierarchy = create();
+        int c = hierarchy.find("C");
+        int i = hierarchy.find("I");
+        AtomicBoolean failed = new AtomicBoolean();
+        Thread[] readers = new Thread[4];
+
+        for (int t = 0; t < readers.length; t++) {
+            readers[t] = new Thread(() -> {
+                for (int n = 0; n < 20000; n++) {
+                    if (!hierarchy.isSubType(c, i) || !"A".equals(hierarchy.getCommonSuperClass("C", "D"))) failed.set(true);
+                }
+            });
+            readers[t].start();
+        }
+
+        // Classes are added while the other threads query the hierarchy
+        for (int n = 0; n < 2000; n++) {
+            add(hierarchy, Opcodes.ACC_PUBLIC, "E" + n, "C");
+        }
+
+        for (Thread reader : readers) reader.join();
+
+        assertFalse(failed.get());
+        assertEquals(2000 + 1, hierarchy.getSubTypes(hierarchy.find("B")).cardinality());
+    }
+
+    @Test
+    public void test_libraryClass() throws Exception {
+        SymbolTable symbols = new SymbolTable();
+        ClassByteStore classBytes = new ClassByteStore();
+        LibraryClass string = LibraryClass.read(readClass("java/lang/String"), symbols, classBytes);
+        LibraryClass integer = LibraryClass.read(readClass("java/lang/Integer"), symbols, classBytes);
+        LibraryClass number = LibraryClass.read(readClass("java/lang/Number"), symbols, classBytes);
+
+        assertEquals("java/lang/String", string.getName());
+        assertSame(string.getSuperName(), number.getSuperName());
+        assertSame(number.getName(), integer.getSuperName());
+        assertNotEquals(-1, string.findMethod("length", "()I"));
+        assertEquals(-1, string.findMethod("length", "()J"));
+        assertNotEquals(-1, integer.findField("MAX_VALUE", null));
+
+        ClassHierarchy hierarchy = new ClassHierarchy();
+
+        hierarchy.record(string);
+        hierarchy.record(LibraryClass.read(readClass("java/lang/Object"), symbols, classBytes));
+        hierarchy.complete();
+
+        int id = hierarchy.find("java/lang/String");
+
+        assertTrue(hierarchy.isLibrary(id));
+        assertSame(string, hierarchy.getLibraryClass(id));
+        assertNull(hierarchy.getClassWrapper(id));
+        assertEquals(hierarchy.find("java/lang/Object"), hierarchy.getSuperClass(id));
+        assertEquals(-1, hierarchy.getSuperClass(hierarchy.find("java/lang/Object")));
+
+        classBytes.close();
+    }
+
+    @Test
+    public void test_inputSkeleton() throws Exception {
+        SymbolTable symbols = new SymbolTable();
+        ClassByteStore classBytes = new ClassByteStore();
+        LibraryClass library = LibraryClass.read(readClass("java/lang/String"), symbols, classBytes);
+        LibraryClass input = LibraryClass.read(readClass("java/lang/String"), symbols, classBytes);
+
+        ClassHierarchy hierarchy = new ClassHierarchy();
+
+        hierarchy.record(library);
+        hierarchy.recordInput(input);
+        hierarchy.record(LibraryClass.read(readClass("java/lang/Object"), symbols, classBytes));
+        hierarchy.complete();
+
+        int id = hierarchy.find("java/lang/String");
+
+        // Input classes win over libraries
+        assertFalse(hierarchy.isLibrary(id));
+        assertSame(input, hierarchy.getLibraryClass(id));
+        assertNull(hierarchy.getClassWrapper(id));
+        assertTrue(hierarchy.isLibrary(hierarchy.find("java/lang/Object")));
+        assertTrue(hierarchy.isSubType(id, hierarchy.find("java/lang/Object")));
+
+        classBytes.close();
+    }
+
+    private static byte[] readClass(String name) throws IOException {
+        try (InputStream in = ClassLoader.getSystemResourceAsStream(name + ".class")) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+
+            while ((read = in.read(buffer)) != -1) out.write(buffer, 0, read);
+
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2017-2019 superblaubeere27, Sam Sun, MarcoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package me.superblaubeere27;
+
+import me.superblaubeere27.jobf.utils.ClassSummary;
+import org.junit.Test;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.*;
+
+import static org.junit.Assert.*;
+
+public class ClassSummaryTest {
+    @Test
+    public void test_summary() {
+        ClassNode node = new ClassNode();
+
+        node.name = "Test";
+        node.access = Opcodes.ACC_PUBLIC;
+        node.fields.add(new FieldNode(Opcodes.ACC_STATIC, "a", "Ljava/lang/String;", null, "value"));
+        node.fields.add(new FieldNode(0, "b", "I", null, 1));
+
+        MethodNode method = new MethodNode(Opcodes.ACC_STATIC, "<clinit>", "()V", null, null);
+
+        method.instructions.add(new LdcInsnNode("test"));
+        method.instructions.add(new LdcInsnNode(5L));
+        method.instructions.add(new InsnNode(Opcodes.POP2));
+        method.instructions.add(new InsnNode(Opcodes.POP));
+        method.instructions.add(new InsnNode(Opcodes.RETURN));
+
+        node.methods.add(method);
+
+        ClassSummary summary = ClassSummary.of(node);
+
+        assertEquals(5, summary.getInstructionCount());
+        assertEquals(2, summary.getOpcodeCount(Opcodes.LDC));
+        assertEquals(1, summary.getLdcCount(ClassSummary.CONSTANT_STRING));
+        assertEquals(1, summary.getLdcCount(ClassSummary.CONSTANT_LONG));
+        assertEquals(0, summary.getLdcCount(ClassSummary.CONSTANT_INTEGER));
+        // Only static fields
+        assertEquals(1, summary.getStaticFieldConstantCount(ClassSummary.CONSTANT_STRING));
+        assertEquals(0, summary.getStaticFieldConstantCount(ClassSummary.CONSTANT_INTEGER));
+
+        assertTrue(summary.hasCode());
+        assertTrue(summary.hasStaticInitializer());
+        assertTrue(summary.hasAnyOpcode(Opcodes.GOTO, Opcodes.POP));
+        assertFalse(summary.hasMethodCalls());
+        assertFalse(summary.hasInvokeDynamic());
+        assertFalse(summary.hasNativeMethods());
+        assertFalse(summary.isInterface());
+
+        // The summary is taken on the first question
+        method.instructions.add(new InsnNode(Opcodes.NOP));
+
+        assertEquals(5, summary.getInstructionCount());
+        assertEquals(6, ClassSummary.of(node).getInstructionCount());
+    }
+}
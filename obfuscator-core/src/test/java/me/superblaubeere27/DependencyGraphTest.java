@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2017-2019 superblaubeere27, Sam Sun, MarcoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package me.superblaubeere27;
+
+import me.superblaubeere27.jobf.utils.DependencyGraph;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DependencyGraphTest {
+    private static Collection<Class<?>> dependencies(Object processor) {
+        if (processor instanceof Late) return Arrays.asList(Early.class, Missing.class);
+        if (processor instanceof Early) return Collections.singletonList(First.class);
+        if (processor instanceof Cyclic) return Collections.singletonList(Cyclic.class);
+
+        return Collections.emptyList();
+    }
+
+    @Test
+    public void test_keepsRegistrationOrder() {
+        First first = new First();
+        Early early = new Early();
+        Late late = new Late();
+        Object other = new Object();
+
+        List<Object> processors = Arrays.asList(first, other, early, late);
+
+        assertEquals(processors, DependencyGraph.sort(processors, DependencyGraphTest::dependencies));
+    }
+
+    @Test
+    public void test_movesDependenciesFirst() {
+        First first = new First();
+        Early early = new Early();
+        Late late = new Late();
+        Object other = new Object();
+
+        List<Object> sorted = DependencyGraph.sort(Arrays.asList(late, other, early, first), DependencyGraphTest::dependencies);
+
+        // Processors without dependencies stay in front, the others follow their dependencies
+        assertEquals(Arrays.asList(other, first, early, late), sorted);
+    }
+
+    @Test
+    public void test_cycle() {
+        Cyclic a = new Cyclic();
+        Cyclic b = new Cyclic();
+
+        try {
+            DependencyGraph.sort(Arrays.asList(a, b), DependencyGraphTest::dependencies);
+            fail();
+        } catch (IllegalStateException expected) {
+            assertTrue(expected.getMessage().contains("Cyclic"));
+        }
+
+        assertEquals(Collections.singletonList(a), DependencyGraph.sort(Collections.singletonList(a), DependencyGraphTest::dependencies));
+    }
+
+    private static class First {
+    }
+
+    private static class Early {
+    }
+
+    private static class Late {
+    }
+
+    private static class Missing {
+    }
+
+    private static class Cyclic {
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2017-2019 superblaubeere27, Sam Sun, MarcoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package me.superblaubeere27;
+
+import me.superblaubeere27.jobf.utils.GlobMatcher;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GlobMatcherTest {
+    @Test
+    public void test_classGlobs() {
+        GlobMatcher matcher = GlobMatcher.compile("java.**\nme.name.*\n\n  me.other.Class  \n");
+
+        assertEquals(3, matcher.size());
+        assertTrue(matcher.matches("java/lang/String"));
+        assertTrue(matcher.matches("me/name/Foo"));
+        assertFalse(matcher.matches("me/name/sub/Foo"));
+        assertTrue(matcher.matches("me/other/Class"));
+        assertFalse(matcher.matches("me/other/Class2"));
+        assertFalse(matcher.matches("javax/Foo"));
+        assertEquals("me.name.*", matcher.matchingPattern("me/name/Foo"));
+    }
+
+    @Test
+    public void test_members() {
+        GlobMatcher matcher = GlobMatcher.compile("me.name.Class.method\nme.name.Other.*");
+
+        assertTrue(matcher.matches("me/name/Class", "method"));
+        assertFalse(matcher.matches("me/name/Class", "method2"));
+        assertTrue(matcher.matches("me/name/Other", "anything"));
+        assertFalse(matcher.matches("me/name/Other$Inner", "anything"));
+    }
+
+    @Test
+    public void test_literalsAndRegex() {
+        GlobMatcher matcher = GlobMatcher.compile("me.Outer$Inner\nme.(Foo|Bar)");
+
+        assertTrue(matcher.matches("me/Outer$Inner"));
+        assertFalse(matcher.matches("me/OuterInner"));
+        assertTrue(matcher.matches("me/Bar"));
+        assertFalse(matcher.matches("me/Baz"));
+        assertTrue(matcher.matches("me", "Foo"));
+    }
+
+    @Test
+    public void test_empty() {
+        GlobMatcher matcher = GlobMatcher.compile("\n \n");
+
+        assertTrue(matcher.isEmpty());
+        assertFalse(matcher.matches("a"));
+        assertFalse(matcher.matches("a", "b"));
+        assertNull(matcher.matchingPattern("a"));
+    }
+
+    @Test
+    public void test_clearCache() {
+        GlobMatcher matcher = GlobMatcher.compile("me.cached.*");
+
+        assertSame(matcher, GlobMatcher.compile("me.cached.*"));
+
+        GlobMatcher.clearCache();
+
+        assertNotSame(matcher, GlobMatcher.compile("me.cached.*"));
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2017-2019 superblaubeere27, Sam Sun, MarcoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package me.superblaubeere27;
+
+import me.superblaubeere27.jobf.utils.InsnWalker;
+import org.junit.Test;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class InsnWalkerTest {
+    private static MethodNode method(AbstractInsnNode... instructions) {
+        MethodNode method = new MethodNode(Opcodes.ACC_STATIC, "test", "()V", null, null);
+
+        for (AbstractInsnNode instruction : instructions) method.instructions.add(instruction);
+
+        return method;
+    }
+
+    @Test
+    public void test_dispatch() {
+        List<String> calls = new ArrayList<>();
+        MethodNode method = method(new LabelNode(), new InsnNode(Opcodes.ICONST_0), new InsnNode(Opcodes.POP), new InsnNode(Opcodes.RETURN));
+
+        new InsnWalker()
+                .onOpcode((m, insn) -> calls.add("a" + insn.getOpcode()), Opcodes.ICONST_0, Opcodes.RETURN)
+                .onType((m, insn) -> calls.add("b" + insn.getOpcode()), AbstractInsnNode.INSN)
+                .onType((m, insn) -> calls.add("label"), AbstractInsnNode.LABEL)
+                .walk(method);
+
+        assertEquals(Arrays.asList("label", "a3", "b3", "b87", "a177", "b177"), calls);
+    }
+
+    @Test
+    public void test_rewrite() {
+        List<Integer> seen = new ArrayList<>();
+        MethodNode method = method(new InsnNode(Opcodes.ICONST_0), new InsnNode(Opcodes.POP), new InsnNode(Opcodes.RETURN));
+
+        new InsnWalker()
+                .onOpcode((m, insn) -> {
+                    // Inserted code isn't walked
+                    m.instructions.insertBefore(insn, new InsnNode(Opcodes.ICONST_1));
+                    m.instructions.insert(insn, new InsnNode(Opcodes.ICONST_2));
+                    m.instructions.remove(insn);
+                }, Opcodes.ICONST_0)
+                .onType((m, insn) -> seen.add(insn.getOpcode()), AbstractInsnNode.INSN)
+                .walk(method);
+
+        // The removed ICONST_0 isn't passed to the second handler
+        assertEquals(Arrays.asList(Opcodes.POP, Opcodes.RETURN), seen);
+        assertEquals(4, method.instructions.size());
+        assertEquals(Opcodes.ICONST_1, method.instructions.getFirst().getOpcode());
+        assertEquals(Opcodes.ICONST_2, method.instructions.get(1).getOpcode());
+    }
+}
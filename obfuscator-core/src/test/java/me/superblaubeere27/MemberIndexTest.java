@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2017-2019 superblaubeere27, Sam Sun, MarcoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package me.superblaubeere27;
+
+import me.superblaubeere27.jobf.utils.MemberIndex;
+import org.junit.Test;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FieldNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class MemberIndexTest {
+    private static ClassNode create(String name, String superName) {
+        ClassNode node = new ClassNode();
+
+        node.name = name;
+        node.superName = superName;
+
+        return node;
+    }
+
+    private static MethodNode addMethod(ClassNode node, String name, String desc) {
+        MethodNode method = new MethodNode(Opcodes.ACC_PUBLIC, name, desc, null, null);
+
+        node.methods.add(method);
+
+        return method;
+    }
+
+    @Test
+    public void test_lookup() {
+        MemberIndex index = new MemberIndex();
+        ClassNode node = create("A", "java/lang/Object");
+        MethodNode a = addMethod(node, "a", "()V");
+        MethodNode aInt = addMethod(node, "a", "(I)V");
+        FieldNode field = new FieldNode(Opcodes.ACC_PUBLIC, "f", "I", null, null);
+
+        node.fields.add(field);
+        node.fields.add(new FieldNode(Opcodes.ACC_PUBLIC, "f", "J", null, null));
+
+        assertSame(a, index.getMethod(node, "a", "()V"));
+        assertSame(aInt, index.getMethod(node, "a", "(I)V"));
+        assertNull(index.getMethod(node, "a", "(J)V"));
+        assertSame(field, index.getField(node, "f"));
+
+        // Added members are found
+        MethodNode b = addMethod(node, "b", "()V");
+
+        assertSame(b, index.getMethod(node, "b", "()V"));
+
+        // Renamed members aren't returned under their old name
+        a.name = "c";
+
+        assertNull(index.getMethod(node, "a", "()V"));
+        assertSame(a, index.getMethod(node, "c", "()V"));
+    }
+
+    @Test
+    public void test_resolve() {
+        MemberIndex index = new MemberIndex();
+        Map<String, ClassNode> classes = new HashMap<>();
+        ClassNode object = create("java/lang/Object", null);
+        ClassNode a = create("A", "java/lang/Object");
+        ClassNode b = create("B", "A");
+        ClassNode c = create("C", "B");
+
+        for (ClassNode node : new ClassNode[]{object, a, b, c}) classes.put(node.name, node);
+
+        MethodNode hashCode = addMethod(object, "hashCode", "()I");
+        MethodNode run = addMethod(a, "run", "()V");
+
+        assertNull(index.resolveMethod(c, "run", "()V", name -> null));
+        assertSame(run, index.resolveMethod(c, "run", "()V", classes::get));
+        // Cached
+        assertSame(run, index.resolveMethod(c, "run", "()V", name -> null));
+        assertSame(hashCode, index.resolveMethod(c, "hashCode", "()I", classes::get));
+        assertNull(index.resolveMethod(c, "missing", "()V", classes::get));
+
+        // Overrides which are added later are found
+        MethodNode override = addMethod(c, "run", "()V");
+
+        assertSame(override, index.resolveMethod(c, "run", "()V", classes::get));
+
+        // Methods which are added later are found even if the lookup failed before
+        MethodNode added = addMethod(b, "missing", "()V");
+
+        assertSame(added, index.resolveMethod(c, "missing", "()V", classes::get));
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2017-2019 superblaubeere27, Sam Sun, MarcoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package me.superblaubeere27;
+
+import me.superblaubeere27.jobf.processors.encryption.string.DESEncryptionAlgorithm;
+import me.superblaubeere27.jobf.utils.MethodTemplate;
+import org.junit.Test;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.LocalVariableNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TryCatchBlockNode;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class MethodTemplateTest {
+    private static Set<AbstractInsnNode> instructions(MethodNode method) {
+        Set<AbstractInsnNode> set = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        for (AbstractInsnNode insn = method.instructions.getFirst(); insn != null; insn = insn.getNext()) {
+            set.add(insn);
+        }
+
+        return set;
+    }
+
+    private static void assertSelfContained(MethodNode method) {
+        Set<AbstractInsnNode> instructions = instructions(method);
+
+        for (TryCatchBlockNode block : method.tryCatchBlocks) {
+            assertTrue(instructions.contains(block.start));
+            assertTrue(instructions.contains(block.end));
+            assertTrue(instructions.contains(block.handler));
+        }
+
+        for (LocalVariableNode variable : method.localVariables) {
+            assertTrue(instructions.contains(variable.start));
+            assertTrue(instructions.contains(variable.end));
+        }
+    }
+
+    @Test
+    public void test_copiesAreIndependent() throws Exception {
+        MethodTemplate template = MethodTemplate.of(DESEncryptionAlgorithm.class.getName(), "decrypt");
+
+        MethodNode a = template.instantiate(Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC, "a");
+        MethodNode b = template.instantiate(Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC, "b");
+
+        assertEquals("a", a.name);
+        assertEquals(Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC, a.access);
+        assertEquals(a.instructions.size(), b.instructions.size());
+        assertFalse(a.tryCatchBlocks.isEmpty());
+
+        assertSelfContained(a);
+        assertSelfContained(b);
+
+        Set<AbstractInsnNode> shared = instructions(a);
+        shared.retainAll(instructions(b));
+
+        assertTrue(shared.isEmpty());
+    }
+
+    @Test
+    public void test_copyRuns() throws Exception {
+        MethodTemplate template = MethodTemplate.of(DESEncryptionAlgorithm.class.getName(), "decrypt");
+
+        ClassNode node = new ClassNode();
+        node.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, "TemplateTest", null, "java/lang/Object", null);
+        node.methods.add(template.instantiate(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "decryptCopy"));
+
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES) {
+            @Override
+            protected String getCommonSuperClass(String type1, String type2) {
+                return "java/lang/Object";
+            }
+        };
+        node.accept(writer);
+        byte[] bytes = writer.toByteArray();
+
+        Class<?> c = new ClassLoader(MethodTemplateTest.class.getClassLoader()) {
+            Class<?> define() {
+                return defineClass("TemplateTest", bytes, 0, bytes.length);
+            }
+        }.define();
+
+        String encrypted = new DESEncryptionAlgorithm().encrypt("Hello World", "key");
+
+        assertEquals("Hello World", c.getMethod("decryptCopy", String.class, String.class).invoke(null, encrypted, "key"));
+    }
+}
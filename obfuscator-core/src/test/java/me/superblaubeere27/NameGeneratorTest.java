@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2017-2019 superblaubeere27, Sam Sun, MarcoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package me.superblaubeere27;
+
+import me.superblaubeere27.jobf.utils.NameGenerator;
+import org.junit.Test;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class NameGeneratorTest {
+    private static NameGenerator generator(long seed) {
+        return new NameGenerator("abc", false, Collections.emptyList(), Collections.emptyList(), seed, false);
+    }
+
+    @Test
+    public void test_scopes() {
+        NameGenerator generator = generator(0);
+
+        // Trees are unique per descriptor, but different descriptors may share names
+        assertEquals("a", generator.methodTreeName("()V"));
+        assertEquals("b", generator.methodTreeName("()V"));
+        assertEquals("a", generator.methodTreeName("()I"));
+        assertEquals("a", generator.fieldTreeName("I"));
+
+        // Generated members start after the renamed trees and are reused in every class
+        assertEquals("c", generator.methodName("A", "()V"));
+        assertEquals("c", generator.methodName("B", "()V"));
+        assertEquals("a", generator.methodName("B", "(I)V"));
+        assertEquals("b", generator.fieldName("A", "I"));
+
+        assertEquals("a", generator.localVariableName("A", "m()V"));
+        assertEquals("b", generator.localVariableName("A", "m()V"));
+        assertEquals("a", generator.localVariableName("A", "n()V"));
+    }
+
+    @Test
+    public void test_skipsDeclaredMembers() {
+        NameGenerator generator = generator(0);
+        ClassNode node = new ClassNode();
+
+        node.name = "A";
+        node.methods.add(new MethodNode(Opcodes.ACC_STATIC, "a", "()V", null, null));
+
+        assertEquals("b", generator.methodName(node, "()V"));
+    }
+
+    @Test
+    public void test_compact() {
+        NameGenerator generator = new NameGenerator("abc", false, Collections.emptyList(), Collections.emptyList(), 0, true);
+        ClassNode existing = new ClassNode();
+
+        existing.name = "b";
+        existing.methods.add(new MethodNode(Opcodes.ACC_STATIC, "a", "()V", null, null));
+        generator.reserve(existing);
+
+        // Shortest names first, skipping existing classes and members
+        assertEquals("a", generator.className(""));
+        assertEquals("c", generator.className(""));
+        assertEquals("a", generator.className("pkg"));
+        assertEquals("b", generator.methodTreeName("A", "()V"));
+
+        // Unrelated scopes reuse names, generated members start after the largest scope
+        assertEquals("b", generator.methodTreeName("B", "()V"));
+        assertEquals("c", generator.methodTreeName("B", "()V"));
+        assertEquals("d", generator.methodName("A", "()V"));
+
+        for (int i = 0; i < 50; i++) generator.fieldTreeName("I");
+
+        assertEquals("Y", generator.fieldTreeName("I"));
+        assertEquals("Z", generator.fieldTreeName("I"));
+        assertEquals("aa", generator.fieldTreeName("I"));
+    }
+
+    @Test
+    public void test_deterministic() {
+        NameGenerator first = generator(42);
+        NameGenerator second = generator(42);
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(first.className("pkg"), second.className("pkg"));
+        }
+
+        assertNotEquals(generator(1).className(""), generator(2).className(""));
+    }
+
+    @Test
+    public void test_concurrent() throws InterruptedException {
+        NameGenerator generator = generator(0);
+        Set<String> names = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        for (int i = 0; i < 8; i++) {
+            executor.execute(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    assertTrue(names.add(generator.methodTreeName("()V")));
+                }
+            });
+        }
+
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        assertEquals(8000, names.size());
+    }
+}
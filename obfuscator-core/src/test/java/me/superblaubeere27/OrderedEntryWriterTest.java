@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2017-2019 superblaubeere27, Sam Sun, MarcoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package me.superblaubeere27;
+
+import me.superblaubeere27.jobf.utils.OrderedEntryWriter;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+
+public class OrderedEntryWriterTest {
+    @Test
+    public void test_order() throws IOException {
+        List<String> written = new ArrayList<>();
+        OrderedEntryWriter writer = new OrderedEntryWriter(4, (name, data) -> written.add(name));
+
+        writer.complete(2, "c", new byte[0]);
+        writer.complete(1, "b", null);
+
+        assertEquals(0, writer.getWritten());
+
+        writer.complete(0, "a", new byte[0]);
+
+        assertEquals(Arrays.asList("a", "c"), written);
+        assertEquals(3, writer.getWritten());
+
+        writer.complete(3, "d", new byte[0]);
+
+        assertEquals(Arrays.asList("a", "c", "d"), written);
+    }
+
+    @Test
+    public void test_parallel() {
+        int count = 10000;
+        List<String> written = Collections.synchronizedList(new ArrayList<>());
+        OrderedEntryWriter writer = new OrderedEntryWriter(count, (name, data) -> written.add(name));
+
+        IntStream.range(0, count).parallel().forEach(i -> {
+            try {
+                writer.complete(i, Integer.toString(i), new byte[0]);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        assertEquals(count, written.size());
+
+        for (int i = 0; i < count; i++) {
+            assertEquals(Integer.toString(i), written.get(i));
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2017-2019 superblaubeere27, Sam Sun, MarcoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package me.superblaubeere27;
+
+import me.superblaubeere27.jobf.utils.mapping.ProGuardMapping;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class ProGuardMappingTest {
+    private static List<String> read(String mapping) throws IOException {
+        List<String> entries = new ArrayList<>();
+
+        ProGuardMapping.read(new BufferedReader(new StringReader(mapping)), new ProGuardMapping.Visitor() {
+            @Override
+            public void visitClass(String original, String obfuscated) {
+                entries.add(original + "=" + obfuscated);
+            }
+
+            @Override
+            public void visitField(String type, String original, String obfuscated) {
+                entries.add(original + ProGuardMapping.toDescriptor(type) + "=" + obfuscated);
+            }
+
+            @Override
+            public void visitMethod(String returnType, String original, String arguments, String obfuscated) {
+                entries.add(original + ProGuardMapping.toMethodDescriptor(returnType, arguments) + "=" + obfuscated);
+            }
+        });
+
+        return entries;
+    }
+
+    @Test
+    public void test_roundTrip() throws IOException {
+        StringWriter out = new StringWriter();
+
+        try (ProGuardMapping.MappingWriter writer = new ProGuardMapping.MappingWriter(out)) {
+            writer.visitClass("me.name.Class$Inner", "a.\u03b1");
+            writer.writeField("[[Ljava/lang/String;", "table", "a");
+            writer.writeMethod("(IJLjava/util/List;[Z)V", "run", "b");
+        }
+
+        assertEquals("me.name.Class$Inner -> a.\u03b1:\n" +
+                "    java.lang.String[][] table -> a\n" +
+                "    void run(int,long,java.util.List,boolean[]) -> b\n", out.toString().replace(System.lineSeparator(), "\n"));
+
+        List<String> entries = read(out.toString());
+
+        assertEquals(3, entries.size());
+        assertEquals("me.name.Class$Inner=a.\u03b1", entries.get(0));
+        assertEquals("table[[Ljava/lang/String;=a", entries.get(1));
+        assertEquals("run(IJLjava/util/List;[Z)V=b", entries.get(2));
+    }
+
+    @Test
+    public void test_proGuardExtensions() throws IOException {
+        List<String> entries = read("# compiler: R8\n" +
+                "me.Main -> a:\n" +
+                "    1:4:void main(java.lang.String[]):10:13 -> main\n" +
+                "    5:5:int me.Other.inlined():20:20 -> b\n" +
+                "    java.lang.Object field -> c\n");
+
+        assertEquals(3, entries.size());
+        assertEquals("main([Ljava/lang/String;)V=main", entries.get(1));
+        assertEquals("fieldLjava/lang/Object;=c", entries.get(2));
+    }
+}
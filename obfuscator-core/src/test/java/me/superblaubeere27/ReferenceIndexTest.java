@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2017-2019 superblaubeere27, Sam Sun, MarcoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package me.superblaubeere27;
+
+import me.superblaubeere27.jobf.utils.ReferenceIndex;
+import org.junit.Test;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.*;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class ReferenceIndexTest {
+    private static ClassNode create(String name, MethodNode... methods) {
+        ClassNode node = new ClassNode();
+
+        node.name = name;
+        node.superName = "java/lang/Object";
+        node.methods.addAll(Arrays.asList(methods));
+
+        return node;
+    }
+
+    private static MethodNode method(String name, AbstractInsnNode... instructions) {
+        MethodNode method = new MethodNode(Opcodes.ACC_STATIC, name, "()V", null, null);
+
+        for (AbstractInsnNode instruction : instructions) method.instructions.add(instruction);
+
+        method.instructions.add(new InsnNode(Opcodes.RETURN));
+
+        return method;
+    }
+
+    @Test
+    public void test_references() {
+        MethodNode a = method("a",
+                new MethodInsnNode(Opcodes.INVOKESTATIC, "B", "b", "()V", false),
+                new FieldInsnNode(Opcodes.GETSTATIC, "B", "f", "I"),
+                new InsnNode(Opcodes.POP),
+                new TypeInsnNode(Opcodes.NEW, "B"),
+                new InsnNode(Opcodes.POP),
+                new TypeInsnNode(Opcodes.ANEWARRAY, "[LB;"),
+                new InsnNode(Opcodes.POP),
+                new LdcInsnNode(Type.getType("[[LB;")),
+                new InsnNode(Opcodes.POP));
+        MethodNode b = method("b",
+                new InsnNode(Opcodes.ICONST_0),
+                new FieldInsnNode(Opcodes.PUTSTATIC, "B", "f", "I"));
+
+        ClassNode classA = create("A", a);
+        ClassNode classB = create("B", b);
+
+        ReferenceIndex index = ReferenceIndex.build(Arrays.asList(classA, classB));
+
+        assertEquals(1, index.getCallers("B", "b", "()V").size());
+        assertEquals("a", index.getCallers("B", "b", "()V").get(0).methodName);
+        // References don't depend on the method node, which is replaced if the class is parsed again
+        assertTrue(index.getCallers("B", "b", "()V").get(0).isIn("a", "()V"));
+        assertEquals("A", index.getCallers("B", "b", "()V").get(0).className);
+        assertEquals(1, index.getReaders("B", "f", "I").size());
+        assertEquals(1, index.getWriters("B", "f", "I").size());
+        assertEquals("b", index.getWriters("B", "f", "I").get(0).methodName);
+        assertEquals(3, index.getTypeReferences("B").size());
+        assertEquals(1, index.getTypeReferences("B").stream().filter(r -> r.kind == ReferenceIndex.Kind.CLASS_CONSTANT).count());
+        assertEquals(5, index.getReferences("A").size());
+        assertEquals(5, index.getReferences("A", "a", "()V").size());
+
+        // Rewrite the call
+        ((MethodInsnNode) a.instructions.getFirst()).name = "c";
+        index.update(classA);
+
+        assertTrue(index.getCallers("B", "b", "()V").isEmpty());
+        assertEquals(1, index.getCallers("B", "c", "()V").size());
+        assertEquals(3, index.getTypeReferences("B").size());
+
+        index.remove("A");
+
+        assertTrue(index.getCallers("B", "c", "()V").isEmpty());
+        assertTrue(index.getTypeReferences("B").isEmpty());
+        assertEquals(1, index.getWriters("B", "f", "I").size());
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2017-2019 superblaubeere27, Sam Sun, MarcoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package me.superblaubeere27;
+
+import me.superblaubeere27.jobf.utils.mapping.Retrace;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.Assert.assertEquals;
+
+public class RetraceTest {
+    private static final String MAPPING = "com.example.Main -> a:\n" +
+            "    void run() -> a\n" +
+            "    void run(int) -> a\n" +
+            "    int counter -> a\n" +
+            "com.example.Util -> \u00e4\u00f6:\n" +
+            "    java.lang.String format(java.lang.Object) -> b\n" +
+            "com.example.Helper -> p.c:\n" +
+            "com.example.Main$Task -> a$a:\n";
+
+    private static Retrace load() throws IOException {
+        return Retrace.load(new BufferedReader(new StringReader(MAPPING)));
+    }
+
+    @Test
+    public void testFrames() throws IOException {
+        Retrace retrace = load();
+
+        assertEquals("\tat com.example.Util.format(Unknown Source)", retrace.retraceLine("\tat \u00e4\u00f6.b(Unknown Source)"));
+        assertEquals("\tat app//com.example.Main.run(Main.java:3)", retrace.retraceLine("\tat app//a.a(Main.java:3)"));
+        assertEquals("\tat java.base/java.lang.Thread.run(Thread.java:833)", retrace.retraceLine("\tat java.base/java.lang.Thread.run(Thread.java:833)"));
+    }
+
+    @Test
+    public void testText() throws IOException {
+        Retrace retrace = load();
+
+        assertEquals("java.lang.ClassCastException: com.example.Util cannot be cast to com.example.Main.",
+                retrace.retraceLine("java.lang.ClassCastException: \u00e4\u00f6 cannot be cast to a."));
+        assertEquals("class com.example.Util cannot be cast to class com.example.Main (\u00e4\u00f6 and a are in unnamed module of loader 'app')",
+                retrace.retraceLine("class \u00e4\u00f6 cannot be cast to class a (\u00e4\u00f6 and a are in unnamed module of loader 'app')"));
+        assertEquals("Exception in thread \"main\" com.example.Util: a failed", retrace.retraceLine("Exception in thread \"main\" \u00e4\u00f6: a failed"));
+        assertEquals("Caused by: com.example.Main", retrace.retraceLine("Caused by: a"));
+        assertEquals("\tSuppressed: com.example.Main: b", retrace.retraceLine("\tSuppressed: a: b"));
+        assertEquals("Loaded com.example.Helper and com.example.Main$Task.", retrace.retraceLine("Loaded p.c and a$a."));
+
+        // Short names are ordinary words outside of class name contexts
+        assertEquals("[a, b]", retrace.retraceLine("[a, b]"));
+        assertEquals("Took a while", retrace.retraceLine("Took a while"));
+    }
+
+    @Test
+    public void testBareNames() throws IOException {
+        Retrace retrace = load();
+
+        retrace.setReplaceBareNames(true);
+
+        assertEquals("[com.example.Main, b]", retrace.retraceLine("[a, b]"));
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2017-2019 superblaubeere27, Sam Sun, MarcoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package me.superblaubeere27;
+
+import me.superblaubeere27.jobf.JObfImpl;
+import me.superblaubeere27.jobf.utils.values.Configuration;
+import me.superblaubeere27.jobf.utils.values.YamlConfigManager;
+import org.junit.After;
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FrameNode;
+import org.objectweb.asm.tree.LineNumberNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class ScriptExclusionTest {
+    // Removing all debug info skips it while parsing, mangling locals skips the frames
+    private static final String CONFIG = "script: |\n"
+            + "  function isObfuscatorEnabledForClass(node) {\n"
+            + "      return node.name != \"Kept\";\n"
+            + "  }\n"
+            + "LineNumberRemover:\n  Enabled: true\n  Remove Line Numbers: true\n  Remove Debug Names: true\n  Remove Local Variables: true\n  Add Local Variables: false\n"
+            + "FlowObfuscator:\n  Enabled: true\n  Mangle Local Variables: true\n"
+            + "StringEncryption:\n  Enabled: false\n"
+            + "NumberObfuscation:\n  Enabled: false\n"
+            + "InnerClassRemover:\n  Enabled: false\n";
+
+    /**
+     * @return a class with {@code static int sign(int value)}, which has a frame, a line number and a local variable
+     */
+    private static byte[] createClass(String name) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", null);
+        writer.visitSource(name + ".java", null);
+
+        MethodVisitor method = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "sign", "(I)I", null, null);
+        Label start = new Label();
+        Label negative = new Label();
+        Label end = new Label();
+
+        method.visitCode();
+        method.visitLabel(start);
+        method.visitLineNumber(1, start);
+        method.visitVarInsn(Opcodes.ILOAD, 0);
+        method.visitJumpInsn(Opcodes.IFLE, negative);
+        method.visitInsn(Opcodes.ICONST_1);
+        method.visitInsn(Opcodes.IRETURN);
+        method.visitLabel(negative);
+        method.visitInsn(Opcodes.ICONST_M1);
+        method.visitInsn(Opcodes.IRETURN);
+        method.visitLabel(end);
+        method.visitLocalVariable("value", "I", null, start, end, 0);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+
+        writer.visitEnd();
+
+        return writer.toByteArray();
+    }
+
+    @After
+    public void resetConfig() {
+        YamlConfigManager.loadConfig("LineNumberRemover:\n  Remove Local Variables: false\n  Add Local Variables: true\n"
+                + "FlowObfuscator:\n  Mangle Local Variables: false\n"
+                + "StringEncryption:\n  Enabled: true\nNumberObfuscation:\n  Enabled: true\nInnerClassRemover:\n  Enabled: true\n"
+                + "NameObfuscation:\n  Enabled: false\n");
+    }
+
+    /**
+     * Obfuscates Kept and Obfuscated, Kept is excluded by the script
+     *
+     * @return the output classes by their entry name
+     */
+    private static Map<String, byte[]> obfuscate(String config) throws Exception {
+        File input = File.createTempFile("script_", ".jar");
+        File output = File.createTempFile("script_", ".jar");
+
+        try {
+            try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(input))) {
+                for (String name : Arrays.asList("Kept", "Obfuscated")) {
+                    out.putNextEntry(new ZipEntry(name + ".class"));
+                    out.write(createClass(name));
+                }
+            }
+
+            // The processors have to register their values before the config is loaded
+            JObfImpl impl = JObfImpl.INSTANCE;
+            Configuration configuration = YamlConfigManager.loadConfig(config);
+            File javaBase = new File(System.getProperty("java.home"), "jmods/java.base.jmod");
+
+            if (javaBase.exists()) configuration.getLibraries().add(javaBase.getAbsolutePath());
+
+            configuration.setInput(input.getAbsolutePath());
+            configuration.setOutput(output.getAbsolutePath());
+
+            impl.processJar(configuration);
+
+            try (URLClassLoader loader = new URLClassLoader(new URL[]{output.toURI().toURL()}, ClassLoader.getPlatformClassLoader())) {
+                // The frames of both classes have to be valid
+                assertEquals(1, loader.loadClass("Kept").getMethod("sign", int.class).invoke(null, 5));
+                assertEquals(-1, loader.loadClass("Kept").getMethod("sign", int.class).invoke(null, -5));
+            }
+
+            Map<String, byte[]> classes = new HashMap<>();
+
+            try (ZipFile zip = new ZipFile(output)) {
+                zip.stream().forEach(entry -> {
+                    try {
+                        classes.put(entry.getName(), zip.getInputStream(entry).readAllBytes());
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+            }
+
+            return classes;
+        } finally {
+            input.delete();
+            output.delete();
+        }
+    }
+
+    private static MethodNode sign(byte[] bytes) {
+        ClassNode node = new ClassNode();
+
+        new ClassReader(bytes).accept(node, 0);
+
+        return node.methods.stream().filter(method -> method.name.equals("sign")).findFirst().orElseThrow(IllegalStateException::new);
+    }
+
+    private static void assertKept(byte[] bytes) {
+        assertNotNull(bytes);
+
+        MethodNode method = sign(bytes);
+
+        assertTrue(Arrays.stream(method.instructions.toArray()).anyMatch(insn -> insn instanceof LineNumberNode));
+        assertTrue(Arrays.stream(method.instructions.toArray()).anyMatch(insn -> insn instanceof FrameNode));
+        assertEquals("value", method.localVariables.get(0).name);
+    }
+
+    @Test
+    public void test_parsedClasses() throws Exception {
+        // Without name obfuscation, every class is parsed when it is processed
+        Map<String, byte[]> classes = obfuscate(CONFIG + "NameObfuscation:\n  Enabled: false\n");
+
+        assertKept(classes.get("Kept.class"));
+
+        // The other class is still parsed without its debug info
+        MethodNode obfuscated = sign(classes.get("Obfuscated.class"));
+
+        assertFalse(Arrays.stream(obfuscated.instructions.toArray()).anyMatch(insn -> insn instanceof LineNumberNode));
+        assertTrue(obfuscated.localVariables == null || obfuscated.localVariables.isEmpty());
+    }
+
+    @Test
+    public void test_eagerlyParsedClasses() throws Exception {
+        // Name obfuscation needs all trees at once, they are parsed while the input is read
+        assertKept(obfuscate(CONFIG + "NameObfuscation:\n  Enabled: true\n  Excluded classes: \"Kept\"\n  Excluded methods: \"Kept.*\"\n").get("Kept.class"));
+    }
+}
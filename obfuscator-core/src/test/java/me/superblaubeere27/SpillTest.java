@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2017-2019 superblaubeere27, Sam Sun, MarcoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package me.superblaubeere27;
+
+import me.superblaubeere27.jobf.JObfImpl;
+import me.superblaubeere27.jobf.utils.values.Configuration;
+import me.superblaubeere27.jobf.utils.values.YamlConfigManager;
+import org.junit.After;
+import org.junit.Test;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertEquals;
+
+public class SpillTest {
+    private static final String CONFIG = "StringEncryption:\n  Enabled: true\n  HideStrings: false\n  AES: false\n"
+            + "NumberObfuscation:\n  Enabled: true\n"
+            + "FlowObfuscator:\n  Enabled: true\n"
+            + "Crasher:\n  Enabled: false\n"
+            + "InvokeDynamic:\n  Enabled: false\n"
+            + "ReferenceProxy:\n  Enabled: false\n"
+            + "Packager:\n  Enabled: false\n"
+            + "InnerClassRemover:\n  Enabled: false\n"
+            + "General Settings:\n  Heap budget (MB): 1\n";
+
+    private static byte[] createClass(String name, boolean caller) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", null);
+
+        // The private members of a local class may be inlined into the enclosing class
+        if (!caller) writer.visitOuterClass("SpillA", null, null);
+
+        MethodVisitor method = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, caller ? "compute" : "value", "()I", null, null);
+
+        method.visitCode();
+
+        if (caller) {
+            // "spill".length() * SpillB.value() + 1000
+            method.visitLdcInsn("spill");
+            method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/String", "length", "()I", false);
+            method.visitMethodInsn(Opcodes.INVOKESTATIC, "SpillB", "value", "()I", false);
+            method.visitInsn(Opcodes.IMUL);
+            method.visitIntInsn(Opcodes.SIPUSH, 1000);
+            method.visitInsn(Opcodes.IADD);
+        } else {
+            // If value() is inlined, the private field has to be made public
+            method.visitFieldInsn(Opcodes.GETSTATIC, "SpillB", "secret", "I");
+        }
+
+        method.visitInsn(Opcodes.IRETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+
+        if (!caller) {
+            writer.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC, "secret", "I", null, null).visitEnd();
+
+            MethodVisitor clInit = writer.visitMethod(Opcodes.ACC_STATIC, "<clinit>", "()V", null, null);
+
+            clInit.visitCode();
+            clInit.visitIntInsn(Opcodes.BIPUSH, 7);
+            clInit.visitFieldInsn(Opcodes.PUTSTATIC, "SpillB", "secret", "I");
+            clInit.visitInsn(Opcodes.RETURN);
+            clInit.visitMaxs(0, 0);
+            clInit.visitEnd();
+        }
+
+        writer.visitEnd();
+
+        return writer.toByteArray();
+    }
+
+    @After
+    public void resetBudget() {
+        YamlConfigManager.loadConfig("Inlining:\n  Enabled: false\nNameObfuscation:\n  Enabled: false\nGeneral Settings:\n  Heap budget (MB): 0\n");
+    }
+
+    /**
+     * @return the result of {@code SpillA.compute()} after obfuscation
+     */
+    private static Object obfuscate(String config) throws Exception {
+        File input = File.createTempFile("spill_", ".jar");
+        File output = File.createTempFile("spill_", ".jar");
+
+        try {
+            try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(input))) {
+                out.putNextEntry(new ZipEntry("SpillA.class"));
+                out.write(createClass("SpillA", true));
+                out.putNextEntry(new ZipEntry("SpillB.class"));
+                out.write(createClass("SpillB", false));
+            }
+
+            // The processors have to register their values before the config is loaded
+            JObfImpl impl = JObfImpl.INSTANCE;
+            Configuration configuration = YamlConfigManager.loadConfig(config);
+            File javaBase = new File(System.getProperty("java.home"), "jmods/java.base.jmod");
+
+            if (javaBase.exists()) configuration.getLibraries().add(javaBase.getAbsolutePath());
+
+            configuration.setInput(input.getAbsolutePath());
+            configuration.setOutput(output.getAbsolutePath());
+
+            impl.processJar(configuration);
+
+            try (URLClassLoader loader = new URLClassLoader(new URL[]{output.toURI().toURL()}, ClassLoader.getPlatformClassLoader())) {
+                return loader.loadClass("SpillA").getMethod("compute").invoke(null);
+            }
+        } finally {
+            input.delete();
+            output.delete();
+        }
+    }
+
+    @Test
+    public void test_spilledClasses() throws Exception {
+        // Name obfuscation needs all trees at once. Any heap is over a budget of 1 MB, so all classes are serialized
+        // after it and read again when they are processed
+        assertEquals(1035, obfuscate(CONFIG + "Inlining:\n  Enabled: false\n"
+                + "NameObfuscation:\n  Enabled: true\n  Excluded classes: \"SpillA\"\n  Excluded methods: \"SpillA.*\"\n"));
+    }
+
+    @Test
+    public void test_modifyingProcessor() throws Exception {
+        // The inliner makes SpillB.secret public while it processes SpillA, which would be lost if SpillB was serialized
+        assertEquals(1035, obfuscate(CONFIG + "Inlining:\n  Enabled: true\nNameObfuscation:\n  Enabled: false\n"));
+    }
+}
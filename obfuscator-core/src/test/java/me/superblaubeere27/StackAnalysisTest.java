@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2017-2019 superblaubeere27, Sam Sun, MarcoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package me.superblaubeere27;
+
+import me.superblaubeere27.jobf.utils.StackAnalysis;
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.*;
+import org.objectweb.asm.tree.analysis.Analyzer;
+import org.objectweb.asm.tree.analysis.AnalyzerException;
+import org.objectweb.asm.tree.analysis.Frame;
+import org.objectweb.asm.tree.analysis.SourceInterpreter;
+import org.objectweb.asm.tree.analysis.SourceValue;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.Assert.*;
+
+public class StackAnalysisTest {
+    private static ClassNode read(Class<?> c) throws IOException {
+        try (InputStream in = c.getResourceAsStream(c.getSimpleName() + ".class")) {
+            ClassNode node = new ClassNode();
+
+            new ClassReader(in).accept(node, 0);
+
+            return node;
+        }
+    }
+
+    @Test
+    public void test_matchesAnalyzer() throws Exception {
+        int compared = 0;
+
+        for (Class<?> c : new Class[]{String.class, java.util.HashMap.class, java.util.concurrent.ConcurrentHashMap.class, java.math.BigDecimal.class, StackAnalysis.class}) {
+            ClassNode node = read(c);
+
+            for (MethodNode method : node.methods) {
+                if (method.instructions.size() == 0) continue;
+
+                Frame<SourceValue>[] frames = new Analyzer<>(new SourceInterpreter()).analyze(node.name, method);
+                StackAnalysis analysis = StackAnalysis.analyze(method);
+
+                for (int i = 0; i < frames.length; i++) {
+                    AbstractInsnNode insn = method.instructions.get(i);
+                    Frame<SourceValue> frame = frames[i];
+                    String location = node.name + "." + method.name + method.desc + " @" + i;
+
+                    if (frame == null) {
+                        assertFalse(location, analysis.isReachable(insn));
+                        assertEquals(location, -1, analysis.getStackSize(insn));
+                        continue;
+                    }
+
+                    assertEquals(location, frame.getStackSize(), analysis.getStackSize(insn));
+
+                    for (int j = 0; j < frame.getStackSize(); j++) {
+                        SourceValue expected = frame.getStack(j);
+                        SourceValue actual = analysis.getStack(insn, j);
+
+                        assertEquals(location, expected.getSize(), actual.getSize());
+                        assertEquals(location, expected.insns, actual.insns);
+
+                        compared++;
+                    }
+                }
+            }
+        }
+
+        assertTrue(compared > 10000);
+    }
+
+    @Test
+    public void test_queries() throws Exception {
+        MethodNode method = new MethodNode(Opcodes.ACC_STATIC, "test", "(Z)J", null, null);
+        LabelNode other = new LabelNode();
+        LabelNode merge = new LabelNode();
+
+        InsnNode first = new InsnNode(Opcodes.LCONST_0);
+        InsnNode second = new InsnNode(Opcodes.LCONST_1);
+        InsnNode ret = new InsnNode(Opcodes.LRETURN);
+
+        method.instructions.add(new VarInsnNode(Opcodes.ILOAD, 0));
+        method.instructions.add(new JumpInsnNode(Opcodes.IFEQ, other));
+        method.instructions.add(first);
+        method.instructions.add(new JumpInsnNode(Opcodes.GOTO, merge));
+        method.instructions.add(other);
+        method.instructions.add(second);
+        method.instructions.add(merge);
+        method.instructions.add(ret);
+
+        StackAnalysis analysis = StackAnalysis.analyze(method);
+
+        assertEquals(1, analysis.getStackSize(ret));
+
+        SourceValue value = analysis.getStack(ret, 0);
+
+        assertEquals(2, value.getSize());
+        assertEquals(2, value.insns.size());
+        assertTrue(value.insns.contains(first));
+        assertTrue(value.insns.contains(second));
+
+        // Backwards in the same block
+        assertEquals(1, analysis.getStackSize(merge));
+        assertEquals(0, analysis.getStackSize(other));
+    }
+
+    @Test(expected = AnalyzerException.class)
+    public void test_subroutine() throws Exception {
+        MethodNode method = new MethodNode(Opcodes.ACC_STATIC, "test", "()V", null, null);
+        LabelNode subroutine = new LabelNode();
+
+        method.instructions.add(new JumpInsnNode(Opcodes.JSR, subroutine));
+        method.instructions.add(new InsnNode(Opcodes.RETURN));
+        method.instructions.add(subroutine);
+        method.instructions.add(new VarInsnNode(Opcodes.ASTORE, 0));
+        method.instructions.add(new VarInsnNode(Opcodes.RET, 0));
+
+        StackAnalysis.analyze(method);
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2017-2019 superblaubeere27, Sam Sun, MarcoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package me.superblaubeere27;
+
+import me.superblaubeere27.jobf.IClassTransformer;
+import me.superblaubeere27.jobf.JObfImpl;
+import me.superblaubeere27.jobf.ProcessorCallback;
+import me.superblaubeere27.jobf.processors.CrasherTransformer;
+import me.superblaubeere27.jobf.processors.HideMembers;
+import me.superblaubeere27.jobf.processors.StaticInitializionTransformer;
+import me.superblaubeere27.jobf.utils.values.YamlConfigManager;
+import org.junit.After;
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FieldNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.lang.reflect.Modifier;
+
+import static org.junit.Assert.*;
+
+public class StreamingTransformerTest {
+    private static byte[] createClass(boolean withClinit) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, "StreamingTest", null, "java/lang/Object", null);
+        writer.visitField(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC | Opcodes.ACC_FINAL, "text", "Ljava/lang/String;", null, "value").visitEnd();
+        writer.visitField(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC | Opcodes.ACC_FINAL, "number", "I", null, 1000).visitEnd();
+        writer.visitField(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "other", "I", null, null).visitEnd();
+
+        if (withClinit) {
+            MethodVisitor clInit = writer.visitMethod(Opcodes.ACC_STATIC, "<clinit>", "()V", null, null);
+
+            clInit.visitCode();
+            clInit.visitIntInsn(Opcodes.BIPUSH, 42);
+            clInit.visitFieldInsn(Opcodes.PUTSTATIC, "StreamingTest", "other", "I");
+            clInit.visitInsn(Opcodes.RETURN);
+            clInit.visitMaxs(0, 0);
+            clInit.visitEnd();
+        }
+
+        writer.visitEnd();
+
+        return writer.toByteArray();
+    }
+
+    @After
+    public void resetCrasher() {
+        YamlConfigManager.loadConfig("Crasher:\n  Enabled: false\n");
+    }
+
+    private static byte[] stream(byte[] bytes, IClassTransformer transformer) {
+        ClassReader reader = new ClassReader(bytes);
+        ClassWriter writer = new ClassWriter(reader, 0);
+
+        reader.accept(transformer.createVisitor(writer), 0);
+
+        return writer.toByteArray();
+    }
+
+    private static Class<?> load(byte[] bytes) {
+        return new ClassLoader(StreamingTransformerTest.class.getClassLoader()) {
+            Class<?> define() {
+                return defineClass("StreamingTest", bytes, 0, bytes.length);
+            }
+        }.define();
+    }
+
+    @Test
+    public void test_staticInitializer() throws Exception {
+        StaticInitializionTransformer transformer = new StaticInitializionTransformer(null);
+
+        assertTrue(transformer.isStreamable());
+
+        for (boolean withClinit : new boolean[]{false, true}) {
+            byte[] bytes = stream(createClass(withClinit), transformer);
+
+            ClassNode node = new ClassNode();
+            new ClassReader(bytes).accept(node, 0);
+
+            for (FieldNode field : node.fields) assertNull(field.value);
+
+            Class<?> c = load(bytes);
+
+            assertEquals("value", c.getField("text").get(null));
+            assertEquals(1000, c.getField("number").get(null));
+            assertEquals(withClinit ? 42 : 0, c.getField("other").get(null));
+        }
+    }
+
+    @Test
+    public void test_hideMembers() {
+        ClassReader reader = new ClassReader(createClass(false));
+        ClassWriter writer = new ClassWriter(reader, 0);
+        reader.accept(new HideMembers(null).createVisitor(writer), 0);
+
+        ClassNode node = new ClassNode();
+        new ClassReader(writer.toByteArray()).accept(node, 0);
+
+        assertEquals(3, node.fields.size());
+
+        for (FieldNode field : node.fields) {
+            assertTrue((field.access & Opcodes.ACC_SYNTHETIC) != 0);
+            assertTrue(Modifier.isStatic(field.access));
+        }
+    }
+
+    @Test
+    public void test_crasher() {
+        // The processors have to register their values before the config is loaded
+        JObfImpl impl = JObfImpl.INSTANCE;
+
+        YamlConfigManager.loadConfig("Crasher:\n  Enabled: true\n  Invalid Signatures: true\n  Empty annotation spam: true\n");
+
+        IClassTransformer crasher = JObfImpl.processors.stream().filter(processor -> processor instanceof CrasherTransformer).findFirst().orElseThrow(IllegalStateException::new);
+        byte[] input = createClass(true);
+
+        ClassNode tree = new ClassNode();
+        new ClassReader(input).accept(tree, 0);
+        crasher.process(new ProcessorCallback(), tree);
+
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        tree.accept(writer);
+
+        ClassNode expected = new ClassNode();
+        new ClassReader(writer.toByteArray()).accept(expected, 0);
+
+        ClassNode streamed = new ClassNode();
+        new ClassReader(stream(input, crasher)).accept(streamed, 0);
+
+        assertNotNull(streamed.signature);
+        assertEquals(expected.signature, streamed.signature);
+        assertEquals(expected.methods.size(), streamed.methods.size());
+
+        for (int i = 0; i < expected.methods.size(); i++) {
+            MethodNode method = streamed.methods.get(i);
+
+            assertEquals(50, expected.methods.get(i).invisibleAnnotations.size());
+            assertNotNull(method.invisibleAnnotations);
+            assertEquals(expected.methods.get(i).invisibleAnnotations.size(), method.invisibleAnnotations.size());
+        }
+
+        load(stream(input, crasher));
+    }
+}
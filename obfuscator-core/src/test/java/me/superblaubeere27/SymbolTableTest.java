@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2017-2019 superblaubeere27, Sam Sun, MarcoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package me.superblaubeere27;
+
+import me.superblaubeere27.jobf.utils.InterningClassVisitor;
+import me.superblaubeere27.jobf.utils.SymbolTable;
+import me.superblaubeere27.jobf.utils.Utils;
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class SymbolTableTest {
+    @Test
+    public void test_intern() {
+        SymbolTable symbols = new SymbolTable();
+        String name = new String("java/lang/String");
+
+        assertSame("java/lang/String", symbols.intern(name));
+        assertSame(symbols.intern("()V"), symbols.intern(new String("()V")));
+        assertNull(symbols.intern((String) null));
+        assertEquals(2, symbols.size());
+    }
+
+    @Test
+    public void test_classVisitor() throws IOException {
+        SymbolTable symbols = new SymbolTable();
+        ClassNode a = read(SymbolTableTest.class, symbols);
+        ClassNode b = read(ClassHierarchyTest.class, symbols);
+
+        assertSame(a.superName, b.superName);
+        assertSame("me/superblaubeere27/SymbolTableTest", a.name);
+
+        MethodInsnNode call = null;
+
+        for (MethodNode method : a.methods) {
+            for (AbstractInsnNode insn : method.instructions) {
+                if (insn instanceof MethodInsnNode && ((MethodInsnNode) insn).name.equals("intern")) {
+                    call = (MethodInsnNode) insn;
+                }
+            }
+        }
+
+        assertNotNull(call);
+        assertSame("me/superblaubeere27/jobf/utils/SymbolTable", call.owner);
+        assertTrue(Utils.matchMethodNode(call, "me/superblaubeere27/jobf/utils/SymbolTable", "intern", "(Ljava/lang/String;)Ljava/lang/String;"));
+        assertTrue(Utils.matchMethodNode(call, "me/superblaubeere27/jobf/utils/SymbolTable.intern:(Ljava/lang/String;)Ljava/lang/String;"));
+        assertFalse(Utils.matchMethodNode(call, "me/superblaubeere27/jobf/utils/SymbolTable.intern:(Ljava/lang/String;)Ljava/lang/Object;"));
+        assertFalse(Utils.matchMethodNode(call, "me/superblaubeere27/jobf/utils/SymbolTable:intern.(Ljava/lang/String;)Ljava/lang/String;"));
+    }
+
+    private static ClassNode read(Class<?> c, SymbolTable symbols) throws IOException {
+        ClassNode node = new ClassNode(Opcodes.ASM9);
+
+        new ClassReader(c.getName()).accept(new InterningClassVisitor(node, symbols), 0);
+
+        return node;
+    }
+}
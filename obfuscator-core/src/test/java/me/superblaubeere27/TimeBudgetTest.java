@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2017-2019 superblaubeere27, Sam Sun, MarcoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package me.superblaubeere27;
+
+import me.superblaubeere27.jobf.utils.InsnWalker;
+import me.superblaubeere27.jobf.utils.scheduler.TimeBudget;
+import me.superblaubeere27.jobf.utils.scheduler.TimeBudgetExceededException;
+import org.junit.Test;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import static org.junit.Assert.*;
+
+public class TimeBudgetTest {
+    @Test
+    public void test_processorBudget() throws Exception {
+        TimeBudget budget = new TimeBudget(0, 5);
+
+        budget.startClass();
+
+        try {
+            budget.startProcessor("Slow");
+            TimeBudget.check();
+
+            Thread.sleep(20);
+
+            try {
+                TimeBudget.check();
+                fail();
+            } catch (TimeBudgetExceededException e) {
+                assertEquals("Slow", e.getProcessor());
+                assertFalse(e.isClassExceeded());
+            }
+
+            assertTrue(budget.isExceeded());
+            assertFalse(budget.isClassExceeded());
+
+            // The next processor has its own budget
+            budget.startProcessor("Fast");
+            TimeBudget.check();
+
+            assertFalse(budget.isExceeded());
+        } finally {
+            budget.finish();
+        }
+    }
+
+    @Test
+    public void test_classBudget() throws Exception {
+        TimeBudget budget = new TimeBudget(5, 1000);
+
+        budget.startClass();
+
+        try {
+            budget.startProcessor("Fast");
+
+            Thread.sleep(20);
+
+            budget.startProcessor("Other");
+
+            try {
+                TimeBudget.check();
+                fail();
+            } catch (TimeBudgetExceededException e) {
+                assertTrue(e.isClassExceeded());
+            }
+
+            assertTrue(budget.isClassExceeded());
+        } finally {
+            budget.finish();
+        }
+
+        // Threads without a budget are never stopped
+        TimeBudget.check();
+    }
+
+    @Test(expected = TimeBudgetExceededException.class)
+    public void test_walkerChecksBudget() throws Exception {
+        MethodNode method = new MethodNode(Opcodes.ACC_STATIC, "test", "()V", null, null);
+
+        for (int i = 0; i < 10000; i++) method.instructions.add(new InsnNode(Opcodes.NOP));
+
+        InsnWalker walker = new InsnWalker().onOpcode((m, insn) -> {
+        }, Opcodes.NOP);
+        TimeBudget budget = new TimeBudget(1, 0);
+
+        budget.startClass();
+
+        try {
+            Thread.sleep(10);
+
+            walker.walk(method);
+        } finally {
+            budget.finish();
+        }
+    }
+}
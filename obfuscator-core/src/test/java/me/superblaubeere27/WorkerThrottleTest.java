@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2017-2019 superblaubeere27, Sam Sun, MarcoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package me.superblaubeere27;
+
+import me.superblaubeere27.jobf.utils.scheduler.WorkerThrottle;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WorkerThrottleTest {
+    @Test
+    public void test_limit() {
+        WorkerThrottle throttle = new WorkerThrottle(8);
+
+        assertEquals(8, throttle.getLimit());
+
+        throttle.update(0.95, 0);
+        assertEquals(4, throttle.getLimit());
+
+        throttle.update(0.5, 0.5);
+        assertEquals(2, throttle.getLimit());
+
+        // Between the thresholds nothing changes
+        throttle.update(0.7, 0);
+        assertEquals(2, throttle.getLimit());
+
+        for (int i = 0; i < 10; i++) throttle.update(0.1, 0);
+
+        assertEquals(8, throttle.getLimit());
+
+        for (int i = 0; i < 10; i++) throttle.update(1, 1);
+
+        assertEquals(1, throttle.getLimit());
+
+        assertEquals(1, throttle.weight(100));
+        assertEquals(8, throttle.weight(Integer.MAX_VALUE));
+        assertEquals(1, throttle.weightOfClassFile(1000));
+        assertEquals(8, throttle.weightOfClassFile(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void test_acquire() throws Exception {
+        WorkerThrottle throttle = new WorkerThrottle(2);
+
+        throttle.update(1, 1);
+
+        // A class which is heavier than the limit runs alone
+        throttle.acquire(2);
+        assertEquals(2, throttle.getActive());
+
+        AtomicBoolean acquired = new AtomicBoolean();
+        Thread thread = new Thread(() -> {
+            try {
+                throttle.acquire(1);
+                acquired.set(true);
+            } catch (InterruptedException ignored) {
+            }
+        });
+
+        thread.start();
+        thread.join(100);
+
+        assertFalse(acquired.get());
+
+        throttle.release(2);
+        thread.join(1000);
+
+        assertTrue(acquired.get());
+        assertEquals(1, throttle.getActive());
+    }
+}